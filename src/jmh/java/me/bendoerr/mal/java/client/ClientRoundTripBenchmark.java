@@ -0,0 +1,115 @@
+package me.bendoerr.mal.java.client;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import me.bendoerr.mal.java.client.model.AnimeEntry;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+import me.bendoerr.mal.java.client.model.AnimeListEntryValues;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+
+/**
+ * Full {@link MALClient} calls against an in-process WireMock stub of MAL, so including Jersey, the connection pool and
+ * a loopback HTTP exchange. Absolute numbers mostly reflect WireMock, compare them between runs rather than with the
+ * parsing benchmarks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientRoundTripBenchmark {
+
+    private static final int PORT = 8095;
+
+    @Param({"10", "1000"})
+    int entries;
+
+    private WireMockServer server;
+    private MALClient client;
+    private MALClient streamingClient;
+    private AnimeListEntryValues values;
+
+    @Setup
+    public void setup() {
+        server = new WireMockServer(wireMockConfig().port(PORT));
+        server.start();
+
+        server.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/xml; charset=UTF-8")
+                        .withBody(SyntheticDocuments.search(entries))));
+        server.stubFor(get(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/xml; charset=UTF-8")
+                        .withBody(SyntheticDocuments.malappinfo(entries))));
+
+        server.stubFor(post(urlPathMatching("/api/animelist/update/.*"))
+                .willReturn(aResponse()
+                        .withBody("Updated")));
+
+        client = new MALClient("benchmark", "benchmark", "http://localhost:" + PORT);
+        streamingClient = MALClient.builder()
+                .credentials("benchmark", "benchmark")
+                .malUrl("http://localhost:" + PORT)
+                .streamValues(true)
+                .build();
+
+        values = new AnimeListEntryValues();
+        values.setEpisode("11");
+        values.setStatus("1");
+        values.setScore("7");
+        values.setTags("benchmark, synthetic");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close();
+        streamingClient.close();
+        server.stop();
+    }
+
+    @Benchmark
+    public List<AnimeEntry> animeSearch() {
+        return client.animeSearch("synthetic");
+    }
+
+    @Benchmark
+    public List<AnimeListEntry> x_animeList() {
+        return client.x_animeList("benchmark");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void animeListUpdate() {
+        client.animeListUpdate("2889", values);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void animeListUpdateStreamed() {
+        streamingClient.animeListUpdate("2889", values);
+    }
+}
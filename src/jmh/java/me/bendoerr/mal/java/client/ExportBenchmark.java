@@ -0,0 +1,132 @@
+package me.bendoerr.mal.java.client;
+
+import me.bendoerr.mal.java.client.export.AnimeListExporter;
+import me.bendoerr.mal.java.client.export.ExportFormat;
+import me.bendoerr.mal.java.client.export.ExportStats;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+import me.bendoerr.mal.java.client.xml.XmlRecordReader;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exporting many users' anime lists with {@link AnimeListExporter}, without any HTTP, to an output that discards what
+ * is written.
+ * <p>
+ * One operation exports every user, to one output or, for {@link ExportFormat#MAL_XML}, to an output each.
+ * Throughput in entries and bytes written per second is reported through the {@link Throughput#entries} and
+ * {@link Throughput#bytes} counters, the latter after compression when gzipped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExportBenchmark {
+
+    @Param({"CSV", "NDJSON", "MAL_XML"})
+    ExportFormat format;
+
+    @Param({"false", "true"})
+    boolean gzip;
+
+    @Param({"1", "4"})
+    int parallelism;
+
+    @Param({"100"})
+    int users;
+
+    @Param({"500"})
+    int entries;
+
+    private final List<String> usernames = new ArrayList<>();
+    private List<AnimeListEntry> list;
+    private AnimeListExporter exporter;
+
+    @State(Scope.Thread)
+    @AuxCounters
+    public static class Throughput {
+
+        public long entries;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            entries = 0;
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        list = new ArrayList<>(entries);
+
+        try (XmlRecordReader<AnimeListEntry> reader = new XmlRecordReader<>(
+                new ByteArrayInputStream(SyntheticDocuments.malappinfo(entries)), "anime", AnimeListEntry.class)) {
+
+            while (reader.hasNext())
+                list.add(reader.next());
+        }
+
+        for (int i = 0; i < users; i++)
+            usernames.add("benchmark" + i);
+
+        exporter = new AnimeListExporter(format).gzip(gzip).parallelism(parallelism);
+    }
+
+    @Benchmark
+    public ExportStats export(final Throughput throughput) throws IOException {
+        // MAL_XML is a document per user, which only exports to an output per user
+        final ExportStats stats = format == ExportFormat.MAL_XML
+                ? exporter.exportEach(usernames, username -> list.stream(), username -> NullChannel.INSTANCE)
+                : exporter.export(usernames, username -> list.stream(), NullChannel.INSTANCE);
+
+        throughput.entries += stats.getEntries();
+        throughput.bytes += stats.getBytes();
+
+        return stats;
+    }
+
+    /**
+     * Discards everything written to it.
+     */
+    private static final class NullChannel implements WritableByteChannel {
+
+        private static final NullChannel INSTANCE = new NullChannel();
+
+        @Override
+        public int write(final ByteBuffer src) {
+            final int remaining = src.remaining();
+            src.position(src.limit());
+            return remaining;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package me.bendoerr.mal.java.client;
+
+import me.bendoerr.mal.java.client.model.AnimeEntry;
+import me.bendoerr.mal.java.client.model.LazyAnimeEntry;
+import me.bendoerr.mal.java.client.xml.XmlRecordReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Eager against lazy decoding of {@code anime/search.xml} responses, without any HTTP.
+ * <p>
+ * The listing benchmarks read the id, title, type and image of every result, as a search results page would, the
+ * eager one through {@link XmlRecordReader} as {@link MALClient#animeSearchPublisher(String)} does and the lazy one
+ * through {@link LazyAnimeEntry} as {@link MALClient#animeSearchLazy(String)} does. {@link #allFieldsLazy} reads every
+ * field, the lazy worst case. Compare {@code gc.alloc.rate.norm} for the allocation per response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LazySearchBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int entries;
+
+    private byte[] search;
+
+    @Setup
+    public void setup() {
+        search = SyntheticDocuments.search(entries);
+    }
+
+    @Benchmark
+    public void listingEager(final Blackhole blackhole) {
+        try (XmlRecordReader<AnimeEntry> reader =
+                     new XmlRecordReader<>(new ByteArrayInputStream(search), "entry", AnimeEntry.class)) {
+
+            while (reader.hasNext()) {
+                final AnimeEntry entry = reader.next();
+
+                blackhole.consume(entry.getId());
+                blackhole.consume(entry.getTitle());
+                blackhole.consume(entry.getType());
+                blackhole.consume(entry.getImage());
+            }
+        }
+    }
+
+    @Benchmark
+    public void listingLazy(final Blackhole blackhole) {
+        for (LazyAnimeEntry entry : LazyAnimeEntry.parse(search)) {
+            blackhole.consume(entry.getId());
+            blackhole.consume(entry.getTitle());
+            blackhole.consume(entry.getType());
+            blackhole.consume(entry.getImage());
+        }
+    }
+
+    @Benchmark
+    public void allFieldsLazy(final Blackhole blackhole) {
+        for (LazyAnimeEntry entry : LazyAnimeEntry.parse(search))
+            blackhole.consume(entry.toAnimeEntry());
+    }
+}
@@ -0,0 +1,78 @@
+package me.bendoerr.mal.java.client;
+
+import me.bendoerr.mal.java.client.metrics.Operation;
+import me.bendoerr.mal.java.client.model.AnimeListEntryValues;
+import me.bendoerr.mal.java.client.xml.AnimeListEntryValuesWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marshalling of {@link AnimeListEntryValues} into the {@code data} form parameter of add and update requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarshallingBenchmark {
+
+    private JerseyTransport transport;
+    private AnimeListEntryValues values;
+
+    @Setup
+    public void setup() {
+        transport = new JerseyTransport(MALClient.builder().malUrl("http://localhost:1"));
+
+        values = new AnimeListEntryValues();
+        values.setEpisode("11");
+        values.setStatus("1");
+        values.setScore("7");
+        values.setDateStart("10052004");
+        values.setComments("Synthetic & <escaped> comments");
+        values.setTags("benchmark, synthetic");
+    }
+
+    @TearDown
+    public void tearDown() {
+        transport.close();
+    }
+
+    /**
+     * What {@code xml()} used to do, a new context and marshaller for every call. Kept as the baseline.
+     */
+    @Benchmark
+    public String jaxbContextPerCall() throws JAXBException {
+        final StringWriter sw = new StringWriter();
+        JAXBContext.newInstance(AnimeListEntryValues.class).createMarshaller().marshal(values, sw);
+        return sw.toString();
+    }
+
+    @Benchmark
+    public String animeListEntryValues() {
+        return transport.xml(Operation.ANIME_LIST_UPDATE, values);
+    }
+
+    @Benchmark
+    public int streamedForm() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        AnimeListEntryValuesWriter.writeForm("data", values, out);
+        return out.size();
+    }
+}
@@ -0,0 +1,97 @@
+package me.bendoerr.mal.java.client;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import me.bendoerr.mal.java.client.model.AnimeListEntryValues;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+
+/**
+ * Updates on behalf of randomly chosen users, either through one {@link MALClient} per user or through
+ * {@link MALClient#forUser(String, String) per-user handles} on one shared client. Per-user clients each open their
+ * own connections, so with many users most requests pay for a new connection. See
+ * {@link MultiTenantFootprintBenchmark} for the heap each approach retains.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class MultiTenantBenchmark {
+
+    private static final int PORT = 8096;
+
+    @Param({"10", "1000"})
+    int users;
+
+    private WireMockServer server;
+    private MALClient shared;
+    private MALClient[] handles;
+    private MALClient[] clients;
+    private AnimeListEntryValues values;
+
+    @Setup
+    public void setup() {
+        server = new WireMockServer(wireMockConfig().port(PORT));
+        server.start();
+
+        server.stubFor(post(urlPathMatching("/api/animelist/update/.*"))
+                .willReturn(aResponse()
+                        .withBody("Updated")));
+
+        shared = MALClient.builder()
+                .malUrl("http://localhost:" + PORT)
+                .build();
+
+        handles = new MALClient[users];
+        clients = new MALClient[users];
+
+        for (int i = 0; i < users; i++) {
+            handles[i] = shared.forUser("user" + i, "pass" + i);
+            clients[i] = new MALClient("user" + i, "pass" + i, "http://localhost:" + PORT);
+        }
+
+        values = new AnimeListEntryValues();
+        values.setEpisode("11");
+        values.setStatus("1");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        for (MALClient client : clients)
+            client.close();
+
+        shared.close();
+        server.stop();
+    }
+
+    @Benchmark
+    public void sharedClient() {
+        handles[ThreadLocalRandom.current().nextInt(users)].animeListUpdate("2889", values);
+    }
+
+    @Benchmark
+    public void clientPerUser() {
+        clients[ThreadLocalRandom.current().nextInt(users)].animeListUpdate("2889", values);
+    }
+}
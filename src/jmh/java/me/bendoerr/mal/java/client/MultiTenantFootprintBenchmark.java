@@ -0,0 +1,87 @@
+package me.bendoerr.mal.java.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Compares the retained heap and creation time of one {@link MALClient} per user with that of
+ * {@link MALClient#forUser(String, String) per-user handles} on one shared client.
+ * <p>
+ * Not a JMH benchmark, since JMH measures time rather than retained heap. Run with {@code java -Xmx1g -cp ...
+ * MultiTenantFootprintBenchmark [users]}. Figures are approximate, they come from {@link Runtime} before and after
+ * creating the clients. No requests are made, so neither figure includes open connections.
+ */
+public class MultiTenantFootprintBenchmark {
+
+    private static final String MAL_URL = "http://localhost:8096";
+
+    public static void main(final String[] args) throws Exception {
+        final int users = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+
+        try (MALClient shared = MALClient.builder().malUrl(MAL_URL).build()) {
+            // Warm up the classes
+            close(measure(100, i -> new MALClient("user" + i, "pass" + i, MAL_URL)));
+            measure(100, i -> shared.forUser("user" + i, "pass" + i));
+
+            long start = System.nanoTime();
+            final Measured perUser = measure(users, i -> new MALClient("user" + i, "pass" + i, MAL_URL));
+            final long perUserNanos = System.nanoTime() - start;
+            close(perUser);
+
+            start = System.nanoTime();
+            final Measured handles = measure(users, i -> shared.forUser("user" + i, "pass" + i));
+            final long handleNanos = System.nanoTime() - start;
+
+            System.out.printf("Client per user: %,12d bytes total, %,8d bytes/user, %,8d us/user%n",
+                    perUser.bytes, perUser.bytes / users, perUserNanos / users / 1000);
+            System.out.printf("Shared client:   %,12d bytes total, %,8d bytes/user, %,8d us/user%n",
+                    handles.bytes, handles.bytes / users, handleNanos / users / 1000);
+        }
+    }
+
+    private static final class Measured {
+        final List<MALClient> clients;
+        final long bytes;
+
+        Measured(final List<MALClient> clients, final long bytes) {
+            this.clients = clients;
+            this.bytes = bytes;
+        }
+    }
+
+    private static Measured measure(
+            final int count,
+            final IntFunction<MALClient> factory) {
+
+        final List<MALClient> retained = new ArrayList<>(count);
+        final long before = used();
+
+        for (int i = 0; i < count; i++)
+            retained.add(factory.apply(i));
+
+        return new Measured(retained, used() - before);
+    }
+
+    private static void close(
+            final Measured measured) throws Exception {
+
+        for (MALClient client : measured.clients)
+            client.close();
+    }
+
+    private static long used() {
+        final Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
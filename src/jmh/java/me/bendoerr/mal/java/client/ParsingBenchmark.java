@@ -0,0 +1,116 @@
+package me.bendoerr.mal.java.client;
+
+import me.bendoerr.mal.java.client.model.AnimeEntry;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+import me.bendoerr.mal.java.client.xml.XmlRecordReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * Unmarshalling of {@code malappinfo.php} and {@code anime/search.xml} responses, without any HTTP.
+ * <p>
+ * The JAXB benchmarks do what Jersey's JAXB providers do with a response body, the {@link XmlRecordReader} ones what
+ * {@link MALClient#x_animeListStream(String)} does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsingBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int entries;
+
+    private byte[] malappinfo;
+    private byte[] search;
+    private JAXBContext holderContext;
+    private JAXBContext entryContext;
+    private XMLInputFactory factory;
+
+    @Setup
+    public void setup() throws JAXBException {
+        malappinfo = SyntheticDocuments.malappinfo(entries);
+        search = SyntheticDocuments.search(entries);
+        holderContext = JAXBContext.newInstance(AnimeListEntry.Holder.class);
+        entryContext = JAXBContext.newInstance(AnimeEntry.class);
+        factory = XMLInputFactory.newInstance();
+    }
+
+    @Benchmark
+    public List<AnimeListEntry> animeListJaxb() throws JAXBException {
+        return ((AnimeListEntry.Holder) holderContext.createUnmarshaller()
+                .unmarshal(new ByteArrayInputStream(malappinfo))).getRecords();
+    }
+
+    @Benchmark
+    public void animeListStreaming(final Blackhole blackhole) {
+        try (XmlRecordReader<AnimeListEntry> reader =
+                     new XmlRecordReader<>(new ByteArrayInputStream(malappinfo), "anime", AnimeListEntry.class)) {
+
+            while (reader.hasNext())
+                blackhole.consume(reader.next());
+        }
+    }
+
+    /**
+     * A root element wrapping a collection, bound one element at a time as Jersey's collection provider does for
+     * {@code List<AnimeEntry>}.
+     */
+    @Benchmark
+    public List<AnimeEntry> searchJaxb() throws JAXBException, XMLStreamException {
+        final Unmarshaller unmarshaller = entryContext.createUnmarshaller();
+        final XMLStreamReader reader = factory.createXMLStreamReader(new ByteArrayInputStream(search));
+        final List<AnimeEntry> results = new ArrayList<>();
+
+        try {
+            reader.nextTag();
+            reader.nextTag();
+
+            while (reader.getEventType() == START_ELEMENT) {
+                results.add(unmarshaller.unmarshal(reader, AnimeEntry.class).getValue());
+
+                if (reader.isWhiteSpace())
+                    reader.nextTag();
+            }
+        } finally {
+            reader.close();
+        }
+
+        return results;
+    }
+
+    @Benchmark
+    public void searchStreaming(final Blackhole blackhole) {
+        try (XmlRecordReader<AnimeEntry> reader =
+                     new XmlRecordReader<>(new ByteArrayInputStream(search), "entry", AnimeEntry.class)) {
+
+            while (reader.hasNext())
+                blackhole.consume(reader.next());
+        }
+    }
+}
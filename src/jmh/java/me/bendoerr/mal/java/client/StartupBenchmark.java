@@ -0,0 +1,79 @@
+package me.bendoerr.mal.java.client;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import me.bendoerr.mal.java.client.model.AnimeEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+
+/**
+ * Cold start of a {@link MALClient}: building it and making its first search, once per fresh JVM, with the default
+ * Jersey transport and with the {@link UrlConnectionTransport}. This is what a short-lived process pays before it gets
+ * its first result, class loading and JAXB or parser setup included.
+ * <p>
+ * The WireMock stub is started before the measurement in the same JVM, so classes it shares with the client, such as
+ * the JDK's XML parsers, may already be loaded, which flatters both transports alike.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class StartupBenchmark {
+
+    private static final int PORT = 8097;
+    private static final String MAL_URL = "http://localhost:" + PORT;
+
+    @Param({"jersey", "urlconnection"})
+    String transport;
+
+    private WireMockServer server;
+
+    @Setup
+    public void setup() {
+        server = new WireMockServer(wireMockConfig().port(PORT));
+        server.start();
+
+        server.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/xml; charset=UTF-8")
+                        .withBody(SyntheticDocuments.search(10))));
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public List<AnimeEntry> firstSearch() throws Exception {
+        final MALClientBuilder builder = MALClient.builder()
+                .credentials("benchmark", "benchmark")
+                .malUrl(MAL_URL);
+
+        if ("urlconnection".equals(transport))
+            builder.transport(new UrlConnectionTransport(MAL_URL));
+
+        try (MALClient client = builder.build()) {
+            return client.animeSearch("benchmark");
+        }
+    }
+}
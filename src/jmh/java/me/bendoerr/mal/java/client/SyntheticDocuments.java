@@ -0,0 +1,91 @@
+package me.bendoerr.mal.java.client;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds MAL XML documents of any size for the benchmarks, shaped like the real responses.
+ */
+final class SyntheticDocuments {
+
+    private SyntheticDocuments() {
+    }
+
+    /**
+     * @param entries number of {@code <anime>} entries
+     * @return a {@code malappinfo.php} response
+     */
+    static byte[] malappinfo(
+            final int entries) {
+
+        final StringBuilder xml = new StringBuilder(entries * 700 + 512)
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<myanimelist>\n")
+                .append("  <myinfo>\n")
+                .append("    <user_id>1234567</user_id>\n")
+                .append("    <user_name>benchmark</user_name>\n")
+                .append("    <user_watching>").append(entries).append("</user_watching>\n")
+                .append("    <user_days_spent_watching>12.34</user_days_spent_watching>\n")
+                .append("  </myinfo>\n");
+
+        for (int i = 1; i <= entries; i++) {
+            xml.append("  <anime>\n")
+                    .append("    <series_animedb_id>").append(i).append("</series_animedb_id>\n")
+                    .append("    <series_title>Synthetic Series ").append(i).append(" &amp; Friends</series_title>\n")
+                    .append("    <series_synonyms>; Series ").append(i).append("</series_synonyms>\n")
+                    .append("    <series_type>").append(1 + i % 6).append("</series_type>\n")
+                    .append("    <series_episodes>").append(12 + i % 14).append("</series_episodes>\n")
+                    .append("    <series_status>2</series_status>\n")
+                    .append("    <series_start>2004-10-05</series_start>\n")
+                    .append("    <series_end>2012-03-27</series_end>\n")
+                    .append("    <series_image>http://cdn.myanimelist.net/images/anime/3/").append(i)
+                    .append(".jpg</series_image>\n")
+                    .append("    <my_id>0</my_id>\n")
+                    .append("    <my_watched_episodes>").append(i % 12).append("</my_watched_episodes>\n")
+                    .append("    <my_start_date>0000-00-00</my_start_date>\n")
+                    .append("    <my_finish_date>0000-00-00</my_finish_date>\n")
+                    .append("    <my_score>").append(i % 11).append("</my_score>\n")
+                    .append("    <my_status>").append(1 + i % 4).append("</my_status>\n")
+                    .append("    <my_rewatching>0</my_rewatching>\n")
+                    .append("    <my_rewatching_ep>0</my_rewatching_ep>\n")
+                    .append("    <my_last_updated>").append(1459535066L + i).append("</my_last_updated>\n")
+                    .append("    <my_tags>benchmark, synthetic</my_tags>\n")
+                    .append("  </anime>\n");
+        }
+
+        return xml.append("</myanimelist>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param entries number of {@code <entry>} results
+     * @return an {@code anime/search.xml} response
+     */
+    static byte[] search(
+            final int entries) {
+
+        final StringBuilder xml = new StringBuilder(entries * 1200 + 64)
+                .append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n")
+                .append("<anime>\n");
+
+        for (int i = 1; i <= entries; i++) {
+            xml.append("  <entry>\n")
+                    .append("    <id>").append(i).append("</id>\n")
+                    .append("    <title>Synthetic Series ").append(i).append("</title>\n")
+                    .append("    <english>Synthetic Series ").append(i).append(": The Movie</english>\n")
+                    .append("    <synonyms>Series ").append(i).append("; Synthetic</synonyms>\n")
+                    .append("    <episodes>").append(1 + i % 26).append("</episodes>\n")
+                    .append("    <type>Movie</type>\n")
+                    .append("    <status>Finished Airing</status>\n")
+                    .append("    <start_date>2007-12-22</start_date>\n")
+                    .append("    <end_date>2007-12-22</end_date>\n")
+                    .append("    <synopsis>A valuable artifact known as &amp;quot;King's Seal&amp;quot; is stolen ")
+                    .append("by a mysterious group of people during transport in Soul Society. Hitsugaya Toushiro, ")
+                    .append("the 10th division captain of Gotei 13, who is assigned to transport the seal fights ")
+                    .append("the leader of the group and shortly after goes missing. (from ANN)</synopsis>\n")
+                    .append("    <image>http://cdn.myanimelist.net/images/anime/6/").append(i)
+                    .append(".jpg</image>\n")
+                    .append("  </entry>\n");
+        }
+
+        return xml.append("</anime>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
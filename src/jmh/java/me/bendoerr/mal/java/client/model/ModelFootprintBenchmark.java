@@ -0,0 +1,89 @@
+package me.bendoerr.mal.java.client.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Compares the retained heap of {@link AnimeListEntry} and {@link TypedAnimeListEntry} lists.
+ * <p>
+ * Not a JMH benchmark, since JMH measures time rather than retained heap. Run with {@code java -Xmx1g -cp ...
+ * ModelFootprintBenchmark [entries]}. Figures are approximate, they come from {@link Runtime} before and after
+ * building each list.
+ */
+public class ModelFootprintBenchmark {
+
+    private static final String[] TYPES = {"1", "2", "3", "4", "5", "6"};
+
+    public static void main(final String[] args) {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        // Warm up the classes and the interner
+        measure(1000, ModelFootprintBenchmark::entry);
+        measure(1000, i -> TypedAnimeListEntry.of(entry(i)));
+
+        final long strings = measure(count, ModelFootprintBenchmark::entry);
+        final long typed = measure(count, i -> TypedAnimeListEntry.of(entry(i)));
+
+        System.out.printf("AnimeListEntry:      %,12d bytes total, %,6d bytes/entry%n", strings, strings / count);
+        System.out.printf("TypedAnimeListEntry: %,12d bytes total, %,6d bytes/entry%n", typed, typed / count);
+        System.out.printf("Ratio:               %.2f%n", (double) typed / strings);
+    }
+
+    static AnimeListEntry entry(final int i) {
+        final AnimeListEntry entry = new AnimeListEntry();
+        entry.setSeriesId(Integer.toString(i));
+        entry.setSeriesTitle("Series " + i);
+        entry.setSeriesSynonyms("");
+        entry.setSeriesType(new String(TYPES[i % TYPES.length]));
+        entry.setSeriesEpisodes(Integer.toString(12 + i % 14));
+        entry.setSeriesStatus(new String("2"));
+        entry.setSeriesStart(String.format("%04d-%02d-%02d", 1990 + i % 25, 1 + i % 12, 1 + i % 28));
+        entry.setSeriesEnd("0000-00-00");
+        entry.setSeriesImage("http://cdn.myanimelist.net/images/anime/" + i + ".jpg");
+        entry.setListId("0");
+        entry.setListWatchedEpisodes(Integer.toString(i % 12));
+        entry.setListStart("0000-00-00");
+        entry.setListFinished("0000-00-00");
+        entry.setListScore(Integer.toString(i % 11));
+        entry.setListStatus(Integer.toString(1 + i % 4));
+        entry.setListRewatching("0");
+        entry.setListRewatchingEp("0");
+        entry.setListLastUpdated(Long.toString(1459535066L + i));
+        entry.setListTags("");
+        return entry;
+    }
+
+    private static long measure(
+            final int count,
+            final IntFunction<Object> factory) {
+
+        final List<Object> retained = new ArrayList<>(count);
+        final long before = used();
+
+        for (int i = 0; i < count; i++)
+            retained.add(factory.apply(i));
+
+        final long after = used();
+
+        if (retained.size() != count)
+            throw new IllegalStateException();
+
+        return after - before;
+    }
+
+    private static long used() {
+        final Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
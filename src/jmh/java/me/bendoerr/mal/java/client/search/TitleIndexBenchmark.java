@@ -0,0 +1,65 @@
+package me.bendoerr.mal.java.client.search;
+
+import me.bendoerr.mal.java.client.model.AnimeEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TitleIndex} lookups over synthetic titles, to compare with a {@code ClientRoundTripBenchmark} search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TitleIndexBenchmark {
+
+    private static final String[] WORDS = {
+            "bleach", "cowboy", "bebop", "naruto", "shippuden", "movie", "special", "rebellion", "tengoku", "tobira",
+            "monsters", "pocket", "diamond", "dust", "hunter", "fullmetal", "alchemist", "brotherhood", "steins", "gate"
+    };
+
+    @Param({"10000", "100000"})
+    int entries;
+
+    private TitleIndex index;
+
+    @Setup
+    public void setup() {
+        final List<AnimeEntry> anime = new ArrayList<>(entries);
+
+        for (int i = 0; i < entries; i++) {
+            final AnimeEntry entry = new AnimeEntry();
+            entry.setId(Integer.toString(i));
+            entry.setTitle(WORDS[i % WORDS.length] + " " + WORDS[i / WORDS.length % WORDS.length] + " " + i);
+            entry.setSynonyms(WORDS[i * 7 % WORDS.length] + " " + i + "; Series " + i);
+            anime.add(entry);
+        }
+
+        index = new TitleIndex().addAll(anime);
+    }
+
+    @Benchmark
+    public List<TitleMatch> exact() {
+        return index.search("cowboy bebop 21", 0.8, 50);
+    }
+
+    @Benchmark
+    public List<TitleMatch> typo() {
+        return index.search("cowbyo bebop 21", 0.6, 50);
+    }
+}
@@ -0,0 +1,274 @@
+package me.bendoerr.mal.java.client;
+
+import lombok.NonNull;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.ServerErrorException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Stops a {@link MALClient} from sending reads to MAL while it is failing or slow, so that callers fail fast with a
+ * {@link CircuitOpenException} instead of piling up behind socket timeouts.
+ * <p>
+ * The outcomes of the last {@code windowSize} calls are kept. A call is bad if it failed with a {@code 5xx} status or
+ * a {@link ProcessingException}, such as a timeout or a broken connection, or if it took at least
+ * {@code slowCallDuration}, successful or not. Other {@code 4xx} statuses, throttling included, mean MAL is answering
+ * and count as good. Once the window is full and the share of bad calls reaches {@code failureRateThreshold} the
+ * circuit opens:
+ * <ul>
+ *     <li>{@link State#OPEN}: every call is rejected until {@code openDuration} has passed,</li>
+ *     <li>{@link State#HALF_OPEN}: a single probe call is let through, the rest are rejected. A good probe closes the
+ *     circuit with an empty window, a bad one opens it again.</li>
+ * </ul>
+ * Searches served from the client's {@link me.bendoerr.mal.java.client.cache.SearchCache} never reach the breaker, so
+ * cached searches keep being answered while it is open.
+ * <pre>
+ * {@code
+ * CircuitBreaker breaker = new CircuitBreaker(20, 0.5, 5, 30, TimeUnit.SECONDS);
+ * MALClient client = MALClient.builder()
+ *         .credentials("user", "pass")
+ *         .readTimeout(10, TimeUnit.SECONDS)
+ *         .circuitBreaker(breaker)
+ *         .build();
+ * }
+ * </pre>
+ * Instances are thread-safe and may be shared between clients of the same MAL host.
+ */
+public class CircuitBreaker {
+
+    /**
+     * The states of a circuit breaker.
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final boolean[] window;
+    private final int maxBadCalls;
+    private final long slowCallNanos;
+    private final long openNanos;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong opened = new AtomicLong();
+
+    private State state = State.CLOSED;
+    private int next;
+    private int calls;
+    private int badCalls;
+    private long openedAt;
+    private boolean probing;
+
+    /**
+     * @param windowSize           number of most recent calls judged, must be positive
+     * @param failureRateThreshold share of bad calls in a full window that opens the circuit, in {@code (0, 1]}
+     * @param slowCallDuration     at and above which a call is bad, must be positive
+     * @param openDuration         how long the circuit stays open before letting a probe through, must be positive
+     * @param unit                 {@code [required]} of the durations
+     * @throws NullPointerException     if unit is null
+     * @throws IllegalArgumentException if any of the other parameters are out of range
+     */
+    public CircuitBreaker(
+            final int windowSize,
+            final double failureRateThreshold,
+            final long slowCallDuration,
+            final long openDuration,
+            @NonNull final TimeUnit unit) {
+
+        if (windowSize <= 0)
+            throw new IllegalArgumentException("windowSize must be positive");
+
+        if (!(failureRateThreshold > 0 && failureRateThreshold <= 1))
+            throw new IllegalArgumentException("failureRateThreshold must be in (0, 1]");
+
+        if (slowCallDuration <= 0 || openDuration <= 0)
+            throw new IllegalArgumentException("durations must be positive");
+
+        this.window = new boolean[windowSize];
+        this.maxBadCalls = Math.max(1, (int) Math.ceil(failureRateThreshold * windowSize));
+        this.slowCallNanos = unit.toNanos(slowCallDuration);
+        this.openNanos = unit.toNanos(openDuration);
+    }
+
+    /**
+     * @return the current state, an open circuit whose open duration has passed still reads as open until the next
+     * call probes it
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return the number of calls rejected without being sent
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return the number of times the circuit has opened
+     */
+    public long getOpened() {
+        return opened.get();
+    }
+
+    /**
+     * Run a blocking call through the breaker.
+     *
+     * @throws CircuitOpenException if the call is rejected
+     */
+    <T> T call(
+            final Supplier<T> call) {
+
+        acquire();
+
+        final long start = System.nanoTime();
+        final T result;
+
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            onResult(start, e);
+            throw e;
+        }
+
+        onResult(start, null);
+        return result;
+    }
+
+    /**
+     * Run a non-blocking call through the breaker, a rejected call returns a future failed with a
+     * {@link CircuitOpenException}. The returned future completes after the call's outcome is judged, and cancelling it
+     * cancels the call. A cancelled call is not judged.
+     */
+    <T> CompletableFuture<T> callAsync(
+            final Supplier<CompletableFuture<T>> call) {
+
+        try {
+            acquire();
+        } catch (CircuitOpenException e) {
+            final CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+
+        final long start = System.nanoTime();
+        final CompletableFuture<T> result;
+
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            onResult(start, e);
+            throw e;
+        }
+
+        // Complete the caller's future only once the outcome is judged, so that it sees the state the call led to
+        final CompletableFuture<T> judged = new CompletableFuture<>();
+
+        result.whenComplete((r, t) -> {
+            onResult(start, t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+
+            if (t != null)
+                judged.completeExceptionally(t);
+            else
+                judged.complete(r);
+        });
+
+        judged.whenComplete((r, t) -> {
+            if (judged.isCancelled())
+                result.cancel(true);
+        });
+
+        return judged;
+    }
+
+    private void acquire() {
+        synchronized (this) {
+            if (state == State.CLOSED)
+                return;
+
+            if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+                state = State.HALF_OPEN;
+                probing = false;
+            }
+
+            if (state == State.HALF_OPEN && !probing) {
+                probing = true;
+                return;
+            }
+        }
+
+        rejected.incrementAndGet();
+        throw new CircuitOpenException("Circuit breaker is open, MAL is failing or slow");
+    }
+
+    private synchronized void onResult(
+            final long start,
+            final Throwable error) {
+
+        if (error instanceof CancellationException) {
+            // Not an outcome, but a cancelled probe must not keep the circuit half-open forever
+            if (state == State.HALF_OPEN)
+                probing = false;
+            return;
+        }
+
+        final boolean bad = System.nanoTime() - start >= slowCallNanos
+                || error instanceof ServerErrorException
+                || error instanceof ProcessingException;
+
+        switch (state) {
+            case HALF_OPEN:
+                if (bad)
+                    open();
+                else
+                    close();
+                break;
+            case CLOSED:
+                record(bad);
+                break;
+            default:
+                // A call that started before the circuit opened, it has already been judged by the rest
+                break;
+        }
+    }
+
+    private void record(
+            final boolean bad) {
+
+        if (calls == window.length && window[next])
+            badCalls--;
+        else if (calls < window.length)
+            calls++;
+
+        window[next] = bad;
+        next = (next + 1) % window.length;
+
+        if (bad)
+            badCalls++;
+
+        if (calls == window.length && badCalls >= maxBadCalls)
+            open();
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        probing = false;
+        opened.incrementAndGet();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        probing = false;
+        next = 0;
+        calls = 0;
+        badCalls = 0;
+    }
+}
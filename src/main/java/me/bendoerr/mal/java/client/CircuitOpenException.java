@@ -0,0 +1,18 @@
+package me.bendoerr.mal.java.client;
+
+import javax.ws.rs.ProcessingException;
+
+/**
+ * Thrown instead of sending a request while a {@link CircuitBreaker} is open, or half-open with its probe already in
+ * flight. Being a {@link ProcessingException} it is handled wherever a request that couldn't reach MAL already is.
+ */
+public class CircuitOpenException extends ProcessingException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(
+            final String message) {
+
+        super(message);
+    }
+}
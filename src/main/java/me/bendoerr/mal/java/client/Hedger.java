@@ -0,0 +1,251 @@
+package me.bendoerr.mal.java.client;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.metrics.Histogram;
+import me.bendoerr.mal.java.client.metrics.MALMetricsListener;
+import me.bendoerr.mal.java.client.metrics.Operation;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Hedges the reads of a {@link MALClient}: if a request hasn't completed by the time most requests of its operation
+ * have, an identical second request is sent and whichever succeeds first wins, the other being cancelled.
+ * <p>
+ * The hedge delay of an operation is the configured percentile of the latency of its recent successful requests, but
+ * no less than the minimum delay. Nothing is hedged until {@link #MIN_SAMPLES} requests have succeeded, and the delay
+ * is recomputed every {@link #MIN_SAMPLES} requests from the last {@link #WINDOW} or so, so it follows MAL as it slows
+ * down or recovers. A request that fails before its hedge is sent is not hedged, that is for retries to deal with, and
+ * a hedge is only sent if the rate limit has a permit to spare.
+ * <p>
+ * With a percentile {@code p} roughly {@code 100 - p} percent of the requests are hedged while latency is steady.
+ */
+final class Hedger implements AutoCloseable {
+
+    static final int MIN_SAMPLES = 20;
+    static final int WINDOW = 1000;
+
+    private final Map<Operation, Latency> latencies = new EnumMap<>(Operation.class);
+    private final BooleanSupplier permit;
+    private final MALMetricsListener metrics;
+
+    private ScheduledExecutorService timer;
+
+    Hedger(
+            @NonNull final MALClientBuilder builder,
+            @NonNull final BooleanSupplier permit) {
+
+        final long minDelayNanos = TimeUnit.MILLISECONDS.toNanos(builder.hedgeMinDelayMillis);
+
+        for (Operation operation : new Operation[]{Operation.ANIME_SEARCH, Operation.ANIME_SEARCH_LAZY,
+                Operation.X_ANIME_LIST})
+            latencies.put(operation, new Latency(builder.hedgePercentile, minDelayNanos));
+
+        this.permit = permit;
+        this.metrics = builder.metrics == MALMetricsListener.NOOP ? null : builder.metrics;
+    }
+
+    /**
+     * Send a request, hedging it if the operation is a hedged read. Cancelling the returned future cancels every
+     * request sent and any hedge still to be sent.
+     */
+    <T> CompletableFuture<T> hedge(
+            final Operation operation,
+            final Supplier<CompletableFuture<T>> attempt) {
+
+        final Latency latency = latencies.get(operation);
+
+        if (latency == null)
+            return attempt.get();
+
+        final Hedge<T> hedge = new Hedge<>(operation, latency, attempt);
+        final long delay = latency.delay;
+
+        hedge.send();
+
+        if (delay >= 0 && !hedge.result.isDone())
+            hedge.schedule(timer().schedule(hedge::hedge, delay, TimeUnit.NANOSECONDS));
+
+        return hedge.result;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (timer != null)
+            timer.shutdownNow();
+    }
+
+    private synchronized ScheduledExecutorService timer() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "mal-client-hedger");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return timer;
+    }
+
+    private static final class Latency {
+
+        private final Histogram histogram = new Histogram();
+        private final AtomicLong samples = new AtomicLong();
+        private final double percentile;
+        private final long minDelayNanos;
+
+        private volatile long delay = -1;
+
+        private Latency(
+                final double percentile,
+                final long minDelayNanos) {
+
+            this.percentile = percentile;
+            this.minDelayNanos = minDelayNanos;
+        }
+
+        private void record(
+                final long nanos) {
+
+            histogram.record(nanos);
+
+            final long n = samples.incrementAndGet();
+
+            if (n % MIN_SAMPLES != 0)
+                return;
+
+            delay = Math.max(minDelayNanos, histogram.getValueAtPercentile(percentile));
+
+            // Keep the delay but start afresh, so that it follows recent rather than all time latency
+            if (n % WINDOW == 0)
+                histogram.reset();
+        }
+    }
+
+    /**
+     * One hedged read: at most two requests, the first failure only failing the read once no request is left running.
+     */
+    private final class Hedge<T> {
+
+        private final Operation operation;
+        private final Latency latency;
+        private final Supplier<CompletableFuture<T>> attempt;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final List<CompletableFuture<T>> running = new ArrayList<>(2);
+
+        private ScheduledFuture<?> scheduled;
+        private boolean hedged;
+
+        private Hedge(
+                final Operation operation,
+                final Latency latency,
+                final Supplier<CompletableFuture<T>> attempt) {
+
+            this.operation = operation;
+            this.latency = latency;
+            this.attempt = attempt;
+
+            result.whenComplete((r, t) -> {
+                final List<CompletableFuture<T>> pending;
+
+                synchronized (this) {
+                    hedged = true;
+                    pending = new ArrayList<>(running);
+
+                    if (scheduled != null)
+                        scheduled.cancel(false);
+                }
+
+                for (CompletableFuture<T> request : pending)
+                    request.cancel(true);
+            });
+        }
+
+        private void schedule(
+                final ScheduledFuture<?> scheduled) {
+
+            final boolean done;
+
+            synchronized (this) {
+                this.scheduled = scheduled;
+                done = hedged;
+            }
+
+            if (done)
+                scheduled.cancel(false);
+        }
+
+        private void hedge() {
+            synchronized (this) {
+                if (hedged)
+                    return;
+
+                hedged = true;
+            }
+
+            if (!permit.getAsBoolean())
+                return;
+
+            if (metrics != null)
+                metrics.onHedge(operation);
+
+            send();
+        }
+
+        private void send() {
+            final long start = System.nanoTime();
+            final CompletableFuture<T> request;
+
+            try {
+                request = attempt.get();
+            } catch (Throwable t) {
+                failed(null, t);
+                return;
+            }
+
+            synchronized (this) {
+                running.add(request);
+            }
+
+            if (result.isDone())
+                request.cancel(true);
+
+            request.whenComplete((r, t) -> {
+                if (t == null) {
+                    latency.record(System.nanoTime() - start);
+                    result.complete(r);
+                } else if (!request.isCancelled()) {
+                    failed(request, t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+                }
+            });
+        }
+
+        private void failed(
+                final CompletableFuture<T> request,
+                final Throwable t) {
+
+            final boolean last;
+
+            synchronized (this) {
+                running.remove(request);
+                // Failures are for retries, not hedges
+                hedged = true;
+                last = running.isEmpty();
+            }
+
+            if (last)
+                result.completeExceptionally(t);
+        }
+    }
+}
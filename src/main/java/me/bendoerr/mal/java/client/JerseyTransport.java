@@ -0,0 +1,525 @@
+package me.bendoerr.mal.java.client;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.metrics.MALMetricsListener;
+import me.bendoerr.mal.java.client.metrics.Operation;
+import me.bendoerr.mal.java.client.model.AnimeEntry;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+import me.bendoerr.mal.java.client.model.AnimeListEntryValues;
+import me.bendoerr.mal.java.client.xml.AnimeListEntryValuesWriter;
+import me.bendoerr.mal.java.client.xml.XmlRecordReader;
+import me.bendoerr.mal.java.client.xml.XmlSerializer;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.execchain.RetryExec;
+import org.apache.http.pool.PoolStats;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.AsyncInvoker;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Form;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.util.Collections.emptyList;
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
+import static javax.ws.rs.client.Entity.entity;
+import static javax.ws.rs.core.MediaType.*;
+import static me.bendoerr.mal.java.client.MALClient.*;
+
+/**
+ * The default {@link MALTransport}: a Jersey client over the Apache connector, with a tuned connection pool owned by
+ * the transport, instrumented for the client's {@link MALMetricsListener} if one is configured.
+ */
+final class JerseyTransport implements MALTransport {
+
+    private static final Logger LOGGER = Logger.getLogger(JerseyTransport.class.getName());
+
+    private final Client client;
+    private final String malUrl;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final ScheduledExecutorService evictor;
+    private final MetricsInstrumentation metrics;
+    private final boolean streamValues;
+
+    JerseyTransport(
+            @NonNull final MALClientBuilder builder) {
+
+        metrics = builder.metrics == MALMetricsListener.NOOP ? null : new MetricsInstrumentation(builder.metrics);
+        connectionManager = metrics == null
+                ? new PoolingHttpClientConnectionManager(builder.connectionTimeToLiveMillis, TimeUnit.MILLISECONDS)
+                : new MetricsInstrumentation.ConnectionManager(
+                        builder.connectionTimeToLiveMillis, TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(builder.maxConnections);
+        connectionManager.setDefaultMaxPerRoute(builder.maxConnectionsPerRoute);
+        connectionManager.setValidateAfterInactivity((int) builder.validateAfterInactivityMillis);
+        connectionManager.setDefaultSocketConfig(SocketConfig.custom()
+                .setSoKeepAlive(builder.socketKeepAlive)
+                .setTcpNoDelay(builder.tcpNoDelay)
+                .setSndBufSize(builder.socketSendBufferSize)
+                .setRcvBufSize(builder.socketReceiveBufferSize)
+                .build());
+
+        final ClientConfig config = new ClientConfig()
+                // Use the Apache HTTP Connector
+                .connectorProvider(new ApacheConnectorProvider())
+
+                // Use our own tuned connection pool
+                .property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager)
+                .property(ApacheClientProperties.REQUEST_CONFIG, RequestConfig.custom()
+                        .setConnectTimeout((int) builder.connectTimeoutMillis)
+                        .setSocketTimeout((int) builder.readTimeoutMillis)
+                        .setConnectionRequestTimeout((int) builder.connectionRequestTimeoutMillis)
+                        .build())
+                .property(ClientProperties.CONNECT_TIMEOUT, (int) builder.connectTimeoutMillis)
+                .property(ClientProperties.READ_TIMEOUT, (int) builder.readTimeoutMillis);
+
+        if (metrics != null)
+            config.register(metrics);
+
+        if (builder.asyncThreadPoolSize > 0)
+            config.property(ClientProperties.ASYNC_THREADPOOL_SIZE, builder.asyncThreadPoolSize);
+
+        client = ClientBuilder.newClient(config);
+
+        if (builder.circuitBreaker != null || builder.hedgePercentile > 0)
+            disableRetries(client);
+
+        if (builder.idleConnectionTimeoutMillis >= 0) {
+            final long idle = builder.idleConnectionTimeoutMillis;
+
+            evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "mal-client-connection-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            evictor.scheduleWithFixedDelay(() -> {
+                        connectionManager.closeExpiredConnections();
+                        connectionManager.closeIdleConnections(idle, TimeUnit.MILLISECONDS);
+                    },
+                    builder.idleEvictionIntervalMillis, builder.idleEvictionIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            evictor = null;
+        }
+
+        this.malUrl = builder.malUrl;
+        this.streamValues = builder.streamValues;
+    }
+
+    /**
+     * @return a snapshot of the connection pool usage
+     */
+    PoolStats getPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    @Override
+    public List<AnimeEntry> animeSearch(
+            final String authorization,
+            final String query) {
+
+        final List<AnimeEntry> results = request(search(query), Operation.ANIME_SEARCH, APPLICATION_XML_TYPE,
+                authorization)
+                .get(new GenericType<List<AnimeEntry>>() {});
+
+        return results == null ? emptyList() : results;
+    }
+
+    @Override
+    public CompletableFuture<List<AnimeEntry>> animeSearchAsync(
+            final String authorization,
+            final String query) {
+
+        final AsyncInvoker invoker = request(search(query), Operation.ANIME_SEARCH, APPLICATION_XML_TYPE,
+                authorization)
+                .async();
+
+        return async(invoker::get, response -> {
+            if (response.getStatus() == Response.Status.NO_CONTENT.getStatusCode() || !response.hasEntity())
+                return emptyList();
+
+            final List<AnimeEntry> entries = response.readEntity(new GenericType<List<AnimeEntry>>() {});
+
+            if (entries == null)
+                return emptyList();
+
+            return entries;
+        });
+    }
+
+    @Override
+    public Stream<AnimeEntry> animeSearchStream(
+            final String authorization,
+            final String query) {
+
+        final Response response = MALResponses.successful(request(search(query), Operation.ANIME_SEARCH_STREAM,
+                APPLICATION_XML_TYPE, authorization)
+                .get());
+
+        if (response.getStatus() == Response.Status.NO_CONTENT.getStatusCode() || !response.hasEntity()) {
+            response.close();
+            return Stream.empty();
+        }
+
+        return stream(response, "entry", AnimeEntry.class);
+    }
+
+    @Override
+    public byte[] animeSearchBody(
+            final String authorization,
+            final String query) {
+
+        final byte[] body = request(search(query), Operation.ANIME_SEARCH_LAZY, APPLICATION_XML_TYPE, authorization)
+                .get(byte[].class);
+
+        return body == null ? new byte[0] : body;
+    }
+
+    @Override
+    public CompletableFuture<byte[]> animeSearchBodyAsync(
+            final String authorization,
+            final String query) {
+
+        final AsyncInvoker invoker = request(search(query), Operation.ANIME_SEARCH_LAZY, APPLICATION_XML_TYPE,
+                authorization)
+                .async();
+
+        return async(invoker::get, response -> {
+            if (response.getStatus() == Response.Status.NO_CONTENT.getStatusCode() || !response.hasEntity())
+                return new byte[0];
+
+            final byte[] body = response.readEntity(byte[].class);
+
+            return body == null ? new byte[0] : body;
+        });
+    }
+
+    @Override
+    public void animeListAdd(
+            final String authorization,
+            final String id,
+            final AnimeListEntryValues values) {
+
+        discard(MALResponses.successful(request(client.target(malUrl)
+                .path(PATH_ANIME_ADD.replace("%id", id)), Operation.ANIME_LIST_ADD, WILDCARD_TYPE, authorization)
+                .post(values(Operation.ANIME_LIST_ADD, values))));
+    }
+
+    @Override
+    public CompletableFuture<Void> animeListAddAsync(
+            final String authorization,
+            final String id,
+            final AnimeListEntryValues values) {
+
+        final Entity<?> form = values(Operation.ANIME_LIST_ADD, values);
+
+        final AsyncInvoker invoker = request(client.target(malUrl)
+                .path(PATH_ANIME_ADD.replace("%id", id)), Operation.ANIME_LIST_ADD, WILDCARD_TYPE, authorization)
+                .async();
+
+        return async(callback -> invoker.post(form, callback), JerseyTransport::discard);
+    }
+
+    @Override
+    public void animeListUpdate(
+            final String authorization,
+            final String id,
+            final AnimeListEntryValues values) {
+
+        discard(MALResponses.successful(request(client.target(malUrl)
+                .path(PATH_ANIME_UPDATE.replace("%id", id)), Operation.ANIME_LIST_UPDATE, WILDCARD_TYPE, authorization)
+                .post(values(Operation.ANIME_LIST_UPDATE, values))));
+    }
+
+    @Override
+    public CompletableFuture<Void> animeListUpdateAsync(
+            final String authorization,
+            final String id,
+            final AnimeListEntryValues values) {
+
+        final Entity<?> form = values(Operation.ANIME_LIST_UPDATE, values);
+
+        final AsyncInvoker invoker = request(client.target(malUrl)
+                .path(PATH_ANIME_UPDATE.replace("%id", id)), Operation.ANIME_LIST_UPDATE, WILDCARD_TYPE, authorization)
+                .async();
+
+        return async(callback -> invoker.post(form, callback), JerseyTransport::discard);
+    }
+
+    @Override
+    public void animeListDelete(
+            final String authorization,
+            final String id) {
+
+        request(client.target(malUrl)
+                .path(PATH_ANIME_DELETE.replace("%id", id)), Operation.ANIME_LIST_DELETE, WILDCARD_TYPE, authorization)
+                .delete(String.class);
+    }
+
+    @Override
+    public CompletableFuture<Void> animeListDeleteAsync(
+            final String authorization,
+            final String id) {
+
+        final AsyncInvoker invoker = request(client.target(malUrl)
+                .path(PATH_ANIME_DELETE.replace("%id", id)), Operation.ANIME_LIST_DELETE, WILDCARD_TYPE, authorization)
+                .async();
+
+        return async(invoker::delete, JerseyTransport::discard);
+    }
+
+    @Override
+    public List<AnimeListEntry> animeList(
+            final String authorization,
+            final String username) {
+
+        return request(malappinfo(username), Operation.X_ANIME_LIST, APPLICATION_XML_TYPE, authorization)
+                .get(AnimeListEntry.Holder.class).getRecords();
+    }
+
+    @Override
+    public CompletableFuture<List<AnimeListEntry>> animeListAsync(
+            final String authorization,
+            final String username) {
+
+        final AsyncInvoker invoker = request(malappinfo(username), Operation.X_ANIME_LIST, APPLICATION_XML_TYPE,
+                authorization)
+                .async();
+
+        return async(invoker::get, response -> response.readEntity(AnimeListEntry.Holder.class).getRecords());
+    }
+
+    @Override
+    public Stream<AnimeListEntry> animeListStream(
+            final String authorization,
+            final String username) {
+
+        final Response response = MALResponses.successful(request(malappinfo(username),
+                Operation.X_ANIME_LIST_STREAM, APPLICATION_XML_TYPE, authorization)
+                .get());
+
+        return stream(response, "anime", AnimeListEntry.class);
+    }
+
+    @Override
+    public void close() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        if (client != null) {
+            client.close();
+        }
+        connectionManager.shutdown();
+    }
+
+    private WebTarget search(
+            final String query) {
+
+        return client.target(malUrl)
+                .path(PATH_ANIME_SEARCH)
+                .queryParam("q", query);
+    }
+
+    private WebTarget malappinfo(
+            final String username) {
+
+        return client.target(malUrl)
+                .path(X_PATH_MALAPPINFO)
+                .queryParam("u", username)
+                .queryParam("type", "anime")
+                .queryParam("status", "all");
+    }
+
+    /**
+     * Stop the Apache client quietly resending reads that failed on the wire, such as on a stale pooled connection, so
+     * that a circuit breaker or hedger sees every failure and no resend bypasses the rate limit. The connector of
+     * Jersey 2.22 takes no retry handler, so the one of the client it built is replaced, with a warning if that client
+     * isn't laid out as expected and keeps its retries.
+     */
+    private static void disableRetries(
+            final Client client) {
+
+        try {
+            Object exec = read(ApacheConnectorProvider.getHttpClient(client), "execChain");
+
+            while (!(exec instanceof RetryExec))
+                exec = read(exec, "requestExecutor");
+
+            final Field retryHandler = RetryExec.class.getDeclaredField("retryHandler");
+            retryHandler.setAccessible(true);
+            retryHandler.set(exec, new DefaultHttpRequestRetryHandler(0, false));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Unsupported Apache HTTP client, failed requests may still be resent", e);
+        }
+    }
+
+    private static Object read(
+            final Object target,
+            final String name) throws ReflectiveOperationException {
+
+        final Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+
+    /**
+     * Pull-parse the records of a successful response as the stream is consumed, closing the response with the stream.
+     */
+    private static <T> Stream<T> stream(
+            final Response response,
+            final String recordElement,
+            final Class<T> type) {
+
+        final XmlRecordReader<T> reader;
+
+        try {
+            reader = new XmlRecordReader<>(response.readEntity(InputStream.class), recordElement, type);
+        } catch (RuntimeException e) {
+            response.close();
+            throw e;
+        }
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, ORDERED | NONNULL), false)
+                .onClose(() -> {
+                    reader.close();
+                    response.close();
+                });
+    }
+
+    /**
+     * Tag a request with its operation, only when instrumented so that an uninstrumented request allocates nothing
+     * more, and with its credentials.
+     */
+    private Invocation.Builder request(
+            final WebTarget target,
+            final Operation operation,
+            final MediaType accept,
+            final String authorization) {
+
+        final Invocation.Builder request = target.request(accept);
+
+        if (metrics != null)
+            request.property(MetricsInstrumentation.OPERATION, operation);
+
+        if (authorization != null)
+            request.header(HttpHeaders.AUTHORIZATION, authorization);
+
+        return request;
+    }
+
+    /**
+     * Bridge a Jersey async invocation onto a {@link CompletableFuture}.
+     * <p>
+     * The raw {@link Response} is requested so that the status can be mapped with {@link MALResponses} exactly as the
+     * synchronous methods would and the entity read with the concrete generic type on the callback thread.
+     */
+    private static <T> CompletableFuture<T> async(
+            final Function<InvocationCallback<Response>, Future<Response>> invocation,
+            final Function<Response, T> reader) {
+
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        final Future<Response> pending = invocation.apply(new InvocationCallback<Response>() {
+            @Override
+            public void completed(final Response response) {
+                try {
+                    result.complete(reader.apply(MALResponses.successful(response)));
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            }
+
+            @Override
+            public void failed(final Throwable t) {
+                if (t instanceof ProcessingException && t.getCause() instanceof WebApplicationException)
+                    result.completeExceptionally(t.getCause());
+                else
+                    result.completeExceptionally(t);
+            }
+        });
+
+        result.whenComplete((r, t) -> {
+            if (result.isCancelled())
+                pending.cancel(true);
+        });
+
+        return result;
+    }
+
+    private static Void discard(
+            final Response response) {
+
+        response.close();
+        return null;
+    }
+
+    /**
+     * Package-private for the marshalling benchmark.
+     */
+    String xml(
+            final Operation operation,
+            @NonNull final Object o) {
+
+        final long start = metrics == null ? 0 : System.nanoTime();
+        final String xml = XmlSerializer.shared().toXml(o);
+
+        if (metrics != null)
+            metrics.marshalled(operation, System.nanoTime() - start);
+
+        return xml;
+    }
+
+    /**
+     * The form body of an add or update, either marshalled up front with JAXB or, if configured, written straight into
+     * the request body as it is sent.
+     */
+    private Entity<?> values(
+            final Operation operation,
+            final AnimeListEntryValues record) {
+
+        if (!streamValues) {
+            final Form form = new Form();
+            form.param("data", xml(operation, record));
+            return entity(form, APPLICATION_FORM_URLENCODED_TYPE);
+        }
+
+        return entity((StreamingOutput) out -> {
+            final long start = metrics == null ? 0 : System.nanoTime();
+
+            AnimeListEntryValuesWriter.writeForm("data", record, out);
+
+            if (metrics != null)
+                metrics.marshalled(operation, System.nanoTime() - start);
+        }, APPLICATION_FORM_URLENCODED_TYPE);
+    }
+}
@@ -1,25 +1,29 @@
 package me.bendoerr.mal.java.client;
 
 import lombok.NonNull;
+import me.bendoerr.mal.java.client.cache.SearchCache;
+import me.bendoerr.mal.java.client.metrics.Operation;
 import me.bendoerr.mal.java.client.model.AnimeEntry;
 import me.bendoerr.mal.java.client.model.AnimeListEntry;
 import me.bendoerr.mal.java.client.model.AnimeListEntryValues;
-import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
-import org.glassfish.jersey.client.ClientConfig;
-import org.glassfish.jersey.client.authentication.HttpAuthenticationFeature;
-
-import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
-import javax.ws.rs.core.Form;
-import javax.ws.rs.core.GenericType;
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import java.io.StringWriter;
-import java.util.List;
+import me.bendoerr.mal.java.client.model.LazyAnimeEntry;
+import me.bendoerr.mal.java.client.reactive.StreamPublisher;
+import org.apache.http.pool.PoolStats;
+import org.reactivestreams.Publisher;
+
+import javax.ws.rs.ProcessingException;
 
-import static java.util.Collections.emptyList;
-import static javax.ws.rs.client.Entity.entity;
-import static javax.ws.rs.core.MediaType.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * A Java-based client to the Documented MyAnimeList API as well as undocumented usages (which will be prefixed with
@@ -27,6 +31,10 @@ import static javax.ws.rs.core.MediaType.*;
  * <p>
  * The {@code myanimelist.net} domain is not hosted behind TLS and as such username and password will be passed in
  * cleartext just as it does when you login to the website.
+ * <p>
+ * A client is expensive, it owns a {@link MALTransport} with a connection pool and possibly background threads, so it
+ * should be created once and shared. To act on behalf of many users create one client, with or without credentials of
+ * its own, and get a cheap per-user handle from it with {@link #forUser(String, String)}.
  *
  * @see <a href="http://myanimelist.net/modules.php?go=api">http://myanimelist.net/modules.php?go=api</a>
  */
@@ -39,8 +47,16 @@ public class MALClient implements AutoCloseable {
     public static final String PATH_ANIME_DELETE = "/api/animelist/delete/%id.xml";
     public static final String X_PATH_MALAPPINFO = "/malappinfo.php";
 
-    private final Client client;
-    private final String malUrl;
+    private final MALTransport transport;
+    private final RequestScheduler scheduler;
+    private final CircuitBreaker breaker;
+    private final Hedger hedger;
+    private final ExecutorService publishers;
+    private final SearchCache searchCache;
+    private final SingleFlight<String, List<AnimeEntry>> searches;
+    private final SingleFlight<String, List<AnimeListEntry>> animeLists;
+    private final String authorization;
+    private final boolean tenant;
 
     /**
      * Create a new instance of the MALClient given a set of credentials.
@@ -69,17 +85,99 @@ public class MALClient implements AutoCloseable {
             @NonNull final String password,
             @NonNull final String malUrl) {
 
-        client = ClientBuilder.newClient(
-                new ClientConfig()
-                        // Use the Apache HTTP Connector
-                        .connectorProvider(new ApacheConnectorProvider())
+        this(builder()
+                .credentials(username, password)
+                .malUrl(malUrl));
+    }
 
-                        // Configure credentials for basic auth
-                        .register(HttpAuthenticationFeature.basicBuilder()
-                                .credentials(username, password)
-                                .build()));
+    MALClient(
+            @NonNull final MALClientBuilder builder) {
+
+        this.transport = builder.transport != null ? builder.transport : new JerseyTransport(builder);
+        this.scheduler = new RequestScheduler(builder);
+        this.breaker = builder.circuitBreaker;
+        this.hedger = builder.hedgePercentile > 0 ? new Hedger(builder, scheduler::tryAcquire) : null;
+        // Threads are only started once something is published
+        this.publishers = Executors.newCachedThreadPool(r -> {
+            final Thread thread = new Thread(r, "mal-client-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.searchCache = builder.searchCache;
+        this.searches = builder.coalesceReads ? new SingleFlight<>() : null;
+        this.animeLists = builder.coalesceReads ? new SingleFlight<>() : null;
+        this.authorization = builder.username == null ? null : basic(builder.username, builder.password);
+        this.tenant = false;
+    }
 
-        this.malUrl = malUrl;
+    /**
+     * A per-user handle sharing everything but the credentials with the client it was created from.
+     */
+    private MALClient(
+            final MALClient shared,
+            final String authorization) {
+
+        this.transport = shared.transport;
+        this.scheduler = shared.scheduler;
+        this.breaker = shared.breaker;
+        this.hedger = shared.hedger;
+        this.publishers = shared.publishers;
+        this.searchCache = shared.searchCache;
+        // Coalesced reads are per handle, so that one user's failure is never reported to another
+        this.searches = shared.searches != null ? new SingleFlight<>() : null;
+        this.animeLists = shared.animeLists != null ? new SingleFlight<>() : null;
+        this.authorization = authorization;
+        this.tenant = true;
+    }
+
+    /**
+     * Start configuring a new MALClient with a tuned connection pool.
+     *
+     * @return a new builder
+     */
+    public static MALClientBuilder builder() {
+        return new MALClientBuilder();
+    }
+
+    /**
+     * Get a handle that acts as another MAL user while sharing this client's transport and connection pool, rate
+     * limit, caches and configuration.
+     * <p>
+     * A handle is only a few fields and a precomputed {@code Authorization} header, so there can be one per user for
+     * thousands of users. Since the search cache is shared, search results fetched by one user may be served to
+     * another, which is fine as they don't depend on who asks. Reads are only coalesced with reads of the same handle,
+     * so a user whose credentials MAL rejects never fails another user's read. Closing a handle does nothing, the pool
+     * is released when the client that created it is closed, after which the handle no longer works.
+     *
+     * @param username {@code [required]} of the MAL user
+     * @param password {@code [required]} of the MAL user
+     * @return a client authenticated as the given user
+     * @throws NullPointerException if any of the parameters are null
+     */
+    public MALClient forUser(
+            @NonNull final String username,
+            @NonNull final String password) {
+
+        return new MALClient(this, basic(username, password));
+    }
+
+    /**
+     * Get the current request rate limit, which in adaptive mode reflects how far MAL throttling has lowered it.
+     *
+     * @return the rate limit in requests per second or {@code 0} if requests aren't rate limited
+     */
+    public double getRateLimit() {
+        return scheduler.getRate();
+    }
+
+    /**
+     * Get a snapshot of the connection pool usage.
+     *
+     * @return the number of leased, available and pending connections and the maximum pool size, or null if the client
+     * uses a transport other than the default
+     */
+    public PoolStats getPoolStats() {
+        return transport instanceof JerseyTransport ? ((JerseyTransport) transport).getPoolStats() : null;
     }
 
     /**
@@ -120,6 +218,8 @@ public class MALClient implements AutoCloseable {
      * </anime>
      * }
      * </pre>
+     * If a {@link SearchCache} is configured the results are served from it when possible, and are unmodifiable. If
+     * reads are coalesced the results are likewise unmodifiable.
      *
      * @param query to run against the MAL database.
      * @return a list of marshaled records based on the search or an empty list if no results were returned.
@@ -131,18 +231,58 @@ public class MALClient implements AutoCloseable {
     public List<AnimeEntry> animeSearch(
             @NonNull final String query) {
 
-        final List<AnimeEntry> results = client.target(malUrl)
-                .path(PATH_ANIME_SEARCH)
-                .queryParam("q", query)
-                .request(APPLICATION_XML_TYPE)
-                .get(new GenericType<List<AnimeEntry>>() {});
+        if (searchCache != null) {
+            final List<AnimeEntry> cached = searchCache.get(query);
+
+            if (cached != null)
+                return cached;
+        }
+
+        if (searches != null)
+            return searches.call(query, () -> unmodifiableList(search(query)));
+
+        return search(query);
+    }
 
-        if (results == null)
-            return emptyList();
+    private List<AnimeEntry> search(
+            final String query) {
+
+        final List<AnimeEntry> results = read(Operation.ANIME_SEARCH,
+                () -> transport.animeSearch(authorization, query),
+                () -> transport.animeSearchAsync(authorization, query));
+
+        if (searchCache != null)
+            return searchCache.put(query, results);
 
         return results;
     }
 
+    /**
+     * Variant of {@link #animeSearch(String)} returning {@link LazyAnimeEntry lazy entries}, which keep the response
+     * and decode each field only when it is read.
+     * <p>
+     * Results shown by a few short fields, such as the id, title, type and image of a listing, then cost no more than
+     * those fields, the long {@code synopsis} of each result never being decoded. Free text fields are HTML-unescaped
+     * as well, see {@link LazyAnimeEntry}.
+     * <p>
+     * Requests are rate limited, retried, hedged and guarded by the circuit breaker like {@link #animeSearch(String)},
+     * but not served from the {@link SearchCache} or coalesced, both of which hold eagerly decoded results.
+     *
+     * @param query to run against the MAL database.
+     * @return the search results, or an empty list if no results were returned.
+     * @throws NullPointerException             if query is not provided.
+     * @throws javax.ws.rs.ClientErrorException if MAL returns a HTTP {@code 4xx} status code
+     * @throws javax.ws.rs.ServerErrorException if MAL returns a HTTP {@code 5xx} status code
+     * @throws javax.ws.rs.ProcessingException  if we can't understand the response
+     */
+    public List<LazyAnimeEntry> animeSearchLazy(
+            @NonNull final String query) {
+
+        return LazyAnimeEntry.parse(read(Operation.ANIME_SEARCH_LAZY,
+                () -> transport.animeSearchBody(authorization, query),
+                () -> transport.animeSearchBodyAsync(authorization, query)));
+    }
+
     /**
      * Add Anime to the authenticated user's Anime List.
      * <p>
@@ -155,6 +295,7 @@ public class MALClient implements AutoCloseable {
      * Given an invalid ID or an ID of an anime already on the list this API endpoint does not return an error.
      * Successfully calling this method without error provides very little assurance that the anime has been added
      * the the anime list.
+     * {@link me.bendoerr.mal.java.client.list.AnimeListVerifier} confirms many mutations with a single fetch.
      *
      * @param id maldb id of the anime to add
      * @param record of the values to add along with the anime to the list
@@ -167,13 +308,10 @@ public class MALClient implements AutoCloseable {
             @NonNull final String id,
             @NonNull final AnimeListEntryValues record) {
 
-        final Form form = new Form();
-        form.param("data", xml(record, record.getClass()));
-
-        client.target(malUrl)
-                .path(PATH_ANIME_ADD.replace("%id", id))
-                .request(WILDCARD_TYPE)
-                .post(entity(form, APPLICATION_FORM_URLENCODED_TYPE));
+        scheduler.call(Operation.ANIME_LIST_ADD, () -> {
+            transport.animeListAdd(authorization, id, record);
+            return null;
+        });
     }
 
     /**
@@ -184,6 +322,7 @@ public class MALClient implements AutoCloseable {
      * Given an invalid ID or an ID of an anime already on the list this API endpoint does not return an error.
      * Successfully calling this method without error provides very little assurance that the anime has been added
      * the the anime list.
+     * {@link me.bendoerr.mal.java.client.list.AnimeListVerifier} confirms many mutations with a single fetch.
      *
      * @param id maldb id of the anime to update
      * @param record of the values to update along with the anime to the list
@@ -196,13 +335,10 @@ public class MALClient implements AutoCloseable {
             @NonNull final String id,
             @NonNull final AnimeListEntryValues record) {
 
-        final Form form = new Form();
-        form.param("data", xml(record, record.getClass()));
-
-        client.target(malUrl)
-                .path(PATH_ANIME_UPDATE.replace("%id", id))
-                .request(WILDCARD_TYPE)
-                .post(entity(form, APPLICATION_FORM_URLENCODED_TYPE));
+        scheduler.call(Operation.ANIME_LIST_UPDATE, () -> {
+            transport.animeListUpdate(authorization, id, record);
+            return null;
+        });
     }
 
     /**
@@ -212,7 +348,8 @@ public class MALClient implements AutoCloseable {
      * <p>
      * Similar to {@link #animeListUpdate(String, AnimeListEntryValues)} and
      * {@link #animeListAdd(String, AnimeListEntryValues)} this interface doesn't really error much. So it's might be
-     * best to confirm after calling by using {@link #x_animeList(String)}.
+     * best to confirm after calling by using {@link #x_animeList(String)}, or for many mutations with a single fetch by
+     * using {@link me.bendoerr.mal.java.client.list.AnimeListVerifier}.
      *
      * @param id maldb id of the anime to delete
      * @throws NullPointerException if any of the parameters are null
@@ -223,10 +360,10 @@ public class MALClient implements AutoCloseable {
     public void animeListDelete(
             @NonNull final String id) {
 
-        client.target(malUrl)
-                .path(PATH_ANIME_DELETE.replace("%id", id))
-                .request(WILDCARD_TYPE)
-                .delete(String.class);
+        scheduler.call(Operation.ANIME_LIST_DELETE, () -> {
+            transport.animeListDelete(authorization, id);
+            return null;
+        });
     }
 
     /**
@@ -244,37 +381,372 @@ public class MALClient implements AutoCloseable {
     public List<AnimeListEntry> x_animeList(
             @NonNull final String username) {
 
-        return client.target(malUrl)
-                .path(X_PATH_MALAPPINFO)
-                .queryParam("u", username)
-                .queryParam("type", "anime")
-                .queryParam("status", "all")
-                .request(APPLICATION_XML_TYPE)
-                .get(AnimeListEntry.Holder.class).getRecords();
+        if (animeLists != null)
+            return animeLists.call(username, () -> unmodifiableList(animeList(username)));
+
+        return animeList(username);
+    }
+
+    private List<AnimeListEntry> animeList(
+            final String username) {
+
+        return read(Operation.X_ANIME_LIST,
+                () -> transport.animeList(authorization, username),
+                () -> transport.animeListAsync(authorization, username));
+    }
+
+    /**
+     * Stream the Anime List of a specific user.
+     * <p>
+     * <b>Undocumented API</b>
+     * <p>
+     * Unlike {@link #x_animeList(String)} the response is pull-parsed one {@code <anime>} entry at a time as the stream
+     * is consumed, so the whole list is never held in memory. The {@code <myinfo>} block is skipped without being
+     * retained. The entries produced are identical to those of {@link #x_animeList(String)}.
+     * <p>
+     * The returned stream holds an open HTTP connection and <b>must</b> be closed, preferably with
+     * try-with-resources.
+     *
+     * @param username of the list to fetch
+     * @return a lazily parsed stream of the AnimeList for a specific user
+     * @throws NullPointerException if any of the parameters are null
+     * @throws javax.ws.rs.ClientErrorException if MAL returns a HTTP {@code 4xx} status code
+     * @throws javax.ws.rs.ServerErrorException if MAL returns a HTTP {@code 5xx} status code
+     * @throws javax.ws.rs.ProcessingException  if we can't understand the response, possibly while consuming the stream
+     */
+    public Stream<AnimeListEntry> x_animeListStream(
+            @NonNull final String username) {
+
+        final Supplier<Stream<AnimeListEntry>> stream = () -> transport.animeListStream(authorization, username);
+
+        return scheduler.call(Operation.X_ANIME_LIST_STREAM, breaker == null ? stream : () -> breaker.call(stream));
+    }
+
+    /**
+     * Publish the Anime List of a specific user with Reactive Streams backpressure.
+     * <p>
+     * <b>Undocumented API</b>
+     * <p>
+     * Each subscription makes its own request, once it first requests entries, and pull-parses the response with
+     * {@link #x_animeListStream(String)} only as fast as the subscriber requests entries. Cancelling the subscription
+     * closes the stream and so the HTTP exchange. Failures, including those of the request itself, are signalled with
+     * {@code onError}.
+     * <p>
+     * Signals are delivered on a pool of daemon threads owned by the client.
+     *
+     * @param username of the list to fetch
+     * @return a cold publisher of the AnimeList for a specific user
+     * @throws NullPointerException if any of the parameters are null
+     * @see StreamPublisher
+     */
+    public Publisher<AnimeListEntry> x_animeListPublisher(
+            @NonNull final String username) {
+
+        return x_animeListPublisher(username, publishers);
+    }
+
+    /**
+     * Variant of {@link #x_animeListPublisher(String)} delivering signals on the given executor.
+     *
+     * @param username of the list to fetch
+     * @param executor to deliver signals on, should allow blocking
+     * @return a cold publisher of the AnimeList for a specific user
+     * @throws NullPointerException if any of the parameters are null
+     */
+    public Publisher<AnimeListEntry> x_animeListPublisher(
+            @NonNull final String username,
+            @NonNull final Executor executor) {
+
+        return new StreamPublisher<>(() -> x_animeListStream(username), executor);
+    }
+
+    /**
+     * Publish the results of a search query with Reactive Streams backpressure.
+     * <p>
+     * Results in the {@link SearchCache}, if one is configured, are published from it. Otherwise each subscription
+     * makes its own request and pull-parses the response one {@code <entry>} at a time as the subscriber requests
+     * them, without caching the results, coalescing or hedging the request. Cancelling the subscription closes the
+     * HTTP exchange. Failures, including those of the request itself, are signalled with {@code onError}, and a
+     * {@code 204 No Content} response completes without entries.
+     * <p>
+     * Signals are delivered on a pool of daemon threads owned by the client.
+     *
+     * @param query to run against the MAL database.
+     * @return a cold publisher of the search results
+     * @throws NullPointerException if query is not provided.
+     * @see StreamPublisher
+     */
+    public Publisher<AnimeEntry> animeSearchPublisher(
+            @NonNull final String query) {
+
+        return animeSearchPublisher(query, publishers);
+    }
+
+    /**
+     * Variant of {@link #animeSearchPublisher(String)} delivering signals on the given executor.
+     *
+     * @param query    to run against the MAL database.
+     * @param executor to deliver signals on, should allow blocking
+     * @return a cold publisher of the search results
+     * @throws NullPointerException if any of the parameters are null
+     */
+    public Publisher<AnimeEntry> animeSearchPublisher(
+            @NonNull final String query,
+            @NonNull final Executor executor) {
+
+        return new StreamPublisher<>(() -> searchStream(query), executor);
+    }
+
+    private Stream<AnimeEntry> searchStream(
+            final String query) {
+
+        if (searchCache != null) {
+            final List<AnimeEntry> cached = searchCache.get(query);
+
+            if (cached != null)
+                return cached.stream();
+        }
+
+        final Supplier<Stream<AnimeEntry>> stream = () -> transport.animeSearchStream(authorization, query);
+
+        return scheduler.call(Operation.ANIME_SEARCH_STREAM, breaker == null ? stream : () -> breaker.call(stream));
+    }
+
+    /**
+     * Asynchronous variant of {@link #animeSearch(String)}.
+     * <p>
+     * The request is dispatched on the transport's async executor and the returned future is completed from that
+     * executor. Failures complete the future exceptionally with the same exception types {@link #animeSearch(String)}
+     * throws. Cancelling the future cancels the underlying request.
+     *
+     * @param query to run against the MAL database.
+     * @return a future list of marshaled records based on the search or an empty list if no results were returned.
+     * @throws NullPointerException if query is not provided.
+     */
+    public CompletableFuture<List<AnimeEntry>> animeSearchAsync(
+            @NonNull final String query) {
+
+        if (searchCache != null) {
+            final List<AnimeEntry> cached = searchCache.get(query);
+
+            if (cached != null)
+                return CompletableFuture.completedFuture(cached);
+        }
+
+        if (searches != null)
+            return searches.callAsync(query, () -> {
+                final CompletableFuture<List<AnimeEntry>> results = searchAsync(query);
+                return cancelling(results.thenApply(MALClient::unmodifiableList), results);
+            });
+
+        return searchAsync(query);
+    }
+
+    private CompletableFuture<List<AnimeEntry>> searchAsync(
+            final String query) {
+
+        final CompletableFuture<List<AnimeEntry>> results = readAsync(Operation.ANIME_SEARCH,
+                () -> transport.animeSearchAsync(authorization, query));
+
+        if (searchCache == null)
+            return results;
+
+        return cancelling(results.thenApply(entries -> searchCache.put(query, entries)), results);
+    }
+
+    /**
+     * Asynchronous variant of {@link #animeSearchLazy(String)}.
+     *
+     * @param query to run against the MAL database.
+     * @return a future list of the search results, or an empty list if no results were returned.
+     * @throws NullPointerException if query is not provided.
+     * @see #animeSearchAsync(String)
+     */
+    public CompletableFuture<List<LazyAnimeEntry>> animeSearchLazyAsync(
+            @NonNull final String query) {
+
+        final CompletableFuture<byte[]> body = readAsync(Operation.ANIME_SEARCH_LAZY,
+                () -> transport.animeSearchBodyAsync(authorization, query));
+
+        return cancelling(body.thenApply(LazyAnimeEntry::parse), body);
+    }
+
+    /**
+     * Asynchronous variant of {@link #animeListAdd(String, AnimeListEntryValues)}.
+     *
+     * @param id maldb id of the anime to add
+     * @param record of the values to add along with the anime to the list
+     * @return a future completed once MAL has responded
+     * @throws NullPointerException if any of the parameters are null
+     * @see #animeSearchAsync(String)
+     */
+    public CompletableFuture<Void> animeListAddAsync(
+            @NonNull final String id,
+            @NonNull final AnimeListEntryValues record) {
+
+        return scheduler.callAsync(Operation.ANIME_LIST_ADD,
+                () -> transport.animeListAddAsync(authorization, id, record));
+    }
+
+    /**
+     * Asynchronous variant of {@link #animeListUpdate(String, AnimeListEntryValues)}.
+     *
+     * @param id maldb id of the anime to update
+     * @param record of the values to update along with the anime to the list
+     * @return a future completed once MAL has responded
+     * @throws NullPointerException if any of the parameters are null
+     * @see #animeSearchAsync(String)
+     */
+    public CompletableFuture<Void> animeListUpdateAsync(
+            @NonNull final String id,
+            @NonNull final AnimeListEntryValues record) {
+
+        return scheduler.callAsync(Operation.ANIME_LIST_UPDATE,
+                () -> transport.animeListUpdateAsync(authorization, id, record));
+    }
+
+    /**
+     * Asynchronous variant of {@link #animeListDelete(String)}.
+     *
+     * @param id maldb id of the anime to delete
+     * @return a future completed once MAL has responded
+     * @throws NullPointerException if any of the parameters are null
+     * @see #animeSearchAsync(String)
+     */
+    public CompletableFuture<Void> animeListDeleteAsync(
+            @NonNull final String id) {
+
+        return scheduler.callAsync(Operation.ANIME_LIST_DELETE,
+                () -> transport.animeListDeleteAsync(authorization, id));
+    }
+
+    /**
+     * Asynchronous variant of {@link #x_animeList(String)}.
+     * <p>
+     * <b>Undocumented API</b>
+     *
+     * @param username of the list to fetch
+     * @return a future AnimeList for a specific user
+     * @throws NullPointerException if any of the parameters are null
+     * @see #animeSearchAsync(String)
+     */
+    public CompletableFuture<List<AnimeListEntry>> x_animeListAsync(
+            @NonNull final String username) {
+
+        if (animeLists != null)
+            return animeLists.callAsync(username, () -> {
+                final CompletableFuture<List<AnimeListEntry>> entries = animeListAsync(username);
+                return cancelling(entries.thenApply(MALClient::unmodifiableList), entries);
+            });
+
+        return animeListAsync(username);
+    }
+
+    private CompletableFuture<List<AnimeListEntry>> animeListAsync(
+            final String username) {
+
+        return readAsync(Operation.X_ANIME_LIST, () -> transport.animeListAsync(authorization, username));
+    }
+
+    /**
+     * Run a blocking read through the circuit breaker, if any, and if reads are hedged as hedged non-blocking requests
+     * waited for.
+     */
+    private <T> T read(
+            final Operation operation,
+            final Supplier<T> blocking,
+            final Supplier<CompletableFuture<T>> nonBlocking) {
+
+        final Supplier<T> attempt = hedger == null ? blocking : () -> await(hedger.hedge(operation, nonBlocking));
+
+        return scheduler.call(operation, breaker == null ? attempt : () -> breaker.call(attempt));
     }
 
+    /**
+     * Run a non-blocking read through the circuit breaker, if any, hedging it if reads are hedged.
+     */
+    private <T> CompletableFuture<T> readAsync(
+            final Operation operation,
+            final Supplier<CompletableFuture<T>> nonBlocking) {
 
-    private String xml(
-            @NonNull final Object o,
-            @NonNull final Class t) {
+        final Supplier<CompletableFuture<T>> attempt = hedger == null
+                ? nonBlocking
+                : () -> hedger.hedge(operation, nonBlocking);
 
-        final StringWriter sw = new StringWriter();
+        return scheduler.callAsync(operation, breaker == null ? attempt : () -> breaker.callAsync(attempt));
+    }
+
+    /**
+     * Wait for a future, throwing what it failed with as the synchronous operations would.
+     */
+    private static <T> T await(
+            final CompletableFuture<T> future) {
 
         try {
-            JAXBContext.newInstance(t)
-                    .createMarshaller()
-                    .marshal(o, sw);
-        } catch (JAXBException e) {
-            throw new RuntimeException(e);
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ProcessingException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+
+            throw new ProcessingException(e.getCause());
         }
+    }
+
+    /**
+     * Propagate cancellation of a dependent future back to the future it was derived from.
+     */
+    private static <T> CompletableFuture<T> cancelling(
+            final CompletableFuture<T> dependent,
+            final CompletableFuture<?> source) {
+
+        dependent.whenComplete((r, t) -> {
+            if (dependent.isCancelled())
+                source.cancel(true);
+        });
+
+        return dependent;
+    }
 
-        return sw.toString();
+    /**
+     * Results shared between coalesced callers must not be modifiable by any one of them.
+     */
+    private static <T> List<T> unmodifiableList(
+            final List<T> list) {
+
+        return list == null ? null : Collections.unmodifiableList(list);
+    }
+
+    /**
+     * @return the value of a basic {@code Authorization} header, encoded the same way as Jersey's
+     * {@code HttpAuthenticationFeature}
+     */
+    private static String basic(
+            final String username,
+            final String password) {
+
+        return "Basic " + Base64.getEncoder()
+                .encodeToString((username + ":" + password).getBytes(StandardCharsets.ISO_8859_1));
     }
 
+    /**
+     * Release the transport and any background threads, unless this is a per-user handle in which case this does
+     * nothing.
+     */
     @Override
     public void close() throws Exception {
-        if (client != null) {
-            client.close();
-        }
+        if (tenant)
+            return;
+
+        scheduler.close();
+        publishers.shutdownNow();
+
+        if (hedger != null)
+            hedger.close();
+
+        transport.close();
     }
 }
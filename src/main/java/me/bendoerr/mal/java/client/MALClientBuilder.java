@@ -0,0 +1,501 @@
+package me.bendoerr.mal.java.client;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.cache.SearchCache;
+import me.bendoerr.mal.java.client.metrics.MALMetricsListener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fluent configuration for a {@link MALClient} and its pooled HTTP transport.
+ * <p>
+ * All connections to MAL are made through a single Apache {@code PoolingHttpClientConnectionManager} owned by the
+ * built client. Since almost all traffic goes to the one MAL host the per-route limit is by default as large as the
+ * total limit, otherwise the pool's default of two connections per route would serialize concurrent callers.
+ * <pre>
+ * {@code
+ * MALClient client = MALClient.builder()
+ *         .credentials("user", "pass")
+ *         .maxConnections(50)
+ *         .connectTimeout(2, TimeUnit.SECONDS)
+ *         .readTimeout(10, TimeUnit.SECONDS)
+ *         .evictIdleConnections(30, TimeUnit.SECONDS)
+ *         .build();
+ * }
+ * </pre>
+ * The connection, timeout, async thread pool, metrics and value streaming settings configure that default transport
+ * and have no effect if another one is given with {@link #transport(MALTransport)}.
+ * <p>
+ * Builders are not thread-safe and should not be reused after {@link #build()}.
+ */
+public class MALClientBuilder {
+
+    String username;
+    String password;
+    String malUrl = MALClient.MAL_URL;
+
+    int maxConnections = 20;
+    int maxConnectionsPerRoute = 20;
+    long connectionTimeToLiveMillis = -1;
+    long connectTimeoutMillis = 0;
+    long readTimeoutMillis = 0;
+    long connectionRequestTimeoutMillis = 0;
+    long validateAfterInactivityMillis = 2000;
+    long idleConnectionTimeoutMillis = -1;
+    long idleEvictionIntervalMillis = 5000;
+    int socketSendBufferSize = 0;
+    int socketReceiveBufferSize = 0;
+    boolean socketKeepAlive = true;
+    boolean tcpNoDelay = true;
+    int asyncThreadPoolSize = 0;
+    double rateLimitPermitsPerSecond = 0;
+    int rateLimitBurst = 1;
+    boolean adaptiveRateLimit = false;
+    double minPermitsPerSecond = 0;
+    int maxThrottleRetries = 0;
+    long initialBackoffMillis = 500;
+    long maxBackoffMillis = 30000;
+    SearchCache searchCache;
+    boolean coalesceReads = false;
+    MALMetricsListener metrics = MALMetricsListener.NOOP;
+    boolean streamValues = false;
+    MALTransport transport;
+    CircuitBreaker circuitBreaker;
+    double hedgePercentile = 0;
+    long hedgeMinDelayMillis = 0;
+
+    MALClientBuilder() {
+    }
+
+    /**
+     * Without credentials the client can only make unauthenticated requests, such as {@code x_animeList}, and hand out
+     * per-user handles with {@link MALClient#forUser(String, String)}.
+     *
+     * @param username {@code [required]} of the MAL user
+     * @param password {@code [required]} of the MAL user
+     * @return this builder
+     * @throws NullPointerException if any of the parameters are null
+     */
+    public MALClientBuilder credentials(
+            @NonNull final String username,
+            @NonNull final String password) {
+
+        this.username = username;
+        this.password = password;
+        return this;
+    }
+
+    /**
+     * @param malUrl {@code [required]} the base URL of the MAL domain, defaults to {@link MALClient#MAL_URL}
+     * @return this builder
+     * @throws NullPointerException if any of the parameters are null
+     */
+    public MALClientBuilder malUrl(
+            @NonNull final String malUrl) {
+
+        this.malUrl = malUrl;
+        return this;
+    }
+
+    /**
+     * @param maxConnections total number of pooled connections, defaults to {@code 20}
+     * @return this builder
+     * @throws IllegalArgumentException if not positive
+     */
+    public MALClientBuilder maxConnections(
+            final int maxConnections) {
+
+        this.maxConnections = positive(maxConnections, "maxConnections");
+        return this;
+    }
+
+    /**
+     * @param maxConnectionsPerRoute number of pooled connections per host, defaults to {@code 20}
+     * @return this builder
+     * @throws IllegalArgumentException if not positive
+     */
+    public MALClientBuilder maxConnectionsPerRoute(
+            final int maxConnectionsPerRoute) {
+
+        this.maxConnectionsPerRoute = positive(maxConnectionsPerRoute, "maxConnectionsPerRoute");
+        return this;
+    }
+
+    /**
+     * Cap how long a pooled connection may be kept alive and reused regardless of the server's {@code Keep-Alive}
+     * hints. By default connections live as long as the server keeps them open.
+     *
+     * @param duration maximum lifetime of a connection
+     * @param unit     of the duration
+     * @return this builder
+     */
+    public MALClientBuilder connectionTimeToLive(
+            final long duration,
+            @NonNull final TimeUnit unit) {
+
+        this.connectionTimeToLiveMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * @param duration to wait for a TCP connection to be established, {@code 0} (the default) waits indefinitely
+     * @param unit     of the duration
+     * @return this builder
+     */
+    public MALClientBuilder connectTimeout(
+            final long duration,
+            @NonNull final TimeUnit unit) {
+
+        this.connectTimeoutMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * @param duration to wait for data on an established connection, {@code 0} (the default) waits indefinitely
+     * @param unit     of the duration
+     * @return this builder
+     */
+    public MALClientBuilder readTimeout(
+            final long duration,
+            @NonNull final TimeUnit unit) {
+
+        this.readTimeoutMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * @param duration to wait to lease a connection from an exhausted pool, {@code 0} (the default) waits indefinitely
+     * @param unit     of the duration
+     * @return this builder
+     */
+    public MALClientBuilder connectionRequestTimeout(
+            final long duration,
+            @NonNull final TimeUnit unit) {
+
+        this.connectionRequestTimeoutMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * @param duration of inactivity after which a pooled connection is checked for staleness before being reused
+     * @param unit     of the duration
+     * @return this builder
+     */
+    public MALClientBuilder validateAfterInactivity(
+            final long duration,
+            @NonNull final TimeUnit unit) {
+
+        this.validateAfterInactivityMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * Periodically close expired connections and connections that have been idle in the pool for longer than the
+     * given duration. Disabled by default.
+     *
+     * @param duration a connection may sit idle before it is closed
+     * @param unit     of the duration
+     * @return this builder
+     */
+    public MALClientBuilder evictIdleConnections(
+            final long duration,
+            @NonNull final TimeUnit unit) {
+
+        this.idleConnectionTimeoutMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * @param duration between idle connection eviction runs, defaults to five seconds
+     * @param unit     of the duration
+     * @return this builder
+     */
+    public MALClientBuilder evictionInterval(
+            final long duration,
+            @NonNull final TimeUnit unit) {
+
+        this.idleEvictionIntervalMillis = positive(unit.toMillis(duration), "evictionInterval");
+        return this;
+    }
+
+    /**
+     * @param sendBufferSize    {@code SO_SNDBUF} in bytes, {@code 0} (the default) uses the system default
+     * @param receiveBufferSize {@code SO_RCVBUF} in bytes, {@code 0} (the default) uses the system default
+     * @return this builder
+     */
+    public MALClientBuilder socketBufferSizes(
+            final int sendBufferSize,
+            final int receiveBufferSize) {
+
+        this.socketSendBufferSize = sendBufferSize;
+        this.socketReceiveBufferSize = receiveBufferSize;
+        return this;
+    }
+
+    /**
+     * @param socketKeepAlive enable {@code SO_KEEPALIVE}, defaults to true
+     * @return this builder
+     */
+    public MALClientBuilder socketKeepAlive(
+            final boolean socketKeepAlive) {
+
+        this.socketKeepAlive = socketKeepAlive;
+        return this;
+    }
+
+    /**
+     * @param tcpNoDelay enable {@code TCP_NODELAY}, defaults to true
+     * @return this builder
+     */
+    public MALClientBuilder tcpNoDelay(
+            final boolean tcpNoDelay) {
+
+        this.tcpNoDelay = tcpNoDelay;
+        return this;
+    }
+
+    /**
+     * Bound the number of threads used to run the {@code *Async} operations. Since the underlying connector is
+     * blocking this also bounds the number of asynchronous requests in flight, any excess is queued.
+     *
+     * @param asyncThreadPoolSize number of threads, {@code 0} (the default) lets Jersey grow the pool as needed
+     * @return this builder
+     */
+    public MALClientBuilder asyncThreadPoolSize(
+            final int asyncThreadPoolSize) {
+
+        if (asyncThreadPoolSize < 0)
+            throw new IllegalArgumentException("asyncThreadPoolSize must not be negative");
+
+        this.asyncThreadPoolSize = asyncThreadPoolSize;
+        return this;
+    }
+
+    /**
+     * Limit the rate of requests made by the client, across all operations and threads. Unlimited by default.
+     *
+     * @param permitsPerSecond sustained number of requests per second
+     * @param burst            number of requests that may be made at once after a quiet period
+     * @return this builder
+     * @throws IllegalArgumentException if either parameter isn't positive
+     */
+    public MALClientBuilder rateLimit(
+            final double permitsPerSecond,
+            final int burst) {
+
+        if (!(permitsPerSecond > 0))
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+
+        this.rateLimitPermitsPerSecond = permitsPerSecond;
+        this.rateLimitBurst = positive(burst, "burst");
+        return this;
+    }
+
+    /**
+     * Let the {@link #rateLimit(double, int) rate limit} adapt to MAL throttling. Each throttled response halves the
+     * rate down to {@code minPermitsPerSecond} and each successful response slowly raises it back towards the
+     * configured rate.
+     *
+     * @param minPermitsPerSecond floor for the adapted rate
+     * @return this builder
+     * @throws IllegalArgumentException if not positive
+     */
+    public MALClientBuilder adaptiveRateLimit(
+            final double minPermitsPerSecond) {
+
+        if (!(minPermitsPerSecond > 0))
+            throw new IllegalArgumentException("minPermitsPerSecond must be positive");
+
+        this.adaptiveRateLimit = true;
+        this.minPermitsPerSecond = minPermitsPerSecond;
+        return this;
+    }
+
+    /**
+     * Retry requests MAL rejects with {@code 429 Too Many Requests} or {@code 503 Service Unavailable}. Retries wait
+     * as long as a {@code Retry-After} header asks, otherwise back off exponentially with jitter from
+     * {@code initialBackoff} up to {@code maxBackoff}. No retries are made by default.
+     *
+     * @param maxRetries     number of retries after the first attempt
+     * @param initialBackoff delay before the first retry
+     * @param maxBackoff     longest delay between retries, a longer {@code Retry-After} is not retried
+     * @param unit           of the delays
+     * @return this builder
+     * @throws IllegalArgumentException if maxRetries is negative or the delays aren't positive
+     */
+    public MALClientBuilder retryThrottled(
+            final int maxRetries,
+            final long initialBackoff,
+            final long maxBackoff,
+            @NonNull final TimeUnit unit) {
+
+        if (maxRetries < 0)
+            throw new IllegalArgumentException("maxRetries must not be negative");
+
+        this.maxThrottleRetries = maxRetries;
+        this.initialBackoffMillis = positive(unit.toMillis(initialBackoff), "initialBackoff");
+        this.maxBackoffMillis = positive(unit.toMillis(maxBackoff), "maxBackoff");
+        return this;
+    }
+
+    /**
+     * Serve {@code animeSearch} results from a cache when possible. Not cached by default.
+     *
+     * @param searchCache {@code [required]} the cache, which may be shared between clients
+     * @return this builder
+     * @throws NullPointerException if any of the parameters are null
+     */
+    public MALClientBuilder searchCache(
+            @NonNull final SearchCache searchCache) {
+
+        this.searchCache = searchCache;
+        return this;
+    }
+
+    /**
+     * Coalesce concurrent identical reads, so that callers of {@code animeSearch} with the same query, or of
+     * {@code x_animeList} with the same username, share one in-flight request and all receive its result or its
+     * exception. The shared results are unmodifiable. Cancelling a coalesced future cancels the request once every
+     * caller sharing it has cancelled. Each {@link MALClient#forUser} handle only coalesces its own reads. Not
+     * coalesced by default.
+     *
+     * @param coalesceReads true to coalesce
+     * @return this builder
+     */
+    public MALClientBuilder coalesceReads(
+            final boolean coalesceReads) {
+
+        this.coalesceReads = coalesceReads;
+        return this;
+    }
+
+    /**
+     * Report per-operation latency, broken into phases, response sizes, status codes, retries and errors. Defaults to
+     * {@link MALMetricsListener#NOOP}, in which case no instrumentation is installed at all.
+     *
+     * @param metrics {@code [required]} the listener, which may be shared between clients
+     * @return this builder
+     * @throws NullPointerException if any of the parameters are null
+     * @see me.bendoerr.mal.java.client.metrics.HistogramMetricsListener
+     */
+    public MALClientBuilder metrics(
+            @NonNull final MALMetricsListener metrics) {
+
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Write the values of {@code animeListAdd} and {@code animeListUpdate} straight into the request body with the
+     * hand-written {@link me.bendoerr.mal.java.client.xml.AnimeListEntryValuesWriter} as the request is sent, rather
+     * than marshalling them to a {@code String} with JAXB first. The body is then sent chunked, and the values must not
+     * be modified until the request has completed. Not streamed by default.
+     *
+     * @param streamValues true to stream
+     * @return this builder
+     */
+    public MALClientBuilder streamValues(
+            final boolean streamValues) {
+
+        this.streamValues = streamValues;
+        return this;
+    }
+
+    /**
+     * Send requests through the given transport rather than the default Jersey client and connection pool, such as an
+     * {@link UrlConnectionTransport} to start faster. The built client owns the transport and closes it when closed.
+     *
+     * @param transport {@code [required]} the transport, which must not be shared between clients
+     * @return this builder
+     * @throws NullPointerException if any of the parameters are null
+     */
+    public MALClientBuilder transport(
+            @NonNull final MALTransport transport) {
+
+        this.transport = transport;
+        return this;
+    }
+
+    /**
+     * Guard all reads, the blocking, async, lazy, stream and publisher variants of {@code animeSearch} and
+     * {@code x_animeList}, with a circuit breaker that fails them fast with a {@link CircuitOpenException} while MAL is
+     * failing or slow. List mutations are not guarded. So that the breaker sees every failure, the default transport
+     * then no longer quietly resends a request that failed on the wire, such as on a stale pooled connection. Not
+     * guarded by default.
+     *
+     * @param circuitBreaker {@code [required]} the breaker, which may be shared between clients
+     * @return this builder
+     * @throws NullPointerException if any of the parameters are null
+     */
+    public MALClientBuilder circuitBreaker(
+            @NonNull final CircuitBreaker circuitBreaker) {
+
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    /**
+     * Hedge {@code animeSearch}, {@code animeSearchLazy} and {@code x_animeList}: once a request has taken longer than
+     * the given percentile of recent requests, send an identical one and use whichever answers first. This trims the
+     * latency tail at the cost of roughly {@code 100 - percentile} percent more reads, each of which takes a rate limit
+     * permit, if one is immediately available, and a connection. Synchronous reads are then sent asynchronously and
+     * waited for. As with {@link #circuitBreaker}, the default transport then no longer quietly resends a request that
+     * failed on the wire. Not hedged by default.
+     *
+     * @param percentile of recent latency after which to hedge, such as {@code 95}
+     * @param minDelay   shortest delay before hedging, however fast recent requests were
+     * @param unit       {@code [required]} of the minDelay
+     * @return this builder
+     * @throws IllegalArgumentException if percentile isn't in {@code (0, 100)} or minDelay is negative
+     * @see me.bendoerr.mal.java.client.metrics.HistogramMetricsListener#getHedges
+     */
+    public MALClientBuilder hedgeReads(
+            final double percentile,
+            final long minDelay,
+            @NonNull final TimeUnit unit) {
+
+        if (!(percentile > 0 && percentile < 100))
+            throw new IllegalArgumentException("percentile must be in (0, 100)");
+
+        if (minDelay < 0)
+            throw new IllegalArgumentException("minDelay must not be negative");
+
+        this.hedgePercentile = percentile;
+        this.hedgeMinDelayMillis = unit.toMillis(minDelay);
+        return this;
+    }
+
+    /**
+     * @return a new client
+     * @throws IllegalStateException if an adaptive rate limit was requested without a rate limit
+     */
+    public MALClient build() {
+        if (adaptiveRateLimit && rateLimitPermitsPerSecond <= 0)
+            throw new IllegalStateException("adaptiveRateLimit requires a rateLimit");
+
+        if (adaptiveRateLimit && minPermitsPerSecond > rateLimitPermitsPerSecond)
+            throw new IllegalStateException("minPermitsPerSecond must not exceed the rateLimit");
+
+        return new MALClient(this);
+    }
+
+    private static int positive(
+            final int value,
+            final String name) {
+
+        if (value <= 0)
+            throw new IllegalArgumentException(name + " must be positive");
+
+        return value;
+    }
+
+    private static long positive(
+            final long value,
+            final String name) {
+
+        if (value <= 0)
+            throw new IllegalArgumentException(name + " must be positive");
+
+        return value;
+    }
+}
@@ -0,0 +1,89 @@
+package me.bendoerr.mal.java.client;
+
+import lombok.NonNull;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.Response;
+
+/**
+ * Maps raw JAX-RS {@link Response}s onto the same exception types Jersey throws when a typed entity is requested, so
+ * that callers reading a {@link Response} directly see the same errors as the rest of {@link MALClient}.
+ */
+final class MALResponses {
+
+    private MALResponses() {
+    }
+
+    /**
+     * Ensure the response has a {@code 2xx} status code, closing it and throwing otherwise.
+     *
+     * @param response to check
+     * @return the same response
+     * @throws ClientErrorException if MAL returned a HTTP {@code 4xx} status code
+     * @throws ServerErrorException if MAL returned a HTTP {@code 5xx} status code
+     * @throws WebApplicationException for any other non-successful status
+     */
+    static Response successful(
+            @NonNull final Response response) {
+
+        if (response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL)
+            return response;
+
+        try {
+            response.bufferEntity();
+        } catch (ProcessingException | IllegalStateException ignored) {
+            // The exception is still useful without a readable entity
+        }
+
+        throw toException(response);
+    }
+
+    /**
+     * Convert a non-successful response into the matching {@link WebApplicationException} subtype.
+     *
+     * @param response to convert
+     * @return the exception, never null
+     */
+    static WebApplicationException toException(
+            @NonNull final Response response) {
+
+        try {
+            switch (response.getStatus()) {
+                case 400:
+                    return new BadRequestException(response);
+                case 401:
+                    return new NotAuthorizedException(response);
+                case 403:
+                    return new ForbiddenException(response);
+                case 404:
+                    return new NotFoundException(response);
+                case 405:
+                    return new NotAllowedException(response);
+                case 406:
+                    return new NotAcceptableException(response);
+                case 415:
+                    return new NotSupportedException(response);
+                case 500:
+                    return new InternalServerErrorException(response);
+                case 503:
+                    return new ServiceUnavailableException(response);
+                default:
+                    break;
+            }
+
+            switch (response.getStatusInfo().getFamily()) {
+                case REDIRECTION:
+                    return new RedirectionException(response);
+                case CLIENT_ERROR:
+                    return new ClientErrorException(response);
+                case SERVER_ERROR:
+                    return new ServerErrorException(response);
+                default:
+                    return new WebApplicationException(response);
+            }
+        } catch (IllegalArgumentException e) {
+            // Some of the specific exceptions validate headers (e.g. Allow, Location) which MAL doesn't always send
+            return new WebApplicationException(response);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package me.bendoerr.mal.java.client;
+
+import me.bendoerr.mal.java.client.model.AnimeEntry;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+import me.bendoerr.mal.java.client.model.AnimeListEntryValues;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * The HTTP exchanges behind a {@link MALClient}, one method per MAL endpoint.
+ * <p>
+ * The client decides when and how often each method is called: it serves searches from its cache, coalesces reads,
+ * waits for rate limit permits and retries throttled requests. A transport only sends one request, maps the response
+ * and reports failures with the same exceptions documented on {@link MALClient}: a
+ * {@link javax.ws.rs.ClientErrorException} for a {@code 4xx} status, a {@link javax.ws.rs.ServerErrorException} for a
+ * {@code 5xx} status, each carrying a response with the status and {@code Retry-After} header so throttled requests
+ * can be retried, and a {@link javax.ws.rs.ProcessingException} if the request fails or the response can't be
+ * understood. Asynchronous methods complete their future exceptionally with the same exceptions, and cancelling the
+ * future should abort the request.
+ * <p>
+ * Every method is given the {@code Authorization} header to send, or null to send none, since one transport serves all
+ * the {@link MALClient#forUser(String, String) per-user handles} of a client.
+ * <p>
+ * Two transports are provided. The default uses Jersey with a pooled Apache connector and supports every
+ * {@link MALClientBuilder} setting and the full {@link me.bendoerr.mal.java.client.metrics.Phase} breakdown. The
+ * {@link UrlConnectionTransport} uses the JDK's own HTTP client, so it starts much faster, which suits short-lived
+ * processes. Implementations must be thread-safe.
+ *
+ * @see MALClientBuilder#transport(MALTransport)
+ */
+public interface MALTransport extends AutoCloseable {
+
+    /**
+     * @return the search results, empty if MAL answered {@code 204 No Content}
+     * @see MALClient#animeSearch(String)
+     */
+    List<AnimeEntry> animeSearch(
+            String authorization,
+            String query);
+
+    /**
+     * @see MALClient#animeSearchAsync(String)
+     */
+    CompletableFuture<List<AnimeEntry>> animeSearchAsync(
+            String authorization,
+            String query);
+
+    /**
+     * Stream search results as they are parsed, failing with the response status before returning like
+     * {@link #animeListStream(String, String)}.
+     *
+     * @return the search results, empty if MAL answered {@code 204 No Content}
+     * @see MALClient#animeSearchPublisher(String)
+     */
+    Stream<AnimeEntry> animeSearchStream(
+            String authorization,
+            String query);
+
+    /**
+     * @return the response body of a search, empty if MAL answered {@code 204 No Content}
+     * @see MALClient#animeSearchLazy(String)
+     */
+    byte[] animeSearchBody(
+            String authorization,
+            String query);
+
+    /**
+     * @see MALClient#animeSearchLazyAsync(String)
+     */
+    CompletableFuture<byte[]> animeSearchBodyAsync(
+            String authorization,
+            String query);
+
+    /**
+     * @see MALClient#animeListAdd(String, AnimeListEntryValues)
+     */
+    void animeListAdd(
+            String authorization,
+            String id,
+            AnimeListEntryValues values);
+
+    /**
+     * @see MALClient#animeListAddAsync(String, AnimeListEntryValues)
+     */
+    CompletableFuture<Void> animeListAddAsync(
+            String authorization,
+            String id,
+            AnimeListEntryValues values);
+
+    /**
+     * @see MALClient#animeListUpdate(String, AnimeListEntryValues)
+     */
+    void animeListUpdate(
+            String authorization,
+            String id,
+            AnimeListEntryValues values);
+
+    /**
+     * @see MALClient#animeListUpdateAsync(String, AnimeListEntryValues)
+     */
+    CompletableFuture<Void> animeListUpdateAsync(
+            String authorization,
+            String id,
+            AnimeListEntryValues values);
+
+    /**
+     * @see MALClient#animeListDelete(String)
+     */
+    void animeListDelete(
+            String authorization,
+            String id);
+
+    /**
+     * @see MALClient#animeListDeleteAsync(String)
+     */
+    CompletableFuture<Void> animeListDeleteAsync(
+            String authorization,
+            String id);
+
+    /**
+     * @see MALClient#x_animeList(String)
+     */
+    List<AnimeListEntry> animeList(
+            String authorization,
+            String username);
+
+    /**
+     * @see MALClient#x_animeListAsync(String)
+     */
+    CompletableFuture<List<AnimeListEntry>> animeListAsync(
+            String authorization,
+            String username);
+
+    /**
+     * Fail with the response status before returning, the stream only fails with a
+     * {@link javax.ws.rs.ProcessingException} while being consumed.
+     *
+     * @see MALClient#x_animeListStream(String)
+     */
+    Stream<AnimeListEntry> animeListStream(
+            String authorization,
+            String username);
+
+    /**
+     * Release the transport's connections and threads.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,298 @@
+package me.bendoerr.mal.java.client;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.metrics.MALMetricsListener;
+import me.bendoerr.mal.java.client.metrics.Operation;
+import me.bendoerr.mal.java.client.metrics.Phase;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits each request attempt of a {@link MALClient} into {@link Phase}s and reports them to a
+ * {@link MALMetricsListener}.
+ * <p>
+ * Requests are tagged with their {@link Operation} through the {@link #OPERATION} request property. The request filter
+ * starts an {@link Attempt} and, since the Apache connector acquires the connection on the same thread that ran the
+ * filters, also exposes it through a thread local to the {@link ConnectionManager}. The response filter then knows how
+ * long acquiring the connection took and how long after that the headers arrived. The reader interceptor times the
+ * entity stream separately from the whole read, the difference being time spent unmarshalling.
+ * <p>
+ * Only installed when a listener other than {@link MALMetricsListener#NOOP} is configured, so that an uninstrumented
+ * client pays nothing.
+ */
+final class MetricsInstrumentation implements ClientRequestFilter, ClientResponseFilter, ReaderInterceptor {
+
+    static final String OPERATION = MetricsInstrumentation.class.getName() + ".operation";
+
+    private static final String ATTEMPT = MetricsInstrumentation.class.getName() + ".attempt";
+    private static final ThreadLocal<Attempt> CURRENT = new ThreadLocal<>();
+
+    private final MALMetricsListener listener;
+
+    MetricsInstrumentation(
+            @NonNull final MALMetricsListener listener) {
+
+        this.listener = listener;
+    }
+
+    @Override
+    public void filter(
+            final ClientRequestContext request) {
+
+        final Object operation = request.getProperty(OPERATION);
+
+        if (!(operation instanceof Operation)) {
+            CURRENT.remove();
+            return;
+        }
+
+        final Attempt attempt = new Attempt((Operation) operation);
+        request.setProperty(ATTEMPT, attempt);
+        CURRENT.set(attempt);
+    }
+
+    @Override
+    public void filter(
+            final ClientRequestContext request,
+            final ClientResponseContext response) {
+
+        CURRENT.remove();
+
+        final Object value = request.getProperty(ATTEMPT);
+
+        if (!(value instanceof Attempt))
+            return;
+
+        final Attempt attempt = (Attempt) value;
+        final long firstByte = System.nanoTime() - attempt.start - attempt.acquireNanos;
+
+        listener.onPhase(attempt.operation, Phase.CONNECTION_ACQUIRE, attempt.acquireNanos);
+        listener.onPhase(attempt.operation, Phase.TIME_TO_FIRST_BYTE, firstByte);
+        listener.onResponse(attempt.operation, response.getStatus());
+    }
+
+    @Override
+    public Object aroundReadFrom(
+            final ReaderInterceptorContext context) throws IOException {
+
+        final Object value = context.getProperty(ATTEMPT);
+
+        if (!(value instanceof Attempt))
+            return context.proceed();
+
+        final Attempt attempt = (Attempt) value;
+        final TimedInputStream body = new TimedInputStream(context.getInputStream(), attempt);
+        context.setInputStream(body);
+
+        // The entity is a stream the caller consumes later, report it once they close it
+        if (InputStream.class.isAssignableFrom(context.getType())) {
+            body.deferred = true;
+            return context.proceed();
+        }
+
+        final long start = System.nanoTime();
+
+        try {
+            return context.proceed();
+        } finally {
+            final long elapsed = System.nanoTime() - start;
+
+            listener.onPhase(attempt.operation, Phase.BODY_TRANSFER, body.readNanos);
+            listener.onPhase(attempt.operation, Phase.UNMARSHAL, Math.max(0, elapsed - body.readNanos));
+            listener.onPayload(attempt.operation, body.bytes);
+        }
+    }
+
+    /**
+     * Time marshalling a request body.
+     */
+    void marshalled(
+            final Operation operation,
+            final long nanos) {
+
+        listener.onPhase(operation, Phase.MARSHAL, nanos);
+    }
+
+    private static final class Attempt {
+
+        private final Operation operation;
+        private final long start = System.nanoTime();
+
+        private long acquireNanos;
+
+        private Attempt(
+                final Operation operation) {
+
+            this.operation = operation;
+        }
+    }
+
+    private final class TimedInputStream extends FilterInputStream {
+
+        private final Attempt attempt;
+
+        private long bytes;
+        private long readNanos;
+        private boolean deferred;
+        private boolean reported;
+
+        private TimedInputStream(
+                final InputStream in,
+                final Attempt attempt) {
+
+            super(in);
+            this.attempt = attempt;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final long start = System.nanoTime();
+            final int b = super.read();
+            readNanos += System.nanoTime() - start;
+
+            if (b >= 0)
+                bytes++;
+
+            return b;
+        }
+
+        @Override
+        public int read(
+                final byte[] b,
+                final int off,
+                final int len) throws IOException {
+
+            final long start = System.nanoTime();
+            final int n = super.read(b, off, len);
+            readNanos += System.nanoTime() - start;
+
+            if (n > 0)
+                bytes += n;
+
+            return n;
+        }
+
+        @Override
+        public long skip(
+                final long n) throws IOException {
+
+            final long start = System.nanoTime();
+            final long skipped = super.skip(n);
+            readNanos += System.nanoTime() - start;
+            bytes += skipped;
+            return skipped;
+        }
+
+        /**
+         * Bytes replayed after a reset would be counted twice, so callers needing to peek have to buffer above this.
+         */
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void mark(
+                final int readLimit) {
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new IOException("mark/reset not supported");
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (deferred && !reported) {
+                    reported = true;
+                    listener.onPhase(attempt.operation, Phase.BODY_TRANSFER, readNanos);
+                    listener.onPayload(attempt.operation, bytes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Times how long each instrumented request waits for a pooled connection and, if it has to open one, to connect.
+     */
+    static final class ConnectionManager extends PoolingHttpClientConnectionManager {
+
+        ConnectionManager(
+                final long timeToLive,
+                final TimeUnit unit) {
+
+            super(timeToLive, unit);
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(
+                final HttpRoute route,
+                final Object state) {
+
+            final ConnectionRequest request = super.requestConnection(route, state);
+            final Attempt attempt = CURRENT.get();
+
+            if (attempt == null)
+                return request;
+
+            return new ConnectionRequest() {
+                @Override
+                public HttpClientConnection get(
+                        final long timeout,
+                        final TimeUnit unit) throws InterruptedException, ExecutionException,
+                        ConnectionPoolTimeoutException {
+
+                    final long start = System.nanoTime();
+
+                    try {
+                        return request.get(timeout, unit);
+                    } finally {
+                        attempt.acquireNanos += System.nanoTime() - start;
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return request.cancel();
+                }
+            };
+        }
+
+        @Override
+        public void connect(
+                final HttpClientConnection connection,
+                final HttpRoute route,
+                final int connectTimeout,
+                final HttpContext context) throws IOException {
+
+            final Attempt attempt = CURRENT.get();
+            final long start = System.nanoTime();
+
+            try {
+                super.connect(connection, route, connectTimeout, context);
+            } finally {
+                if (attempt != null)
+                    attempt.acquireNanos += System.nanoTime() - start;
+            }
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package me.bendoerr.mal.java.client;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.metrics.MALMetricsListener;
+import me.bendoerr.mal.java.client.metrics.Operation;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Schedules every request a {@link MALClient} makes through a shared {@link TokenBucket} and retries requests MAL
+ * rejected for throttling ({@code 429 Too Many Requests} or {@code 503 Service Unavailable}).
+ * <p>
+ * Retries back off exponentially with jitter, or wait as long as MAL asks in its {@code Retry-After} header. A
+ * {@code Retry-After} longer than the maximum backoff is not retried at all. In adaptive mode every throttled response
+ * halves the shared rate (at most once a second, since in-flight requests tend to be throttled together) down to a
+ * floor, and every successful response adds back a hundredth of the configured rate.
+ * <p>
+ * With no limit and no retries configured this is a pass-through. Every operation's overall latency, outcome and
+ * retries are reported to the client's {@link MALMetricsListener}, if one is configured.
+ */
+final class RequestScheduler implements AutoCloseable {
+
+    static final int TOO_MANY_REQUESTS = 429;
+
+    private static final long DECREASE_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final TokenBucket limiter;
+    private final int maxRetries;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final boolean adaptive;
+    private final double maxRate;
+    private final double minRate;
+    private final MALMetricsListener metrics;
+
+    private ScheduledExecutorService timer;
+    private long lastDecrease;
+
+    RequestScheduler(
+            @NonNull final MALClientBuilder builder) {
+
+        this.limiter = builder.rateLimitPermitsPerSecond > 0
+                ? new TokenBucket(builder.rateLimitPermitsPerSecond, builder.rateLimitBurst)
+                : null;
+        this.maxRetries = builder.maxThrottleRetries;
+        this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(builder.initialBackoffMillis);
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(builder.maxBackoffMillis);
+        this.adaptive = limiter != null && builder.adaptiveRateLimit;
+        this.maxRate = builder.rateLimitPermitsPerSecond;
+        this.minRate = builder.minPermitsPerSecond;
+        this.metrics = builder.metrics == MALMetricsListener.NOOP ? null : builder.metrics;
+        this.lastDecrease = System.nanoTime() - DECREASE_COOLDOWN_NANOS;
+    }
+
+    /**
+     * @return true if requests are neither limited nor retried
+     */
+    boolean isPassThrough() {
+        return limiter == null && maxRetries == 0;
+    }
+
+    /**
+     * @return the current rate limit in permits per second or {@code 0} if unlimited
+     */
+    double getRate() {
+        return limiter == null ? 0 : limiter.getRate();
+    }
+
+    /**
+     * Take a permit for an extra request, such as a hedge, only if one is immediately available.
+     *
+     * @return true if the request may be sent
+     */
+    boolean tryAcquire() {
+        return limiter == null || limiter.tryAcquire();
+    }
+
+    /**
+     * Run a blocking request, waiting for a permit first and retrying it while it is throttled.
+     */
+    <T> T call(
+            final Operation operation,
+            final Supplier<T> attempt) {
+
+        if (metrics == null)
+            return attempts(operation, attempt);
+
+        final long start = System.nanoTime();
+
+        try {
+            final T result = attempts(operation, attempt);
+            metrics.onComplete(operation, System.nanoTime() - start, null);
+            return result;
+        } catch (RuntimeException e) {
+            metrics.onComplete(operation, System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Run a non-blocking request, delaying its dispatch until a permit is available and re-dispatching it while it is
+     * throttled. Cancelling the returned future cancels the attempt in flight and any further retries.
+     */
+    <T> CompletableFuture<T> callAsync(
+            final Operation operation,
+            final Supplier<CompletableFuture<T>> attempt) {
+
+        final long start = metrics == null ? 0 : System.nanoTime();
+        final CompletableFuture<T> result;
+
+        if (isPassThrough()) {
+            result = attempt.get();
+        } else {
+            result = new CompletableFuture<>();
+            schedule(operation, attempt, result, 0);
+        }
+
+        if (metrics != null) {
+            result.whenComplete((r, t) -> metrics.onComplete(operation, System.nanoTime() - start,
+                    t instanceof CompletionException && t.getCause() != null ? t.getCause() : t));
+        }
+
+        return result;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (timer != null)
+            timer.shutdownNow();
+    }
+
+    private <T> T attempts(
+            final Operation operation,
+            final Supplier<T> attempt) {
+
+        if (isPassThrough())
+            return attempt.get();
+
+        for (int retry = 0; ; retry++) {
+            if (limiter != null && !sleep(limiter.reserve()))
+                throw new ProcessingException(new InterruptedException());
+
+            final T result;
+
+            try {
+                result = attempt.get();
+            } catch (WebApplicationException e) {
+                final long delay = onFailure(operation, e, retry);
+
+                if (delay < 0 || !sleep(delay))
+                    throw e;
+
+                continue;
+            }
+
+            onSuccess();
+            return result;
+        }
+    }
+
+    private <T> void schedule(
+            final Operation operation,
+            final Supplier<CompletableFuture<T>> attempt,
+            final CompletableFuture<T> result,
+            final int retry) {
+
+        final long wait = limiter == null ? 0 : limiter.reserve();
+
+        if (wait > 0)
+            timer().schedule(() -> dispatch(operation, attempt, result, retry), wait, TimeUnit.NANOSECONDS);
+        else
+            dispatch(operation, attempt, result, retry);
+    }
+
+    private <T> void dispatch(
+            final Operation operation,
+            final Supplier<CompletableFuture<T>> attempt,
+            final CompletableFuture<T> result,
+            final int retry) {
+
+        if (result.isDone())
+            return;
+
+        final CompletableFuture<T> pending;
+
+        try {
+            pending = attempt.get();
+        } catch (Throwable t) {
+            result.completeExceptionally(t);
+            return;
+        }
+
+        result.whenComplete((r, t) -> {
+            if (result.isCancelled())
+                pending.cancel(true);
+        });
+
+        pending.whenComplete((r, t) -> {
+            if (t == null) {
+                onSuccess();
+                result.complete(r);
+                return;
+            }
+
+            final Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+            final long delay = cause instanceof WebApplicationException
+                    ? onFailure(operation, (WebApplicationException) cause, retry)
+                    : -1;
+
+            if (delay < 0)
+                result.completeExceptionally(cause);
+            else
+                timer().schedule(() -> schedule(operation, attempt, result, retry + 1), delay, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    /**
+     * @return nanoseconds to wait before retrying or {@code -1} if the failure must be propagated
+     */
+    private long onFailure(
+            final Operation operation,
+            final WebApplicationException e,
+            final int retry) {
+
+        final Response response = e.getResponse();
+        final int status = response == null ? 0 : response.getStatus();
+
+        if (status != TOO_MANY_REQUESTS && status != Response.Status.SERVICE_UNAVAILABLE.getStatusCode())
+            return -1;
+
+        onThrottled();
+
+        if (retry >= maxRetries)
+            return -1;
+
+        final long retryAfter = retryAfter(response);
+
+        if (retryAfter > maxBackoffNanos)
+            return -1;
+
+        if (metrics != null)
+            metrics.onRetry(operation, status);
+
+        if (retryAfter >= 0)
+            return retryAfter;
+
+        // Exponential backoff with "equal jitter", half fixed and half random
+        final long backoff = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(retry, 30));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    private void onThrottled() {
+        if (!adaptive)
+            return;
+
+        synchronized (this) {
+            final long now = System.nanoTime();
+
+            if (now - lastDecrease < DECREASE_COOLDOWN_NANOS)
+                return;
+
+            lastDecrease = now;
+            limiter.setRate(Math.max(minRate, limiter.getRate() / 2));
+        }
+    }
+
+    private void onSuccess() {
+        if (!adaptive)
+            return;
+
+        synchronized (this) {
+            final double rate = limiter.getRate();
+
+            if (rate < maxRate)
+                limiter.setRate(Math.min(maxRate, rate + maxRate / 100));
+        }
+    }
+
+    private synchronized ScheduledExecutorService timer() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "mal-client-request-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return timer;
+    }
+
+    /**
+     * @return the delay requested by a {@code Retry-After} header in nanoseconds or {@code -1} if there is none
+     */
+    private static long retryAfter(
+            final Response response) {
+
+        final String value = response.getHeaderString(HttpHeaders.RETRY_AFTER);
+
+        if (value == null || value.trim().isEmpty())
+            return -1;
+
+        try {
+            return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException ignored) {
+            // Not delay-seconds, must be an HTTP-date
+        }
+
+        try {
+            final ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toNanos());
+        } catch (DateTimeParseException ignored) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return false if interrupted
+     */
+    private static boolean sleep(
+            final long nanos) {
+
+        if (nanos <= 0)
+            return true;
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package me.bendoerr.mal.java.client;
+
+import lombok.NonNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical calls so that only one of them does the work and all of them receive its result or
+ * its exception.
+ * <p>
+ * Only calls that overlap in time are coalesced, nothing is remembered once the shared call completes. Synchronous and
+ * asynchronous callers of the same key share the same in-flight call. Cancelling a returned future detaches that
+ * caller, and once every caller of a call has cancelled, the call is cancelled too and the next caller starts afresh.
+ * Blocking callers can't cancel, so a call one of them waits for always carries on.
+ *
+ * @param <K> the key identifying identical calls
+ * @param <V> the result of a call
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Run a blocking call on the calling thread, or wait for an identical call already in flight.
+     */
+    V call(
+            @NonNull final K key,
+            @NonNull final Supplier<V> call) {
+
+        while (true) {
+            final Flight<V> mine = new Flight<>();
+            mine.join();
+
+            final Flight<V> existing = inFlight.putIfAbsent(key, mine);
+
+            if (existing != null) {
+                if (existing.join())
+                    return join(existing.shared);
+
+                // Abandoned by all its callers, start afresh
+                continue;
+            }
+
+            try {
+                final V result = call.get();
+                mine.shared.complete(result);
+                return result;
+            } catch (RuntimeException | Error e) {
+                mine.shared.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, mine);
+            }
+        }
+    }
+
+    /**
+     * Start a non-blocking call, or follow an identical call already in flight.
+     */
+    CompletableFuture<V> callAsync(
+            @NonNull final K key,
+            @NonNull final Supplier<CompletableFuture<V>> call) {
+
+        while (true) {
+            final Flight<V> mine = new Flight<>();
+            mine.join();
+
+            final Flight<V> existing = inFlight.putIfAbsent(key, mine);
+
+            if (existing != null) {
+                if (existing.join())
+                    return follow(key, existing);
+
+                // Abandoned by all its callers, start afresh
+                continue;
+            }
+
+            final CompletableFuture<V> pending;
+
+            try {
+                pending = call.get();
+            } catch (RuntimeException | Error e) {
+                inFlight.remove(key, mine);
+                mine.shared.completeExceptionally(e);
+                throw e;
+            }
+
+            mine.start(pending);
+
+            pending.whenComplete((result, t) -> {
+                inFlight.remove(key, mine);
+
+                if (t == null)
+                    mine.shared.complete(result);
+                else
+                    mine.shared.completeExceptionally(unwrap(t));
+            });
+
+            return follow(key, mine);
+        }
+    }
+
+    /**
+     * @return the number of distinct calls currently in flight
+     */
+    int size() {
+        return inFlight.size();
+    }
+
+    /**
+     * @return a future of the flight's result for a caller that has joined it, leaving it if cancelled
+     */
+    private CompletableFuture<V> follow(
+            final K key,
+            final Flight<V> flight) {
+
+        final CompletableFuture<V> follower = new CompletableFuture<>();
+
+        flight.shared.whenComplete((result, t) -> {
+            if (t == null)
+                follower.complete(result);
+            else
+                follower.completeExceptionally(unwrap(t));
+        });
+
+        follower.whenComplete((result, t) -> {
+            if (follower.isCancelled())
+                leave(key, flight);
+        });
+
+        return follower;
+    }
+
+    private void leave(
+            final K key,
+            final Flight<V> flight) {
+
+        final CompletableFuture<V> abandoned;
+
+        synchronized (flight) {
+            if (--flight.callers > 0 || flight.shared.isDone())
+                return;
+
+            flight.abandoned = true;
+            abandoned = flight.pending;
+            inFlight.remove(key, flight);
+        }
+
+        if (abandoned != null)
+            abandoned.cancel(true);
+    }
+
+    private static <V> V join(
+            final CompletableFuture<V> shared) {
+
+        try {
+            return shared.join();
+        } catch (CompletionException e) {
+            final Throwable cause = unwrap(e);
+
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+
+            throw e;
+        }
+    }
+
+    private static Throwable unwrap(
+            final Throwable t) {
+
+        return t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+    }
+
+    /**
+     * A call in flight and the number of callers waiting for it, guarded by the flight's lock but for its result.
+     */
+    private static final class Flight<V> {
+
+        private final CompletableFuture<V> shared = new CompletableFuture<>();
+
+        private CompletableFuture<V> pending;
+        private int callers;
+        private boolean abandoned;
+
+        /**
+         * @return whether the caller joined, false if every other caller has already cancelled
+         */
+        private synchronized boolean join() {
+            if (abandoned)
+                return false;
+
+            callers++;
+            return true;
+        }
+
+        private synchronized void start(
+                final CompletableFuture<V> pending) {
+
+            this.pending = pending;
+        }
+    }
+}
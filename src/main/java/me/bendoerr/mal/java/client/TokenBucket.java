@@ -0,0 +1,113 @@
+package me.bendoerr.mal.java.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token-bucket rate limiter.
+ * <p>
+ * Tokens accrue at {@link #getRate()} per second up to the burst capacity. Permits are handed out by reservation: a
+ * caller that finds the bucket empty takes on debt and is told how long to wait, so concurrent callers are served in
+ * arrival order and the long-run rate never exceeds the configured rate. The rate may be changed at any time, which
+ * is what the adaptive mode of {@link MALClient} relies on.
+ * <p>
+ * Instances are thread-safe and may be shared.
+ */
+public class TokenBucket {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double capacity;
+
+    private double rate;
+    private double tokens;
+    private long refilled;
+
+    /**
+     * Create a new full bucket.
+     *
+     * @param permitsPerSecond sustained rate, must be positive
+     * @param burst            number of permits that may be taken at once after a quiet period, must be positive
+     * @throws IllegalArgumentException if either parameter isn't positive
+     */
+    public TokenBucket(
+            final double permitsPerSecond,
+            final int burst) {
+
+        if (burst <= 0)
+            throw new IllegalArgumentException("burst must be positive");
+
+        this.capacity = burst;
+        this.tokens = burst;
+        this.refilled = System.nanoTime();
+        setRate(permitsPerSecond);
+    }
+
+    /**
+     * Reserve a permit.
+     *
+     * @return nanoseconds the caller must wait before using the permit, {@code 0} if it may proceed immediately
+     */
+    public synchronized long reserve() {
+        refill();
+        tokens -= 1;
+
+        if (tokens >= 0)
+            return 0;
+
+        return (long) (-tokens / rate * NANOS_PER_SECOND);
+    }
+
+    /**
+     * Take a permit only if one is immediately available.
+     *
+     * @return true if a permit was taken
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+
+        if (tokens < 1)
+            return false;
+
+        tokens -= 1;
+        return true;
+    }
+
+    /**
+     * Take a permit, sleeping until it may be used.
+     *
+     * @throws InterruptedException if interrupted while waiting, the permit is still consumed
+     */
+    public void acquire() throws InterruptedException {
+        final long wait = reserve();
+
+        if (wait > 0)
+            TimeUnit.NANOSECONDS.sleep(wait);
+    }
+
+    /**
+     * @return the current sustained rate in permits per second
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * @param permitsPerSecond new sustained rate, must be positive
+     * @throws IllegalArgumentException if not positive
+     */
+    public synchronized void setRate(
+            final double permitsPerSecond) {
+
+        if (!(permitsPerSecond > 0))
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+
+        refill();
+        this.rate = permitsPerSecond;
+    }
+
+    private void refill() {
+        final long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilled) * rate / NANOS_PER_SECOND);
+        refilled = now;
+    }
+}
@@ -0,0 +1,538 @@
+package me.bendoerr.mal.java.client;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.model.AnimeEntry;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+import me.bendoerr.mal.java.client.model.AnimeListEntryValues;
+import me.bendoerr.mal.java.client.xml.AnimeListEntryValuesWriter;
+import me.bendoerr.mal.java.client.xml.XmlRecordReader;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.util.Collections.emptyList;
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
+import static me.bendoerr.mal.java.client.MALClient.*;
+
+/**
+ * A {@link MALTransport} over the JDK's {@link HttpURLConnection}, with no Jersey client, JAXB context or Apache
+ * connection pool to set up, so a client using it is ready in a fraction of the time. Suited to short-lived processes
+ * such as command line tools and serverless functions that make a handful of requests.
+ * <p>
+ * Connections are kept alive and reused by the JDK's own process-wide cache, sized with the {@code http.maxConnections}
+ * system property, so every response body is read to the end before it is closed, except that of a list or search
+ * closed before its end, which is disconnected instead. Responses are pull-parsed with
+ * {@link XmlRecordReader} and values are written with {@link AnimeListEntryValuesWriter}, producing the same entries
+ * and request bodies as the default transport.
+ * <p>
+ * Asynchronous requests run on a small pool of daemon threads started on first use. Cancelling the future of a
+ * request that hasn't started yet prevents it from being sent, one that is already waiting on MAL is left to finish
+ * and its result discarded.
+ * <p>
+ * Of the {@link MALClientBuilder} settings only those of the client itself apply, credentials, rate limiting,
+ * retries, caching and coalescing. The transport reports no per-phase timings or response sizes to a
+ * {@link me.bendoerr.mal.java.client.metrics.MALMetricsListener}.
+ * <pre>
+ * {@code
+ * MALClient client = MALClient.builder()
+ *         .credentials("user", "pass")
+ *         .transport(new UrlConnectionTransport(MALClient.MAL_URL))
+ *         .build();
+ * }
+ * </pre>
+ */
+public final class UrlConnectionTransport implements MALTransport {
+
+    private final String malUrl;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final int asyncThreads;
+
+    private ExecutorService executor;
+    private boolean closed;
+
+    /**
+     * Create a transport without timeouts and with four threads for asynchronous requests.
+     *
+     * @param malUrl {@code [required]} the base URL of the MAL domain
+     * @throws NullPointerException if malUrl is null
+     */
+    public UrlConnectionTransport(
+            @NonNull final String malUrl) {
+
+        this(malUrl, 0, 0, TimeUnit.MILLISECONDS, 4);
+    }
+
+    /**
+     * @param malUrl         {@code [required]} the base URL of the MAL domain
+     * @param connectTimeout to wait for a TCP connection to be established, {@code 0} waits indefinitely
+     * @param readTimeout    to wait for data on an established connection, {@code 0} waits indefinitely
+     * @param unit           {@code [required]} of the timeouts
+     * @param asyncThreads   number of threads running asynchronous requests
+     * @throws NullPointerException     if any of the required parameters are null
+     * @throws IllegalArgumentException if a timeout is negative or asyncThreads not positive
+     */
+    public UrlConnectionTransport(
+            @NonNull final String malUrl,
+            final long connectTimeout,
+            final long readTimeout,
+            @NonNull final TimeUnit unit,
+            final int asyncThreads) {
+
+        if (connectTimeout < 0 || readTimeout < 0)
+            throw new IllegalArgumentException("timeouts must not be negative");
+
+        if (asyncThreads <= 0)
+            throw new IllegalArgumentException("asyncThreads must be positive");
+
+        this.malUrl = malUrl;
+        this.connectTimeoutMillis = (int) Math.min(Integer.MAX_VALUE, unit.toMillis(connectTimeout));
+        this.readTimeoutMillis = (int) Math.min(Integer.MAX_VALUE, unit.toMillis(readTimeout));
+        this.asyncThreads = asyncThreads;
+    }
+
+    @Override
+    public List<AnimeEntry> animeSearch(
+            final String authorization,
+            final String query) {
+
+        try {
+            final HttpURLConnection connection = successful(open(PATH_ANIME_SEARCH + "?q=" + encode(query),
+                    "GET", MediaType.APPLICATION_XML, authorization));
+
+            if (connection.getResponseCode() == Response.Status.NO_CONTENT.getStatusCode()) {
+                drain(connection.getInputStream());
+                return emptyList();
+            }
+
+            return read(connection, "entry", AnimeEntry.class);
+        } catch (IOException e) {
+            throw new ProcessingException(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<AnimeEntry>> animeSearchAsync(
+            final String authorization,
+            final String query) {
+
+        return async(() -> animeSearch(authorization, query));
+    }
+
+    @Override
+    public Stream<AnimeEntry> animeSearchStream(
+            final String authorization,
+            final String query) {
+
+        try {
+            final HttpURLConnection connection = successful(open(PATH_ANIME_SEARCH + "?q=" + encode(query),
+                    "GET", MediaType.APPLICATION_XML, authorization));
+
+            if (connection.getResponseCode() == Response.Status.NO_CONTENT.getStatusCode()) {
+                drain(connection.getInputStream());
+                return Stream.empty();
+            }
+
+            return stream(reader(connection, "entry", AnimeEntry.class));
+        } catch (IOException e) {
+            throw new ProcessingException(e);
+        }
+    }
+
+    @Override
+    public byte[] animeSearchBody(
+            final String authorization,
+            final String query) {
+
+        try {
+            final HttpURLConnection connection = successful(open(PATH_ANIME_SEARCH + "?q=" + encode(query),
+                    "GET", MediaType.APPLICATION_XML, authorization));
+            final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+            try (InputStream in = connection.getInputStream()) {
+                copy(in, body);
+            }
+
+            return body.toByteArray();
+        } catch (IOException e) {
+            throw new ProcessingException(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<byte[]> animeSearchBodyAsync(
+            final String authorization,
+            final String query) {
+
+        return async(() -> animeSearchBody(authorization, query));
+    }
+
+    @Override
+    public void animeListAdd(
+            final String authorization,
+            final String id,
+            final AnimeListEntryValues values) {
+
+        post(PATH_ANIME_ADD.replace("%id", encode(id)), authorization, values);
+    }
+
+    @Override
+    public CompletableFuture<Void> animeListAddAsync(
+            final String authorization,
+            final String id,
+            final AnimeListEntryValues values) {
+
+        return async(() -> {
+            animeListAdd(authorization, id, values);
+            return null;
+        });
+    }
+
+    @Override
+    public void animeListUpdate(
+            final String authorization,
+            final String id,
+            final AnimeListEntryValues values) {
+
+        post(PATH_ANIME_UPDATE.replace("%id", encode(id)), authorization, values);
+    }
+
+    @Override
+    public CompletableFuture<Void> animeListUpdateAsync(
+            final String authorization,
+            final String id,
+            final AnimeListEntryValues values) {
+
+        return async(() -> {
+            animeListUpdate(authorization, id, values);
+            return null;
+        });
+    }
+
+    @Override
+    public void animeListDelete(
+            final String authorization,
+            final String id) {
+
+        try {
+            drain(successful(open(PATH_ANIME_DELETE.replace("%id", encode(id)), "DELETE", MediaType.WILDCARD,
+                    authorization)).getInputStream());
+        } catch (IOException e) {
+            throw new ProcessingException(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> animeListDeleteAsync(
+            final String authorization,
+            final String id) {
+
+        return async(() -> {
+            animeListDelete(authorization, id);
+            return null;
+        });
+    }
+
+    @Override
+    public List<AnimeListEntry> animeList(
+            final String authorization,
+            final String username) {
+
+        try {
+            return read(malappinfo(username, authorization), "anime", AnimeListEntry.class);
+        } catch (IOException e) {
+            throw new ProcessingException(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<AnimeListEntry>> animeListAsync(
+            final String authorization,
+            final String username) {
+
+        return async(() -> animeList(authorization, username));
+    }
+
+    @Override
+    public Stream<AnimeListEntry> animeListStream(
+            final String authorization,
+            final String username) {
+
+        final XmlRecordReader<AnimeListEntry> reader;
+
+        try {
+            reader = reader(malappinfo(username, authorization), "anime", AnimeListEntry.class);
+        } catch (IOException e) {
+            throw new ProcessingException(e);
+        }
+
+        return stream(reader);
+    }
+
+    /**
+     * Stop the threads running asynchronous requests. Kept-alive connections belong to the JDK and are left to it.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    private HttpURLConnection malappinfo(
+            final String username,
+            final String authorization) throws IOException {
+
+        return successful(open(X_PATH_MALAPPINFO + "?u=" + encode(username) + "&type=anime&status=all",
+                "GET", MediaType.APPLICATION_XML, authorization));
+    }
+
+    private void post(
+            final String path,
+            final String authorization,
+            final AnimeListEntryValues values) {
+
+        try {
+            final HttpURLConnection connection = open(path, "POST", MediaType.WILDCARD, authorization);
+            connection.setDoOutput(true);
+            connection.setRequestProperty(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_FORM_URLENCODED);
+
+            try (OutputStream out = connection.getOutputStream()) {
+                AnimeListEntryValuesWriter.writeForm("data", values, out);
+            }
+
+            drain(successful(connection).getInputStream());
+        } catch (IOException e) {
+            throw new ProcessingException(e);
+        }
+    }
+
+    private HttpURLConnection open(
+            final String pathAndQuery,
+            final String method,
+            final String accept,
+            final String authorization) throws IOException {
+
+        final HttpURLConnection connection = (HttpURLConnection) new URL(malUrl + pathAndQuery).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(connectTimeoutMillis);
+        connection.setReadTimeout(readTimeoutMillis);
+        connection.setUseCaches(false);
+        connection.setRequestProperty(HttpHeaders.ACCEPT, accept);
+
+        if (authorization != null)
+            connection.setRequestProperty(HttpHeaders.AUTHORIZATION, authorization);
+
+        return connection;
+    }
+
+    /**
+     * Ensure the response has a {@code 2xx} status code, otherwise read the error body, releasing the connection, and
+     * throw the same exception the default transport would.
+     */
+    private static HttpURLConnection successful(
+            final HttpURLConnection connection) throws IOException {
+
+        final int status = connection.getResponseCode();
+
+        if (status / 100 == 2)
+            return connection;
+
+        final Response.ResponseBuilder response = Response.status(status);
+
+        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+            // The status line is listed under a null name
+            if (header.getKey() == null)
+                continue;
+
+            for (String value : header.getValue())
+                response.header(header.getKey(), value);
+        }
+
+        final InputStream error = connection.getErrorStream();
+
+        if (error != null) {
+            final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+            try (InputStream in = error) {
+                copy(in, body);
+            }
+
+            response.entity(new String(body.toByteArray(), StandardCharsets.UTF_8));
+        }
+
+        throw MALResponses.toException(response.build());
+    }
+
+    private static <T> Stream<T> stream(
+            final XmlRecordReader<T> reader) {
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, ORDERED | NONNULL), false)
+                .onClose(reader::close);
+    }
+
+    private static <T> List<T> read(
+            final HttpURLConnection connection,
+            final String recordElement,
+            final Class<T> type) throws IOException {
+
+        final List<T> records = new ArrayList<>();
+
+        try (XmlRecordReader<T> reader = reader(connection, recordElement, type)) {
+            reader.forEachRemaining(records::add);
+        }
+
+        return records;
+    }
+
+    /**
+     * @return a reader over the response body that, when closed before the end of the body, such as by a cancelled
+     * subscription, disconnects rather than reading the rest of a response nobody wants
+     */
+    private static <T> XmlRecordReader<T> reader(
+            final HttpURLConnection connection,
+            final String recordElement,
+            final Class<T> type) throws IOException {
+
+        final InputStream body = connection.getInputStream();
+        final InputStream tracked = new FilterInputStream(body) {
+            private boolean ended;
+
+            @Override
+            public int read() throws IOException {
+                final int b = super.read();
+                ended |= b == -1;
+                return b;
+            }
+
+            @Override
+            public int read(
+                    final byte[] b,
+                    final int off,
+                    final int len) throws IOException {
+
+                final int n = super.read(b, off, len);
+                ended |= n == -1;
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                // The parser reads to the end of the body to find the end of the document, so the connection can
+                // only be reused once that happened
+                try {
+                    if (!ended)
+                        connection.disconnect();
+                } finally {
+                    super.close();
+                }
+            }
+        };
+
+        try {
+            return new XmlRecordReader<>(tracked, recordElement, type);
+        } catch (RuntimeException e) {
+            body.close();
+            throw e;
+        }
+    }
+
+    private static void drain(
+            final InputStream in) throws IOException {
+
+        try (InputStream body = in) {
+            copy(body, null);
+        }
+    }
+
+    private static void copy(
+            final InputStream in,
+            final OutputStream out) throws IOException {
+
+        final byte[] buffer = new byte[4096];
+        int read;
+
+        while ((read = in.read(buffer)) != -1) {
+            if (out != null)
+                out.write(buffer, 0, read);
+        }
+    }
+
+    private static String encode(
+            final String value) {
+
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Run a blocking request on the async pool, completing the future with its result or exception.
+     */
+    private <T> CompletableFuture<T> async(
+            final Supplier<T> request) {
+
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        final Future<?> pending = executor().submit(() -> {
+            if (result.isDone())
+                return;
+
+            try {
+                result.complete(request.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+
+        result.whenComplete((r, t) -> {
+            if (result.isCancelled())
+                pending.cancel(true);
+        });
+
+        return result;
+    }
+
+    private synchronized ExecutorService executor() {
+        if (closed)
+            throw new IllegalStateException("transport is closed");
+
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(asyncThreads, r -> {
+                final Thread thread = new Thread(r, "mal-client-url-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return executor;
+    }
+}
@@ -0,0 +1,41 @@
+package me.bendoerr.mal.java.client.cache;
+
+import lombok.NonNull;
+import lombok.Value;
+import me.bendoerr.mal.java.client.model.AnimeEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The results of an {@code animeSearch} as held by a {@link SearchCacheStore}.
+ */
+@Value
+public class CachedSearch {
+
+    /**
+     * Unmodifiable results, empty if MAL answered {@code 204 No Content}.
+     */
+    List<AnimeEntry> results;
+
+    /**
+     * Wall clock time, in milliseconds since the epoch, after which the results are stale.
+     */
+    long expiresAt;
+
+    public CachedSearch(
+            @NonNull final List<AnimeEntry> results,
+            final long expiresAt) {
+
+        this.results = Collections.unmodifiableList(new ArrayList<>(results));
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * @return true if this is a cached {@code 204 No Content}
+     */
+    public boolean isNoContent() {
+        return results.isEmpty();
+    }
+}
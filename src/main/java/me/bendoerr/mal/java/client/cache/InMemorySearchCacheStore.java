@@ -0,0 +1,100 @@
+package me.bendoerr.mal.java.client.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-bounded, in-heap {@link SearchCacheStore} that evicts the least recently used search.
+ */
+public class InMemorySearchCacheStore implements SearchCacheStore {
+
+    private final LruMap searches;
+
+    /**
+     * @param maxSearches number of searches to hold before evicting the least recently used
+     * @throws IllegalArgumentException if not positive
+     */
+    public InMemorySearchCacheStore(
+            final int maxSearches) {
+
+        if (maxSearches <= 0)
+            throw new IllegalArgumentException("maxSearches must be positive");
+
+        this.searches = new LruMap(maxSearches);
+    }
+
+    @Override
+    public synchronized CachedSearch get(
+            final String key) {
+
+        return searches.get(key);
+    }
+
+    @Override
+    public synchronized void put(
+            final String key,
+            final CachedSearch search) {
+
+        searches.put(key, search);
+    }
+
+    @Override
+    public synchronized void remove(
+            final String key) {
+
+        searches.remove(key);
+    }
+
+    @Override
+    public synchronized boolean remove(
+            final String key,
+            final CachedSearch expected) {
+
+        return searches.remove(key, expected);
+    }
+
+    @Override
+    public synchronized int size() {
+        return searches.size();
+    }
+
+    @Override
+    public synchronized long evictionCount() {
+        return searches.evictions;
+    }
+
+    @Override
+    public synchronized void clear() {
+        searches.clear();
+    }
+
+    /**
+     * Searches in access order, evicting the least recently used beyond the maximum.
+     */
+    private static final class LruMap extends LinkedHashMap<String, CachedSearch> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSearches;
+
+        private long evictions;
+
+        private LruMap(
+                final int maxSearches) {
+
+            super(16, 0.75f, true);
+            this.maxSearches = maxSearches;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<String, CachedSearch> eldest) {
+
+            if (size() <= maxSearches)
+                return false;
+
+            evictions++;
+            return true;
+        }
+    }
+}
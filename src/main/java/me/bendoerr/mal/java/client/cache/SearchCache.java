@@ -0,0 +1,162 @@
+package me.bendoerr.mal.java.client.cache;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.model.AnimeEntry;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * An optional cache in front of {@code MALClient.animeSearch}.
+ * <p>
+ * Queries are normalized before being used as keys, so {@code "Bleach"} and {@code " bleach "} share an entry. Results
+ * expire after a time-to-live, with a separate (typically shorter) time-to-live for searches MAL answered with
+ * {@code 204 No Content}, since new titles may appear for a query that matched nothing. Size is bounded by the
+ * {@link SearchCacheStore}.
+ * <pre>
+ * {@code
+ * MALClient client = MALClient.builder()
+ *         .credentials("user", "pass")
+ *         .searchCache(new SearchCache(new InMemorySearchCacheStore(10000),
+ *                 1, TimeUnit.HOURS, 5, TimeUnit.MINUTES))
+ *         .build();
+ * }
+ * </pre>
+ * The cached {@link AnimeEntry} instances are shared between callers and must not be modified.
+ */
+public class SearchCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final SearchCacheStore store;
+    private final long ttlMillis;
+    private final long noContentTtlMillis;
+    private final LongSupplier clock;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * Create a new cache.
+     *
+     * @param store         {@code [required]} to hold the cached searches
+     * @param ttl           how long results are kept
+     * @param ttlUnit       {@code [required]} of the ttl
+     * @param noContentTtl  how long an empty ({@code 204 No Content}) result is kept
+     * @param noContentUnit {@code [required]} of the noContentTtl
+     * @throws NullPointerException if any of the required parameters are null
+     */
+    public SearchCache(
+            @NonNull final SearchCacheStore store,
+            final long ttl,
+            @NonNull final TimeUnit ttlUnit,
+            final long noContentTtl,
+            @NonNull final TimeUnit noContentUnit) {
+
+        this(store, ttlUnit.toMillis(ttl), noContentUnit.toMillis(noContentTtl), System::currentTimeMillis);
+    }
+
+    SearchCache(
+            @NonNull final SearchCacheStore store,
+            final long ttlMillis,
+            final long noContentTtlMillis,
+            @NonNull final LongSupplier clock) {
+
+        this.store = store;
+        this.ttlMillis = ttlMillis;
+        this.noContentTtlMillis = noContentTtlMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Normalize a query into a cache key: Unicode compatibility normalized, lower cased, trimmed and with runs of
+     * whitespace collapsed.
+     *
+     * @param query as passed to {@code animeSearch}
+     * @return the cache key
+     */
+    public static String normalize(
+            @NonNull final String query) {
+
+        final String normalized = Normalizer.normalize(query, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT).trim();
+        return WHITESPACE.matcher(normalized).replaceAll(" ");
+    }
+
+    /**
+     * Look up a search.
+     *
+     * @param query as passed to {@code animeSearch}
+     * @return the unmodifiable cached results, possibly empty, or null on a miss
+     */
+    public List<AnimeEntry> get(
+            @NonNull final String query) {
+
+        final String key = normalize(query);
+        final CachedSearch search = store.get(key);
+
+        if (search == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        if (search.getExpiresAt() <= clock.getAsLong()) {
+            store.remove(key, search);
+            expirations.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return search.getResults();
+    }
+
+    /**
+     * Cache the results of a search, an empty list being cached as {@code 204 No Content}.
+     *
+     * @param query   as passed to {@code animeSearch}
+     * @param results returned by {@code animeSearch}
+     * @return the unmodifiable results as cached
+     */
+    public List<AnimeEntry> put(
+            @NonNull final String query,
+            @NonNull final List<AnimeEntry> results) {
+
+        final long ttl = results.isEmpty() ? noContentTtlMillis : ttlMillis;
+        final CachedSearch search = new CachedSearch(results, clock.getAsLong() + ttl);
+
+        if (ttl > 0)
+            store.put(normalize(query), search);
+
+        return search.getResults();
+    }
+
+    /**
+     * @param query to forget
+     */
+    public void invalidate(
+            @NonNull final String query) {
+
+        store.remove(normalize(query));
+    }
+
+    /**
+     * Forget all searches, the counters are kept.
+     */
+    public void invalidateAll() {
+        store.clear();
+    }
+
+    /**
+     * @return a snapshot of the hit, miss, eviction and expiration counters
+     */
+    public SearchCacheStats getStats() {
+        return new SearchCacheStats(
+                hits.get(), misses.get(), store.evictionCount(), expirations.get(), store.size());
+    }
+}
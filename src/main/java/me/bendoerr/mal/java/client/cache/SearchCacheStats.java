@@ -0,0 +1,34 @@
+package me.bendoerr.mal.java.client.cache;
+
+import lombok.Value;
+
+/**
+ * A point-in-time snapshot of {@link SearchCache} counters.
+ */
+@Value
+public class SearchCacheStats {
+
+    long hits;
+
+    long misses;
+
+    /**
+     * Searches dropped by the store to bound its size.
+     */
+    long evictions;
+
+    /**
+     * Searches dropped because they outlived their time-to-live.
+     */
+    long expirations;
+
+    int size;
+
+    /**
+     * @return the fraction of lookups that were hits, or {@code 0} if there were none
+     */
+    public double getHitRate() {
+        final long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,58 @@
+package me.bendoerr.mal.java.client.cache;
+
+/**
+ * Backing storage for a {@link SearchCache}.
+ * <p>
+ * Stores are responsible for bounding their own size and for counting what they evict to do so. Expiry is handled by
+ * the {@link SearchCache} itself using {@link CachedSearch#getExpiresAt()}, so a store only needs to hold values. The
+ * in-heap {@link InMemorySearchCacheStore} is the default, an off-heap or on-disk store can be swapped in by
+ * implementing this interface.
+ * <p>
+ * Implementations must be thread-safe.
+ */
+public interface SearchCacheStore {
+
+    /**
+     * @param key normalized query
+     * @return the cached search or null if there is none
+     */
+    CachedSearch get(String key);
+
+    /**
+     * Store a search, possibly evicting others to make room.
+     *
+     * @param key    normalized query
+     * @param search to cache
+     */
+    void put(String key, CachedSearch search);
+
+    /**
+     * @param key normalized query to forget
+     */
+    void remove(String key);
+
+    /**
+     * Forget a search only if it is still the one stored, so that forgetting an expired search can't forget a fresh
+     * one stored for the same query in the meantime.
+     *
+     * @param key      normalized query to forget
+     * @param expected search to forget
+     * @return whether it was forgotten
+     */
+    boolean remove(String key, CachedSearch expected);
+
+    /**
+     * @return the number of searches currently stored
+     */
+    int size();
+
+    /**
+     * @return the number of searches evicted to bound the size of the store since it was created
+     */
+    long evictionCount();
+
+    /**
+     * Forget all searches.
+     */
+    void clear();
+}
@@ -0,0 +1,355 @@
+package me.bendoerr.mal.java.client.export;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+
+import javax.ws.rs.ProcessingException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Exports the anime lists of many users to a single output as CSV, newline-delimited JSON or MAL's import XML,
+ * optionally gzipped.
+ * <p>
+ * Every user's list is streamed from a source, such as {@link me.bendoerr.mal.java.client.MALClient#x_animeListStream}
+ * or the snapshots of an {@link me.bendoerr.mal.java.client.list.AnimeListRefresher}, and encoded as UTF-8 straight
+ * into a byte buffer, with no intermediate strings or documents per entry. With gzip each user's bytes are compressed
+ * into a gzip member of their own, members concatenated making a valid gzip stream, so compression runs in parallel
+ * too. Up to {@code parallelism} users are encoded at once while the calling thread writes them to the output in the
+ * order they were given, so the output is the same whatever the parallelism.
+ * <p>
+ * At most twice {@code parallelism} users are held encoded at once, and the buffers they are encoded into are reused
+ * from one user to the next, so memory is bounded by the size of the largest lists rather than of the export. An
+ * export that fails, be it reading a list or writing the output, stops at the first failure, having written the users
+ * before it.
+ * <pre>
+ * {@code
+ * try (OutputStream out = Files.newOutputStream(Paths.get("lists.ndjson.gz"))) {
+ *     new AnimeListExporter(ExportFormat.NDJSON).gzip(true).parallelism(4)
+ *             .export(usernames, username -> refresher.getSnapshot(username).getEntries().values().stream(), out);
+ * }
+ * }
+ * </pre>
+ * Instances may be reused for any number of exports, but not concurrently.
+ */
+public class AnimeListExporter {
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final ExportFormat format;
+
+    private boolean gzip = false;
+    private int parallelism = 1;
+
+    /**
+     * @param format {@code [required]} to export to
+     * @throws NullPointerException if format is null
+     */
+    public AnimeListExporter(
+            @NonNull final ExportFormat format) {
+
+        this.format = format;
+    }
+
+    /**
+     * @param gzip compress the output, defaults to false
+     * @return this exporter
+     */
+    public AnimeListExporter gzip(
+            final boolean gzip) {
+
+        this.gzip = gzip;
+        return this;
+    }
+
+    /**
+     * @param parallelism maximum number of users encoded at once, defaults to {@code 1}
+     * @return this exporter
+     * @throws IllegalArgumentException if parallelism isn't positive
+     */
+    public AnimeListExporter parallelism(
+            final int parallelism) {
+
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("parallelism must be positive");
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param usernames {@code [required]} whose lists to export, in the order they are written
+     * @param lists     {@code [required]} opening the list of a user, the stream is closed once exported
+     * @param out       {@code [required]} to write to, flushed but not closed
+     * @return what was written
+     * @throws NullPointerException     if any of the parameters are null
+     * @throws IllegalArgumentException if exporting more than one user as {@link ExportFormat#MAL_XML}
+     * @throws IOException              if the output can't be written
+     * @throws ProcessingException      if interrupted while waiting for users to be encoded
+     * @see #export(List, Function, WritableByteChannel)
+     */
+    public ExportStats export(
+            @NonNull final List<String> usernames,
+            @NonNull final Function<String, ? extends Stream<AnimeListEntry>> lists,
+            @NonNull final OutputStream out) throws IOException {
+
+        final ExportStats stats = export(usernames, lists, Channels.newChannel(out));
+        out.flush();
+        return stats;
+    }
+
+    /**
+     * @param usernames {@code [required]} whose lists to export, in the order they are written
+     * @param lists     {@code [required]} opening the list of a user, the stream is closed once exported, anything
+     *                  it throws fails the export
+     * @param out       {@code [required]} to write to, not closed
+     * @return what was written
+     * @throws NullPointerException     if any of the parameters are null
+     * @throws IllegalArgumentException if exporting more than one user as {@link ExportFormat#MAL_XML}
+     * @throws IOException              if the output can't be written
+     * @throws ProcessingException      if interrupted while waiting for users to be encoded
+     * @see #exportEach(List, Function, Function)
+     */
+    public ExportStats export(
+            @NonNull final List<String> usernames,
+            @NonNull final Function<String, ? extends Stream<AnimeListEntry>> lists,
+            @NonNull final WritableByteChannel out) throws IOException {
+
+        if (format.documentPerUser() && usernames.size() > 1)
+            throw new IllegalArgumentException(format + " writes a document per user, export them with exportEach");
+
+        return export(usernames, lists, out, null);
+    }
+
+    /**
+     * Export every user to an output of their own, such as a file per user for MAL's list import, which reads one
+     * {@link ExportFormat#MAL_XML} document at a time. Users are encoded as by
+     * {@link #export(List, Function, WritableByteChannel)}, each output getting what exporting its user alone would
+     * write.
+     *
+     * @param usernames {@code [required]} whose lists to export, in the order their outputs are written
+     * @param lists     {@code [required]} opening the list of a user, the stream is closed once exported, anything
+     *                  it throws fails the export
+     * @param outputs   {@code [required]} opening the output of a user, closed once written
+     * @return what was written to all the outputs
+     * @throws NullPointerException if any of the parameters are null
+     * @throws IOException          if an output can't be opened or written
+     * @throws ProcessingException  if interrupted while waiting for users to be encoded
+     */
+    public ExportStats exportEach(
+            @NonNull final List<String> usernames,
+            @NonNull final Function<String, ? extends Stream<AnimeListEntry>> lists,
+            @NonNull final Function<String, ? extends WritableByteChannel> outputs) throws IOException {
+
+        return export(usernames, lists, null, outputs);
+    }
+
+    /**
+     * Export to either one shared output or an output per user.
+     */
+    private ExportStats export(
+            final List<String> usernames,
+            final Function<String, ? extends Stream<AnimeListEntry>> lists,
+            final WritableByteChannel shared,
+            final Function<String, ? extends WritableByteChannel> outputs) throws IOException {
+
+        final boolean each = shared == null;
+        final long start = System.nanoTime();
+        final int window = Math.max(1, Math.min(usernames.size(), 2 * parallelism));
+        final Deque<Chunk> free = new ArrayDeque<>(window);
+        final List<Chunk> chunks = new ArrayList<>(window);
+
+        for (int i = 0; i < window; i++) {
+            final Chunk chunk = new Chunk(gzip);
+            free.add(chunk);
+            chunks.add(chunk);
+        }
+
+        final ExecutorService executor = parallelism == 1 ? null : executor(Math.min(parallelism, window));
+        final Deque<Future<Chunk>> encoding = new ArrayDeque<>(window);
+        long entries = 0;
+        long bytes = 0;
+
+        try {
+            if (!each) {
+                final Chunk header = free.peek();
+
+                header.reset();
+                format.begin(header.buffer);
+
+                if (header.buffer.size() > 0)
+                    bytes += header.finish().writeTo(shared);
+            }
+
+            for (Iterator<String> it = usernames.iterator(); it.hasNext() || !encoding.isEmpty(); ) {
+                // Keep the window full, then write the oldest user once it is encoded
+                if (it.hasNext() && encoding.size() < window) {
+                    final String username = it.next();
+                    final Chunk chunk = free.poll();
+
+                    encoding.add(executor == null
+                            ? done(encode(chunk, username, lists, each))
+                            : executor.submit(() -> encode(chunk, username, lists, each)));
+
+                    if (executor != null)
+                        continue;
+                }
+
+                final Chunk chunk = await(encoding.poll());
+
+                entries += chunk.entries;
+
+                if (each) {
+                    try (WritableByteChannel out = outputs.apply(chunk.username)) {
+                        bytes += chunk.buffer.writeTo(out);
+                    }
+                } else {
+                    bytes += chunk.buffer.writeTo(shared);
+                }
+
+                free.add(chunk);
+            }
+        } finally {
+            for (Future<Chunk> future : encoding)
+                future.cancel(true);
+
+            if (executor != null)
+                executor.shutdownNow();
+
+            // Encoders still running may hold a deflater, those are released by their finalizers instead
+            if (encoding.isEmpty()) {
+                for (Chunk chunk : chunks)
+                    chunk.end();
+            }
+        }
+
+        return new ExportStats(usernames.size(), entries, bytes, System.nanoTime() - start);
+    }
+
+    /**
+     * @param begin whether the user's output is their own, so also gets what comes before the first user
+     */
+    private Chunk encode(
+            final Chunk chunk,
+            final String username,
+            final Function<String, ? extends Stream<AnimeListEntry>> lists,
+            final boolean begin) {
+
+        chunk.reset();
+        chunk.username = username;
+
+        if (begin)
+            format.begin(chunk.buffer);
+
+        format.beginUser(chunk.buffer, username);
+
+        try (Stream<AnimeListEntry> entries = lists.apply(username)) {
+            final Iterator<AnimeListEntry> it = entries.iterator();
+
+            while (it.hasNext()) {
+                format.entry(chunk.buffer, username, it.next());
+                chunk.entries++;
+            }
+        }
+
+        format.endUser(chunk.buffer);
+        chunk.finish();
+        return chunk;
+    }
+
+    private static ExecutorService executor(
+            final int threads) {
+
+        final AtomicInteger count = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(threads, r -> {
+            final Thread thread = new Thread(r, "mal-client-exporter-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static Future<Chunk> done(
+            final Chunk chunk) {
+
+        return CompletableFuture.completedFuture(chunk);
+    }
+
+    private static Chunk await(
+            final Future<Chunk> future) throws IOException {
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessingException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw new ProcessingException(e.getCause());
+        }
+    }
+
+    /**
+     * The reusable buffers one user is encoded, and compressed, into.
+     */
+    private static final class Chunk {
+
+        private final ExportBuffer buffer = new ExportBuffer(INITIAL_CAPACITY);
+        private final ExportBuffer scratch;
+        private final Deflater deflater;
+        private final CRC32 crc;
+
+        private String username;
+        private long entries;
+
+        private Chunk(
+                final boolean gzip) {
+
+            this.scratch = gzip ? new ExportBuffer(INITIAL_CAPACITY) : null;
+            this.deflater = gzip ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : null;
+            this.crc = gzip ? new CRC32() : null;
+        }
+
+        private void reset() {
+            buffer.reset();
+            entries = 0;
+        }
+
+        /**
+         * @return the buffer, compressed if need be
+         */
+        private ExportBuffer finish() {
+            if (deflater != null)
+                buffer.gzip(scratch, deflater, crc);
+
+            return buffer;
+        }
+
+        private void end() {
+            if (deflater != null)
+                deflater.end();
+        }
+    }
+}
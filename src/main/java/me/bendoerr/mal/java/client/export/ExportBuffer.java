@@ -0,0 +1,256 @@
+package me.bendoerr.mal.java.client.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A growable byte buffer that encodes text as UTF-8 straight into its array, escaping it as it goes, so exporting an
+ * entry never builds an intermediate {@code String} or {@code byte[]}. Buffers are reset and reused from one user to
+ * the next.
+ * <p>
+ * Not thread-safe.
+ */
+final class ExportBuffer {
+
+    static final int CSV = 0;
+    static final int JSON = 1;
+    static final int XML = 2;
+
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final byte[] AMP = ascii("&amp;");
+    private static final byte[] LT = ascii("&lt;");
+    private static final byte[] GT = ascii("&gt;");
+
+    private byte[] bytes;
+    private int size;
+
+    ExportBuffer(
+            final int capacity) {
+
+        this.bytes = new byte[capacity];
+    }
+
+    static byte[] ascii(
+            final String s) {
+
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    void reset() {
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void write(
+            final byte b) {
+
+        ensure(1);
+        bytes[size++] = b;
+    }
+
+    void write(
+            final byte[] b) {
+
+        ensure(b.length);
+        System.arraycopy(b, 0, bytes, size, b.length);
+        size += b.length;
+    }
+
+    /**
+     * Write text as UTF-8, escaped for the given format. For {@link #CSV} the text is quoted if it needs to be.
+     * Unpaired surrogates and, for {@link #XML}, the control characters it can't represent are dropped.
+     */
+    void text(
+            final String s,
+            final int escape) {
+
+        final boolean quote = escape == CSV && needsQuotes(s);
+
+        if (quote)
+            write((byte) '"');
+
+        final int length = s.length();
+
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+
+            if (c < 0x80) {
+                ascii(c, escape);
+            } else if (c < 0x800) {
+                ensure(2);
+                bytes[size++] = (byte) (0xc0 | c >> 6);
+                bytes[size++] = (byte) (0x80 | c & 0x3f);
+            } else if (!Character.isSurrogate(c)) {
+                ensure(3);
+                bytes[size++] = (byte) (0xe0 | c >> 12);
+                bytes[size++] = (byte) (0x80 | c >> 6 & 0x3f);
+                bytes[size++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, s.charAt(++i));
+
+                ensure(4);
+                bytes[size++] = (byte) (0xf0 | codePoint >> 18);
+                bytes[size++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                bytes[size++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                bytes[size++] = (byte) (0x80 | codePoint & 0x3f);
+            }
+        }
+
+        if (quote)
+            write((byte) '"');
+    }
+
+    /**
+     * Replace the contents of this buffer with them compressed as a single gzip member. Members concatenated make a
+     * valid gzip stream, so users can be compressed independently and in parallel.
+     *
+     * @param scratch  to compress into, swapped with this buffer's array
+     * @param deflater raw, {@code nowrap}, reset before use
+     * @param crc      reset before use
+     */
+    void gzip(
+            final ExportBuffer scratch,
+            final Deflater deflater,
+            final CRC32 crc) {
+
+        deflater.reset();
+        crc.reset();
+        crc.update(bytes, 0, size);
+        deflater.setInput(bytes, 0, size);
+        deflater.finish();
+
+        scratch.reset();
+        scratch.write(GZIP_HEADER);
+
+        while (!deflater.finished()) {
+            scratch.ensure(8192);
+            scratch.size += deflater.deflate(scratch.bytes, scratch.size, scratch.bytes.length - scratch.size);
+        }
+
+        scratch.intLittleEndian((int) crc.getValue());
+        scratch.intLittleEndian(size);
+
+        final byte[] compressed = scratch.bytes;
+        scratch.bytes = bytes;
+        bytes = compressed;
+        size = scratch.size;
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    int writeTo(
+            final WritableByteChannel channel) throws IOException {
+
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, size);
+
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+
+        return size;
+    }
+
+    private void ascii(
+            final char c,
+            final int escape) {
+
+        switch (escape) {
+            case CSV:
+                if (c == '"')
+                    write((byte) '"');
+                break;
+            case JSON:
+                if (c == '"' || c == '\\') {
+                    write((byte) '\\');
+                } else if (c < 0x20) {
+                    jsonControl(c);
+                    return;
+                }
+                break;
+            case XML:
+                if (c == '&') {
+                    write(AMP);
+                    return;
+                } else if (c == '<') {
+                    write(LT);
+                    return;
+                } else if (c == '>') {
+                    write(GT);
+                    return;
+                } else if (c < 0x20 && c != '\t' && c != '\n' && c != '\r') {
+                    return;
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown escape " + escape);
+        }
+
+        write((byte) c);
+    }
+
+    private void jsonControl(
+            final char c) {
+
+        switch (c) {
+            case '\n':
+                write((byte) '\\');
+                write((byte) 'n');
+                break;
+            case '\r':
+                write((byte) '\\');
+                write((byte) 'r');
+                break;
+            case '\t':
+                write((byte) '\\');
+                write((byte) 't');
+                break;
+            default:
+                ensure(6);
+                bytes[size++] = '\\';
+                bytes[size++] = 'u';
+                bytes[size++] = '0';
+                bytes[size++] = '0';
+                bytes[size++] = HEX[c >> 4];
+                bytes[size++] = HEX[c & 0xf];
+        }
+    }
+
+    private void intLittleEndian(
+            final int value) {
+
+        ensure(4);
+        bytes[size++] = (byte) value;
+        bytes[size++] = (byte) (value >> 8);
+        bytes[size++] = (byte) (value >> 16);
+        bytes[size++] = (byte) (value >> 24);
+    }
+
+    private static boolean needsQuotes(
+            final String s) {
+
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+
+            if (c == ',' || c == '"' || c == '\n' || c == '\r')
+                return true;
+        }
+
+        return false;
+    }
+
+    private void ensure(
+            final int extra) {
+
+        if (size + extra > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(size + extra, bytes.length * 2));
+    }
+}
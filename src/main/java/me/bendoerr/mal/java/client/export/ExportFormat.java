@@ -0,0 +1,296 @@
+package me.bendoerr.mal.java.client.export;
+
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+
+/**
+ * The formats an {@link AnimeListExporter} writes, all UTF-8.
+ */
+public enum ExportFormat {
+
+    /**
+     * RFC 4180 comma-separated values: a header row, then one row per entry of {@code username} followed by every
+     * {@code malappinfo.php} element in document order. Missing values are empty.
+     */
+    CSV {
+        @Override
+        void begin(
+                final ExportBuffer out) {
+
+            out.write(USERNAME_CSV);
+
+            for (byte[] column : COLUMNS_CSV)
+                out.write(column);
+
+            out.write(NEWLINE);
+        }
+
+        @Override
+        void entry(
+                final ExportBuffer out,
+                final String username,
+                final AnimeListEntry entry) {
+
+            out.text(username, ExportBuffer.CSV);
+
+            for (int column = 0; column < COLUMNS.length; column++) {
+                final String value = value(entry, column);
+
+                out.write(COMMA);
+
+                if (value != null)
+                    out.text(value, ExportBuffer.CSV);
+            }
+
+            out.write(NEWLINE);
+        }
+    },
+
+    /**
+     * Newline-delimited JSON: one object per entry of {@code username} followed by every {@code malappinfo.php}
+     * element in document order, as strings. Missing values are {@code null}.
+     */
+    NDJSON {
+        @Override
+        void entry(
+                final ExportBuffer out,
+                final String username,
+                final AnimeListEntry entry) {
+
+            out.write(USERNAME_JSON);
+            out.text(username, ExportBuffer.JSON);
+            out.write(QUOTE);
+
+            for (int column = 0; column < COLUMNS.length; column++) {
+                final String value = value(entry, column);
+
+                out.write(COLUMNS_JSON[column]);
+
+                if (value == null) {
+                    out.write(NULL);
+                } else {
+                    out.write(QUOTE);
+                    out.text(value, ExportBuffer.JSON);
+                    out.write(QUOTE);
+                }
+            }
+
+            out.write(OBJECT_END);
+        }
+    },
+
+    /**
+     * The XML format of MAL's list export, which MAL's list import reads back. Each user gets a document of their own
+     * since MAL imports one list at a time, so several users can only be exported with
+     * {@link AnimeListExporter#exportEach}, to an output each.
+     * Series types and list statuses are written as the names MAL exports rather than as numbers, and
+     * {@code update_on_import} is set so that importing overwrites what is on the list.
+     */
+    MAL_XML {
+        @Override
+        boolean documentPerUser() {
+            return true;
+        }
+
+        @Override
+        void beginUser(
+                final ExportBuffer out,
+                final String username) {
+
+            out.write(XML_BEGIN);
+            out.text(username, ExportBuffer.XML);
+            out.write(XML_MYINFO_END);
+        }
+
+        @Override
+        void entry(
+                final ExportBuffer out,
+                final String username,
+                final AnimeListEntry entry) {
+
+            out.write(ANIME_BEGIN);
+            element(out, "series_animedb_id", entry.getSeriesId());
+            element(out, "series_title", entry.getSeriesTitle());
+            element(out, "series_type", malName(SERIES_TYPES, entry.getSeriesType()));
+            element(out, "series_episodes", entry.getSeriesEpisodes());
+            element(out, "my_id", entry.getListId());
+            element(out, "my_watched_episodes", entry.getListWatchedEpisodes());
+            element(out, "my_start_date", entry.getListStart());
+            element(out, "my_finish_date", entry.getListFinished());
+            element(out, "my_score", entry.getListScore());
+            element(out, "my_status", malName(STATUSES, entry.getListStatus()));
+            element(out, "my_rewatching", entry.getListRewatching());
+            element(out, "my_rewatching_ep", entry.getListRewatchingEp());
+            element(out, "my_tags", entry.getListTags());
+            out.write(ANIME_END);
+        }
+
+        @Override
+        void endUser(
+                final ExportBuffer out) {
+
+            out.write(XML_END);
+        }
+    };
+
+    /**
+     * The {@code malappinfo.php} elements of an entry, in document order.
+     */
+    static final String[] COLUMNS = {
+            "series_animedb_id", "series_title", "series_synonyms", "series_type", "series_episodes", "series_status",
+            "series_start", "series_end", "series_image", "my_id", "my_watched_episodes", "my_start_date",
+            "my_finish_date", "my_score", "my_status", "my_rewatching", "my_rewatching_ep", "my_last_updated",
+            "my_tags"};
+
+    private static final byte[] COMMA = ExportBuffer.ascii(",");
+    private static final byte[] NEWLINE = ExportBuffer.ascii("\n");
+    private static final byte[] QUOTE = ExportBuffer.ascii("\"");
+    private static final byte[] NULL = ExportBuffer.ascii("null");
+    private static final byte[] OBJECT_END = ExportBuffer.ascii("}\n");
+    private static final byte[] USERNAME_CSV = ExportBuffer.ascii("username");
+    private static final byte[] USERNAME_JSON = ExportBuffer.ascii("{\"username\":\"");
+    private static final byte[][] COLUMNS_CSV = new byte[COLUMNS.length][];
+    private static final byte[][] COLUMNS_JSON = new byte[COLUMNS.length][];
+
+    private static final byte[] XML_BEGIN = ExportBuffer.ascii("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<myanimelist>\n"
+            + "  <myinfo>\n"
+            + "    <user_export_type>1</user_export_type>\n"
+            + "    <user_name>");
+    private static final byte[] XML_MYINFO_END = ExportBuffer.ascii("</user_name>\n  </myinfo>\n");
+    private static final byte[] ANIME_BEGIN = ExportBuffer.ascii("  <anime>\n");
+    private static final byte[] ANIME_END = ExportBuffer.ascii("    <update_on_import>1</update_on_import>\n"
+            + "  </anime>\n");
+    private static final byte[] XML_END = ExportBuffer.ascii("</myanimelist>\n");
+    private static final byte[] INDENT = ExportBuffer.ascii("    <");
+    private static final byte[] TAG_END = ExportBuffer.ascii(">");
+    private static final byte[] CLOSE_TAG = ExportBuffer.ascii("</");
+    private static final byte[] CLOSE_TAG_END = ExportBuffer.ascii(">\n");
+
+    private static final String[] SERIES_TYPES = {null, "TV", "OVA", "Movie", "Special", "ONA", "Music"};
+    private static final String[] STATUSES = {null, "Watching", "Completed", "On-Hold", "Dropped", null,
+            "Plan to Watch"};
+
+    static {
+        for (int column = 0; column < COLUMNS.length; column++) {
+            COLUMNS_CSV[column] = ExportBuffer.ascii("," + COLUMNS[column]);
+            COLUMNS_JSON[column] = ExportBuffer.ascii(",\"" + COLUMNS[column] + "\":");
+        }
+    }
+
+    /**
+     * @return whether every user is written as a whole document, which can't be concatenated with another
+     */
+    boolean documentPerUser() {
+        return false;
+    }
+
+    /**
+     * Write what comes before the first user, once per output.
+     */
+    void begin(
+            final ExportBuffer out) {
+    }
+
+    /**
+     * Write what comes before the entries of a user.
+     */
+    void beginUser(
+            final ExportBuffer out,
+            final String username) {
+    }
+
+    abstract void entry(
+            final ExportBuffer out,
+            final String username,
+            final AnimeListEntry entry);
+
+    /**
+     * Write what comes after the entries of a user.
+     */
+    void endUser(
+            final ExportBuffer out) {
+    }
+
+    static String value(
+            final AnimeListEntry entry,
+            final int column) {
+
+        switch (column) {
+            case 0:
+                return entry.getSeriesId();
+            case 1:
+                return entry.getSeriesTitle();
+            case 2:
+                return entry.getSeriesSynonyms();
+            case 3:
+                return entry.getSeriesType();
+            case 4:
+                return entry.getSeriesEpisodes();
+            case 5:
+                return entry.getSeriesStatus();
+            case 6:
+                return entry.getSeriesStart();
+            case 7:
+                return entry.getSeriesEnd();
+            case 8:
+                return entry.getSeriesImage();
+            case 9:
+                return entry.getListId();
+            case 10:
+                return entry.getListWatchedEpisodes();
+            case 11:
+                return entry.getListStart();
+            case 12:
+                return entry.getListFinished();
+            case 13:
+                return entry.getListScore();
+            case 14:
+                return entry.getListStatus();
+            case 15:
+                return entry.getListRewatching();
+            case 16:
+                return entry.getListRewatchingEp();
+            case 17:
+                return entry.getListLastUpdated();
+            case 18:
+                return entry.getListTags();
+            default:
+                throw new IndexOutOfBoundsException("No column " + column);
+        }
+    }
+
+    /**
+     * Write an element, leaving out missing values.
+     */
+    private static void element(
+            final ExportBuffer out,
+            final String name,
+            final String value) {
+
+        if (value == null)
+            return;
+
+        out.write(INDENT);
+        out.text(name, ExportBuffer.XML);
+        out.write(TAG_END);
+        out.text(value, ExportBuffer.XML);
+        out.write(CLOSE_TAG);
+        out.text(name, ExportBuffer.XML);
+        out.write(CLOSE_TAG_END);
+    }
+
+    /**
+     * @return the name MAL exports for a numeric type or status, the value itself if it isn't one
+     */
+    private static String malName(
+            final String[] names,
+            final String value) {
+
+        if (value == null || value.length() != 1)
+            return value;
+
+        final int index = value.charAt(0) - '0';
+
+        return index >= 0 && index < names.length && names[index] != null ? names[index] : value;
+    }
+}
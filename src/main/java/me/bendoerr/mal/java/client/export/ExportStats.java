@@ -0,0 +1,30 @@
+package me.bendoerr.mal.java.client.export;
+
+import lombok.Value;
+
+/**
+ * What an {@link AnimeListExporter} export wrote.
+ */
+@Value
+public class ExportStats {
+
+    /**
+     * Number of users exported.
+     */
+    int users;
+
+    /**
+     * Number of entries exported, across all users.
+     */
+    long entries;
+
+    /**
+     * Number of bytes written to the output, after compression if any.
+     */
+    long bytes;
+
+    /**
+     * Time the export took, in nanoseconds.
+     */
+    long nanos;
+}
@@ -0,0 +1,243 @@
+package me.bendoerr.mal.java.client.list;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.MALClient;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+
+import javax.ws.rs.ProcessingException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Fetches the anime lists of many users concurrently with {@link MALClient#x_animeList(String)}.
+ * <p>
+ * At most {@code concurrency} lists are fetched at once. On a runtime with virtual threads (JDK 21+) every user gets
+ * its own virtual thread and the limit is enforced with a semaphore, otherwise a fixed pool of {@code concurrency}
+ * platform threads is used. Either way the client's own rate limit and connection pool still apply, so concurrency
+ * beyond {@link me.bendoerr.mal.java.client.MALClientBuilder#maxConnectionsPerRoute(int)} only adds waiting.
+ * <p>
+ * Results are streamed back in the order they finish. A failure is reported in that user's {@link BulkFetchResult}
+ * and doesn't affect any other user.
+ */
+public class AnimeListBulkFetcher {
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = virtualThreadPerTaskExecutor();
+
+    private final MALClient client;
+    private final int concurrency;
+
+    private boolean virtualThreads = true;
+    private Consumer<BulkFetchProgress> progress = p -> {
+    };
+
+    /**
+     * @param client      {@code [required]} to fetch the lists with
+     * @param concurrency maximum number of lists fetched at once
+     * @throws NullPointerException     if client is null
+     * @throws IllegalArgumentException if concurrency isn't positive
+     */
+    public AnimeListBulkFetcher(
+            @NonNull final MALClient client,
+            final int concurrency) {
+
+        if (concurrency <= 0)
+            throw new IllegalArgumentException("concurrency must be positive");
+
+        this.client = client;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @return true if this runtime provides virtual threads
+     */
+    public static boolean isVirtualThreadsAvailable() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * @param virtualThreads use virtual threads when the runtime provides them, defaults to true
+     * @return this fetcher
+     */
+    public AnimeListBulkFetcher virtualThreads(
+            final boolean virtualThreads) {
+
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    /**
+     * The listener is called once per finished user, before that user's result is streamed back, and calls are never
+     * concurrent. It shouldn't block as it holds up a fetching thread.
+     *
+     * @param progress {@code [required]} listener
+     * @return this fetcher
+     */
+    public AnimeListBulkFetcher progress(
+            @NonNull final Consumer<BulkFetchProgress> progress) {
+
+        this.progress = progress;
+        return this;
+    }
+
+    /**
+     * Start fetching the lists of the given users.
+     * <p>
+     * Fetching starts immediately and carries on while the stream is consumed. Closing the stream cancels any fetches
+     * not yet finished, so prefer try-with-resources if it may not be fully consumed.
+     *
+     * @param usernames {@code [required]} users whose lists to fetch
+     * @return a stream of one result per user, in the order they finish
+     * @throws NullPointerException if usernames or any of its elements are null
+     * @throws ProcessingException  if interrupted while waiting on the stream
+     */
+    public Stream<BulkFetchResult> fetch(
+            @NonNull final Iterable<String> usernames) {
+
+        final List<String> users = new ArrayList<>();
+
+        for (String username : usernames) {
+            if (username == null)
+                throw new NullPointerException("usernames contains null");
+            users.add(username);
+        }
+
+        final int total = users.size();
+        final BlockingQueue<BulkFetchResult> finished = new LinkedBlockingQueue<>();
+        final Progress tracker = new Progress(total, progress);
+        final ExecutorService executor = executor(Math.min(concurrency, Math.max(total, 1)));
+        final Semaphore permits = new Semaphore(concurrency);
+
+        for (String username : users) {
+            executor.execute(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    // Cancelled by closing the stream
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                try {
+                    final BulkFetchResult result = fetch(username);
+                    tracker.finished(result);
+                    finished.add(result);
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        executor.shutdown();
+
+        final Iterator<BulkFetchResult> results = new Iterator<BulkFetchResult>() {
+
+            private int taken = 0;
+
+            @Override
+            public boolean hasNext() {
+                return taken < total;
+            }
+
+            @Override
+            public BulkFetchResult next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                try {
+                    final BulkFetchResult result = finished.take();
+                    taken++;
+                    return result;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ProcessingException(e);
+                }
+            }
+        };
+
+        return StreamSupport.stream(
+                Spliterators.spliterator(results, total, Spliterator.NONNULL | Spliterator.DISTINCT), false)
+                .onClose(executor::shutdownNow);
+    }
+
+    private BulkFetchResult fetch(
+            final String username) {
+
+        final long start = System.nanoTime();
+
+        try {
+            final List<AnimeListEntry> entries = client.x_animeList(username);
+            return new BulkFetchResult(username, entries, null, System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            return new BulkFetchResult(username, null, e, System.nanoTime() - start);
+        }
+    }
+
+    private ExecutorService executor(
+            final int threads) {
+
+        if (virtualThreads && NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                // Fall through to platform threads
+            }
+        }
+
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    private static Method virtualThreadPerTaskExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static final class Progress {
+
+        private final int total;
+        private final Consumer<BulkFetchProgress> listener;
+        private final long start = System.nanoTime();
+
+        private int completed = 0;
+        private int failed = 0;
+
+        private Progress(
+                final int total,
+                final Consumer<BulkFetchProgress> listener) {
+
+            this.total = total;
+            this.listener = listener;
+        }
+
+        private synchronized void finished(
+                final BulkFetchResult result) {
+
+            completed++;
+
+            if (!result.isSuccess())
+                failed++;
+
+            try {
+                listener.accept(new BulkFetchProgress(total, completed, failed, System.nanoTime() - start));
+            } catch (RuntimeException e) {
+                // A broken listener mustn't lose the result
+            }
+        }
+    }
+}
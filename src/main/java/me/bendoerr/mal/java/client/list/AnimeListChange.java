@@ -0,0 +1,61 @@
+package me.bendoerr.mal.java.client.list;
+
+import lombok.Value;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+
+/**
+ * A change to one entry of a watched user's anime list, emitted by an {@link AnimeListWatcher}.
+ * <p>
+ * An entry whose progress, score and status all changed at once is reported as three changes, one of each type.
+ */
+@Value
+public class AnimeListChange {
+
+    public enum Type {
+        /**
+         * The anime was added to the list.
+         */
+        ADDED,
+        /**
+         * The anime was removed from the list.
+         */
+        REMOVED,
+        /**
+         * {@code my_watched_episodes} changed.
+         */
+        EPISODES,
+        /**
+         * {@code my_score} changed.
+         */
+        SCORE,
+        /**
+         * {@code my_status} changed.
+         */
+        STATUS,
+        /**
+         * Something else changed, such as the tags, the dates or the series itself.
+         */
+        OTHER
+    }
+
+    String username;
+
+    Type type;
+
+    /**
+     * The entry as it was before, null if {@link Type#ADDED}.
+     */
+    AnimeListEntry previous;
+
+    /**
+     * The entry as it is now, null if {@link Type#REMOVED}.
+     */
+    AnimeListEntry current;
+
+    /**
+     * @return maldb id of the anime
+     */
+    public String getId() {
+        return current != null ? current.getSeriesId() : previous.getSeriesId();
+    }
+}
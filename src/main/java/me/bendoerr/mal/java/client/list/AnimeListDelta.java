@@ -0,0 +1,45 @@
+package me.bendoerr.mal.java.client.list;
+
+import lombok.Value;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+
+import java.util.List;
+
+/**
+ * What changed in a user's anime list between two refreshes by an {@link AnimeListRefresher}.
+ */
+@Value
+public class AnimeListDelta {
+
+    /**
+     * Entries on the list now that weren't before.
+     */
+    List<AnimeListEntry> added;
+
+    /**
+     * Entries on the list before and now whose values changed, as they are now.
+     */
+    List<AnimeListEntry> changed;
+
+    /**
+     * Entries that were on the list before but aren't now, as they were.
+     */
+    List<AnimeListEntry> removed;
+
+    /**
+     * The list before this refresh, null on the first refresh of a user.
+     */
+    AnimeListSnapshot previous;
+
+    /**
+     * The list as of this refresh, merged from the previous snapshot and the changes.
+     */
+    AnimeListSnapshot snapshot;
+
+    /**
+     * @return true if nothing changed
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+    }
+}
@@ -0,0 +1,180 @@
+package me.bendoerr.mal.java.client.list;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+import me.bendoerr.mal.java.client.model.AnimeListEntryValues;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Compares the {@link AnimeListEntryValues} submitted to MAL with the {@link AnimeListEntry} it reports back through
+ * {@code x_animeList}.
+ * <p>
+ * The two use different names and formats for the same data (e.g. {@code episode} vs. {@code my_watched_episodes},
+ * {@code mmddyyyy} vs. {@code yyyy-mm-dd} dates, {@code watching} vs. {@code 1}), so values are normalized before
+ * being compared. A {@code null} or blank value means "don't care" and always matches.
+ * <p>
+ * Only {@link #OBSERVABLE} fields can be compared, the rest of the values (comments, storage, priority, ...) are not
+ * reported by {@code malappinfo.php} at all.
+ */
+public final class AnimeListEntryMatcher {
+
+    /**
+     * The {@link AnimeListEntryValues} element names that {@code x_animeList} reports back.
+     */
+    public static final List<String> OBSERVABLE = Collections.unmodifiableList(Arrays.asList(
+            "episode", "status", "score", "date_start", "date_finish", "enable_rewatching", "tags"));
+
+    private static final Map<String, String> STATUSES = new HashMap<>();
+
+    static {
+        STATUSES.put("watching", "1");
+        STATUSES.put("completed", "2");
+        STATUSES.put("onhold", "3");
+        STATUSES.put("dropped", "4");
+        STATUSES.put("plantowatch", "6");
+        STATUSES.put("ptw", "6");
+    }
+
+    private AnimeListEntryMatcher() {
+    }
+
+    /**
+     * @param desired values submitted to MAL
+     * @param current entry as reported by {@code x_animeList}
+     * @return true if every observable, non-blank desired value matches the current entry
+     */
+    public static boolean matches(
+            @NonNull final AnimeListEntryValues desired,
+            @NonNull final AnimeListEntry current) {
+
+        return differences(desired, current).isEmpty();
+    }
+
+    /**
+     * @param desired values submitted to MAL
+     * @param current entry as reported by {@code x_animeList}
+     * @return the {@link #OBSERVABLE} element names whose desired value doesn't match, empty if they all match
+     */
+    public static List<String> differences(
+            @NonNull final AnimeListEntryValues desired,
+            @NonNull final AnimeListEntry current) {
+
+        final List<String> differences = new ArrayList<>();
+
+        compare(differences, "episode", desired.getEpisode(), current.getListWatchedEpisodes(),
+                AnimeListEntryMatcher::number);
+        compare(differences, "status", desired.getStatus(), current.getListStatus(),
+                AnimeListEntryMatcher::status);
+        compare(differences, "score", desired.getScore(), current.getListScore(),
+                AnimeListEntryMatcher::number);
+        compare(differences, "date_start", desired.getDateStart(), current.getListStart(),
+                AnimeListEntryMatcher::date);
+        compare(differences, "date_finish", desired.getDateFinish(), current.getListFinished(),
+                AnimeListEntryMatcher::date);
+        compare(differences, "enable_rewatching", desired.getEnableRewatching(), current.getListRewatching(),
+                AnimeListEntryMatcher::number);
+        compare(differences, "tags", desired.getTags(), current.getListTags(),
+                AnimeListEntryMatcher::tags);
+
+        return differences;
+    }
+
+    /**
+     * @param values submitted to MAL
+     * @return true if any value that {@code x_animeList} doesn't report back is set
+     */
+    public static boolean hasUnobservable(
+            @NonNull final AnimeListEntryValues values) {
+
+        return !isBlank(values.getStorageType())
+                || !isBlank(values.getStorageValue())
+                || !isBlank(values.getTimesRewatched())
+                || !isBlank(values.getRewatchValue())
+                || !isBlank(values.getPriority())
+                || !isBlank(values.getEnableDiscussion())
+                || !isBlank(values.getComments())
+                || !isBlank(values.getFansubGroup());
+    }
+
+    private static void compare(
+            final List<String> differences,
+            final String element,
+            final String desired,
+            final String current,
+            final Function<String, Object> normalize) {
+
+        if (isBlank(desired))
+            return;
+
+        if (!normalize.apply(desired).equals(normalize.apply(current == null ? "" : current)))
+            differences.add(element);
+    }
+
+    private static Object number(
+            final String value) {
+
+        final String trimmed = value.trim();
+
+        if (trimmed.isEmpty())
+            return 0L;
+
+        try {
+            return Long.parseLong(trimmed);
+        } catch (NumberFormatException e) {
+            return trimmed;
+        }
+    }
+
+    private static Object status(
+            final String value) {
+
+        final String key = value.trim().toLowerCase(Locale.ROOT).replaceAll("[\\s_-]", "");
+        return number(STATUSES.getOrDefault(key, key));
+    }
+
+    /**
+     * Both {@code mmddyyyy} and {@code yyyy-mm-dd} normalize to {@code yyyymmdd}, unknown dates to all zeros.
+     */
+    private static Object date(
+            final String value) {
+
+        final String digits = value.replaceAll("[^0-9]", "");
+
+        if (digits.length() != 8)
+            return digits.isEmpty() ? "00000000" : digits;
+
+        if (value.trim().length() == 8)
+            return digits.substring(4) + digits.substring(0, 4);
+
+        return digits;
+    }
+
+    private static Object tags(
+            final String value) {
+
+        final Set<String> tags = new TreeSet<>();
+
+        for (String tag : value.split(",")) {
+            if (!tag.trim().isEmpty())
+                tags.add(tag.trim());
+        }
+
+        return tags;
+    }
+
+    private static boolean isBlank(
+            final String value) {
+
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,174 @@
+package me.bendoerr.mal.java.client.list;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.MALClient;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+/**
+ * Incrementally refreshes anime lists, reporting only what changed since the last refresh of each user.
+ * <p>
+ * A snapshot and {@code my_last_updated} watermark is kept per user. On each refresh the list is streamed with
+ * {@link MALClient#x_animeListStream(String)} and every entry is classified as it is read: entries updated after the
+ * watermark are changed without further inspection, older entries are compared with the snapshot only to catch
+ * series-level changes (such as a show finishing airing) which don't touch {@code my_last_updated}. Entries missing
+ * from the stream were removed. Only the resulting {@link AnimeListDelta} needs further processing downstream.
+ * <p>
+ * Snapshots live in memory and can be seeded, e.g. from a persisted copy, with {@link #seed(AnimeListSnapshot)}.
+ * Refreshes of different users may run concurrently, refreshes of the same user are serialized.
+ */
+public class AnimeListRefresher {
+
+    private final MALClient client;
+    private final ConcurrentMap<String, AnimeListSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+    /**
+     * @param client {@code [required]} used to fetch the lists
+     * @throws NullPointerException if client is null
+     */
+    public AnimeListRefresher(
+            @NonNull final MALClient client) {
+
+        this.client = client;
+    }
+
+    /**
+     * Fetch a user's list and compute what changed since the last refresh. On the first refresh of a user every entry
+     * is reported as added.
+     *
+     * @param username {@code [required]} whose list to refresh
+     * @return the changes and the merged snapshot
+     * @throws NullPointerException if username is null
+     * @throws javax.ws.rs.ClientErrorException if MAL returns a HTTP {@code 4xx} status code
+     * @throws javax.ws.rs.ServerErrorException if MAL returns a HTTP {@code 5xx} status code
+     * @throws javax.ws.rs.ProcessingException  if we can't understand the response
+     */
+    public AnimeListDelta refresh(
+            @NonNull final String username) {
+
+        synchronized (locks.computeIfAbsent(username, u -> new Object())) {
+            final AnimeListSnapshot previous = snapshots.get(username);
+            final AnimeListDelta delta;
+
+            try (Stream<AnimeListEntry> entries = client.x_animeListStream(username)) {
+                delta = diff(previous, username, entries::iterator);
+            }
+
+            snapshots.put(username, delta.getSnapshot());
+            return delta;
+        }
+    }
+
+    /**
+     * Compute what changed between a snapshot and a freshly fetched list.
+     *
+     * @param previous snapshot, null if there is none
+     * @param username {@code [required]} owner of the list
+     * @param current  {@code [required]} entries as returned by {@code x_animeList}
+     * @return the changes and the merged snapshot
+     */
+    public static AnimeListDelta diff(
+            final AnimeListSnapshot previous,
+            @NonNull final String username,
+            @NonNull final Iterable<AnimeListEntry> current) {
+
+        final Map<String, AnimeListEntry> before = previous == null
+                ? Collections.<String, AnimeListEntry>emptyMap()
+                : previous.getEntries();
+        final long watermark = previous == null ? Long.MIN_VALUE : previous.getWatermark();
+
+        final Map<String, AnimeListEntry> merged = new LinkedHashMap<>();
+        final List<AnimeListEntry> added = new ArrayList<>();
+        final List<AnimeListEntry> changed = new ArrayList<>();
+        long latest = 0;
+
+        for (AnimeListEntry entry : current) {
+            final long lastUpdated = AnimeListSnapshot.lastUpdated(entry);
+            final AnimeListEntry old = before.get(entry.getSeriesId());
+
+            latest = Math.max(latest, lastUpdated);
+
+            if (old == null) {
+                added.add(entry);
+                merged.put(entry.getSeriesId(), entry);
+            } else if (lastUpdated > watermark || !old.equals(entry)) {
+                changed.add(entry);
+                merged.put(entry.getSeriesId(), entry);
+            } else {
+                // Keep the old instance so unchanged entries aren't duplicated in memory
+                merged.put(entry.getSeriesId(), old);
+            }
+        }
+
+        final List<AnimeListEntry> removed = new ArrayList<>();
+
+        for (AnimeListEntry old : before.values()) {
+            if (!merged.containsKey(old.getSeriesId()))
+                removed.add(old);
+        }
+
+        final AnimeListSnapshot snapshot =
+                new AnimeListSnapshot(username, Collections.unmodifiableMap(merged), latest);
+
+        return new AnimeListDelta(added, changed, removed, previous, snapshot);
+    }
+
+    /**
+     * @param username whose snapshot to get
+     * @return the snapshot as of the last refresh or null if the user hasn't been refreshed
+     */
+    public AnimeListSnapshot getSnapshot(
+            @NonNull final String username) {
+
+        return snapshots.get(username);
+    }
+
+    /**
+     * @return the latest snapshot of every refreshed or seeded user
+     */
+    public Collection<AnimeListSnapshot> getSnapshots() {
+        return Collections.unmodifiableCollection(new ArrayList<>(snapshots.values()));
+    }
+
+    /**
+     * Start refreshing a user from a previously taken snapshot rather than from nothing.
+     *
+     * @param snapshot {@code [required]} to continue from
+     */
+    public void seed(
+            @NonNull final AnimeListSnapshot snapshot) {
+
+        snapshots.put(snapshot.getUsername(), snapshot);
+    }
+
+    /**
+     * Forget a user, their next refresh reports every entry as added.
+     *
+     * @param username to forget
+     */
+    public void forget(
+            @NonNull final String username) {
+
+        snapshots.remove(username);
+    }
+
+    /**
+     * @return the watermark of every refreshed or seeded user, keyed by username
+     */
+    public Map<String, Long> getWatermarks() {
+        final Map<String, Long> watermarks = new HashMap<>();
+        snapshots.forEach((username, snapshot) -> watermarks.put(username, snapshot.getWatermark()));
+        return watermarks;
+    }
+}
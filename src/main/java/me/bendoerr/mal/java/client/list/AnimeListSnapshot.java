@@ -0,0 +1,70 @@
+package me.bendoerr.mal.java.client.list;
+
+import lombok.NonNull;
+import lombok.Value;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An immutable copy of a user's anime list as of a refresh, along with its {@code my_last_updated} watermark.
+ */
+@Value
+public class AnimeListSnapshot {
+
+    String username;
+
+    /**
+     * Unmodifiable entries keyed by maldb id, in list order.
+     */
+    Map<String, AnimeListEntry> entries;
+
+    /**
+     * The latest {@code my_last_updated} (seconds since the epoch) of any entry, {@code 0} for an empty list.
+     */
+    long watermark;
+
+    /**
+     * Build a snapshot from fetched entries, computing the watermark.
+     *
+     * @param username {@code [required]} owner of the list
+     * @param entries  {@code [required]} as returned by {@code x_animeList}
+     * @return the snapshot
+     */
+    public static AnimeListSnapshot of(
+            @NonNull final String username,
+            @NonNull final Collection<AnimeListEntry> entries) {
+
+        final Map<String, AnimeListEntry> byId = new LinkedHashMap<>();
+        long watermark = 0;
+
+        for (AnimeListEntry entry : entries) {
+            byId.put(entry.getSeriesId(), entry);
+            watermark = Math.max(watermark, lastUpdated(entry));
+        }
+
+        return new AnimeListSnapshot(username, Collections.unmodifiableMap(byId), watermark);
+    }
+
+    /**
+     * @param entry from {@code x_animeList}
+     * @return its {@code my_last_updated} in seconds since the epoch, {@code 0} if missing or unparsable
+     */
+    public static long lastUpdated(
+            @NonNull final AnimeListEntry entry) {
+
+        final String value = entry.getListLastUpdated();
+
+        if (value == null)
+            return 0;
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package me.bendoerr.mal.java.client.list;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.MALClient;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+import me.bendoerr.mal.java.client.model.AnimeListEntryValues;
+
+import javax.ws.rs.ProcessingException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Declaratively synchronizes the authenticated user's anime list with a desired state.
+ * <p>
+ * The current list is fetched once with {@link MALClient#x_animeList(String)} and diffed against the desired values
+ * to produce a minimal {@link SyncPlan}:
+ * <ul>
+ *     <li>anime not on the list are <b>added</b>,</li>
+ *     <li>anime on the list whose observable values differ are <b>updated</b>,</li>
+ *     <li>anime on the list that aren't desired are <b>deleted</b>, only if {@link #deleteMissing(boolean)},</li>
+ *     <li>anything else is left alone.</li>
+ * </ul>
+ * Values that {@code x_animeList} doesn't report (comments, storage, priority, ...) can't be diffed, so by default an
+ * entry setting any of them is always updated. See {@link AnimeListEntryMatcher}.
+ * <p>
+ * The plan is then run with bounded parallelism, every action is attempted and failures are reported per entry in the
+ * {@link SyncReport} rather than thrown.
+ */
+public class AnimeListSync {
+
+    private final MALClient client;
+    private final int parallelism;
+
+    private boolean deleteMissing = false;
+    private boolean updateUnobservable = true;
+
+    /**
+     * @param client      {@code [required]} authenticated as the user whose list is synchronized
+     * @param parallelism maximum number of mutations in flight at once
+     * @throws NullPointerException     if client is null
+     * @throws IllegalArgumentException if parallelism isn't positive
+     */
+    public AnimeListSync(
+            @NonNull final MALClient client,
+            final int parallelism) {
+
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("parallelism must be positive");
+
+        this.client = client;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param deleteMissing delete anime on the list that aren't in the desired state, defaults to false
+     * @return this sync
+     */
+    public AnimeListSync deleteMissing(
+            final boolean deleteMissing) {
+
+        this.deleteMissing = deleteMissing;
+        return this;
+    }
+
+    /**
+     * @param updateUnobservable update entries which set values {@code x_animeList} can't report back, even if all
+     *                           observable values match, defaults to true
+     * @return this sync
+     */
+    public AnimeListSync updateUnobservable(
+            final boolean updateUnobservable) {
+
+        this.updateUnobservable = updateUnobservable;
+        return this;
+    }
+
+    /**
+     * Fetch the current list and diff it against the desired state.
+     *
+     * @param username {@code [required]} the authenticated user
+     * @param desired  {@code [required]} values keyed by maldb id
+     * @return the mutations needed
+     * @throws NullPointerException if any of the parameters are null
+     * @throws javax.ws.rs.ClientErrorException if MAL returns a HTTP {@code 4xx} status code
+     * @throws javax.ws.rs.ServerErrorException if MAL returns a HTTP {@code 5xx} status code
+     * @throws ProcessingException              if we can't understand the response
+     */
+    public SyncPlan plan(
+            @NonNull final String username,
+            @NonNull final Map<String, AnimeListEntryValues> desired) {
+
+        final List<AnimeListEntry> entries = client.x_animeList(username);
+        final Map<String, AnimeListEntry> current = new LinkedHashMap<>();
+
+        if (entries != null) {
+            for (AnimeListEntry entry : entries)
+                current.put(entry.getSeriesId(), entry);
+        }
+
+        return diff(username, desired, current);
+    }
+
+    /**
+     * Diff a desired state against an already fetched list.
+     *
+     * @param username {@code [required]} the authenticated user
+     * @param desired  {@code [required]} values keyed by maldb id
+     * @param current  {@code [required]} entries keyed by maldb id
+     * @return the mutations needed
+     * @throws NullPointerException if any of the parameters are null
+     */
+    public SyncPlan diff(
+            @NonNull final String username,
+            @NonNull final Map<String, AnimeListEntryValues> desired,
+            @NonNull final Map<String, AnimeListEntry> current) {
+
+        final List<SyncAction> actions = new ArrayList<>();
+        final List<String> unchanged = new ArrayList<>();
+
+        for (Map.Entry<String, AnimeListEntryValues> entry : desired.entrySet()) {
+            final String id = entry.getKey();
+            final AnimeListEntryValues values = entry.getValue();
+            final AnimeListEntry existing = current.get(id);
+
+            if (existing == null)
+                actions.add(new SyncAction(SyncAction.Type.ADD, id, values));
+            else if (!AnimeListEntryMatcher.matches(values, existing)
+                    || (updateUnobservable && AnimeListEntryMatcher.hasUnobservable(values)))
+                actions.add(new SyncAction(SyncAction.Type.UPDATE, id, values));
+            else
+                unchanged.add(id);
+        }
+
+        if (deleteMissing) {
+            for (String id : current.keySet()) {
+                if (!desired.containsKey(id))
+                    actions.add(new SyncAction(SyncAction.Type.DELETE, id, null));
+            }
+        }
+
+        return new SyncPlan(username, actions, unchanged);
+    }
+
+    /**
+     * Run every action of a plan with bounded parallelism.
+     *
+     * @param plan {@code [required]} to run
+     * @return the per-entry results
+     * @throws NullPointerException if plan is null
+     * @throws ProcessingException  if interrupted while waiting for the plan to finish
+     */
+    public SyncReport execute(
+            @NonNull final SyncPlan plan) {
+
+        final List<SyncResult> results = new ArrayList<>();
+
+        if (plan.isEmpty())
+            return new SyncReport(plan, results);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(parallelism, plan.getActions().size()));
+
+        try {
+            final List<Future<SyncResult>> pending = new ArrayList<>();
+
+            for (SyncAction action : plan.getActions())
+                pending.add(executor.submit(() -> apply(client, action)));
+
+            for (Future<SyncResult> result : pending)
+                results.add(result.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessingException(e);
+        } catch (ExecutionException e) {
+            // apply() catches everything MAL can throw, anything else is a bug
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new SyncReport(plan, results);
+    }
+
+    /**
+     * Plan and then run a synchronization.
+     *
+     * @param username {@code [required]} the authenticated user
+     * @param desired  {@code [required]} values keyed by maldb id
+     * @return the per-entry results
+     * @see #plan(String, Map)
+     * @see #execute(SyncPlan)
+     */
+    public SyncReport sync(
+            @NonNull final String username,
+            @NonNull final Map<String, AnimeListEntryValues> desired) {
+
+        return execute(plan(username, desired));
+    }
+
+    /**
+     * Run one action, catching anything MAL throws into the result.
+     */
+    static SyncResult apply(
+            final MALClient client,
+            final SyncAction action) {
+
+        try {
+            switch (action.getType()) {
+                case ADD:
+                    client.animeListAdd(action.getId(), action.getValues());
+                    break;
+                case UPDATE:
+                    client.animeListUpdate(action.getId(), action.getValues());
+                    break;
+                case DELETE:
+                    client.animeListDelete(action.getId());
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown action " + action.getType());
+            }
+        } catch (RuntimeException e) {
+            return new SyncResult(action, e);
+        }
+
+        return new SyncResult(action, null);
+    }
+}
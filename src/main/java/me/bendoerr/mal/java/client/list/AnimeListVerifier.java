@@ -0,0 +1,426 @@
+package me.bendoerr.mal.java.client.list;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.MALClient;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+import me.bendoerr.mal.java.client.model.AnimeListEntryValues;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Confirms that mutations of the authenticated user's anime list actually show up in it, batching the confirmations
+ * so that many mutations cost a single {@code x_animeList} fetch.
+ * <p>
+ * MAL accepting an add, update or delete gives very little assurance that it was applied, see
+ * {@link MALClient#animeListAdd(String, AnimeListEntryValues)}. Every mutation sent through, or registered with, the
+ * verifier waits for the next check, which runs {@code window} after the first mutation waiting for it. A check
+ * fetches the list once with {@link MALClient#x_animeListStream(String)}, never joining a read that may have started
+ * before the mutations were applied, and judges each mutation with {@link AnimeListEntryMatcher}:
+ * <ul>
+ *     <li>an add or update whose observable values all match, or a delete whose anime is gone, is
+ *     {@link VerificationResult.Outcome#CONFIRMED confirmed},</li>
+ *     <li>an add or update whose anime is on the list with other values, or a delete whose anime is still there, is
+ *     {@link VerificationResult.Outcome#MISMATCHED mismatched},</li>
+ *     <li>an add or update whose anime isn't on the list is {@link VerificationResult.Outcome#MISSING missing}.</li>
+ * </ul>
+ * An unconfirmed mutation is submitted again, an add mismatching as an update since adding it again would do nothing,
+ * and waits for the next check, up to {@code maxResubmits} times. Its future then completes with the outcome. Values
+ * that {@code x_animeList} doesn't report can't be verified and are ignored.
+ * <p>
+ * A mutation of an anime supersedes any mutation of the same anime still being verified, which then completes with
+ * the outcome of the newer one. Futures complete exceptionally with whatever MAL threw if a mutation, resubmissions
+ * included, fails to be sent or if the check's fetch fails, and with a
+ * {@link java.util.concurrent.CancellationException} when the verifier is closed.
+ * <pre>
+ * {@code
+ * MALClient user = client.forUser("user", "pass");
+ * try (AnimeListVerifier verifier = new AnimeListVerifier(user, "user", 2, TimeUnit.SECONDS, 2)) {
+ *     verifier.update("269", values).thenAccept(result -> {
+ *         if (!result.isConfirmed())
+ *             log.warn("{} is {}: {}", result.getAction().getId(), result.getOutcome(), result.getDifferences());
+ *     });
+ * }
+ * }
+ * </pre>
+ * Instances are thread-safe.
+ */
+public class AnimeListVerifier implements AutoCloseable {
+
+    private final MALClient client;
+    private final String username;
+    private final long windowNanos;
+    private final int maxResubmits;
+    private final ScheduledExecutorService timer;
+
+    private final Map<String, Pending> latest = new HashMap<>();
+    private Map<String, Pending> batch = new LinkedHashMap<>();
+
+    private boolean scheduled = false;
+    private boolean closed = false;
+    private long fetches = 0;
+    private long resubmits = 0;
+
+    /**
+     * @param client       {@code [required]} authenticated as the user whose list is mutated
+     * @param username     {@code [required]} of the authenticated user
+     * @param window       time between the first mutation waiting for a check and the check
+     * @param unit         {@code [required]} of window
+     * @param maxResubmits maximum number of times an unconfirmed mutation is submitted again, may be zero
+     * @throws NullPointerException     if client, username or unit is null
+     * @throws IllegalArgumentException if window isn't positive or maxResubmits is negative
+     */
+    public AnimeListVerifier(
+            @NonNull final MALClient client,
+            @NonNull final String username,
+            final long window,
+            @NonNull final TimeUnit unit,
+            final int maxResubmits) {
+
+        if (window <= 0)
+            throw new IllegalArgumentException("window must be positive");
+
+        if (maxResubmits < 0)
+            throw new IllegalArgumentException("maxResubmits must not be negative");
+
+        this.client = client;
+        this.username = username;
+        this.windowNanos = unit.toNanos(window);
+        this.maxResubmits = maxResubmits;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "mal-client-verifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Add an anime and verify it was added.
+     *
+     * @param id     {@code [required]} maldb id of the anime
+     * @param values {@code [required]} to add the anime with
+     * @return a future completed once the add is confirmed or given up on
+     * @throws NullPointerException  if any of the parameters are null
+     * @throws IllegalStateException if the verifier is closed
+     * @see MALClient#animeListAddAsync(String, AnimeListEntryValues)
+     */
+    public CompletableFuture<VerificationResult> add(
+            @NonNull final String id,
+            @NonNull final AnimeListEntryValues values) {
+
+        return sendAndVerify(new SyncAction(SyncAction.Type.ADD, id, values));
+    }
+
+    /**
+     * Update an anime and verify it was updated.
+     *
+     * @param id     {@code [required]} maldb id of the anime
+     * @param values {@code [required]} to update, null values are left unchanged and not verified
+     * @return a future completed once the update is confirmed or given up on
+     * @throws NullPointerException  if any of the parameters are null
+     * @throws IllegalStateException if the verifier is closed
+     * @see MALClient#animeListUpdateAsync(String, AnimeListEntryValues)
+     */
+    public CompletableFuture<VerificationResult> update(
+            @NonNull final String id,
+            @NonNull final AnimeListEntryValues values) {
+
+        return sendAndVerify(new SyncAction(SyncAction.Type.UPDATE, id, values));
+    }
+
+    /**
+     * Delete an anime and verify it was deleted.
+     *
+     * @param id {@code [required]} maldb id of the anime
+     * @return a future completed once the delete is confirmed or given up on
+     * @throws NullPointerException  if id is null
+     * @throws IllegalStateException if the verifier is closed
+     * @see MALClient#animeListDeleteAsync(String)
+     */
+    public CompletableFuture<VerificationResult> delete(
+            @NonNull final String id) {
+
+        return sendAndVerify(new SyncAction(SyncAction.Type.DELETE, id, null));
+    }
+
+    /**
+     * Verify a mutation MAL has already accepted, such as one reported by an {@link AnimeListWriteQueue} listener.
+     *
+     * @param action {@code [required]} sent successfully
+     * @return a future completed once the mutation is confirmed or given up on
+     * @throws NullPointerException  if action is null
+     * @throws IllegalStateException if the verifier is closed
+     */
+    public CompletableFuture<VerificationResult> verify(
+            @NonNull final SyncAction action) {
+
+        final Pending pending = new Pending(action);
+
+        synchronized (this) {
+            if (closed)
+                throw new IllegalStateException("The verifier is closed");
+
+            final Pending previous = latest.put(action.getId(), pending);
+
+            if (previous != null) {
+                pending.result.whenComplete((r, t) -> {
+                    if (t == null)
+                        previous.result.complete(r);
+                    else
+                        previous.result.completeExceptionally(t);
+                });
+            }
+
+            enqueue(pending);
+        }
+
+        return pending.result;
+    }
+
+    /**
+     * @return the number of mutations being verified
+     */
+    public synchronized int getPendingCount() {
+        return latest.size();
+    }
+
+    /**
+     * @return the number of times the list has been fetched to verify mutations
+     */
+    public synchronized long getFetchCount() {
+        return fetches;
+    }
+
+    /**
+     * @return the number of unconfirmed mutations submitted again
+     */
+    public synchronized long getResubmitCount() {
+        return resubmits;
+    }
+
+    /**
+     * Stop checking and cancel every mutation still being verified, failing its future.
+     */
+    @Override
+    public void close() {
+        final List<Pending> cancelled;
+
+        synchronized (this) {
+            if (closed)
+                return;
+
+            closed = true;
+            cancelled = new ArrayList<>(latest.values());
+            latest.clear();
+            batch.clear();
+        }
+
+        timer.shutdownNow();
+
+        for (Pending pending : cancelled)
+            pending.result.cancel(false);
+    }
+
+    private CompletableFuture<VerificationResult> sendAndVerify(
+            final SyncAction action) {
+
+        synchronized (this) {
+            if (closed)
+                throw new IllegalStateException("The verifier is closed");
+        }
+
+        final CompletableFuture<VerificationResult> result = new CompletableFuture<>();
+
+        send(client, action).whenComplete((v, t) -> {
+            if (t != null) {
+                result.completeExceptionally(t);
+                return;
+            }
+
+            final CompletableFuture<VerificationResult> verified;
+
+            synchronized (this) {
+                // Closed while the mutation was on the wire
+                if (closed) {
+                    result.cancel(false);
+                    return;
+                }
+
+                verified = verify(action);
+            }
+
+            verified.whenComplete((r, e) -> {
+                if (e instanceof CancellationException)
+                    result.cancel(false);
+                else if (e != null)
+                    result.completeExceptionally(e);
+                else
+                    result.complete(r);
+            });
+        });
+
+        return result;
+    }
+
+    /**
+     * Queue a mutation for the next check, scheduling it if need be. Must hold the lock and not be closed.
+     */
+    private void enqueue(
+            final Pending pending) {
+
+        batch.put(pending.action.getId(), pending);
+
+        if (!scheduled) {
+            scheduled = true;
+            timer.schedule(this::check, windowNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void check() {
+        final Map<String, Pending> checking;
+
+        synchronized (this) {
+            checking = batch;
+            batch = new LinkedHashMap<>();
+            scheduled = false;
+
+            if (checking.isEmpty())
+                return;
+
+            fetches++;
+        }
+
+        final Map<String, AnimeListEntry> entries = new HashMap<>();
+
+        try (Stream<AnimeListEntry> list = client.x_animeListStream(username)) {
+            list.filter(entry -> checking.containsKey(entry.getSeriesId()))
+                    .forEach(entry -> entries.put(entry.getSeriesId(), entry));
+        } catch (RuntimeException e) {
+            for (Pending pending : checking.values())
+                fail(pending, e);
+
+            return;
+        }
+
+        for (Pending pending : checking.values())
+            judge(pending, entries.get(pending.action.getId()));
+    }
+
+    private void judge(
+            final Pending pending,
+            final AnimeListEntry entry) {
+
+        final SyncAction action = pending.action;
+        final VerificationResult.Outcome outcome;
+        List<String> differences = Collections.emptyList();
+
+        if (action.getType() == SyncAction.Type.DELETE) {
+            outcome = entry == null ? VerificationResult.Outcome.CONFIRMED : VerificationResult.Outcome.MISMATCHED;
+        } else if (entry == null) {
+            outcome = VerificationResult.Outcome.MISSING;
+        } else {
+            differences = AnimeListEntryMatcher.differences(action.getValues(), entry);
+            outcome = differences.isEmpty()
+                    ? VerificationResult.Outcome.CONFIRMED
+                    : VerificationResult.Outcome.MISMATCHED;
+        }
+
+        final boolean resubmit;
+
+        synchronized (this) {
+            // Superseded, it completes along with the newer mutation
+            if (latest.get(action.getId()) != pending)
+                return;
+
+            resubmit = outcome != VerificationResult.Outcome.CONFIRMED && pending.resubmits < maxResubmits;
+
+            if (resubmit) {
+                pending.resubmits++;
+                resubmits++;
+            } else {
+                latest.remove(action.getId());
+            }
+        }
+
+        if (!resubmit) {
+            pending.result.complete(new VerificationResult(action, outcome, differences, pending.resubmits));
+            return;
+        }
+
+        final SyncAction again = action.getType() == SyncAction.Type.ADD
+                && outcome == VerificationResult.Outcome.MISMATCHED
+                ? new SyncAction(SyncAction.Type.UPDATE, action.getId(), action.getValues())
+                : action;
+
+        send(client, again).whenComplete((v, t) -> {
+            if (t != null) {
+                fail(pending, t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+                return;
+            }
+
+            synchronized (this) {
+                // Superseded, or cancelled by closing
+                if (latest.get(action.getId()) == pending)
+                    enqueue(pending);
+            }
+        });
+    }
+
+    private void fail(
+            final Pending pending,
+            final Throwable t) {
+
+        synchronized (this) {
+            if (latest.get(pending.action.getId()) != pending)
+                return;
+
+            latest.remove(pending.action.getId());
+        }
+
+        pending.result.completeExceptionally(t);
+    }
+
+    private static CompletableFuture<Void> send(
+            final MALClient client,
+            final SyncAction action) {
+
+        switch (action.getType()) {
+            case ADD:
+                return client.animeListAddAsync(action.getId(), action.getValues());
+            case UPDATE:
+                return client.animeListUpdateAsync(action.getId(), action.getValues());
+            case DELETE:
+                return client.animeListDeleteAsync(action.getId());
+            default:
+                throw new IllegalStateException("Unknown action " + action.getType());
+        }
+    }
+
+    /**
+     * A mutation being verified, guarded by the verifier's lock but for its result.
+     */
+    private static final class Pending {
+
+        private final SyncAction action;
+        private final CompletableFuture<VerificationResult> result = new CompletableFuture<>();
+
+        private int resubmits;
+
+        private Pending(
+                final SyncAction action) {
+
+            this.action = action;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package me.bendoerr.mal.java.client.list;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.MALClient;
+import me.bendoerr.mal.java.client.TokenBucket;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Watches the anime lists of many users for changes by polling them, which is all {@code malappinfo.php} allows, and
+ * emits an {@link AnimeListChange} for every entry added, removed or changed.
+ * <p>
+ * Every watched user has their own poll interval, between {@code minInterval} and {@code maxInterval}. It doubles
+ * after each poll that found nothing new, or failed, and drops back to {@code minInterval} as soon as a poll finds a
+ * change, so idle users cost ever fewer requests while active ones are followed closely. Intervals are jittered by
+ * up to 10% so that users watched at the same time drift apart. Polls are scheduled on a single shared hashed timer
+ * wheel, where scheduling takes constant time and each tick only visits the users hashed to one of its buckets, and
+ * run by {@code parallelism} threads.
+ * <p>
+ * Every poll first takes a permit from the {@code budget}, so the total poll rate never exceeds it however many users
+ * are watched. A user due while the budget is exhausted waits in line and is polled late, users being served in the
+ * order they fell due. The client's own rate limit still applies on top, and the budget may be shared with other
+ * watchers or anything else polling MAL.
+ * <p>
+ * Lists are refreshed with an {@link AnimeListRefresher}, which keeps a snapshot of every watched list in memory. The
+ * first poll of a user only takes that snapshot and emits nothing, unless it was {@link #seed(AnimeListSnapshot)
+ * seeded}. Changes are emitted to the {@link #listener(Consumer) listener} on the polling thread, those of one user in
+ * order.
+ * <pre>
+ * {@code
+ * try (AnimeListWatcher watcher = new AnimeListWatcher(
+ *         client, new TokenBucket(2, 1), 5, 24 * 60, TimeUnit.MINUTES, 4)) {
+ *     watcher.listener(change -> notify(change));
+ *     followed.forEach(watcher::watch);
+ *     ...
+ * }
+ * }
+ * </pre>
+ * Instances are thread-safe.
+ */
+public class AnimeListWatcher implements AutoCloseable {
+
+    private static final int WHEEL_BUCKETS = 1024;
+    private static final long MIN_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AnimeListRefresher refresher;
+    private final TokenBucket budget;
+    private final long minIntervalNanos;
+    private final long maxIntervalNanos;
+    private final TimerWheel<Watch> wheel;
+    private final ScheduledExecutorService ticker;
+    private final ExecutorService pollers;
+
+    private final ConcurrentMap<String, Watch> watches = new ConcurrentHashMap<>();
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong changes = new AtomicLong();
+
+    private volatile Consumer<AnimeListChange> listener = c -> {
+    };
+    private volatile boolean closed = false;
+
+    /**
+     * @param client      {@code [required]} to poll the lists with
+     * @param budget      {@code [required]} permits for polls, taken once per poll
+     * @param minInterval shortest time between two polls of a user, used for users whose list just changed
+     * @param maxInterval longest time between two polls of a user, used for idle users
+     * @param unit        {@code [required]} of the intervals
+     * @param parallelism maximum number of polls running at once
+     * @throws NullPointerException     if client, budget or unit is null
+     * @throws IllegalArgumentException if minInterval or parallelism isn't positive or maxInterval is less than
+     *                                  minInterval
+     */
+    public AnimeListWatcher(
+            @NonNull final MALClient client,
+            @NonNull final TokenBucket budget,
+            final long minInterval,
+            final long maxInterval,
+            @NonNull final TimeUnit unit,
+            final int parallelism) {
+
+        if (minInterval <= 0)
+            throw new IllegalArgumentException("minInterval must be positive");
+
+        if (maxInterval < minInterval)
+            throw new IllegalArgumentException("maxInterval must not be less than minInterval");
+
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("parallelism must be positive");
+
+        this.refresher = new AnimeListRefresher(client);
+        this.budget = budget;
+        this.minIntervalNanos = unit.toNanos(minInterval);
+        this.maxIntervalNanos = unit.toNanos(maxInterval);
+        // Fine enough for the shortest interval to be jittered, a longer one just takes more turns of the wheel
+        this.wheel = new TimerWheel<>(Math.max(MIN_TICK_NANOS, minIntervalNanos / 10), WHEEL_BUCKETS);
+
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "mal-client-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        final AtomicInteger threads = new AtomicInteger();
+
+        this.pollers = Executors.newFixedThreadPool(parallelism, r -> {
+            final Thread thread = new Thread(r, "mal-client-watcher-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.ticker.scheduleAtFixedRate(
+                this::tick, wheel.getTickNanos(), wheel.getTickNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param listener {@code [required]} called with every change, on the polling thread
+     * @return this watcher
+     */
+    public AnimeListWatcher listener(
+            @NonNull final Consumer<AnimeListChange> listener) {
+
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Start watching a user, first polling them within {@code minInterval}. Watching a user already watched does
+     * nothing.
+     *
+     * @param username {@code [required]} whose list to watch
+     * @throws NullPointerException  if username is null
+     * @throws IllegalStateException if the watcher is closed
+     */
+    public void watch(
+            @NonNull final String username) {
+
+        if (closed)
+            throw new IllegalStateException("The watcher is closed");
+
+        watches.computeIfAbsent(username, u -> {
+            final Watch watch = new Watch(u, minIntervalNanos);
+            // Spread the first polls of users watched together over the shortest interval
+            wheel.schedule(watch, ThreadLocalRandom.current().nextLong(minIntervalNanos));
+            return watch;
+        });
+    }
+
+    /**
+     * Stop watching a user and drop their snapshot. A poll already running may still emit changes.
+     *
+     * @param username {@code [required]} to stop watching
+     */
+    public void unwatch(
+            @NonNull final String username) {
+
+        final Watch watch = watches.remove(username);
+
+        if (watch != null) {
+            watch.cancelled = true;
+            refresher.forget(username);
+        }
+    }
+
+    /**
+     * Continue watching a user from a previously taken snapshot, so that their first poll emits what changed since.
+     *
+     * @param snapshot {@code [required]} to continue from
+     * @see AnimeListRefresher#seed(AnimeListSnapshot)
+     */
+    public void seed(
+            @NonNull final AnimeListSnapshot snapshot) {
+
+        refresher.seed(snapshot);
+    }
+
+    /**
+     * @param username whose snapshot to get
+     * @return the snapshot as of the last poll or null if the user hasn't been polled or seeded
+     */
+    public AnimeListSnapshot getSnapshot(
+            @NonNull final String username) {
+
+        return refresher.getSnapshot(username);
+    }
+
+    /**
+     * @param username {@code [required]} watched user
+     * @param unit     {@code [required]} of the result
+     * @return the current poll interval of the user or {@code -1} if they aren't watched
+     */
+    public long getPollInterval(
+            @NonNull final String username,
+            @NonNull final TimeUnit unit) {
+
+        final Watch watch = watches.get(username);
+        return watch == null ? -1 : unit.convert(watch.intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the number of users watched
+     */
+    public int getWatchedCount() {
+        return watches.size();
+    }
+
+    /**
+     * @return the number of polls made, successful or not
+     */
+    public long getPollCount() {
+        return polls.get();
+    }
+
+    /**
+     * @return the number of polls that failed
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * @return the number of changes emitted
+     */
+    public long getChangeCount() {
+        return changes.get();
+    }
+
+    /**
+     * Stop polling, interrupting polls waiting for the budget or running.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ticker.shutdownNow();
+        pollers.shutdownNow();
+    }
+
+    private void tick() {
+        for (Watch watch : wheel.advance()) {
+            if (watch.cancelled)
+                continue;
+
+            try {
+                pollers.execute(() -> poll(watch));
+            } catch (RejectedExecutionException e) {
+                // Closing
+                return;
+            }
+        }
+    }
+
+    private void poll(
+            final Watch watch) {
+
+        try {
+            budget.acquire();
+        } catch (InterruptedException e) {
+            // Closing
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (watch.cancelled || closed)
+            return;
+
+        polls.incrementAndGet();
+
+        boolean changed = false;
+        boolean baseline = false;
+
+        try {
+            final AnimeListDelta delta = refresher.refresh(watch.username);
+
+            baseline = delta.getPrevious() == null;
+
+            if (!baseline && !delta.isEmpty()) {
+                changed = true;
+                emit(watch.username, delta);
+            }
+        } catch (RuntimeException e) {
+            // Failing users are backed off like idle ones, MAL may be down or the user gone
+            failures.incrementAndGet();
+        }
+
+        if (changed)
+            watch.intervalNanos = minIntervalNanos;
+        else if (!baseline)
+            watch.intervalNanos = Math.min(maxIntervalNanos, watch.intervalNanos * 2);
+
+        if (watch.cancelled || closed)
+            return;
+
+        final long jitter = (long) (watch.intervalNanos * ThreadLocalRandom.current().nextDouble(-0.1, 0.1));
+        wheel.schedule(watch, watch.intervalNanos + jitter);
+    }
+
+    private void emit(
+            final String username,
+            final AnimeListDelta delta) {
+
+        final List<AnimeListChange> emitted = new ArrayList<>();
+
+        for (AnimeListEntry entry : delta.getAdded())
+            emitted.add(new AnimeListChange(username, AnimeListChange.Type.ADDED, null, entry));
+
+        for (AnimeListEntry entry : delta.getChanged()) {
+            final AnimeListEntry previous = delta.getPrevious().getEntries().get(entry.getSeriesId());
+            final int before = emitted.size();
+
+            if (!Objects.equals(previous.getListWatchedEpisodes(), entry.getListWatchedEpisodes()))
+                emitted.add(new AnimeListChange(username, AnimeListChange.Type.EPISODES, previous, entry));
+
+            if (!Objects.equals(previous.getListScore(), entry.getListScore()))
+                emitted.add(new AnimeListChange(username, AnimeListChange.Type.SCORE, previous, entry));
+
+            if (!Objects.equals(previous.getListStatus(), entry.getListStatus()))
+                emitted.add(new AnimeListChange(username, AnimeListChange.Type.STATUS, previous, entry));
+
+            if (emitted.size() == before)
+                emitted.add(new AnimeListChange(username, AnimeListChange.Type.OTHER, previous, entry));
+        }
+
+        for (AnimeListEntry entry : delta.getRemoved())
+            emitted.add(new AnimeListChange(username, AnimeListChange.Type.REMOVED, entry, null));
+
+        changes.addAndGet(emitted.size());
+
+        final Consumer<AnimeListChange> listener = this.listener;
+
+        for (AnimeListChange change : emitted) {
+            try {
+                listener.accept(change);
+            } catch (RuntimeException e) {
+                // A broken listener mustn't stop the others being told
+            }
+        }
+    }
+
+    /**
+     * A watched user, at any time either scheduled on the wheel, waiting for a poller or being polled.
+     */
+    private static final class Watch {
+
+        private final String username;
+
+        private volatile long intervalNanos;
+        private volatile boolean cancelled;
+
+        private Watch(
+                final String username,
+                final long intervalNanos) {
+
+            this.username = username;
+            this.intervalNanos = intervalNanos;
+        }
+    }
+}
@@ -0,0 +1,610 @@
+package me.bendoerr.mal.java.client.list;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.MALClient;
+import me.bendoerr.mal.java.client.model.AnimeListEntryValues;
+import me.bendoerr.mal.java.client.xml.XmlBinding;
+
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.ProcessingException;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A durable write-behind queue of mutations to the authenticated user's anime list.
+ * <p>
+ * Mutations are queued per anime and coalesced with whatever is still pending for that anime:
+ * <ul>
+ *     <li>an update is merged into a pending add or update, later values winning field by field,</li>
+ *     <li>an add is merged into a pending add, anything else is sent after it,</li>
+ *     <li>a delete supersedes everything pending,</li>
+ *     <li>an add or update following a pending delete is sent after it.</li>
+ * </ul>
+ * The queue is flushed every {@code flushInterval} and as soon as {@code maxPending} anime have mutations pending, with
+ * at most {@code parallelism} anime being written at once. The mutations of one anime are always sent in order, and
+ * never concurrently with a later flush of the same anime. A flush sends each anime's mutations until one fails:
+ * mutations MAL rejected ({@code 4xx}) are dropped, anything else is requeued ahead of newer mutations and retried on
+ * the next flush. Every result is reported to the {@link #listener(Consumer) listener}.
+ * <p>
+ * If a journal file is given, every mutation is appended to it before being queued and the journal is rewritten with
+ * just the unsent mutations after every flush. A queue opened on an existing journal first requeues what it holds, so
+ * mutations survive a crash, though one that was sent just before a crash may be sent again. Appends are flushed to
+ * the operating system but not synced to disk.
+ * <p>
+ * Instances are thread-safe.
+ */
+public class AnimeListWriteQueue implements AutoCloseable {
+
+    private static final XmlBinding<AnimeListEntryValues> VALUES = XmlBinding.of(AnimeListEntryValues.class);
+
+    private final MALClient client;
+    private final Path journal;
+    private final int maxPending;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer;
+
+    private final Map<String, Deque<SyncAction>> pending = new LinkedHashMap<>();
+    private final Map<String, List<SyncAction>> inFlight = new HashMap<>();
+
+    private Writer journalWriter;
+    private volatile Consumer<SyncResult> listener = r -> {
+    };
+    private long submitted = 0;
+    private long sent = 0;
+    private boolean flushScheduled = false;
+    private boolean closed = false;
+
+    /**
+     * Create a queue, requeueing any mutations left in the journal.
+     *
+     * @param client        {@code [required]} authenticated as the user whose list is mutated
+     * @param journal       file to journal mutations to, created if it doesn't exist, or null to not journal
+     * @param maxPending    number of anime with pending mutations that triggers a flush
+     * @param flushInterval time between flushes
+     * @param unit          {@code [required]} of flushInterval
+     * @param parallelism   maximum number of anime written at once
+     * @throws NullPointerException     if client or unit is null
+     * @throws IllegalArgumentException if maxPending, flushInterval or parallelism isn't positive
+     * @throws IOException              if the journal can't be read or written
+     */
+    public AnimeListWriteQueue(
+            @NonNull final MALClient client,
+            final Path journal,
+            final int maxPending,
+            final long flushInterval,
+            @NonNull final TimeUnit unit,
+            final int parallelism) throws IOException {
+
+        if (maxPending <= 0)
+            throw new IllegalArgumentException("maxPending must be positive");
+
+        if (flushInterval <= 0)
+            throw new IllegalArgumentException("flushInterval must be positive");
+
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("parallelism must be positive");
+
+        this.client = client;
+        this.journal = journal;
+        this.maxPending = maxPending;
+
+        if (journal != null) {
+            if (Files.exists(journal))
+                replay(journal);
+
+            compact();
+        }
+
+        this.executor = Executors.newFixedThreadPool(parallelism);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "mal-client-write-queue");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, unit);
+    }
+
+    /**
+     * @param listener {@code [required]} called with the result of every mutation sent, on the flushing thread
+     * @return this queue
+     */
+    public AnimeListWriteQueue listener(
+            @NonNull final Consumer<SyncResult> listener) {
+
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Queue adding an anime.
+     *
+     * @param id     {@code [required]} maldb id of the anime
+     * @param values {@code [required]} to add the anime with, copied
+     * @throws NullPointerException  if any of the parameters are null
+     * @throws IllegalStateException if the queue is closed
+     * @throws UncheckedIOException  if the mutation can't be journaled, in which case it isn't queued
+     * @see MALClient#animeListAdd(String, AnimeListEntryValues)
+     */
+    public void add(
+            @NonNull final String id,
+            @NonNull final AnimeListEntryValues values) {
+
+        submit(new SyncAction(SyncAction.Type.ADD, id, merge(null, values)));
+    }
+
+    /**
+     * Queue updating an anime.
+     *
+     * @param id     {@code [required]} maldb id of the anime
+     * @param values {@code [required]} to update, copied, null values are left unchanged
+     * @throws NullPointerException  if any of the parameters are null
+     * @throws IllegalStateException if the queue is closed
+     * @throws UncheckedIOException  if the mutation can't be journaled, in which case it isn't queued
+     * @see MALClient#animeListUpdate(String, AnimeListEntryValues)
+     */
+    public void update(
+            @NonNull final String id,
+            @NonNull final AnimeListEntryValues values) {
+
+        submit(new SyncAction(SyncAction.Type.UPDATE, id, merge(null, values)));
+    }
+
+    /**
+     * Queue deleting an anime.
+     *
+     * @param id {@code [required]} maldb id of the anime
+     * @throws NullPointerException  if id is null
+     * @throws IllegalStateException if the queue is closed
+     * @throws UncheckedIOException  if the mutation can't be journaled, in which case it isn't queued
+     * @see MALClient#animeListDelete(String)
+     */
+    public void delete(
+            @NonNull final String id) {
+
+        submit(new SyncAction(SyncAction.Type.DELETE, id, null));
+    }
+
+    /**
+     * Send everything pending now, except anime still being written by another flush.
+     *
+     * @return the result of every mutation sent
+     * @throws ProcessingException  if interrupted while waiting for the flush to finish
+     * @throws UncheckedIOException if the journal can't be rewritten
+     */
+    public List<SyncResult> flush() {
+        final Map<String, List<SyncAction>> batch = new LinkedHashMap<>();
+
+        synchronized (this) {
+            flushScheduled = false;
+
+            for (Iterator<Map.Entry<String, Deque<SyncAction>>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+                final Map.Entry<String, Deque<SyncAction>> entry = it.next();
+
+                if (inFlight.containsKey(entry.getKey()))
+                    continue;
+
+                batch.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+                it.remove();
+            }
+
+            inFlight.putAll(batch);
+        }
+
+        if (batch.isEmpty())
+            return Collections.emptyList();
+
+        final Map<String, Future<List<SyncResult>>> writes = new LinkedHashMap<>();
+
+        for (Map.Entry<String, List<SyncAction>> entry : batch.entrySet())
+            writes.put(entry.getKey(), executor.submit(() -> write(entry.getValue())));
+
+        // Wait outside the monitor so that mutations can still be queued while the flush is on the wire
+        final Map<String, List<SyncResult>> outcomes = new LinkedHashMap<>();
+        Throwable bug = null;
+        boolean interrupted = false;
+
+        for (Map.Entry<String, Future<List<SyncResult>>> write : writes.entrySet()) {
+            List<SyncResult> written;
+
+            try {
+                written = write.getValue().get();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                written = Collections.emptyList();
+            } catch (ExecutionException e) {
+                // write() catches everything MAL can throw, anything else is a bug
+                bug = e.getCause();
+                written = Collections.emptyList();
+            }
+
+            outcomes.put(write.getKey(), written);
+        }
+
+        final List<SyncResult> results = new ArrayList<>();
+
+        synchronized (this) {
+            for (Map.Entry<String, List<SyncResult>> outcome : outcomes.entrySet()) {
+                final String id = outcome.getKey();
+                final List<SyncAction> actions = inFlight.remove(id);
+                final List<SyncResult> written = outcome.getValue();
+
+                results.addAll(written);
+                sent += written.size();
+
+                final SyncResult last = written.isEmpty() ? null : written.get(written.size() - 1);
+
+                // Requeue whatever wasn't sent or failed for a reason other than MAL rejecting it
+                if (last == null || !last.isSuccess()) {
+                    final int from = last == null
+                            ? 0
+                            : last.getError() instanceof ClientErrorException ? written.size() : written.size() - 1;
+
+                    requeue(id, actions.subList(from, actions.size()));
+                }
+            }
+
+            try {
+                compact();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        if (bug != null)
+            throw new IllegalStateException(bug);
+
+        final Consumer<SyncResult> listener = this.listener;
+
+        for (SyncResult result : results) {
+            try {
+                listener.accept(result);
+            } catch (RuntimeException e) {
+                // A broken listener mustn't stop the others being told
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new ProcessingException(new InterruptedException());
+        }
+
+        return results;
+    }
+
+    /**
+     * @return the number of mutations waiting to be sent, after coalescing, including those being sent
+     */
+    public synchronized int getPendingCount() {
+        int count = 0;
+
+        for (Deque<SyncAction> actions : pending.values())
+            count += actions.size();
+
+        for (List<SyncAction> actions : inFlight.values())
+            count += actions.size();
+
+        return count;
+    }
+
+    /**
+     * @return the number of mutations queued since the queue was created, excluding any replayed from the journal
+     */
+    public synchronized long getSubmittedCount() {
+        return submitted;
+    }
+
+    /**
+     * @return the number of requests made to MAL since the queue was created, successful or not
+     */
+    public synchronized long getSentCount() {
+        return sent;
+    }
+
+    /**
+     * Stop the timer and flush everything pending once more. Anything that still couldn't be sent stays in the
+     * journal.
+     */
+    @Override
+    public void close() throws Exception {
+        synchronized (this) {
+            if (closed)
+                return;
+
+            closed = true;
+        }
+
+        timer.shutdown();
+        timer.awaitTermination(1, TimeUnit.MINUTES);
+
+        try {
+            flush();
+        } finally {
+            executor.shutdownNow();
+
+            synchronized (this) {
+                if (journalWriter != null)
+                    journalWriter.close();
+            }
+        }
+    }
+
+    private void submit(
+            final SyncAction action) {
+
+        synchronized (this) {
+            if (closed)
+                throw new IllegalStateException("The queue is closed");
+
+            if (journalWriter != null) {
+                try {
+                    journalWriter.write(encode(action));
+                    journalWriter.write('\n');
+                    journalWriter.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            merge(pending.computeIfAbsent(action.getId(), id -> new ArrayDeque<>()), action);
+            submitted++;
+
+            if (pending.size() >= maxPending && !flushScheduled) {
+                flushScheduled = true;
+                timer.execute(this::flushQuietly);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Everything unsent is still queued and journaled, the next flush will try again
+        }
+    }
+
+    private List<SyncResult> write(
+            final List<SyncAction> actions) {
+
+        final List<SyncResult> results = new ArrayList<>();
+
+        for (SyncAction action : actions) {
+            final SyncResult result = AnimeListSync.apply(client, action);
+            results.add(result);
+
+            if (!result.isSuccess())
+                break;
+        }
+
+        return results;
+    }
+
+    /**
+     * Put unsent mutations back ahead of any queued for the same anime since.
+     */
+    private void requeue(
+            final String id,
+            final Collection<SyncAction> unsent) {
+
+        if (unsent.isEmpty())
+            return;
+
+        final Deque<SyncAction> actions = new ArrayDeque<>();
+
+        for (SyncAction action : unsent)
+            merge(actions, action);
+
+        final Deque<SyncAction> newer = pending.remove(id);
+
+        if (newer != null) {
+            for (SyncAction action : newer)
+                merge(actions, action);
+        }
+
+        pending.put(id, actions);
+    }
+
+    private static void merge(
+            final Deque<SyncAction> actions,
+            final SyncAction action) {
+
+        if (action.getType() == SyncAction.Type.DELETE) {
+            actions.clear();
+            actions.add(action);
+            return;
+        }
+
+        final SyncAction last = actions.peekLast();
+
+        if (last != null && (last.getType() == SyncAction.Type.ADD
+                || (last.getType() == SyncAction.Type.UPDATE && action.getType() == SyncAction.Type.UPDATE))) {
+
+            actions.pollLast();
+            actions.add(new SyncAction(last.getType(), last.getId(), merge(last.getValues(), action.getValues())));
+        } else {
+            actions.add(action);
+        }
+    }
+
+    /**
+     * @return a copy of the older values overwritten by every non-null newer value
+     */
+    private static AnimeListEntryValues merge(
+            final AnimeListEntryValues older,
+            final AnimeListEntryValues newer) {
+
+        final AnimeListEntryValues merged = VALUES.newInstance();
+
+        for (String element : VALUES.getElements()) {
+            final String value = VALUES.get(newer, element);
+
+            if (value != null)
+                VALUES.set(merged, element, value);
+            else if (older != null)
+                VALUES.set(merged, element, VALUES.get(older, element));
+        }
+
+        return merged;
+    }
+
+    private void replay(
+            final Path path) throws IOException {
+
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+
+            while ((line = in.readLine()) != null) {
+                final SyncAction action = decode(line);
+
+                // A torn final line from a crash mid-append
+                if (action != null)
+                    merge(pending.computeIfAbsent(action.getId(), id -> new ArrayDeque<>()), action);
+            }
+        }
+    }
+
+    /**
+     * Rewrite the journal with just the unsent mutations and reopen it for appending.
+     */
+    private void compact() throws IOException {
+        if (journal == null)
+            return;
+
+        if (journalWriter != null)
+            journalWriter.close();
+
+        final Path temp = Files.createTempFile(
+                journal.toAbsolutePath().getParent(), journal.getFileName().toString(), ".tmp");
+
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (List<SyncAction> actions : inFlight.values()) {
+                    for (SyncAction action : actions) {
+                        out.write(encode(action));
+                        out.write('\n');
+                    }
+                }
+
+                for (Deque<SyncAction> actions : pending.values()) {
+                    for (SyncAction action : actions) {
+                        out.write(encode(action));
+                        out.write('\n');
+                    }
+                }
+            }
+
+            Files.move(temp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        journalWriter = Files.newBufferedWriter(journal, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * @return {@code TYPE id element=value&...} with the id and values form encoded
+     */
+    static String encode(
+            final SyncAction action) {
+
+        final StringBuilder line = new StringBuilder(action.getType().name())
+                .append(' ')
+                .append(urlEncode(action.getId()))
+                .append(' ');
+
+        if (action.getValues() != null) {
+            boolean first = true;
+
+            for (String element : VALUES.getElements()) {
+                final String value = VALUES.get(action.getValues(), element);
+
+                if (value == null)
+                    continue;
+
+                if (!first)
+                    line.append('&');
+
+                line.append(element).append('=').append(urlEncode(value));
+                first = false;
+            }
+        }
+
+        return line.toString();
+    }
+
+    /**
+     * @return the action or null if the line is incomplete or corrupt
+     */
+    static SyncAction decode(
+            final String line) {
+
+        final String[] parts = line.split(" ", -1);
+
+        if (parts.length != 3 || parts[1].isEmpty())
+            return null;
+
+        try {
+            final SyncAction.Type type = SyncAction.Type.valueOf(parts[0]);
+            final String id = URLDecoder.decode(parts[1], "UTF-8");
+
+            if (type == SyncAction.Type.DELETE)
+                return new SyncAction(type, id, null);
+
+            final AnimeListEntryValues values = VALUES.newInstance();
+
+            if (!parts[2].isEmpty()) {
+                for (String pair : parts[2].split("&")) {
+                    final int eq = pair.indexOf('=');
+
+                    if (eq < 0 || !VALUES.isBound(pair.substring(0, eq)))
+                        return null;
+
+                    VALUES.set(values, pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+                }
+            }
+
+            return new SyncAction(type, id, values);
+        } catch (IllegalArgumentException | UnsupportedEncodingException e) {
+            return null;
+        }
+    }
+
+    private static String urlEncode(
+            final String value) {
+
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package me.bendoerr.mal.java.client.list;
+
+import lombok.Value;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time view of an {@link AnimeListBulkFetcher} run.
+ */
+@Value
+public class BulkFetchProgress {
+
+    int total;
+
+    /**
+     * Users finished, successfully or not.
+     */
+    int completed;
+
+    /**
+     * Users whose fetch failed, included in {@link #getCompleted()}.
+     */
+    int failed;
+
+    /**
+     * Time since the run started.
+     */
+    long elapsedNanos;
+
+    /**
+     * @return users not yet finished
+     */
+    public int getRemaining() {
+        return total - completed;
+    }
+
+    /**
+     * @return true once every user has finished
+     */
+    public boolean isDone() {
+        return completed == total;
+    }
+
+    /**
+     * @return users finished per second, 0 before any time has elapsed
+     */
+    public double getThroughput() {
+        return elapsedNanos <= 0 ? 0 : completed * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+}
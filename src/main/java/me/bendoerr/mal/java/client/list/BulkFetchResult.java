@@ -0,0 +1,37 @@
+package me.bendoerr.mal.java.client.list;
+
+import lombok.Value;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+
+import java.util.List;
+
+/**
+ * The outcome of fetching one user's anime list with {@link AnimeListBulkFetcher}.
+ */
+@Value
+public class BulkFetchResult {
+
+    String username;
+
+    /**
+     * The user's list, null if the fetch failed.
+     */
+    List<AnimeListEntry> entries;
+
+    /**
+     * The exception the fetch failed with, null if it succeeded.
+     */
+    RuntimeException error;
+
+    /**
+     * Time spent fetching, including any wait for the rate limit.
+     */
+    long elapsedNanos;
+
+    /**
+     * @return true if the list was fetched
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,27 @@
+package me.bendoerr.mal.java.client.list;
+
+import lombok.Value;
+import me.bendoerr.mal.java.client.model.AnimeListEntryValues;
+
+/**
+ * A single mutation of an anime list, planned by {@link AnimeListSync} or queued by {@link AnimeListWriteQueue}.
+ */
+@Value
+public class SyncAction {
+
+    public enum Type {
+        ADD, UPDATE, DELETE
+    }
+
+    Type type;
+
+    /**
+     * maldb id of the anime.
+     */
+    String id;
+
+    /**
+     * Values to submit, null for {@link Type#DELETE}.
+     */
+    AnimeListEntryValues values;
+}
@@ -0,0 +1,29 @@
+package me.bendoerr.mal.java.client.list;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * The minimal set of mutations that brings a user's anime list to a desired state, as computed by
+ * {@link AnimeListSync#plan(String, java.util.Map)}.
+ */
+@Value
+public class SyncPlan {
+
+    String username;
+
+    List<SyncAction> actions;
+
+    /**
+     * maldb ids of desired entries that already match the list and need no mutation.
+     */
+    List<String> unchanged;
+
+    /**
+     * @return true if no mutations are needed
+     */
+    public boolean isEmpty() {
+        return actions.isEmpty();
+    }
+}
@@ -0,0 +1,36 @@
+package me.bendoerr.mal.java.client.list;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Per-entry results of running a {@link SyncPlan}.
+ */
+@Value
+public class SyncReport {
+
+    SyncPlan plan;
+
+    /**
+     * One result per action of the plan, in the plan's order.
+     */
+    List<SyncResult> results;
+
+    /**
+     * @return the results of the actions that failed
+     */
+    public List<SyncResult> getFailures() {
+        return results.stream()
+                .filter(result -> !result.isSuccess())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return true if every action succeeded
+     */
+    public boolean isSuccess() {
+        return results.stream().allMatch(SyncResult::isSuccess);
+    }
+}
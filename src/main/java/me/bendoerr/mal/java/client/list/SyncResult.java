@@ -0,0 +1,24 @@
+package me.bendoerr.mal.java.client.list;
+
+import lombok.Value;
+
+/**
+ * The outcome of running one {@link SyncAction}.
+ */
+@Value
+public class SyncResult {
+
+    SyncAction action;
+
+    /**
+     * The exception MAL responded with, null if the action succeeded.
+     */
+    RuntimeException error;
+
+    /**
+     * @return true if MAL accepted the mutation
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
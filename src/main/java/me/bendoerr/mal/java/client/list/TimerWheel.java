@@ -0,0 +1,103 @@
+package me.bendoerr.mal.java.client.list;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A hashed timer wheel: tasks are hashed by their deadline tick into one of a fixed number of buckets, so scheduling is
+ * constant time and each tick only looks at one bucket, however many tasks are scheduled. Tasks due further out than
+ * one turn of the wheel stay in their bucket until the turn they are due.
+ * <p>
+ * The wheel doesn't keep time itself, whoever drives it calls {@link #advance()} once per tick. Instances are
+ * thread-safe.
+ */
+final class TimerWheel<T> {
+
+    private final long tickNanos;
+    private final List<Deque<Timeout<T>>> buckets;
+
+    private long tick = 0;
+    private int size = 0;
+
+    /**
+     * @param tickNanos duration of a tick, must be positive
+     * @param buckets   number of buckets, must be positive
+     */
+    TimerWheel(
+            final long tickNanos,
+            final int buckets) {
+
+        if (tickNanos <= 0 || buckets <= 0)
+            throw new IllegalArgumentException("tickNanos and buckets must be positive");
+
+        this.tickNanos = tickNanos;
+        this.buckets = new ArrayList<>(buckets);
+
+        for (int i = 0; i < buckets; i++)
+            this.buckets.add(new ArrayDeque<>());
+    }
+
+    /**
+     * Schedule a task, rounding its delay up to whole ticks of at least one.
+     */
+    synchronized void schedule(
+            final T task,
+            final long delayNanos) {
+
+        final long deadline = tick + Math.max(1, (delayNanos + tickNanos - 1) / tickNanos);
+
+        buckets.get((int) (deadline % buckets.size())).add(new Timeout<>(task, deadline));
+        size++;
+    }
+
+    /**
+     * Move to the next tick.
+     *
+     * @return the tasks due by it, in the order they were scheduled
+     */
+    synchronized List<T> advance() {
+        tick++;
+
+        final List<T> due = new ArrayList<>();
+
+        for (Iterator<Timeout<T>> it = buckets.get((int) (tick % buckets.size())).iterator(); it.hasNext(); ) {
+            final Timeout<T> timeout = it.next();
+
+            if (timeout.deadline <= tick) {
+                due.add(timeout.task);
+                it.remove();
+            }
+        }
+
+        size -= due.size();
+        return due;
+    }
+
+    /**
+     * @return the number of tasks scheduled and not yet due
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    long getTickNanos() {
+        return tickNanos;
+    }
+
+    private static final class Timeout<T> {
+
+        private final T task;
+        private final long deadline;
+
+        private Timeout(
+                final T task,
+                final long deadline) {
+
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package me.bendoerr.mal.java.client.list;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Whether a mutation verified by {@link AnimeListVerifier} shows up in the anime list.
+ */
+@Value
+public class VerificationResult {
+
+    public enum Outcome {
+        /**
+         * The list reflects the mutation: every observable value matches, or a deleted anime is gone.
+         */
+        CONFIRMED,
+        /**
+         * The anime is on the list but with other values, or a deleted anime is still there.
+         */
+        MISMATCHED,
+        /**
+         * An added or updated anime isn't on the list.
+         */
+        MISSING
+    }
+
+    /**
+     * The mutation verified, the latest one if later mutations of the same anime superseded the one submitted.
+     */
+    SyncAction action;
+
+    Outcome outcome;
+
+    /**
+     * The {@link AnimeListEntryMatcher#OBSERVABLE} element names that didn't match, empty unless
+     * {@link Outcome#MISMATCHED} and the anime was added or updated.
+     */
+    List<String> differences;
+
+    /**
+     * Number of times the mutation was submitted again before this outcome.
+     */
+    int resubmits;
+
+    /**
+     * @return true if the list reflects the mutation
+     */
+    public boolean isConfirmed() {
+        return outcome == Outcome.CONFIRMED;
+    }
+}
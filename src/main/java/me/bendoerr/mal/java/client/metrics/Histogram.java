@@ -0,0 +1,146 @@
+package me.bendoerr.mal.java.client.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, lock-free histogram of non-negative {@code long} values in the style of HdrHistogram.
+ * <p>
+ * Values below 64 are counted exactly. Larger values are counted in log-linear buckets, 32 to every power of two, so
+ * any value reported back is within about 3% of a recorded value. Recording never allocates. Values larger than
+ * {@code 2^40} (about 18 minutes in nanoseconds) are counted and summed as {@code 2^40} but still reported
+ * exactly by {@link #getMax()}.
+ * <p>
+ * Instances are thread-safe. Reads made while values are being recorded are not a consistent snapshot but are never
+ * off by more than the values recorded concurrently.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR = 2 * SUB_BUCKETS;
+    private static final long HIGHEST = 1L << 40;
+    private static final int BUCKETS = index(HIGHEST) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value to record, negative values are recorded as {@code 0}
+     */
+    public void record(
+            final long value) {
+
+        final long v = Math.max(0, value);
+
+        counts.incrementAndGet(index(Math.min(v, HIGHEST)));
+        count.incrementAndGet();
+        total.addAndGet(Math.min(v, HIGHEST));
+
+        long current;
+        while (v > (current = max.get()) && !max.compareAndSet(current, v)) {
+            // Lost a race with a concurrent larger value, try again
+        }
+    }
+
+    /**
+     * @return the number of values recorded
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the sum of the values recorded
+     */
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * @return the largest value recorded, {@code 0} if none have been
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return the mean of the values recorded, {@code 0} if none have been
+     */
+    public double getMean() {
+        final long n = count.get();
+        return n == 0 ? 0 : (double) total.get() / n;
+    }
+
+    /**
+     * @param percentile between {@code 0} and {@code 100}
+     * @return the value at or below which the percentile of recorded values fall, {@code 0} if none have been
+     * @throws IllegalArgumentException if percentile is out of range
+     */
+    public long getValueAtPercentile(
+            final double percentile) {
+
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            n += counts.get(i);
+
+        if (n == 0)
+            return 0;
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+
+            if (seen >= rank)
+                return Math.min(highestEquivalent(i), max.get());
+        }
+
+        return max.get();
+    }
+
+    /**
+     * Forget every recorded value.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            counts.set(i, 0);
+
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Histogram(count=%d, mean=%.1f, p50=%d, p99=%d, max=%d)",
+                getCount(), getMean(), getValueAtPercentile(50), getValueAtPercentile(99), getMax());
+    }
+
+    static int index(
+            final long value) {
+
+        if (value < LINEAR)
+            return (int) value;
+
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long highestEquivalent(
+            final int index) {
+
+        if (index < LINEAR)
+            return index;
+
+        final int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+        final long top = SUB_BUCKETS + (index - LINEAR) % SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+}
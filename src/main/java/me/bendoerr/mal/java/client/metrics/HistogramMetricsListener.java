@@ -0,0 +1,231 @@
+package me.bendoerr.mal.java.client.metrics;
+
+import lombok.NonNull;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records metrics in memory, per {@link Operation}, in {@link Histogram}s and counters.
+ * <p>
+ * Everything is allocated up front, so recording is lock-free and allocation-free and the listener is cheap enough to
+ * leave installed in production. Latencies are in nanoseconds and payloads in bytes.
+ * <pre>
+ * {@code
+ * HistogramMetricsListener metrics = new HistogramMetricsListener();
+ * MALClient client = MALClient.builder()
+ *         .credentials("user", "pass")
+ *         .metrics(metrics)
+ *         .build();
+ * ...
+ * metrics.getPhase(Operation.X_ANIME_LIST, Phase.UNMARSHAL).getValueAtPercentile(99);
+ * }
+ * </pre>
+ */
+public class HistogramMetricsListener implements MALMetricsListener {
+
+    private static final int STATUSES = 600;
+
+    private final OperationMetrics[] operations = new OperationMetrics[Operation.values().length];
+
+    private volatile long started = System.nanoTime();
+
+    public HistogramMetricsListener() {
+        for (Operation operation : Operation.values())
+            operations[operation.ordinal()] = new OperationMetrics();
+    }
+
+    @Override
+    public void onPhase(
+            final Operation operation,
+            final Phase phase,
+            final long nanos) {
+
+        operations[operation.ordinal()].phases[phase.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void onResponse(
+            final Operation operation,
+            final int status) {
+
+        if (status >= 0 && status < STATUSES)
+            operations[operation.ordinal()].statuses.incrementAndGet(status);
+    }
+
+    @Override
+    public void onPayload(
+            final Operation operation,
+            final long bytes) {
+
+        operations[operation.ordinal()].payload.record(bytes);
+    }
+
+    @Override
+    public void onRetry(
+            final Operation operation,
+            final int status) {
+
+        operations[operation.ordinal()].retries.incrementAndGet();
+    }
+
+    @Override
+    public void onHedge(
+            final Operation operation) {
+
+        operations[operation.ordinal()].hedges.incrementAndGet();
+    }
+
+    @Override
+    public void onComplete(
+            final Operation operation,
+            final long nanos,
+            final Throwable error) {
+
+        final OperationMetrics metrics = operations[operation.ordinal()];
+        metrics.latency.record(nanos);
+
+        if (error != null)
+            metrics.errors.incrementAndGet();
+    }
+
+    /**
+     * @param operation {@code [required]}
+     * @return latency of completed operations, successful or not, in nanoseconds
+     */
+    public Histogram getLatency(
+            @NonNull final Operation operation) {
+
+        return operations[operation.ordinal()].latency;
+    }
+
+    /**
+     * @param operation {@code [required]}
+     * @param phase     {@code [required]}
+     * @return latency of the phase across every attempt of the operation in nanoseconds
+     */
+    public Histogram getPhase(
+            @NonNull final Operation operation,
+            @NonNull final Phase phase) {
+
+        return operations[operation.ordinal()].phases[phase.ordinal()];
+    }
+
+    /**
+     * @param operation {@code [required]}
+     * @return sizes of the response bodies read in bytes
+     */
+    public Histogram getPayload(
+            @NonNull final Operation operation) {
+
+        return operations[operation.ordinal()].payload;
+    }
+
+    /**
+     * @param operation {@code [required]}
+     * @return the number of responses received by HTTP status code, in status code order
+     */
+    public Map<Integer, Long> getStatuses(
+            @NonNull final Operation operation) {
+
+        final AtomicLongArray statuses = operations[operation.ordinal()].statuses;
+        final Map<Integer, Long> counts = new TreeMap<>();
+
+        for (int status = 0; status < STATUSES; status++) {
+            final long count = statuses.get(status);
+
+            if (count > 0)
+                counts.put(status, count);
+        }
+
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * @param operation {@code [required]}
+     * @return the number of throttled attempts retried
+     */
+    public long getRetries(
+            @NonNull final Operation operation) {
+
+        return operations[operation.ordinal()].retries.get();
+    }
+
+    /**
+     * @param operation {@code [required]}
+     * @return the number of hedging requests sent
+     */
+    public long getHedges(
+            @NonNull final Operation operation) {
+
+        return operations[operation.ordinal()].hedges.get();
+    }
+
+    /**
+     * @param operation {@code [required]}
+     * @return the number of operations that failed, after any retries
+     */
+    public long getErrors(
+            @NonNull final Operation operation) {
+
+        return operations[operation.ordinal()].errors.get();
+    }
+
+    /**
+     * @param operation {@code [required]}
+     * @return operations completed per second since this listener was created or last reset
+     */
+    public double getThroughput(
+            @NonNull final Operation operation) {
+
+        final long elapsed = System.nanoTime() - started;
+        final long completed = operations[operation.ordinal()].latency.getCount();
+
+        return elapsed <= 0 ? 0 : completed * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    /**
+     * Forget everything recorded and restart the throughput clock.
+     */
+    public void reset() {
+        for (OperationMetrics metrics : operations)
+            metrics.reset();
+
+        started = System.nanoTime();
+    }
+
+    private static final class OperationMetrics {
+
+        private final Histogram latency = new Histogram();
+        private final Histogram[] phases = new Histogram[Phase.values().length];
+        private final Histogram payload = new Histogram();
+        private final AtomicLongArray statuses = new AtomicLongArray(STATUSES);
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong hedges = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+
+        private OperationMetrics() {
+            for (int i = 0; i < phases.length; i++)
+                phases[i] = new Histogram();
+        }
+
+        private void reset() {
+            latency.reset();
+            payload.reset();
+
+            for (Histogram phase : phases)
+                phase.reset();
+
+            for (int status = 0; status < STATUSES; status++)
+                statuses.set(status, 0);
+
+            retries.set(0);
+            hedges.set(0);
+            errors.set(0);
+        }
+    }
+}
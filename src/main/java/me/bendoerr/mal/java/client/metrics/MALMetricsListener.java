@@ -0,0 +1,72 @@
+package me.bendoerr.mal.java.client.metrics;
+
+/**
+ * Receives the metrics a {@link me.bendoerr.mal.java.client.MALClient} records.
+ * <p>
+ * Every method has an empty default so that listeners only implement what they are interested in. Methods are called
+ * on the threads making the requests, including Jersey's async threads, so implementations must be thread-safe and
+ * should return quickly. {@link HistogramMetricsListener} is an in-memory implementation.
+ * <p>
+ * When a client is built with {@link #NOOP}, the default, none of the instrumentation is installed at all.
+ */
+public interface MALMetricsListener {
+
+    /**
+     * A listener that records nothing.
+     */
+    MALMetricsListener NOOP = new MALMetricsListener() {
+    };
+
+    /**
+     * @param operation being performed
+     * @param phase     of one request attempt
+     * @param nanos     spent in the phase
+     */
+    default void onPhase(Operation operation, Phase phase, long nanos) {
+    }
+
+    /**
+     * Called once the response headers of a request attempt have been read.
+     *
+     * @param operation being performed
+     * @param status    HTTP status code
+     */
+    default void onResponse(Operation operation, int status) {
+    }
+
+    /**
+     * Called once a response body has been read, not called for bodies that are discarded unread.
+     *
+     * @param operation being performed
+     * @param bytes     size of the body as transferred
+     */
+    default void onPayload(Operation operation, long bytes) {
+    }
+
+    /**
+     * Called when a throttled request attempt is about to be retried.
+     *
+     * @param operation being performed
+     * @param status    HTTP status code the attempt was throttled with
+     */
+    default void onRetry(Operation operation, int status) {
+    }
+
+    /**
+     * Called when a second, hedging, request is sent for a read that is slower than usual.
+     *
+     * @param operation being performed
+     */
+    default void onHedge(Operation operation) {
+    }
+
+    /**
+     * Called once per operation, after any retries, with the latency the caller observed.
+     *
+     * @param operation performed
+     * @param nanos     from the operation being requested until it completed, including rate limiting and retries
+     * @param error     the operation failed with, null if it succeeded
+     */
+    default void onComplete(Operation operation, long nanos, Throwable error) {
+    }
+}
@@ -0,0 +1,17 @@
+package me.bendoerr.mal.java.client.metrics;
+
+/**
+ * The {@link me.bendoerr.mal.java.client.MALClient} operations metrics are recorded for. Synchronous and asynchronous
+ * variants of an operation are recorded as the same operation.
+ */
+public enum Operation {
+
+    ANIME_SEARCH,
+    ANIME_LIST_ADD,
+    ANIME_LIST_UPDATE,
+    ANIME_LIST_DELETE,
+    X_ANIME_LIST,
+    X_ANIME_LIST_STREAM,
+    ANIME_SEARCH_STREAM,
+    ANIME_SEARCH_LAZY
+}
@@ -0,0 +1,32 @@
+package me.bendoerr.mal.java.client.metrics;
+
+/**
+ * The phases of a single request attempt whose latency is recorded.
+ */
+public enum Phase {
+
+    /**
+     * Marshalling the request body to XML.
+     */
+    MARSHAL,
+
+    /**
+     * Waiting for a connection from the pool, including connecting if a new one is opened.
+     */
+    CONNECTION_ACQUIRE,
+
+    /**
+     * From the connection being acquired until the response headers have been read.
+     */
+    TIME_TO_FIRST_BYTE,
+
+    /**
+     * Reading the response body off the network.
+     */
+    BODY_TRANSFER,
+
+    /**
+     * Unmarshalling the response body, excluding time spent waiting on the network.
+     */
+    UNMARSHAL
+}
@@ -0,0 +1,166 @@
+package me.bendoerr.mal.java.client.model;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.xml.XmlRangeScanner;
+import me.bendoerr.mal.java.client.xml.XmlText;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A lazily decoded counterpart of {@link AnimeEntry}.
+ * <p>
+ * Parsing only locates each field as a byte range of the response, and a field is decoded the first time it is read,
+ * so the long {@code synopsis}, {@code synonyms} and {@code english} of results that are listed by their id, title,
+ * type and image are never turned into strings at all. Decoded values are kept for later reads.
+ * <p>
+ * The free text fields, {@code title}, {@code english}, {@code synonyms} and {@code synopsis}, are HTML-unescaped on
+ * top of the XML decoding, so where an {@link AnimeEntry} synopsis reads {@code &quot;King's Seal&quot;} this one
+ * reads {@code "King's Seal"}. Every entry of a response shares the response's bytes, which stay in memory as long as
+ * any of its entries does, so copy the few results to be kept for long with {@link #toAnimeEntry()}.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class LazyAnimeEntry {
+
+    private static final String[] FIELDS = {"id", "title", "english", "synonyms", "episodes", "type", "status",
+            "start_date", "end_date", "synopsis", "image"};
+
+    private static final int ID = 0;
+    private static final int TITLE = 1;
+    private static final int ENGLISH = 2;
+    private static final int SYNONYMS = 3;
+    private static final int EPISODES = 4;
+    private static final int TYPE = 5;
+    private static final int STATUS = 6;
+    private static final int START_DATE = 7;
+    private static final int END_DATE = 8;
+    private static final int SYNOPSIS = 9;
+    private static final int IMAGE = 10;
+
+    private final byte[] document;
+    private final int[] ranges;
+
+    /**
+     * Decoded values, written at most once per field. Racing readers may both decode a field but see equal strings.
+     */
+    private final String[] values = new String[FIELDS.length];
+
+    private LazyAnimeEntry(
+            final byte[] document,
+            final int[] ranges) {
+
+        this.document = document;
+        this.ranges = ranges;
+    }
+
+    /**
+     * @param document {@code [required]} an {@code anime/search.xml} response, retained by the entries, empty for no
+     *                 results
+     * @return the entries of the response, in document order
+     * @throws NullPointerException            if document is null
+     * @throws javax.ws.rs.ProcessingException if the document is malformed
+     */
+    public static List<LazyAnimeEntry> parse(
+            @NonNull final byte[] document) {
+
+        final List<int[]> records = new XmlRangeScanner(document, "entry", FIELDS).scan();
+        final List<LazyAnimeEntry> entries = new ArrayList<>(records.size());
+
+        for (int[] ranges : records)
+            entries.add(new LazyAnimeEntry(document, ranges));
+
+        return entries;
+    }
+
+    public String getId() {
+        return value(ID, false);
+    }
+
+    public String getTitle() {
+        return value(TITLE, true);
+    }
+
+    public String getEnglish() {
+        return value(ENGLISH, true);
+    }
+
+    public String getSynonyms() {
+        return value(SYNONYMS, true);
+    }
+
+    public String getEpisodes() {
+        return value(EPISODES, false);
+    }
+
+    public String getType() {
+        return value(TYPE, false);
+    }
+
+    public String getStatus() {
+        return value(STATUS, false);
+    }
+
+    public String getStartDate() {
+        return value(START_DATE, false);
+    }
+
+    public String getEndDate() {
+        return value(END_DATE, false);
+    }
+
+    public String getSynopsis() {
+        return value(SYNOPSIS, true);
+    }
+
+    public String getImage() {
+        return value(IMAGE, false);
+    }
+
+    /**
+     * @return an eagerly decoded copy holding every field, free text HTML-unescaped, which doesn't retain the response
+     */
+    public AnimeEntry toAnimeEntry() {
+        final AnimeEntry entry = new AnimeEntry();
+
+        entry.setId(getId());
+        entry.setTitle(getTitle());
+        entry.setEnglish(getEnglish());
+        entry.setSynonyms(getSynonyms());
+        entry.setEpisodes(getEpisodes());
+        entry.setType(getType());
+        entry.setStatus(getStatus());
+        entry.setStartDate(getStartDate());
+        entry.setEndDate(getEndDate());
+        entry.setSynopsis(getSynopsis());
+        entry.setImage(getImage());
+
+        return entry;
+    }
+
+    @Override
+    public String toString() {
+        return "LazyAnimeEntry(id=" + getId() + ", title=" + getTitle() + ")";
+    }
+
+    /**
+     * @return the decoded field, null if the entry doesn't have it
+     */
+    private String value(
+            final int field,
+            final boolean html) {
+
+        String value = values[field];
+
+        if (value == null && ranges[2 * field] >= 0) {
+            value = XmlText.decode(document, ranges[2 * field], ranges[2 * field + 1]);
+
+            if (html)
+                value = XmlText.unescapeHtml(value);
+
+            values[field] = value;
+        }
+
+        return value;
+    }
+}
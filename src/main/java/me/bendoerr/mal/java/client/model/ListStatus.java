@@ -0,0 +1,93 @@
+package me.bendoerr.mal.java.client.model;
+
+import java.util.Locale;
+
+/**
+ * The status of an anime on a user's list ({@code my_status} / {@code status}).
+ */
+public enum ListStatus {
+
+    WATCHING(1, "watching"),
+    COMPLETED(2, "completed"),
+    ON_HOLD(3, "onhold"),
+    DROPPED(4, "dropped"),
+    PLAN_TO_WATCH(6, "plantowatch");
+
+    private final byte code;
+    private final String apiName;
+
+    ListStatus(
+            final int code,
+            final String apiName) {
+
+        this.code = (byte) code;
+        this.apiName = apiName;
+    }
+
+    /**
+     * @return the numeric code MAL uses
+     */
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * @return the name the MAL API accepts in place of the code
+     */
+    public String getApiName() {
+        return apiName;
+    }
+
+    /**
+     * @param code numeric status code
+     * @return the status or null if the code is unknown
+     */
+    public static ListStatus fromCode(
+            final int code) {
+
+        for (ListStatus status : values()) {
+            if (status.code == code)
+                return status;
+        }
+
+        return null;
+    }
+
+    /**
+     * Parse a status as either a numeric code or a name, ignoring case, spaces, hyphens and underscores.
+     *
+     * @param value such as {@code 1}, {@code watching} or {@code Plan to Watch}
+     * @return the status or null if the value is null, blank or unknown
+     */
+    public static ListStatus parse(
+            final String value) {
+
+        if (value == null || value.trim().isEmpty())
+            return null;
+
+        final String key = value.trim().toLowerCase(Locale.ROOT).replaceAll("[\\s_-]", "");
+
+        try {
+            return fromCode(Integer.parseInt(key));
+        } catch (NumberFormatException ignored) {
+            // Not a code, must be a name
+        }
+
+        for (ListStatus status : values()) {
+            if (status.apiName.equals(key))
+                return status;
+        }
+
+        return null;
+    }
+
+    /**
+     * @param status to format
+     * @return the numeric code as a string or null if status is null
+     */
+    public static String format(
+            final ListStatus status) {
+
+        return status == null ? null : Byte.toString(status.code);
+    }
+}
@@ -0,0 +1,95 @@
+package me.bendoerr.mal.java.client.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.Value;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.Month;
+
+/**
+ * A date as MAL knows it, which may only be known to the month or year, such as an anime only announced for
+ * {@code 2016-04-00}. Unknown parts are zero, as in MAL's own encoding.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class MalDate {
+
+    /**
+     * The year, or 0 if unknown.
+     */
+    int year;
+
+    /**
+     * The month of the year from 1 to 12, or 0 if unknown.
+     */
+    int month;
+
+    /**
+     * The day of the month from 1 to 31, or 0 if unknown.
+     */
+    int day;
+
+    /**
+     * @param year  the year, or 0 if unknown
+     * @param month the month from 1 to 12, or 0 if unknown
+     * @param day   the day of the month, or 0 if unknown
+     * @return the date
+     * @throws IllegalArgumentException if a known part is out of range
+     */
+    public static MalDate of(
+            final int year,
+            final int month,
+            final int day) {
+
+        final MalDate date = new MalDate(year, month, day);
+
+        if (year < 0 || year > 9999 || month < 0 || month > 12 || day < 0)
+            throw new IllegalArgumentException("Not a MAL date: " + date);
+
+        try {
+            if (date.isComplete())
+                date.toLocalDate();
+            else if (day > (month == 0 ? 31 : Month.of(month).maxLength()))
+                throw new IllegalArgumentException("Not a MAL date: " + date);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Not a MAL date: " + date, e);
+        }
+
+        return date;
+    }
+
+    /**
+     * @param date {@code [required]} a fully known date
+     * @return the date
+     */
+    public static MalDate of(
+            @NonNull final LocalDate date) {
+
+        return new MalDate(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+    }
+
+    /**
+     * @return whether the year, month and day are all known
+     */
+    public boolean isComplete() {
+        return year != 0 && month != 0 && day != 0;
+    }
+
+    /**
+     * @return the date, or null if not {@link #isComplete() complete}
+     */
+    public LocalDate toLocalDate() {
+        return isComplete() ? LocalDate.of(year, month, day) : null;
+    }
+
+    /**
+     * @return {@code yyyy-mm-dd}, with unknown parts as zeros
+     */
+    @Override
+    public String toString() {
+        return String.format("%04d-%02d-%02d", year, month, day);
+    }
+}
@@ -0,0 +1,131 @@
+package me.bendoerr.mal.java.client.model;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Parsing and formatting of the string encodings MAL uses, shared by the typed model classes.
+ * <p>
+ * MAL reports dates as {@code yyyy-mm-dd} with {@code 0000-00-00} for unknown and zero month or day for partially known
+ * dates, and accepts dates as {@code mmddyyyy}. Unknown dates are represented as null and partially known ones as a
+ * {@link MalDate} with the same zeros.
+ */
+final class MalValues {
+
+    static final String UNKNOWN_DATE = "0000-00-00";
+
+    private MalValues() {
+    }
+
+    static int parseInt(
+            final String value) {
+
+        if (value == null || value.trim().isEmpty())
+            return 0;
+
+        return Integer.parseInt(value.trim());
+    }
+
+    static Integer parseInteger(
+            final String value) {
+
+        if (value == null || value.trim().isEmpty())
+            return null;
+
+        return Integer.valueOf(value.trim());
+    }
+
+    static String format(
+            final Integer value) {
+
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * @param value {@code yyyy-mm-dd} or {@code mmddyyyy}
+     * @return the date, partially known ones keeping zeros for what isn't known, or null if unknown or blank
+     * @throws IllegalArgumentException if the value isn't a date in either format
+     */
+    static MalDate parseDate(
+            final String value) {
+
+        if (value == null)
+            return null;
+
+        final String trimmed = value.trim();
+        final int year;
+        final int month;
+        final int day;
+
+        try {
+            if (trimmed.length() == 10 && trimmed.charAt(4) == '-' && trimmed.charAt(7) == '-') {
+                year = Integer.parseInt(trimmed.substring(0, 4));
+                month = Integer.parseInt(trimmed.substring(5, 7));
+                day = Integer.parseInt(trimmed.substring(8, 10));
+            } else if (trimmed.length() == 8) {
+                month = Integer.parseInt(trimmed.substring(0, 2));
+                day = Integer.parseInt(trimmed.substring(2, 4));
+                year = Integer.parseInt(trimmed.substring(4, 8));
+            } else if (trimmed.isEmpty()) {
+                return null;
+            } else {
+                throw new IllegalArgumentException("Not a MAL date: " + value);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a MAL date: " + value, e);
+        }
+
+        if (year == 0 && month == 0 && day == 0)
+            return null;
+
+        return MalDate.of(year, month, day);
+    }
+
+    /**
+     * @return {@code yyyy-mm-dd}, or {@code 0000-00-00} for null
+     */
+    static String formatDate(
+            final MalDate date) {
+
+        return date == null ? UNKNOWN_DATE : date.toString();
+    }
+
+    /**
+     * @return {@code mmddyyyy}, or null for null
+     */
+    static String formatValuesDate(
+            final MalDate date) {
+
+        if (date == null)
+            return null;
+
+        return String.format("%02d%02d%04d", date.getMonth(), date.getDay(), date.getYear());
+    }
+
+    /**
+     * @param value comma separated tags
+     * @return the unmodifiable tags in order, empty if value is null or blank
+     */
+    static Set<String> parseTags(
+            final String value) {
+
+        if (value == null || value.trim().isEmpty())
+            return Collections.emptySet();
+
+        final Set<String> tags = new LinkedHashSet<>();
+
+        for (String tag : value.split(",")) {
+            if (!tag.trim().isEmpty())
+                tags.add(tag.trim());
+        }
+
+        return Collections.unmodifiableSet(tags);
+    }
+
+    static String formatTags(
+            final Set<String> tags) {
+
+        return tags == null ? null : String.join(", ", tags);
+    }
+}
@@ -0,0 +1,45 @@
+package me.bendoerr.mal.java.client.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A table of canonical instances for strings that repeat across many entries, such as {@code series_type} and
+ * {@code series_status}, so that each distinct value is held in memory once.
+ * <p>
+ * Only low-cardinality values should be interned since the table is never pruned.
+ */
+public final class StringInterner {
+
+    private static final StringInterner SHARED = new StringInterner();
+
+    private final ConcurrentMap<String, String> table = new ConcurrentHashMap<>();
+
+    /**
+     * @return the table shared by the typed model classes
+     */
+    public static StringInterner shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param value to intern, may be null
+     * @return the canonical instance equal to value, or null if value is null
+     */
+    public String intern(
+            final String value) {
+
+        if (value == null)
+            return null;
+
+        final String existing = table.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
+
+    /**
+     * @return the number of distinct values interned
+     */
+    public int size() {
+        return table.size();
+    }
+}
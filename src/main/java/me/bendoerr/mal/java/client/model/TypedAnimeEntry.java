@@ -0,0 +1,84 @@
+package me.bendoerr.mal.java.client.model;
+
+import lombok.Data;
+import lombok.NonNull;
+
+/**
+ * A compact, typed counterpart of {@link AnimeEntry}.
+ * <p>
+ * Numbers are stored as primitives, dates as {@link MalDate} (null when MAL doesn't know them) and the repetitive
+ * {@code type} and {@code status} values are shared through the {@link StringInterner}.
+ */
+@Data
+public class TypedAnimeEntry {
+
+    private int id;
+
+    private String title;
+
+    private String english;
+
+    private String synonyms;
+
+    private int episodes;
+
+    private String type;
+
+    private String status;
+
+    private MalDate startDate;
+
+    private MalDate endDate;
+
+    private String synopsis;
+
+    private String image;
+
+    /**
+     * @param entry {@code [required]} to convert
+     * @return the typed equivalent
+     * @throws NumberFormatException    if a numeric field isn't a number
+     * @throws IllegalArgumentException if a date field isn't a date
+     */
+    public static TypedAnimeEntry of(
+            @NonNull final AnimeEntry entry) {
+
+        final StringInterner interner = StringInterner.shared();
+        final TypedAnimeEntry typed = new TypedAnimeEntry();
+
+        typed.setId(MalValues.parseInt(entry.getId()));
+        typed.setTitle(entry.getTitle());
+        typed.setEnglish(entry.getEnglish());
+        typed.setSynonyms(entry.getSynonyms());
+        typed.setEpisodes(MalValues.parseInt(entry.getEpisodes()));
+        typed.setType(interner.intern(entry.getType()));
+        typed.setStatus(interner.intern(entry.getStatus()));
+        typed.setStartDate(MalValues.parseDate(entry.getStartDate()));
+        typed.setEndDate(MalValues.parseDate(entry.getEndDate()));
+        typed.setSynopsis(entry.getSynopsis());
+        typed.setImage(entry.getImage());
+
+        return typed;
+    }
+
+    /**
+     * @return the all-{@code String} equivalent
+     */
+    public AnimeEntry toAnimeEntry() {
+        final AnimeEntry entry = new AnimeEntry();
+
+        entry.setId(Integer.toString(id));
+        entry.setTitle(title);
+        entry.setEnglish(english);
+        entry.setSynonyms(synonyms);
+        entry.setEpisodes(Integer.toString(episodes));
+        entry.setType(type);
+        entry.setStatus(status);
+        entry.setStartDate(MalValues.formatDate(startDate));
+        entry.setEndDate(MalValues.formatDate(endDate));
+        entry.setSynopsis(synopsis);
+        entry.setImage(image);
+
+        return entry;
+    }
+}
@@ -0,0 +1,122 @@
+package me.bendoerr.mal.java.client.model;
+
+import lombok.Data;
+import lombok.NonNull;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * A compact, typed counterpart of {@link AnimeListEntry}.
+ * <p>
+ * Ids and counts are {@code int}s, the score a {@code byte}, the list status a {@link ListStatus}, the last update
+ * seconds since the epoch, dates {@link MalDate}s (null when MAL doesn't know them) and tags a set. The repetitive
+ * {@code series_type} and {@code series_status} values are shared through the {@link StringInterner}.
+ */
+@Data
+public class TypedAnimeListEntry {
+
+    private int seriesId;
+
+    private String seriesTitle;
+
+    private String seriesSynonyms;
+
+    private String seriesType;
+
+    private int seriesEpisodes;
+
+    private String seriesStatus;
+
+    private MalDate seriesStart;
+
+    private MalDate seriesEnd;
+
+    private String seriesImage;
+
+    private int listId;
+
+    private int listWatchedEpisodes;
+
+    private MalDate listStart;
+
+    private MalDate listFinished;
+
+    private byte listScore;
+
+    private ListStatus listStatus;
+
+    private boolean listRewatching;
+
+    private int listRewatchingEp;
+
+    private long listLastUpdated;
+
+    private Set<String> listTags = Collections.emptySet();
+
+    /**
+     * @param entry {@code [required]} to convert
+     * @return the typed equivalent
+     * @throws NumberFormatException    if a numeric field isn't a number
+     * @throws IllegalArgumentException if a date field isn't a date
+     */
+    public static TypedAnimeListEntry of(
+            @NonNull final AnimeListEntry entry) {
+
+        final StringInterner interner = StringInterner.shared();
+        final TypedAnimeListEntry typed = new TypedAnimeListEntry();
+
+        typed.setSeriesId(MalValues.parseInt(entry.getSeriesId()));
+        typed.setSeriesTitle(entry.getSeriesTitle());
+        typed.setSeriesSynonyms(entry.getSeriesSynonyms());
+        typed.setSeriesType(interner.intern(entry.getSeriesType()));
+        typed.setSeriesEpisodes(MalValues.parseInt(entry.getSeriesEpisodes()));
+        typed.setSeriesStatus(interner.intern(entry.getSeriesStatus()));
+        typed.setSeriesStart(MalValues.parseDate(entry.getSeriesStart()));
+        typed.setSeriesEnd(MalValues.parseDate(entry.getSeriesEnd()));
+        typed.setSeriesImage(entry.getSeriesImage());
+        typed.setListId(MalValues.parseInt(entry.getListId()));
+        typed.setListWatchedEpisodes(MalValues.parseInt(entry.getListWatchedEpisodes()));
+        typed.setListStart(MalValues.parseDate(entry.getListStart()));
+        typed.setListFinished(MalValues.parseDate(entry.getListFinished()));
+        typed.setListScore((byte) MalValues.parseInt(entry.getListScore()));
+        typed.setListStatus(ListStatus.parse(entry.getListStatus()));
+        typed.setListRewatching(MalValues.parseInt(entry.getListRewatching()) != 0);
+        typed.setListRewatchingEp(MalValues.parseInt(entry.getListRewatchingEp()));
+        typed.setListLastUpdated(entry.getListLastUpdated() == null || entry.getListLastUpdated().trim().isEmpty()
+                ? 0
+                : Long.parseLong(entry.getListLastUpdated().trim()));
+        typed.setListTags(MalValues.parseTags(entry.getListTags()));
+
+        return typed;
+    }
+
+    /**
+     * @return the all-{@code String} equivalent
+     */
+    public AnimeListEntry toAnimeListEntry() {
+        final AnimeListEntry entry = new AnimeListEntry();
+
+        entry.setSeriesId(Integer.toString(seriesId));
+        entry.setSeriesTitle(seriesTitle);
+        entry.setSeriesSynonyms(seriesSynonyms);
+        entry.setSeriesType(seriesType);
+        entry.setSeriesEpisodes(Integer.toString(seriesEpisodes));
+        entry.setSeriesStatus(seriesStatus);
+        entry.setSeriesStart(MalValues.formatDate(seriesStart));
+        entry.setSeriesEnd(MalValues.formatDate(seriesEnd));
+        entry.setSeriesImage(seriesImage);
+        entry.setListId(Integer.toString(listId));
+        entry.setListWatchedEpisodes(Integer.toString(listWatchedEpisodes));
+        entry.setListStart(MalValues.formatDate(listStart));
+        entry.setListFinished(MalValues.formatDate(listFinished));
+        entry.setListScore(Byte.toString(listScore));
+        entry.setListStatus(ListStatus.format(listStatus));
+        entry.setListRewatching(listRewatching ? "1" : "0");
+        entry.setListRewatchingEp(Integer.toString(listRewatchingEp));
+        entry.setListLastUpdated(Long.toString(listLastUpdated));
+        entry.setListTags(MalValues.formatTags(listTags));
+
+        return entry;
+    }
+}
@@ -0,0 +1,128 @@
+package me.bendoerr.mal.java.client.model;
+
+import lombok.Data;
+import lombok.NonNull;
+
+import java.util.Set;
+
+/**
+ * A typed counterpart of {@link AnimeListEntryValues}.
+ * <p>
+ * As with {@link AnimeListEntryValues} a null value is left out of the request and so isn't changed by MAL, which is
+ * why boxed types are used.
+ */
+@Data
+public class TypedAnimeListEntryValues {
+
+    private Integer episode;
+
+    private ListStatus status;
+
+    private Byte score;
+
+    private Integer storageType;
+
+    private Float storageValue;
+
+    private Integer timesRewatched;
+
+    private Integer rewatchValue;
+
+    private MalDate dateStart;
+
+    private MalDate dateFinish;
+
+    private Integer priority;
+
+    private Boolean enableDiscussion;
+
+    private Boolean enableRewatching;
+
+    private String comments;
+
+    private String fansubGroup;
+
+    private Set<String> tags;
+
+    /**
+     * @param values {@code [required]} to convert
+     * @return the typed equivalent
+     * @throws NumberFormatException    if a numeric field isn't a number
+     * @throws IllegalArgumentException if a date field isn't a date or the status is unknown
+     */
+    public static TypedAnimeListEntryValues of(
+            @NonNull final AnimeListEntryValues values) {
+
+        final TypedAnimeListEntryValues typed = new TypedAnimeListEntryValues();
+
+        typed.setEpisode(MalValues.parseInteger(values.getEpisode()));
+        typed.setStatus(status(values.getStatus()));
+        typed.setScore(values.getScore() == null || values.getScore().trim().isEmpty()
+                ? null
+                : Byte.valueOf(values.getScore().trim()));
+        typed.setStorageType(MalValues.parseInteger(values.getStorageType()));
+        typed.setStorageValue(values.getStorageValue() == null || values.getStorageValue().trim().isEmpty()
+                ? null
+                : Float.valueOf(values.getStorageValue().trim()));
+        typed.setTimesRewatched(MalValues.parseInteger(values.getTimesRewatched()));
+        typed.setRewatchValue(MalValues.parseInteger(values.getRewatchValue()));
+        typed.setDateStart(MalValues.parseDate(values.getDateStart()));
+        typed.setDateFinish(MalValues.parseDate(values.getDateFinish()));
+        typed.setPriority(MalValues.parseInteger(values.getPriority()));
+        typed.setEnableDiscussion(flag(values.getEnableDiscussion()));
+        typed.setEnableRewatching(flag(values.getEnableRewatching()));
+        typed.setComments(values.getComments());
+        typed.setFansubGroup(values.getFansubGroup());
+        typed.setTags(values.getTags() == null ? null : MalValues.parseTags(values.getTags()));
+
+        return typed;
+    }
+
+    /**
+     * @return the all-{@code String} equivalent, ready to be submitted
+     */
+    public AnimeListEntryValues toAnimeListEntryValues() {
+        final AnimeListEntryValues values = new AnimeListEntryValues();
+
+        values.setEpisode(MalValues.format(episode));
+        values.setStatus(ListStatus.format(status));
+        values.setScore(score == null ? null : score.toString());
+        values.setStorageType(MalValues.format(storageType));
+        values.setStorageValue(storageValue == null ? null : storageValue.toString());
+        values.setTimesRewatched(MalValues.format(timesRewatched));
+        values.setRewatchValue(MalValues.format(rewatchValue));
+        values.setDateStart(MalValues.formatValuesDate(dateStart));
+        values.setDateFinish(MalValues.formatValuesDate(dateFinish));
+        values.setPriority(MalValues.format(priority));
+        values.setEnableDiscussion(enableDiscussion == null ? null : enableDiscussion ? "1" : "0");
+        values.setEnableRewatching(enableRewatching == null ? null : enableRewatching ? "1" : "0");
+        values.setComments(comments);
+        values.setFansubGroup(fansubGroup);
+        values.setTags(MalValues.formatTags(tags));
+
+        return values;
+    }
+
+    private static ListStatus status(
+            final String value) {
+
+        if (value == null || value.trim().isEmpty())
+            return null;
+
+        final ListStatus status = ListStatus.parse(value);
+
+        if (status == null)
+            throw new IllegalArgumentException("Unknown list status: " + value);
+
+        return status;
+    }
+
+    private static Boolean flag(
+            final String value) {
+
+        if (value == null || value.trim().isEmpty())
+            return null;
+
+        return MalValues.parseInt(value) != 0;
+    }
+}
@@ -0,0 +1,253 @@
+package me.bendoerr.mal.java.client.reactive;
+
+import lombok.NonNull;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * A cold Reactive Streams {@link Publisher} over a lazily pull-parsed {@link Stream}, such as
+ * {@link me.bendoerr.mal.java.client.MALClient#x_animeListStream(String)}, that emits only as many elements as its
+ * subscriber has requested.
+ * <p>
+ * Every subscription opens its own stream, on the first request rather than on subscribing, and pulls elements from it
+ * as demand allows, so a slow subscriber holds the HTTP response open but, beyond what it asked for, no more than
+ * the one parsed entry looked ahead to tell whether the stream has ended. The stream is closed as soon as it is
+ * exhausted, fails, or the subscription is cancelled, which aborts or releases the underlying HTTP exchange. Failures
+ * to open the stream, such as an error status, are signalled with {@code onError}.
+ * <p>
+ * Opening and reading the stream block, so all signals are delivered on the given executor, one at a time but not
+ * necessarily on the same thread. An executor rejecting the work cancels the subscription.
+ *
+ * @param <T> the element type
+ */
+public final class StreamPublisher<T> implements Publisher<T> {
+
+    private final Supplier<? extends Stream<? extends T>> source;
+    private final Executor executor;
+
+    /**
+     * @param source   {@code [required]} opening a new stream for each subscription, may throw to fail it
+     * @param executor {@code [required]} delivering the signals, should allow blocking
+     * @throws NullPointerException if any of the parameters are null
+     */
+    public StreamPublisher(
+            @NonNull final Supplier<? extends Stream<? extends T>> source,
+            @NonNull final Executor executor) {
+
+        this.source = source;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(
+            @NonNull final Subscriber<? super T> subscriber) {
+
+        new StreamSubscription<T>(subscriber, source, executor).schedule();
+    }
+
+    /**
+     * Serializes every signal through a work-in-progress counter: whichever thread moves it from zero submits the drain
+     * loop, which then runs until no further work was signalled while it ran. Fields other than the demand, the
+     * counter and the flags are only touched from the drain loop.
+     */
+    private static final class StreamSubscription<T> implements Subscription, Runnable {
+
+        private final Supplier<? extends Stream<? extends T>> source;
+        private final Executor executor;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+
+        private volatile boolean cancelled;
+        private volatile IllegalArgumentException invalidRequest;
+
+        private Subscriber<? super T> subscriber;
+        private boolean subscribed;
+        private Stream<? extends T> stream;
+        private Iterator<? extends T> iterator;
+
+        private StreamSubscription(
+                final Subscriber<? super T> subscriber,
+                final Supplier<? extends Stream<? extends T>> source,
+                final Executor executor) {
+
+            this.subscriber = subscriber;
+            this.source = source;
+            this.executor = executor;
+        }
+
+        @Override
+        public void request(
+                final long n) {
+
+            if (n <= 0) {
+                // Reported from the drain loop so that it is serialized with every other signal
+                invalidRequest = new IllegalArgumentException("Rule 3.9: request must be positive but was " + n);
+            } else {
+                long current;
+                long next;
+
+                do {
+                    current = demand.get();
+                    next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                } while (!demand.compareAndSet(current, next));
+            }
+
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (work.getAndIncrement() != 0)
+                return;
+
+            try {
+                executor.execute(this);
+            } catch (RuntimeException e) {
+                // Nothing can be signalled without the executor, give up quietly
+                cancelled = true;
+                work.set(0);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+
+            do {
+                drain();
+                missed = work.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (subscriber == null)
+                return;
+
+            if (!subscribed) {
+                subscribed = true;
+
+                try {
+                    subscriber.onSubscribe(this);
+                } catch (Throwable t) {
+                    // Rule 2.13, the subscriber is broken
+                    terminate();
+                    return;
+                }
+            }
+
+            if (cancelled) {
+                terminate();
+                return;
+            }
+
+            if (invalidRequest != null) {
+                fail(invalidRequest);
+                return;
+            }
+
+            final long requested = demand.get();
+
+            if (requested == 0)
+                return;
+
+            long emitted = 0;
+
+            try {
+                if (iterator == null) {
+                    stream = source.get();
+                    iterator = stream.iterator();
+                }
+
+                while (true) {
+                    if (cancelled) {
+                        terminate();
+                        return;
+                    }
+
+                    // Checked before the demand, so that exhausting it with the last element still completes
+                    if (!iterator.hasNext()) {
+                        complete();
+                        return;
+                    }
+
+                    if (emitted == requested)
+                        break;
+
+                    final T next = iterator.next();
+
+                    try {
+                        subscriber.onNext(next);
+                    } catch (Throwable t) {
+                        terminate();
+                        return;
+                    }
+
+                    emitted++;
+                }
+            } catch (Throwable t) {
+                fail(t);
+                return;
+            }
+
+            // Demand that arrived while emitting has scheduled another round of the drain loop
+            if (requested != Long.MAX_VALUE)
+                demand.addAndGet(-emitted);
+        }
+
+        private void complete() {
+            final Subscriber<? super T> s = subscriber;
+            terminate();
+
+            try {
+                s.onComplete();
+            } catch (Throwable ignored) {
+                // Rule 2.13, nothing left to tell it
+            }
+        }
+
+        private void fail(
+                final Throwable t) {
+
+            final Subscriber<? super T> s = subscriber;
+            terminate();
+
+            try {
+                s.onError(t);
+            } catch (Throwable ignored) {
+                // Rule 2.13, nothing left to tell it
+            }
+        }
+
+        /**
+         * Close the stream, releasing its HTTP exchange, and drop the subscriber so that nothing more is signalled.
+         */
+        private void terminate() {
+            cancelled = true;
+            subscriber = null;
+            iterator = null;
+
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (RuntimeException ignored) {
+                    // Already failed or cancelled, the stream was only being released
+                }
+
+                stream = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package me.bendoerr.mal.java.client.search;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.MALClient;
+import me.bendoerr.mal.java.client.model.AnimeEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers anime searches from a {@link TitleIndex} when it is confident, and from {@link MALClient#animeSearch(String)}
+ * otherwise.
+ * <p>
+ * The index answers when its best match scores at least {@code minScore}, with every match scoring at least that. A
+ * miss is searched on MAL and the results are added to the index, so repeated and similar searches are answered
+ * locally. With the default {@code minScore} of {@code 0.8} the index only answers exact titles, or titles starting
+ * with the query's words that are close to the query in length. Lower it to answer more searches locally, at the cost
+ * of returning fewer or different results than MAL would.
+ * <pre>
+ * {@code
+ * TitleIndex index = new TitleIndex().addAnimeList(client.x_animeList("user"));
+ * IndexedSearch search = new IndexedSearch(client, index).minScore(0.7);
+ * List<AnimeEntry> results = search.animeSearch("bleach");
+ * }
+ * </pre>
+ * Instances are thread-safe.
+ */
+public class IndexedSearch {
+
+    private final MALClient client;
+    private final TitleIndex index;
+    private volatile double minScore = 0.8;
+    private volatile int limit = 50;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param client {@code [required]} to search on a miss
+     * @param index  {@code [required]} to search first and to add results from MAL to
+     * @throws NullPointerException if any of the parameters are null
+     */
+    public IndexedSearch(
+            @NonNull final MALClient client,
+            @NonNull final TitleIndex index) {
+
+        this.client = client;
+        this.index = index;
+    }
+
+    /**
+     * @param minScore the best match the index must score to answer, between {@code 0} and {@code 1}, defaults to
+     *                 {@code 0.8}
+     * @return this search
+     * @throws IllegalArgumentException if not between {@code 0} (exclusive) and {@code 1}
+     */
+    public IndexedSearch minScore(
+            final double minScore) {
+
+        if (minScore <= 0 || minScore > 1)
+            throw new IllegalArgumentException("minScore must be in (0, 1]");
+
+        this.minScore = minScore;
+        return this;
+    }
+
+    /**
+     * @param limit maximum number of results answered from the index, defaults to {@code 50}
+     * @return this search
+     * @throws IllegalArgumentException if not positive
+     */
+    public IndexedSearch limit(
+            final int limit) {
+
+        if (limit <= 0)
+            throw new IllegalArgumentException("limit must be positive");
+
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Search the index, falling back to MAL.
+     *
+     * @param query {@code [required]} to search for
+     * @return the matching anime, best first if answered by the index
+     * @throws NullPointerException             if query is null
+     * @throws javax.ws.rs.ClientErrorException if MAL returns a HTTP {@code 4xx} status code
+     * @throws javax.ws.rs.ServerErrorException if MAL returns a HTTP {@code 5xx} status code
+     * @throws javax.ws.rs.ProcessingException  if we can't understand the response
+     * @see MALClient#animeSearch(String)
+     */
+    public List<AnimeEntry> animeSearch(
+            @NonNull final String query) {
+
+        final List<TitleMatch> matches = index.search(query, minScore, limit);
+
+        if (!matches.isEmpty()) {
+            hits.incrementAndGet();
+
+            final List<AnimeEntry> entries = new ArrayList<>(matches.size());
+
+            for (TitleMatch match : matches)
+                entries.add(match.getEntry());
+
+            return entries;
+        }
+
+        misses.incrementAndGet();
+
+        final List<AnimeEntry> results = client.animeSearch(query);
+        index.addAll(results);
+        return results;
+    }
+
+    /**
+     * @return the number of searches answered by the index
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of searches answered by MAL
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the index searched
+     */
+    public TitleIndex getIndex() {
+        return index;
+    }
+}
@@ -0,0 +1,378 @@
+package me.bendoerr.mal.java.client.search;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.model.AnimeEntry;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory fuzzy index of anime titles, built from the {@link AnimeEntry} and {@link AnimeListEntry} records
+ * already fetched from MAL.
+ * <p>
+ * Every title, English title and synonym (synonyms are split on {@code ;}) is normalized to lower case words of
+ * letters and digits with accents removed, so {@code "Pok&eacute;mon: The Movie"} becomes
+ * {@code "pokemon the movie"}. Each word is broken into trigrams, padded like PostgreSQL's {@code pg_trgm} so that
+ * word starts weigh more, and every trigram has a postings list of the titles containing it. A query is scored
+ * against every title sharing a trigram with it:
+ * <ul>
+ *     <li>{@code 1} if the normalized title equals the normalized query,</li>
+ *     <li>{@code 0.5} plus half the trigram similarity if every query word starts a word of the title, so
+ *     {@code "bleach"} matches {@code "Bleach: Memories of Nobody"},</li>
+ *     <li>otherwise the trigram similarity, the Dice coefficient of the two trigram sets, which tolerates typos.</li>
+ * </ul>
+ * An anime scores as its best matching title.
+ * <p>
+ * Adding an anime that is already indexed replaces it, except that an {@link AnimeListEntry} never replaces an
+ * {@link AnimeEntry}, since list entries lack the English title, synopsis, type and status. Replaced titles stay in
+ * the postings but are skipped, so an index that is refreshed often should be rebuilt from time to time.
+ * <p>
+ * Instances are thread-safe. The indexed {@link AnimeEntry} instances are shared between callers and must not be
+ * modified.
+ */
+public class TitleIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern SYNONYMS = Pattern.compile(";");
+
+    private static final ThreadLocal<Accumulator> ACCUMULATOR = ThreadLocal.withInitial(Accumulator::new);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Slot> anime = new HashMap<>();
+    private final List<Title> titles = new ArrayList<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    /**
+     * Index search results.
+     *
+     * @param entries {@code [required]} to index, replacing any indexed anime with the same id
+     * @return this index
+     */
+    public TitleIndex addAll(
+            @NonNull final Collection<AnimeEntry> entries) {
+
+        lock.writeLock().lock();
+
+        try {
+            for (AnimeEntry entry : entries) {
+                if (entry != null && entry.getId() != null)
+                    index(entry, true, entry.getTitle(), entry.getEnglish(), entry.getSynonyms());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        return this;
+    }
+
+    /**
+     * Index an anime list. Anime not yet indexed are indexed with an {@link AnimeEntry} holding just the id, title,
+     * synonyms, episodes, dates and image of the list entry.
+     *
+     * @param entries {@code [required]} to index
+     * @return this index
+     */
+    public TitleIndex addAnimeList(
+            @NonNull final Collection<AnimeListEntry> entries) {
+
+        lock.writeLock().lock();
+
+        try {
+            for (AnimeListEntry entry : entries) {
+                if (entry == null || entry.getSeriesId() == null)
+                    continue;
+
+                final Slot slot = anime.get(entry.getSeriesId());
+
+                if (slot != null && slot.complete)
+                    continue;
+
+                final AnimeEntry converted = new AnimeEntry();
+                converted.setId(entry.getSeriesId());
+                converted.setTitle(entry.getSeriesTitle());
+                converted.setSynonyms(entry.getSeriesSynonyms());
+                converted.setEpisodes(entry.getSeriesEpisodes());
+                converted.setStartDate(entry.getSeriesStart());
+                converted.setEndDate(entry.getSeriesEnd());
+                converted.setImage(entry.getSeriesImage());
+
+                index(converted, false, converted.getTitle(), converted.getSynonyms());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        return this;
+    }
+
+    /**
+     * @return the number of anime indexed
+     */
+    public int size() {
+        lock.readLock().lock();
+
+        try {
+            return anime.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the anime best matching a query.
+     *
+     * @param query    {@code [required]} as passed to {@code animeSearch}
+     * @param minScore lowest score to include, between {@code 0} and {@code 1}
+     * @param limit    maximum number of matches
+     * @return matches ordered from the best, ties broken by the shortest title
+     */
+    public List<TitleMatch> search(
+            @NonNull final String query,
+            final double minScore,
+            final int limit) {
+
+        final String normalized = normalize(query);
+
+        if (normalized.isEmpty() || limit <= 0)
+            return Collections.emptyList();
+
+        final String[] words = normalized.split(" ");
+        final Set<String> grams = trigrams(words);
+        final Map<String, TitleMatch> best = new HashMap<>();
+
+        lock.readLock().lock();
+
+        try {
+            final Accumulator counts = ACCUMULATOR.get();
+            counts.reset(titles.size());
+
+            for (String gram : grams) {
+                final Postings list = postings.get(gram);
+
+                if (list == null)
+                    continue;
+
+                for (int i = 0; i < list.size; i++)
+                    counts.increment(list.ids[i]);
+            }
+
+            for (int i = 0; i < counts.touched; i++) {
+                final int id = counts.ids[i];
+                final Title title = titles.get(id);
+
+                if (!title.slot.live)
+                    continue;
+
+                final int shared = counts.counts[id];
+                final double score = score(normalized, words, grams.size(), title, shared);
+
+                if (score < minScore)
+                    continue;
+
+                final TitleMatch previous = best.get(title.slot.entry.getId());
+
+                if (previous == null || previous.getScore() < score)
+                    best.put(title.slot.entry.getId(), new TitleMatch(title.slot.entry, title.original, score));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        final List<TitleMatch> matches = new ArrayList<>(best.values());
+        matches.sort(Comparator.comparingDouble(TitleMatch::getScore).reversed()
+                .thenComparingInt(m -> m.getTitle().length()));
+
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * Normalize a title or query: accents removed, lower cased, and anything other than letters and digits treated as
+     * a word separator.
+     *
+     * @param text to normalize
+     * @return space separated words, possibly empty
+     */
+    public static String normalize(
+            @NonNull final String text) {
+
+        final String decomposed = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD)).replaceAll("");
+        return SEPARATORS.matcher(decomposed.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static double score(
+            final String query,
+            final String[] words,
+            final int grams,
+            final Title title,
+            final int shared) {
+
+        if (title.normalized.equals(query))
+            return 1;
+
+        final double similarity = 2.0 * shared / (grams + title.grams);
+
+        // Every query word starting a title word shares all of that word's trigrams but the trailing one
+        if (shared >= grams - words.length && startsWords(title.words, words))
+            return 0.5 + similarity / 2;
+
+        return similarity;
+    }
+
+    private static boolean startsWords(
+            final String[] title,
+            final String[] query) {
+
+        for (String word : query) {
+            boolean found = false;
+
+            for (String candidate : title) {
+                if (candidate.startsWith(word)) {
+                    found = true;
+                    break;
+                }
+            }
+
+            if (!found)
+                return false;
+        }
+
+        return true;
+    }
+
+    private static Set<String> trigrams(
+            final String[] words) {
+
+        final Set<String> grams = new LinkedHashSet<>();
+
+        for (String word : words) {
+            final String padded = "  " + word + " ";
+
+            for (int i = 0; i + 3 <= padded.length(); i++)
+                grams.add(padded.substring(i, i + 3));
+        }
+
+        return grams;
+    }
+
+    private void index(
+            final AnimeEntry entry,
+            final boolean complete,
+            final String... names) {
+
+        final Slot previous = anime.get(entry.getId());
+
+        if (previous != null)
+            previous.live = false;
+
+        final Slot slot = new Slot(entry, complete);
+        anime.put(entry.getId(), slot);
+
+        final Set<String> seen = new LinkedHashSet<>();
+
+        for (String name : names) {
+            if (name == null)
+                continue;
+
+            for (String synonym : SYNONYMS.split(name)) {
+                final String original = synonym.trim();
+                final String normalized = normalize(original);
+
+                if (normalized.isEmpty() || !seen.add(normalized))
+                    continue;
+
+                final String[] words = normalized.split(" ");
+                final Set<String> grams = trigrams(words);
+                final int id = titles.size();
+
+                titles.add(new Title(slot, original, normalized, words, grams.size()));
+
+                for (String gram : grams)
+                    postings.computeIfAbsent(gram, g -> new Postings()).add(id);
+            }
+        }
+    }
+
+    private static final class Slot {
+        final AnimeEntry entry;
+        final boolean complete;
+        volatile boolean live = true;
+
+        Slot(final AnimeEntry entry, final boolean complete) {
+            this.entry = entry;
+            this.complete = complete;
+        }
+    }
+
+    private static final class Title {
+        final Slot slot;
+        final String original;
+        final String normalized;
+        final String[] words;
+        final int grams;
+
+        Title(final Slot slot, final String original, final String normalized, final String[] words, final int grams) {
+            this.slot = slot;
+            this.original = original;
+            this.normalized = normalized;
+            this.words = words;
+            this.grams = grams;
+        }
+    }
+
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(final int id) {
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, size * 2);
+
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * Per-thread shared trigram counts, reset by clearing only the titles the previous query touched.
+     */
+    private static final class Accumulator {
+        int[] counts = new int[0];
+        int[] ids = new int[16];
+        int touched;
+
+        void reset(final int titles) {
+            if (counts.length < titles) {
+                counts = new int[Math.max(titles, counts.length * 2)];
+            } else {
+                for (int i = 0; i < touched; i++)
+                    counts[ids[i]] = 0;
+            }
+
+            touched = 0;
+        }
+
+        void increment(final int id) {
+            if (counts[id]++ == 0) {
+                if (touched == ids.length)
+                    ids = Arrays.copyOf(ids, touched * 2);
+
+                ids[touched++] = id;
+            }
+        }
+    }
+}
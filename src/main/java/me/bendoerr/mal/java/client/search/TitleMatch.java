@@ -0,0 +1,23 @@
+package me.bendoerr.mal.java.client.search;
+
+import lombok.Value;
+import me.bendoerr.mal.java.client.model.AnimeEntry;
+
+/**
+ * An anime found by a {@link TitleIndex} search.
+ */
+@Value
+public class TitleMatch {
+
+    AnimeEntry entry;
+
+    /**
+     * The title, English title or synonym that matched best.
+     */
+    String title;
+
+    /**
+     * How well the title matched, from {@code 0} to {@code 1} for an exact match.
+     */
+    double score;
+}
@@ -0,0 +1,263 @@
+package me.bendoerr.mal.java.client.search;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.MALClient;
+import me.bendoerr.mal.java.client.model.AnimeEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Search-as-you-type over {@link MALClient#animeSearchAsync(String)}, spending as few remote searches as possible on
+ * the queries a user types on the way to the one they want.
+ * <p>
+ * Each user (a UI text field) gets a {@link TypeaheadSession}. A query is only sent to MAL once the session has been
+ * quiet for the debounce delay, and a newer query in the same session supersedes the previous one, whether it is still
+ * waiting out its delay or already in flight, in which case it is cancelled. Queries are answered locally, without
+ * waiting, whenever possible:
+ * <ul>
+ *     <li>from the results of the same query, by any session,</li>
+ *     <li>by refining the results of a shorter prefix of the query, at least {@code minRefineLength} characters long,
+ *     to the anime whose title, English title or a synonym has a word starting with each word of the query.</li>
+ * </ul>
+ * Refinement assumes MAL returns every anime matching a query, which doesn't hold for very short and so very broad
+ * queries, hence {@code minRefineLength}. Queries are compared {@link TitleIndex#normalize(String) normalized} and
+ * the results of the most recent {@code maxCachedQueries} are kept.
+ * <pre>
+ * {@code
+ * TypeaheadSearch typeahead = new TypeaheadSearch(client, 250, TimeUnit.MILLISECONDS, 1000, 3);
+ * TypeaheadSession session = typeahead.session();
+ * textField.onChange(text -> session.query(text).thenAccept(this::showSuggestions));
+ * }
+ * </pre>
+ * Instances are thread-safe. The results are shared between sessions and must not be modified.
+ */
+public class TypeaheadSearch implements AutoCloseable {
+
+    private final MALClient client;
+    private final long debounceNanos;
+    private final int minRefineLength;
+    private final Map<String, List<AnimeEntry>> results;
+    private final ScheduledExecutorService timer;
+
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong remoteCalls = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong refined = new AtomicLong();
+    private final AtomicLong debounced = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+
+    /**
+     * @param client           {@code [required]} to search with
+     * @param debounce         how long a session must be quiet before its query is sent, may be {@code 0}
+     * @param unit             {@code [required]} of the debounce
+     * @param maxCachedQueries number of query results kept for reuse and refinement
+     * @param minRefineLength  shortest normalized prefix whose results may be refined
+     * @throws NullPointerException     if any of the required parameters are null
+     * @throws IllegalArgumentException if debounce is negative or maxCachedQueries or minRefineLength not positive
+     */
+    public TypeaheadSearch(
+            @NonNull final MALClient client,
+            final long debounce,
+            @NonNull final TimeUnit unit,
+            final int maxCachedQueries,
+            final int minRefineLength) {
+
+        if (debounce < 0)
+            throw new IllegalArgumentException("debounce must not be negative");
+
+        if (maxCachedQueries <= 0)
+            throw new IllegalArgumentException("maxCachedQueries must be positive");
+
+        if (minRefineLength <= 0)
+            throw new IllegalArgumentException("minRefineLength must be positive");
+
+        this.client = client;
+        this.debounceNanos = unit.toNanos(debounce);
+        this.minRefineLength = minRefineLength;
+        this.results = new LruMap(maxCachedQueries);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "mal-client-typeahead");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return a new session for one user typing queries
+     */
+    public TypeaheadSession session() {
+        return new TypeaheadSession(this);
+    }
+
+    /**
+     * @return a snapshot of how many queries were answered and how
+     */
+    public TypeaheadStats getStats() {
+        return new TypeaheadStats(queries.get(), remoteCalls.get(), cacheHits.get(), refined.get(), debounced.get(),
+                cancelled.get());
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * @return the results of a query answered without MAL, or null if it must be sent
+     */
+    List<AnimeEntry> local(
+            final String normalized) {
+
+        List<AnimeEntry> prefix = null;
+
+        synchronized (results) {
+            final List<AnimeEntry> exact = results.get(normalized);
+
+            if (exact != null) {
+                cacheHits.incrementAndGet();
+                return exact;
+            }
+
+            for (int length = normalized.length() - 1; length >= minRefineLength && prefix == null; length--)
+                prefix = results.get(normalized.substring(0, length));
+        }
+
+        if (prefix == null)
+            return null;
+
+        final String[] words = normalized.split(" ");
+        final List<AnimeEntry> matches = new ArrayList<>();
+
+        for (AnimeEntry entry : prefix) {
+            if (matches(entry, words))
+                matches.add(entry);
+        }
+
+        refined.incrementAndGet();
+
+        final List<AnimeEntry> refinedResults = Collections.unmodifiableList(matches);
+
+        synchronized (results) {
+            results.put(normalized, refinedResults);
+        }
+
+        return refinedResults;
+    }
+
+    /**
+     * Search MAL, caching the results under the normalized query.
+     */
+    CompletableFuture<List<AnimeEntry>> remote(
+            final String query,
+            final String normalized) {
+
+        remoteCalls.incrementAndGet();
+
+        final CompletableFuture<List<AnimeEntry>> search = client.animeSearchAsync(query);
+        final CompletableFuture<List<AnimeEntry>> cached = search.thenApply(entries -> {
+            final List<AnimeEntry> shared = Collections.unmodifiableList(entries);
+
+            synchronized (results) {
+                results.put(normalized, shared);
+            }
+
+            return shared;
+        });
+
+        cached.whenComplete((r, t) -> {
+            if (cached.isCancelled())
+                search.cancel(true);
+        });
+
+        return cached;
+    }
+
+    ScheduledFuture<?> schedule(
+            final Runnable task) {
+
+        return timer.schedule(task, debounceNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void onQuery() {
+        queries.incrementAndGet();
+    }
+
+    void onDebounced() {
+        debounced.incrementAndGet();
+    }
+
+    void onCancelled() {
+        cancelled.incrementAndGet();
+    }
+
+    private static boolean matches(
+            final AnimeEntry entry,
+            final String[] words) {
+
+        if (matches(entry.getTitle(), words) || matches(entry.getEnglish(), words))
+            return true;
+
+        if (entry.getSynonyms() != null) {
+            for (String synonym : entry.getSynonyms().split(";")) {
+                if (matches(synonym, words))
+                    return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return true if each word starts a word of the title
+     */
+    private static boolean matches(
+            final String title,
+            final String[] words) {
+
+        if (title == null)
+            return false;
+
+        final String normalized = " " + TitleIndex.normalize(title);
+
+        for (String word : words) {
+            if (!normalized.contains(" " + word))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Query results in access order, evicting the least recently used beyond the maximum.
+     */
+    private static final class LruMap extends LinkedHashMap<String, List<AnimeEntry>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxCachedQueries;
+
+        private LruMap(
+                final int maxCachedQueries) {
+
+            super(16, 0.75f, true);
+            this.maxCachedQueries = maxCachedQueries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<String, List<AnimeEntry>> eldest) {
+
+            return size() > maxCachedQueries;
+        }
+    }
+}
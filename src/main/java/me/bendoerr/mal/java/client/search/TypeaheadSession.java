@@ -0,0 +1,161 @@
+package me.bendoerr.mal.java.client.search;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.model.AnimeEntry;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * The queries of one user typing into one search field, see {@link TypeaheadSearch}.
+ * <p>
+ * Instances are thread-safe, though queries are expected to come from one thread in the order they were typed.
+ */
+public class TypeaheadSession {
+
+    private final TypeaheadSearch search;
+
+    private Pending pending;
+
+    TypeaheadSession(
+            final TypeaheadSearch search) {
+
+        this.search = search;
+    }
+
+    /**
+     * Search for what the user has typed so far, superseding this session's previous query.
+     * <p>
+     * The returned future is cancelled if a newer query supersedes it. Cancelling it cancels the search if it has
+     * been sent. Failures complete it exceptionally with the exceptions {@code MALClient.animeSearch} throws.
+     *
+     * @param query {@code [required]} as typed
+     * @return the future results, completed immediately if answered locally
+     * @throws NullPointerException if query is null
+     */
+    public CompletableFuture<List<AnimeEntry>> query(
+            @NonNull final String query) {
+
+        search.onQuery();
+
+        final String normalized = TitleIndex.normalize(query);
+        final Pending next;
+
+        synchronized (this) {
+            supersede();
+
+            if (normalized.isEmpty())
+                return CompletableFuture.completedFuture(Collections.emptyList());
+
+            final List<AnimeEntry> local = search.local(normalized);
+
+            if (local != null)
+                return CompletableFuture.completedFuture(local);
+
+            next = new Pending();
+            pending = next;
+            next.scheduled = search.schedule(() -> send(next, query, normalized));
+        }
+
+        next.result.whenComplete((r, t) -> {
+            if (next.result.isCancelled())
+                cancel(next);
+        });
+
+        return next.result;
+    }
+
+    /**
+     * Cancel this session's query, if any, for instance once the user has picked a result.
+     */
+    public void cancel() {
+        synchronized (this) {
+            supersede();
+        }
+    }
+
+    private void send(
+            final Pending sending,
+            final String query,
+            final String normalized) {
+
+        final CompletableFuture<List<AnimeEntry>> remote;
+
+        synchronized (this) {
+            if (pending != sending || sending.result.isDone())
+                return;
+
+            // Another session may have fetched this or a prefix of it while we waited
+            final List<AnimeEntry> local = search.local(normalized);
+
+            if (local != null) {
+                pending = null;
+                sending.result.complete(local);
+                return;
+            }
+
+            remote = search.remote(query, normalized);
+            sending.remote = remote;
+        }
+
+        remote.whenComplete((r, t) -> {
+            synchronized (this) {
+                if (pending == sending)
+                    pending = null;
+            }
+
+            if (t != null)
+                sending.result.completeExceptionally(
+                        t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+            else
+                sending.result.complete(r);
+        });
+    }
+
+    private void supersede() {
+        final Pending previous = pending;
+        pending = null;
+
+        if (previous != null)
+            previous.result.cancel(false);
+    }
+
+    /**
+     * Stop a query whose result was cancelled, by a newer query or by the caller.
+     */
+    private void cancel(
+            final Pending cancelled) {
+
+        final CompletableFuture<List<AnimeEntry>> remote;
+
+        synchronized (this) {
+            if (pending == cancelled)
+                pending = null;
+
+            // A send already running but not yet past the lock sees the result cancelled and won't search
+            cancelled.scheduled.cancel(false);
+            remote = cancelled.remote;
+
+            if (remote == null) {
+                search.onDebounced();
+                return;
+            }
+        }
+
+        if (remote != null && remote.cancel(true))
+            search.onCancelled();
+    }
+
+    private static final class Pending {
+        final CompletableFuture<List<AnimeEntry>> result = new CompletableFuture<>();
+        ScheduledFuture<?> scheduled;
+
+        /**
+         * The search, set under the session's lock once sent, whether or not the scheduled task has finished.
+         */
+        CompletableFuture<List<AnimeEntry>> remote;
+    }
+}
@@ -0,0 +1,45 @@
+package me.bendoerr.mal.java.client.search;
+
+import lombok.Value;
+
+/**
+ * A point-in-time snapshot of {@link TypeaheadSearch} counters.
+ */
+@Value
+public class TypeaheadStats {
+
+    long queries;
+
+    /**
+     * Searches sent to MAL.
+     */
+    long remoteCalls;
+
+    /**
+     * Queries answered with the results of the same query.
+     */
+    long cacheHits;
+
+    /**
+     * Queries answered by refining the results of a shorter query.
+     */
+    long refined;
+
+    /**
+     * Queries superseded by a newer query before being sent.
+     */
+    long debounced;
+
+    /**
+     * Queries superseded, or cancelled by the caller, after being sent. These aren't saved calls since MAL already
+     * received them.
+     */
+    long cancelled;
+
+    /**
+     * @return the number of queries answered without a search on MAL
+     */
+    public long getSavedCalls() {
+        return cacheHits + refined + debounced;
+    }
+}
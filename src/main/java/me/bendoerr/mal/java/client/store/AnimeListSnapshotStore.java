@@ -0,0 +1,491 @@
+package me.bendoerr.mal.java.client.store;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.list.AnimeListSnapshot;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A persistent, memory-mapped store of fetched anime lists.
+ * <p>
+ * Lists are written in bulk to a compact, column-oriented binary file and read back zero-copy through a
+ * {@link MappedByteBuffer}. Entries are returned as lightweight read-only {@link AnimeListEntry} views which decode
+ * their values from the mapped file on access, so opening a store costs next to nothing in time or heap regardless of
+ * how many lists it holds.
+ * <p>
+ * <b>File format</b> (big-endian)
+ * <pre>
+ * header       int magic 'MALS', int version, int fields, int users, int strings, int entries,
+ *              long stringOffsets, long stringData, long columns, long userIndex
+ * stringOffsets int[strings + 1], offsets of each string into stringData
+ * stringData   UTF-8 bytes of every distinct string value, each stored once
+ * columns      one int[entries] column per field, in {@link AnimeListEntry} field order
+ * userIndex    (int username, int firstEntry, int entryCount) per user, sorted by username
+ * </pre>
+ * Each column cell is {@code -1} for null, a non-negative literal for values that are canonical non-negative
+ * integers (ids, counts, scores, statuses, timestamps) or {@code -2 - n} for string {@code n} of the dictionary.
+ * <p>
+ * Stores are immutable: to update one, {@link #write(Path, Collection) write} a new file and {@link #open(Path) open}
+ * it. Writes go to a temporary file which is atomically moved into place. A single store file is limited to 2GB.
+ * Stores are thread-safe.
+ */
+public class AnimeListSnapshotStore implements AutoCloseable {
+
+    static final int MAGIC = 0x4D414C53;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 6 * 4 + 4 * 8;
+
+    /**
+     * Column order and accessors. Getters are used, rather than the JAXB binding, so that entries which are themselves
+     * views of a store can be written to a new store.
+     */
+    private static final Map<String, Function<AnimeListEntry, String>> ACCESSORS = new LinkedHashMap<>();
+
+    static {
+        ACCESSORS.put("series_animedb_id", AnimeListEntry::getSeriesId);
+        ACCESSORS.put("series_title", AnimeListEntry::getSeriesTitle);
+        ACCESSORS.put("series_synonyms", AnimeListEntry::getSeriesSynonyms);
+        ACCESSORS.put("series_type", AnimeListEntry::getSeriesType);
+        ACCESSORS.put("series_episodes", AnimeListEntry::getSeriesEpisodes);
+        ACCESSORS.put("series_status", AnimeListEntry::getSeriesStatus);
+        ACCESSORS.put("series_start", AnimeListEntry::getSeriesStart);
+        ACCESSORS.put("series_end", AnimeListEntry::getSeriesEnd);
+        ACCESSORS.put("series_image", AnimeListEntry::getSeriesImage);
+        ACCESSORS.put("my_id", AnimeListEntry::getListId);
+        ACCESSORS.put("my_watched_episodes", AnimeListEntry::getListWatchedEpisodes);
+        ACCESSORS.put("my_start_date", AnimeListEntry::getListStart);
+        ACCESSORS.put("my_finish_date", AnimeListEntry::getListFinished);
+        ACCESSORS.put("my_score", AnimeListEntry::getListScore);
+        ACCESSORS.put("my_status", AnimeListEntry::getListStatus);
+        ACCESSORS.put("my_rewatching", AnimeListEntry::getListRewatching);
+        ACCESSORS.put("my_rewatching_ep", AnimeListEntry::getListRewatchingEp);
+        ACCESSORS.put("my_last_updated", AnimeListEntry::getListLastUpdated);
+        ACCESSORS.put("my_tags", AnimeListEntry::getListTags);
+    }
+
+    static final List<String> FIELDS = new ArrayList<>(ACCESSORS.keySet());
+
+    private static final int NULL = -1;
+
+    private final ByteBuffer buffer;
+    private final int users;
+    private final int entries;
+    private final int stringOffsets;
+    private final int stringData;
+    private final int columns;
+    private final int userIndex;
+
+    private volatile boolean closed;
+
+    private AnimeListSnapshotStore(
+            final ByteBuffer buffer) throws IOException {
+
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not an anime list snapshot store");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException("Unsupported snapshot store version " + buffer.getInt(4));
+        if (buffer.getInt(8) != FIELDS.size())
+            throw new IOException("Snapshot store has " + buffer.getInt(8) + " fields, expected " + FIELDS.size());
+
+        this.buffer = buffer;
+        this.users = buffer.getInt(12);
+        this.entries = buffer.getInt(20);
+        this.stringOffsets = (int) buffer.getLong(24);
+        this.stringData = (int) buffer.getLong(32);
+        this.columns = (int) buffer.getLong(40);
+        this.userIndex = (int) buffer.getLong(48);
+    }
+
+    /**
+     * Map a store file into memory.
+     *
+     * @param path {@code [required]} of a file written by {@link #write(Path, Collection)}
+     * @return the store
+     * @throws IOException if the file can't be read or isn't a store
+     */
+    public static AnimeListSnapshotStore open(
+            @NonNull final Path path) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Snapshot store is too large to map: " + path);
+
+            return new AnimeListSnapshotStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Write snapshots, such as those of an {@code AnimeListRefresher}, to a new store file replacing any existing one.
+     *
+     * @param path      {@code [required]} of the store file
+     * @param snapshots {@code [required]} to write, one per user
+     * @throws IOException if the file can't be written
+     */
+    public static void write(
+            @NonNull final Path path,
+            @NonNull final Collection<AnimeListSnapshot> snapshots) throws IOException {
+
+        final Map<String, Collection<AnimeListEntry>> lists = new LinkedHashMap<>();
+
+        for (AnimeListSnapshot snapshot : snapshots)
+            lists.put(snapshot.getUsername(), snapshot.getEntries().values());
+
+        write(path, lists);
+    }
+
+    /**
+     * Write anime lists to a new store file replacing any existing one.
+     *
+     * @param path  {@code [required]} of the store file
+     * @param lists {@code [required]} entries keyed by username
+     * @throws IOException if the file can't be written
+     */
+    public static void write(
+            @NonNull final Path path,
+            @NonNull final Map<String, ? extends Collection<AnimeListEntry>> lists) throws IOException {
+
+        final List<Function<AnimeListEntry, String>> accessors = new ArrayList<>(ACCESSORS.values());
+        final Map<String, Integer> dictionary = new HashMap<>();
+        final List<byte[]> strings = new ArrayList<>();
+
+        final List<String> usernames = new ArrayList<>(lists.keySet());
+        final List<byte[]> usernameBytes = new ArrayList<>();
+        for (String username : usernames)
+            usernameBytes.add(username.getBytes(StandardCharsets.UTF_8));
+
+        final Integer[] order = new Integer[usernames.size()];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, Comparator.comparing(usernameBytes::get, AnimeListSnapshotStore::compare));
+
+        int entryCount = 0;
+        for (Collection<AnimeListEntry> list : lists.values())
+            entryCount += list.size();
+
+        final int[][] cells = new int[FIELDS.size()][entryCount];
+        final int[] userRecords = new int[usernames.size() * 3];
+
+        int entry = 0;
+        for (int u = 0; u < order.length; u++) {
+            final String username = usernames.get(order[u]);
+            final Collection<AnimeListEntry> list = lists.get(username);
+
+            userRecords[u * 3] = intern(username, dictionary, strings);
+            userRecords[u * 3 + 1] = entry;
+            userRecords[u * 3 + 2] = list.size();
+
+            for (AnimeListEntry record : list) {
+                for (int f = 0; f < accessors.size(); f++)
+                    cells[f][entry] = encode(accessors.get(f).apply(record), dictionary, strings);
+                entry++;
+            }
+        }
+
+        long stringBytes = 0;
+        for (byte[] string : strings)
+            stringBytes += string.length;
+
+        final long stringOffsetsAt = HEADER_SIZE;
+        final long stringDataAt = stringOffsetsAt + 4L * (strings.size() + 1);
+        final long columnsAt = stringDataAt + stringBytes;
+        final long userIndexAt = columnsAt + 4L * FIELDS.size() * entryCount;
+        final long size = userIndexAt + 4L * userRecords.length;
+
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Snapshot store would be too large to map: " + size + " bytes");
+
+        final Path temp = Files.createTempFile(
+                path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+
+        try {
+            try (OutputStream file = Files.newOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(FIELDS.size());
+                out.writeInt(usernames.size());
+                out.writeInt(strings.size());
+                out.writeInt(entryCount);
+                out.writeLong(stringOffsetsAt);
+                out.writeLong(stringDataAt);
+                out.writeLong(columnsAt);
+                out.writeLong(userIndexAt);
+
+                int offset = 0;
+                for (byte[] string : strings) {
+                    out.writeInt(offset);
+                    offset += string.length;
+                }
+                out.writeInt(offset);
+
+                for (byte[] string : strings)
+                    out.write(string);
+
+                for (int[] column : cells) {
+                    for (int cell : column)
+                        out.writeInt(cell);
+                }
+
+                for (int record : userRecords)
+                    out.writeInt(record);
+            }
+
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Get the stored anime list of a user.
+     *
+     * @param username {@code [required]} whose list to get
+     * @return read-only views of the entries in list order, or null if the user isn't in the store
+     * @throws IllegalStateException if the store is closed
+     */
+    public List<AnimeListEntry> get(
+            @NonNull final String username) {
+
+        final int user = find(username.getBytes(StandardCharsets.UTF_8));
+
+        if (user < 0)
+            return null;
+
+        final int first = buffer.getInt(userIndex + user * 12 + 4);
+        final int count = buffer.getInt(userIndex + user * 12 + 8);
+
+        return new AbstractList<AnimeListEntry>() {
+            @Override
+            public AnimeListEntry get(final int index) {
+                if (index < 0 || index >= count)
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+
+                return new MappedAnimeListEntry(AnimeListSnapshotStore.this, first + index);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Get the stored anime list of a user as a snapshot, e.g. to seed an {@code AnimeListRefresher} on restart.
+     *
+     * @param username {@code [required]} whose list to get
+     * @return the snapshot, or null if the user isn't in the store
+     */
+    public AnimeListSnapshot getSnapshot(
+            @NonNull final String username) {
+
+        final List<AnimeListEntry> list = get(username);
+        return list == null ? null : AnimeListSnapshot.of(username, list);
+    }
+
+    /**
+     * @return every username in the store, in the store's (byte-wise) order
+     */
+    public List<String> getUsernames() {
+        checkOpen();
+
+        return new AbstractList<String>() {
+            @Override
+            public String get(final int index) {
+                if (index < 0 || index >= users)
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + users);
+
+                return string(buffer.getInt(userIndex + index * 12));
+            }
+
+            @Override
+            public int size() {
+                return users;
+            }
+        };
+    }
+
+    /**
+     * @return the number of entries across all lists
+     */
+    public int getEntryCount() {
+        return entries;
+    }
+
+    /**
+     * Release the store. The mapping itself is released once the store and every view of it are garbage collected.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Decode a field of an entry.
+     */
+    String value(
+            final int entry,
+            final int field) {
+
+        checkOpen();
+        final int cell = buffer.getInt(columns + (field * entries + entry) * 4);
+
+        if (cell == NULL)
+            return null;
+        if (cell >= 0)
+            return Integer.toString(cell);
+
+        return string(-2 - cell);
+    }
+
+    private String string(
+            final int index) {
+
+        final int start = buffer.getInt(stringOffsets + index * 4);
+        final int end = buffer.getInt(stringOffsets + index * 4 + 4);
+        final byte[] bytes = new byte[end - start];
+
+        final ByteBuffer view = buffer.duplicate();
+        view.position(stringData + start);
+        view.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int find(
+            final byte[] username) {
+
+        checkOpen();
+        int low = 0;
+        int high = users - 1;
+
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int index = buffer.getInt(userIndex + mid * 12);
+            final int start = buffer.getInt(stringOffsets + index * 4);
+            final int end = buffer.getInt(stringOffsets + index * 4 + 4);
+            final int cmp = compare(stringData + start, end - start, username);
+
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+
+        return -1;
+    }
+
+    private int compare(
+            final int offset,
+            final int length,
+            final byte[] other) {
+
+        final int n = Math.min(length, other.length);
+
+        for (int i = 0; i < n; i++) {
+            final int cmp = (buffer.get(offset + i) & 0xff) - (other[i] & 0xff);
+
+            if (cmp != 0)
+                return cmp;
+        }
+
+        return length - other.length;
+    }
+
+    private void checkOpen() {
+        if (closed)
+            throw new IllegalStateException("Snapshot store is closed");
+    }
+
+    private static int compare(
+            final byte[] a,
+            final byte[] b) {
+
+        final int n = Math.min(a.length, b.length);
+
+        for (int i = 0; i < n; i++) {
+            final int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+
+            if (cmp != 0)
+                return cmp;
+        }
+
+        return a.length - b.length;
+    }
+
+    private static int encode(
+            final String value,
+            final Map<String, Integer> dictionary,
+            final List<byte[]> strings) {
+
+        if (value == null)
+            return NULL;
+
+        final int literal = literal(value);
+
+        if (literal >= 0)
+            return literal;
+
+        return -2 - intern(value, dictionary, strings);
+    }
+
+    private static int intern(
+            final String value,
+            final Map<String, Integer> dictionary,
+            final List<byte[]> strings) {
+
+        return dictionary.computeIfAbsent(value, v -> {
+            strings.add(v.getBytes(StandardCharsets.UTF_8));
+            return strings.size() - 1;
+        });
+    }
+
+    /**
+     * @return the value as an int if its canonical decimal form is exactly the value, otherwise {@code -1}
+     */
+    private static int literal(
+            final String value) {
+
+        final int length = value.length();
+
+        if (length == 0 || length > 10 || (length > 1 && value.charAt(0) == '0'))
+            return -1;
+
+        long n = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+
+            if (c < '0' || c > '9')
+                return -1;
+
+            n = n * 10 + (c - '0');
+        }
+
+        return n <= Integer.MAX_VALUE ? (int) n : -1;
+    }
+}
@@ -0,0 +1,248 @@
+package me.bendoerr.mal.java.client.store;
+
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+
+/**
+ * A read-only {@link AnimeListEntry} view onto an entry of an {@link AnimeListSnapshotStore}.
+ * <p>
+ * None of the inherited fields are used, every getter decodes its value from the mapped store on access. Equality,
+ * hashing and {@code toString} go through the getters and so behave exactly as for a fetched entry.
+ */
+final class MappedAnimeListEntry extends AnimeListEntry {
+
+    private static final int SERIES_ID = column("series_animedb_id");
+    private static final int SERIES_TITLE = column("series_title");
+    private static final int SERIES_SYNONYMS = column("series_synonyms");
+    private static final int SERIES_TYPE = column("series_type");
+    private static final int SERIES_EPISODES = column("series_episodes");
+    private static final int SERIES_STATUS = column("series_status");
+    private static final int SERIES_START = column("series_start");
+    private static final int SERIES_END = column("series_end");
+    private static final int SERIES_IMAGE = column("series_image");
+    private static final int LIST_ID = column("my_id");
+    private static final int LIST_WATCHED_EPISODES = column("my_watched_episodes");
+    private static final int LIST_START = column("my_start_date");
+    private static final int LIST_FINISHED = column("my_finish_date");
+    private static final int LIST_SCORE = column("my_score");
+    private static final int LIST_STATUS = column("my_status");
+    private static final int LIST_REWATCHING = column("my_rewatching");
+    private static final int LIST_REWATCHING_EP = column("my_rewatching_ep");
+    private static final int LIST_LAST_UPDATED = column("my_last_updated");
+    private static final int LIST_TAGS = column("my_tags");
+
+    private final AnimeListSnapshotStore store;
+    private final int entry;
+
+    MappedAnimeListEntry(
+            final AnimeListSnapshotStore store,
+            final int entry) {
+
+        this.store = store;
+        this.entry = entry;
+    }
+
+    @Override
+    public String getSeriesId() {
+        return store.value(entry, SERIES_ID);
+    }
+
+    @Override
+    public String getSeriesTitle() {
+        return store.value(entry, SERIES_TITLE);
+    }
+
+    @Override
+    public String getSeriesSynonyms() {
+        return store.value(entry, SERIES_SYNONYMS);
+    }
+
+    @Override
+    public String getSeriesType() {
+        return store.value(entry, SERIES_TYPE);
+    }
+
+    @Override
+    public String getSeriesEpisodes() {
+        return store.value(entry, SERIES_EPISODES);
+    }
+
+    @Override
+    public String getSeriesStatus() {
+        return store.value(entry, SERIES_STATUS);
+    }
+
+    @Override
+    public String getSeriesStart() {
+        return store.value(entry, SERIES_START);
+    }
+
+    @Override
+    public String getSeriesEnd() {
+        return store.value(entry, SERIES_END);
+    }
+
+    @Override
+    public String getSeriesImage() {
+        return store.value(entry, SERIES_IMAGE);
+    }
+
+    @Override
+    public String getListId() {
+        return store.value(entry, LIST_ID);
+    }
+
+    @Override
+    public String getListWatchedEpisodes() {
+        return store.value(entry, LIST_WATCHED_EPISODES);
+    }
+
+    @Override
+    public String getListStart() {
+        return store.value(entry, LIST_START);
+    }
+
+    @Override
+    public String getListFinished() {
+        return store.value(entry, LIST_FINISHED);
+    }
+
+    @Override
+    public String getListScore() {
+        return store.value(entry, LIST_SCORE);
+    }
+
+    @Override
+    public String getListStatus() {
+        return store.value(entry, LIST_STATUS);
+    }
+
+    @Override
+    public String getListRewatching() {
+        return store.value(entry, LIST_REWATCHING);
+    }
+
+    @Override
+    public String getListRewatchingEp() {
+        return store.value(entry, LIST_REWATCHING_EP);
+    }
+
+    @Override
+    public String getListLastUpdated() {
+        return store.value(entry, LIST_LAST_UPDATED);
+    }
+
+    @Override
+    public String getListTags() {
+        return store.value(entry, LIST_TAGS);
+    }
+
+    @Override
+    public void setSeriesId(final String seriesId) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setSeriesTitle(final String seriesTitle) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setSeriesSynonyms(final String seriesSynonyms) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setSeriesType(final String seriesType) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setSeriesEpisodes(final String seriesEpisodes) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setSeriesStatus(final String seriesStatus) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setSeriesStart(final String seriesStart) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setSeriesEnd(final String seriesEnd) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setSeriesImage(final String seriesImage) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setListId(final String listId) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setListWatchedEpisodes(final String listWatchedEpisodes) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setListStart(final String listStart) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setListFinished(final String listFinished) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setListScore(final String listScore) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setListStatus(final String listStatus) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setListRewatching(final String listRewatching) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setListRewatchingEp(final String listRewatchingEp) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setListLastUpdated(final String listLastUpdated) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setListTags(final String listTags) {
+        throw readOnly();
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Entries of a snapshot store are read-only");
+    }
+
+    private static int column(
+            final String element) {
+
+        final int column = AnimeListSnapshotStore.FIELDS.indexOf(element);
+
+        if (column < 0)
+            throw new IllegalStateException("AnimeListEntry has no element " + element);
+
+        return column;
+    }
+}
@@ -0,0 +1,109 @@
+package me.bendoerr.mal.java.client.xml;
+
+import lombok.NonNull;
+import me.bendoerr.mal.java.client.model.AnimeListEntryValues;
+
+import javax.ws.rs.ProcessingException;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * A hand-written StAX writer for {@link AnimeListEntryValues}, an alternative to marshalling them with JAXB.
+ * <p>
+ * Produces the same {@code <entry>} document JAXB would, in the same element order and likewise leaving out null
+ * values, but without any reflection. {@link #writeForm(String, AnimeListEntryValues, OutputStream)} goes a step
+ * further and form encodes the document straight into a request body, so it is never held as a {@code String}.
+ */
+public final class AnimeListEntryValuesWriter {
+
+    private static final XMLOutputFactory FACTORY = XMLOutputFactory.newInstance();
+
+    private AnimeListEntryValuesWriter() {
+    }
+
+    /**
+     * @param values {@code [required]} to write
+     * @param out    {@code [required]} to write the XML document to, flushed but not closed
+     * @throws NullPointerException if any of the parameters are null
+     * @throws ProcessingException  if the document can't be written
+     */
+    public static void write(
+            @NonNull final AnimeListEntryValues values,
+            @NonNull final Writer out) {
+
+        try {
+            final XMLStreamWriter xml = FACTORY.createXMLStreamWriter(out);
+
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeStartElement("entry");
+            element(xml, "episode", values.getEpisode());
+            element(xml, "status", values.getStatus());
+            element(xml, "score", values.getScore());
+            element(xml, "storage_type", values.getStorageType());
+            element(xml, "storage_value", values.getStorageValue());
+            element(xml, "times_rewatched", values.getTimesRewatched());
+            element(xml, "rewatch_value", values.getRewatchValue());
+            element(xml, "date_start", values.getDateStart());
+            element(xml, "date_finish", values.getDateFinish());
+            element(xml, "priority", values.getPriority());
+            element(xml, "enable_discussion", values.getEnableDiscussion());
+            element(xml, "enable_rewatching", values.getEnableRewatching());
+            element(xml, "comments", values.getComments());
+            element(xml, "fansub_group", values.getFansubGroup());
+            element(xml, "tags", values.getTags());
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.flush();
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new ProcessingException(e);
+        }
+    }
+
+    /**
+     * Write an {@code application/x-www-form-urlencoded} body with a single parameter holding the XML document.
+     *
+     * @param param  {@code [required]} name of the form parameter, such as {@code data}
+     * @param values {@code [required]} to write
+     * @param out    {@code [required]} the request body, flushed but not closed
+     * @throws NullPointerException if any of the parameters are null
+     * @throws IOException          if the body can't be written
+     * @throws ProcessingException  if the document can't be written
+     */
+    public static void writeForm(
+            @NonNull final String param,
+            @NonNull final AnimeListEntryValues values,
+            @NonNull final OutputStream out) throws IOException {
+
+        final FormEncodingWriter form = new FormEncodingWriter(out);
+        form.write(param);
+        form.writeRaw("=");
+
+        try {
+            write(values, form);
+        } catch (ProcessingException e) {
+            if (e.getCause() instanceof XMLStreamException && e.getCause().getCause() instanceof IOException)
+                throw (IOException) e.getCause().getCause();
+            throw e;
+        }
+
+        form.close();
+    }
+
+    private static void element(
+            final XMLStreamWriter xml,
+            final String name,
+            final String value) throws XMLStreamException {
+
+        if (value == null)
+            return;
+
+        xml.writeStartElement(name);
+        xml.writeCharacters(value);
+        xml.writeEndElement();
+    }
+}
@@ -0,0 +1,141 @@
+package me.bendoerr.mal.java.client.xml;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * A {@link Writer} that {@code application/x-www-form-urlencoded} encodes the characters written to it, as UTF-8, onto
+ * an {@link OutputStream}. Encodes exactly as {@link java.net.URLEncoder} does, without building a string first.
+ * <p>
+ * Not thread-safe. Closing the writer doesn't close the stream.
+ */
+final class FormEncodingWriter extends Writer {
+
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[4096];
+
+    private int position;
+    private char highSurrogate;
+
+    FormEncodingWriter(
+            final OutputStream out) {
+
+        this.out = out;
+    }
+
+    @Override
+    public void write(
+            final char[] chars,
+            final int off,
+            final int len) throws IOException {
+
+        for (int i = off; i < off + len; i++)
+            write(chars[i]);
+    }
+
+    @Override
+    public void write(
+            final String s,
+            final int off,
+            final int len) throws IOException {
+
+        for (int i = off; i < off + len; i++)
+            write(s.charAt(i));
+    }
+
+    @Override
+    public void write(
+            final int c) throws IOException {
+
+        final char ch = (char) c;
+
+        if (highSurrogate != 0) {
+            final char high = highSurrogate;
+            highSurrogate = 0;
+
+            if (Character.isLowSurrogate(ch)) {
+                final int codePoint = Character.toCodePoint(high, ch);
+                escape(0xF0 | (codePoint >> 18));
+                escape(0x80 | ((codePoint >> 12) & 0x3F));
+                escape(0x80 | ((codePoint >> 6) & 0x3F));
+                escape(0x80 | (codePoint & 0x3F));
+                return;
+            }
+
+            // A lone surrogate, which URLEncoder replaces with '?'
+            escape('?');
+        }
+
+        if ((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9')
+                || ch == '.' || ch == '-' || ch == '*' || ch == '_') {
+            put(ch);
+        } else if (ch == ' ') {
+            put('+');
+        } else if (ch < 0x80) {
+            escape(ch);
+        } else if (ch < 0x800) {
+            escape(0xC0 | (ch >> 6));
+            escape(0x80 | (ch & 0x3F));
+        } else if (Character.isHighSurrogate(ch)) {
+            highSurrogate = ch;
+        } else if (Character.isLowSurrogate(ch)) {
+            escape('?');
+        } else {
+            escape(0xE0 | (ch >> 12));
+            escape(0x80 | ((ch >> 6) & 0x3F));
+            escape(0x80 | (ch & 0x3F));
+        }
+    }
+
+    /**
+     * Write an already encoded ASCII string, such as a parameter name and {@code =}.
+     */
+    void writeRaw(
+            final String ascii) throws IOException {
+
+        for (int i = 0; i < ascii.length(); i++)
+            put(ascii.charAt(i));
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            escape('?');
+        }
+
+        flush();
+    }
+
+    private void escape(
+            final int b) throws IOException {
+
+        put('%');
+        put(HEX[(b >> 4) & 0xF]);
+        put(HEX[b & 0xF]);
+    }
+
+    private void put(
+            final int b) throws IOException {
+
+        if (position == buffer.length) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+
+        buffer[position++] = (byte) b;
+    }
+}
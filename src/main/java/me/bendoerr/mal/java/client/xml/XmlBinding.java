@@ -0,0 +1,150 @@
+package me.bendoerr.mal.java.client.xml;
+
+import lombok.NonNull;
+
+import javax.ws.rs.ProcessingException;
+import javax.xml.bind.annotation.XmlElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A flat element-name to field binding for one of the simple all-{@code String} model classes.
+ * <p>
+ * The binding is derived from the same {@link XmlElement} annotations JAXB uses so that pull-parsed records are
+ * populated exactly as the JAXB path would populate them. Only {@code String} fields are supported, which is all the
+ * MAL model classes have.
+ *
+ * @param <T> the model type being bound
+ */
+public final class XmlBinding<T> {
+
+    private static final Map<Class<?>, XmlBinding<?>> BINDINGS = new ConcurrentHashMap<>();
+
+    private final Class<T> type;
+    private final Map<String, Field> fields;
+
+    private XmlBinding(
+            @NonNull final Class<T> type) {
+
+        final Map<String, Field> fields = new LinkedHashMap<>();
+
+        for (final Field field : type.getDeclaredFields()) {
+            final XmlElement element = field.getAnnotation(XmlElement.class);
+
+            if (element == null || Modifier.isStatic(field.getModifiers()))
+                continue;
+
+            if (field.getType() != String.class)
+                throw new IllegalArgumentException("Only String elements can be bound: " + field);
+
+            field.setAccessible(true);
+            fields.put("##default".equals(element.name()) ? field.getName() : element.name(), field);
+        }
+
+        this.type = type;
+        this.fields = Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * Get the (cached) binding for a model type.
+     *
+     * @param type {@code [required]} model class annotated with {@link XmlElement} fields
+     * @return the binding
+     * @throws NullPointerException     if type is null
+     * @throws IllegalArgumentException if the type has non-{@code String} elements
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> XmlBinding<T> of(
+            @NonNull final Class<T> type) {
+
+        return (XmlBinding<T>) BINDINGS.computeIfAbsent(type, XmlBinding::new);
+    }
+
+    /**
+     * @return the bound model type
+     */
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * @return the bound element names in field declaration order
+     */
+    public Set<String> getElements() {
+        return fields.keySet();
+    }
+
+    /**
+     * @param element local name of an XML element
+     * @return true if the element maps onto a field of the model
+     */
+    public boolean isBound(
+            final String element) {
+
+        return fields.containsKey(element);
+    }
+
+    /**
+     * @return a new, empty instance of the model
+     * @throws ProcessingException if the model can't be instantiated
+     */
+    public T newInstance() {
+        try {
+            return type.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new ProcessingException(e);
+        }
+    }
+
+    /**
+     * Set the field bound to {@code element}, doing nothing if the element is not bound.
+     *
+     * @param target  record to set the value on
+     * @param element local name of the XML element
+     * @param value   text content of the element
+     */
+    public void set(
+            @NonNull final T target,
+            @NonNull final String element,
+            final String value) {
+
+        final Field field = fields.get(element);
+
+        if (field == null)
+            return;
+
+        try {
+            field.set(target, value);
+        } catch (IllegalAccessException e) {
+            throw new ProcessingException(e);
+        }
+    }
+
+    /**
+     * Read the field bound to {@code element}.
+     *
+     * @param target  record to read the value from
+     * @param element local name of the XML element
+     * @return the value or null if it's unset or the element isn't bound
+     */
+    public String get(
+            @NonNull final T target,
+            @NonNull final String element) {
+
+        final Field field = fields.get(element);
+
+        if (field == null)
+            return null;
+
+        try {
+            return (String) field.get(target);
+        } catch (IllegalAccessException e) {
+            throw new ProcessingException(e);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package me.bendoerr.mal.java.client.xml;
+
+import lombok.NonNull;
+
+import javax.ws.rs.ProcessingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Locates the fields of every record in a MAL XML document held in memory, without decoding any of their text.
+ * <p>
+ * As with {@link XmlRecordReader}, only direct children of the document root named {@code recordElement} are records,
+ * and of their children only those named as fields are located, everything else is skipped. A field's range is its
+ * raw content between its start and end tags, references and CDATA sections included, for {@link XmlText#decode} to
+ * decode if and when it is needed. The scanner checks the document's structure, so a truncated or mismatched document
+ * fails, but not its text, so the undeclared HTML entities MAL writes don't.
+ * <p>
+ * Instances are not thread-safe, a scanner is used for a single document.
+ */
+public final class XmlRangeScanner {
+
+    private final byte[] document;
+    private final String recordElement;
+    private final String[] fields;
+
+    private int position;
+
+    /**
+     * @param document      {@code [required]} a UTF-8 document, an empty one has no records
+     * @param recordElement {@code [required]} local name of the root's children to locate
+     * @param fields        {@code [required]} local names of the records' children to locate
+     * @throws NullPointerException if any of the parameters are null
+     */
+    public XmlRangeScanner(
+            @NonNull final byte[] document,
+            @NonNull final String recordElement,
+            @NonNull final String... fields) {
+
+        this.document = document;
+        this.recordElement = recordElement;
+        this.fields = fields.clone();
+    }
+
+    /**
+     * @return one array per record, in document order, holding the start and end of each field's content in the order
+     * the fields were given, {@code -1} for both if the record doesn't have the field
+     * @throws ProcessingException if the document is malformed
+     */
+    public List<int[]> scan() {
+        final List<int[]> records = new ArrayList<>();
+        int depth = 0;
+
+        position = 0;
+
+        while ((position = indexOf('<', position)) >= 0) {
+            if (skipMarkup())
+                continue;
+
+            if (byteAt(position + 1) == '/') {
+                if (--depth < 0)
+                    throw malformed("unexpected end tag");
+
+                position = tagEnd(position) + 1;
+                continue;
+            }
+
+            final int nameEnd = nameEnd(position + 1);
+            final int tagEnd = tagEnd(position);
+            final boolean empty = document[tagEnd - 1] == '/';
+            final boolean record = depth == 1 && matches(position + 1, nameEnd, recordElement);
+
+            position = tagEnd + 1;
+
+            if (record)
+                records.add(empty ? absent() : record());
+            else if (!empty)
+                depth++;
+        }
+
+        if (depth != 0)
+            throw malformed("document ends within an element");
+
+        return records;
+    }
+
+    /**
+     * Locate the fields of the record whose start tag was just read, leaving the position after its end tag.
+     */
+    private int[] record() {
+        final int[] ranges = absent();
+
+        while (true) {
+            position = indexOf('<', position);
+
+            if (position < 0)
+                throw malformed("document ends within a record");
+
+            if (skipMarkup())
+                continue;
+
+            if (byteAt(position + 1) == '/') {
+                if (!matches(position + 2, nameEnd(position + 2), recordElement))
+                    throw malformed("mismatched end tag");
+
+                position = tagEnd(position) + 1;
+                return ranges;
+            }
+
+            final int nameEnd = nameEnd(position + 1);
+            final int tagEnd = tagEnd(position);
+            final int field = field(position + 1, nameEnd);
+
+            if (document[tagEnd - 1] == '/') {
+                position = tagEnd + 1;
+
+                if (field >= 0) {
+                    ranges[2 * field] = tagEnd + 1;
+                    ranges[2 * field + 1] = tagEnd + 1;
+                }
+
+                continue;
+            }
+
+            final int contentStart = tagEnd + 1;
+            final int nameStart = position + 1;
+
+            position = contentStart;
+
+            final int contentEnd = skipContent(nameStart, nameEnd);
+
+            if (field >= 0) {
+                ranges[2 * field] = contentStart;
+                ranges[2 * field + 1] = contentEnd;
+            }
+        }
+    }
+
+    /**
+     * Skip the content of the element named by the given range, nested elements included, leaving the position after
+     * its end tag.
+     *
+     * @return where its end tag starts
+     */
+    private int skipContent(
+            final int nameStart,
+            final int nameEnd) {
+
+        int depth = 0;
+
+        while (true) {
+            position = indexOf('<', position);
+
+            if (position < 0)
+                throw malformed("document ends within an element");
+
+            if (skipMarkup())
+                continue;
+
+            final int tagStart = position;
+            final boolean end = byteAt(position + 1) == '/';
+            final int tagEnd = tagEnd(position);
+
+            position = tagEnd + 1;
+
+            if (!end) {
+                if (document[tagEnd - 1] != '/')
+                    depth++;
+            } else if (depth-- == 0) {
+                final int length = nameEnd - nameStart;
+
+                if (nameEnd(tagStart + 2) - (tagStart + 2) != length
+                        || !regionMatches(tagStart + 2, nameStart, length))
+                    throw malformed("mismatched end tag");
+
+                return tagStart;
+            }
+        }
+    }
+
+    /**
+     * Skip a declaration, processing instruction, comment or CDATA section starting at the position, if that's what
+     * it is.
+     *
+     * @return whether one was skipped
+     */
+    private boolean skipMarkup() {
+        final byte next = byteAt(position + 1);
+
+        if (next == '?') {
+            position = after("?>");
+        } else if (next == '!' && startsWith("<!--")) {
+            position = after("-->");
+        } else if (next == '!' && startsWith("<![CDATA[")) {
+            position = after("]]>");
+        } else if (next == '!') {
+            position = tagEnd(position) + 1;
+        } else {
+            return false;
+        }
+
+        return true;
+    }
+
+    private int[] absent() {
+        final int[] ranges = new int[2 * fields.length];
+        Arrays.fill(ranges, -1);
+        return ranges;
+    }
+
+    private int field(
+            final int start,
+            final int end) {
+
+        for (int i = 0; i < fields.length; i++) {
+            if (matches(start, end, fields[i]))
+                return i;
+        }
+
+        return -1;
+    }
+
+    private boolean matches(
+            final int start,
+            final int end,
+            final String name) {
+
+        if (end - start != name.length())
+            return false;
+
+        for (int i = 0; i < name.length(); i++) {
+            if (document[start + i] != name.charAt(i))
+                return false;
+        }
+
+        return true;
+    }
+
+    private boolean regionMatches(
+            final int a,
+            final int b,
+            final int length) {
+
+        for (int i = 0; i < length; i++) {
+            if (document[a + i] != document[b + i])
+                return false;
+        }
+
+        return true;
+    }
+
+    private boolean startsWith(
+            final String markup) {
+
+        return position + markup.length() <= document.length
+                && matches(position, position + markup.length(), markup);
+    }
+
+    /**
+     * @return the position just past the next occurrence of {@code terminator}
+     */
+    private int after(
+            final String terminator) {
+
+        for (int i = position + 2; i + terminator.length() <= document.length; i++) {
+            if (matches(i, i + terminator.length(), terminator))
+                return i + terminator.length();
+        }
+
+        throw malformed("unterminated markup");
+    }
+
+    /**
+     * @return the index of the first byte that can't be part of a name
+     */
+    private int nameEnd(
+            final int start) {
+
+        int i = start;
+
+        while (i < document.length && !isNameEnd(document[i]))
+            i++;
+
+        if (i == start)
+            throw malformed("missing element name");
+
+        return i;
+    }
+
+    private static boolean isNameEnd(
+            final byte b) {
+
+        return b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    /**
+     * @return the index of the {@code >} closing the tag starting at {@code start}, skipping quoted attribute values
+     */
+    private int tagEnd(
+            final int start) {
+
+        byte quote = 0;
+
+        for (int i = start + 1; i < document.length; i++) {
+            final byte b = document[i];
+
+            if (quote != 0) {
+                if (b == quote)
+                    quote = 0;
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '>') {
+                return i;
+            }
+        }
+
+        throw malformed("unterminated tag");
+    }
+
+    private int indexOf(
+            final char c,
+            final int from) {
+
+        for (int i = from; i < document.length; i++) {
+            if (document[i] == c)
+                return i;
+        }
+
+        return -1;
+    }
+
+    private byte byteAt(
+            final int index) {
+
+        return index < document.length ? document[index] : 0;
+    }
+
+    private ProcessingException malformed(
+            final String problem) {
+
+        return new ProcessingException("Malformed document at byte " + position + ": " + problem);
+    }
+}
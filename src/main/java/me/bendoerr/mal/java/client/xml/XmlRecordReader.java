@@ -0,0 +1,232 @@
+package me.bendoerr.mal.java.client.xml;
+
+import lombok.NonNull;
+
+import javax.ws.rs.ProcessingException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static javax.xml.stream.XMLStreamConstants.*;
+
+/**
+ * A pull-parsing reader over a MAL XML document that yields one record at a time.
+ * <p>
+ * Only direct children of the document root named {@code recordElement} are bound into records, everything else (such
+ * as the {@code <myinfo>} block of {@code malappinfo.php}) is skipped without being retained. Fields are bound using
+ * an {@link XmlBinding} so records are populated the same way JAXB would populate them.
+ * <p>
+ * Instances are not thread-safe and must be closed to release the underlying stream.
+ *
+ * @param <T> the model type being read
+ */
+public final class XmlRecordReader<T> implements Iterator<T>, AutoCloseable {
+
+    private static final XMLInputFactory FACTORY = newFactory();
+
+    private final InputStream in;
+    private final XMLStreamReader reader;
+    private final String recordElement;
+    private final XmlBinding<T> binding;
+
+    private T next;
+    private boolean done;
+    private int depth;
+
+    /**
+     * Create a new reader over a MAL XML document.
+     *
+     * @param in            {@code [required]} the document, will be closed by {@link #close()}
+     * @param recordElement {@code [required]} local name of the root's children to bind
+     * @param type          {@code [required]} the model type to bind each record to
+     * @throws NullPointerException if any of the parameters are null
+     * @throws ProcessingException  if the document can't be opened
+     */
+    public XmlRecordReader(
+            @NonNull final InputStream in,
+            @NonNull final String recordElement,
+            @NonNull final Class<T> type) {
+
+        this.in = in;
+        this.recordElement = recordElement;
+        this.binding = XmlBinding.of(type);
+
+        try {
+            this.reader = FACTORY.createXMLStreamReader(in);
+        } catch (XMLStreamException e) {
+            throw new ProcessingException(e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done)
+            next = advance();
+
+        return next != null;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        final T record = next;
+        next = null;
+        return record;
+    }
+
+    @Override
+    public void close() {
+        done = true;
+        next = null;
+
+        try {
+            reader.close();
+        } catch (XMLStreamException ignored) {
+            // Closing the stream below is what actually matters
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // Nothing useful can be done about it
+            }
+        }
+    }
+
+    private T advance() {
+        try {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case START_ELEMENT:
+                        depth++;
+
+                        if (depth == 2 && recordElement.equals(reader.getLocalName()))
+                            return readRecord();
+
+                        if (depth >= 2) {
+                            skipElement();
+                            depth--;
+                        }
+
+                        break;
+
+                    case END_ELEMENT:
+                        depth--;
+                        break;
+
+                    default:
+                        break;
+                }
+            }
+        } catch (XMLStreamException e) {
+            done = true;
+            throw new ProcessingException(e);
+        }
+
+        done = true;
+        return null;
+    }
+
+    private T readRecord() throws XMLStreamException {
+        final T record = binding.newInstance();
+
+        while (true) {
+            switch (reader.next()) {
+                case START_ELEMENT:
+                    final String name = reader.getLocalName();
+
+                    if (binding.isBound(name))
+                        binding.set(record, name, readText());
+                    else
+                        skipElement();
+
+                    break;
+
+                case END_ELEMENT:
+                    depth--;
+                    return record;
+
+                case END_DOCUMENT:
+                    throw new XMLStreamException("Unexpected end of document", reader.getLocation());
+
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Collect the text content of the current element, ignoring any nested elements, leaving the reader on the
+     * element's end tag.
+     */
+    private String readText() throws XMLStreamException {
+        final StringBuilder text = new StringBuilder();
+        int level = 1;
+
+        while (level > 0) {
+            switch (reader.next()) {
+                case CHARACTERS:
+                case CDATA:
+                case SPACE:
+                case ENTITY_REFERENCE:
+                    if (level == 1)
+                        text.append(reader.getText());
+                    break;
+
+                case START_ELEMENT:
+                    level++;
+                    break;
+
+                case END_ELEMENT:
+                    level--;
+                    break;
+
+                case END_DOCUMENT:
+                    throw new XMLStreamException("Unexpected end of document", reader.getLocation());
+
+                default:
+                    break;
+            }
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Skip the current element and all of its children, leaving the reader on the element's end tag.
+     */
+    private void skipElement() throws XMLStreamException {
+        int level = 1;
+
+        while (level > 0) {
+            switch (reader.next()) {
+                case START_ELEMENT:
+                    level++;
+                    break;
+
+                case END_ELEMENT:
+                    level--;
+                    break;
+
+                case END_DOCUMENT:
+                    throw new XMLStreamException("Unexpected end of document", reader.getLocation());
+
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static XMLInputFactory newFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
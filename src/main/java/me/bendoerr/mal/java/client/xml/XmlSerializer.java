@@ -0,0 +1,212 @@
+package me.bendoerr.mal.java.client.xml;
+
+import lombok.NonNull;
+
+import javax.ws.rs.ProcessingException;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JAXB marshalling and unmarshalling with a {@link JAXBContext} built once per type.
+ * <p>
+ * Creating a context is by far the most expensive thing JAXB does, so contexts are cached for the life of the
+ * serializer. Contexts are thread-safe but {@link Marshaller}s and {@link Unmarshaller}s are not, and are still
+ * relatively expensive to create, so each type keeps a pool of idle ones that threads borrow and return. The pool only
+ * bounds how many are kept idle, a thread never waits for one.
+ * <p>
+ * Instances are thread-safe. {@link #shared()} is used by {@link me.bendoerr.mal.java.client.MALClient}.
+ */
+public final class XmlSerializer {
+
+    private static final XmlSerializer SHARED = new XmlSerializer(Runtime.getRuntime().availableProcessors() * 2);
+
+    private final Map<Class<?>, Contexts> contexts = new ConcurrentHashMap<>();
+    private final int maxIdle;
+
+    /**
+     * @param maxIdle maximum number of idle marshallers and of idle unmarshallers kept per type
+     * @throws IllegalArgumentException if maxIdle is negative
+     */
+    public XmlSerializer(
+            final int maxIdle) {
+
+        if (maxIdle < 0)
+            throw new IllegalArgumentException("maxIdle must not be negative");
+
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * @return a serializer shared by every client, keeping up to twice the number of processors idle per type
+     */
+    public static XmlSerializer shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param type {@code [required]} a JAXB annotated class
+     * @return the cached context for the type, created on first use
+     * @throws NullPointerException if type is null
+     * @throws ProcessingException  if JAXB can't bind the type
+     */
+    public JAXBContext context(
+            @NonNull final Class<?> type) {
+
+        return contexts(type).context;
+    }
+
+    /**
+     * @param o {@code [required]} a JAXB annotated object
+     * @return the object as an XML document
+     * @throws NullPointerException if o is null
+     * @throws ProcessingException  if the object can't be marshalled
+     */
+    public String toXml(
+            @NonNull final Object o) {
+
+        final StringWriter sw = new StringWriter();
+        marshal(o, sw);
+        return sw.toString();
+    }
+
+    /**
+     * @param o   {@code [required]} a JAXB annotated object
+     * @param out {@code [required]} to write the XML document to, not closed
+     * @throws NullPointerException if any of the parameters are null
+     * @throws ProcessingException  if the object can't be marshalled
+     */
+    public void marshal(
+            @NonNull final Object o,
+            @NonNull final Writer out) {
+
+        final Contexts type = contexts(o.getClass());
+        final Marshaller marshaller = type.marshallers.borrow();
+
+        try {
+            marshaller.marshal(o, out);
+        } catch (JAXBException e) {
+            throw new ProcessingException(e);
+        }
+
+        // Only marshallers that didn't fail are reused
+        type.marshallers.release(marshaller);
+    }
+
+    /**
+     * @param in   {@code [required]} an XML document, not closed
+     * @param type {@code [required]} a JAXB annotated class
+     * @param <T>  the type to bind to
+     * @return the bound object
+     * @throws NullPointerException if any of the parameters are null
+     * @throws ProcessingException  if the document can't be unmarshalled
+     */
+    public <T> T unmarshal(
+            @NonNull final InputStream in,
+            @NonNull final Class<T> type) {
+
+        final Contexts contexts = contexts(type);
+        final Unmarshaller unmarshaller = contexts.unmarshallers.borrow();
+        final Object o;
+
+        try {
+            o = unmarshaller.unmarshal(in);
+        } catch (JAXBException e) {
+            throw new ProcessingException(e);
+        }
+
+        contexts.unmarshallers.release(unmarshaller);
+        return type.cast(o);
+    }
+
+    private Contexts contexts(
+            final Class<?> type) {
+
+        final Contexts existing = contexts.get(type);
+
+        if (existing != null)
+            return existing;
+
+        // Creating a context can take long enough that computeIfAbsent would block other types, a race just wastes one
+        final Contexts created;
+
+        try {
+            created = new Contexts(JAXBContext.newInstance(type), maxIdle);
+        } catch (JAXBException e) {
+            throw new ProcessingException(e);
+        }
+
+        final Contexts raced = contexts.putIfAbsent(type, created);
+        return raced == null ? created : raced;
+    }
+
+    private static final class Contexts {
+
+        private final JAXBContext context;
+        private final Pool<Marshaller> marshallers;
+        private final Pool<Unmarshaller> unmarshallers;
+
+        private Contexts(
+                final JAXBContext context,
+                final int maxIdle) {
+
+            this.context = context;
+            this.marshallers = new Pool<>(maxIdle, context::createMarshaller);
+            this.unmarshallers = new Pool<>(maxIdle, context::createUnmarshaller);
+        }
+    }
+
+    private interface Factory<T> {
+
+        T create() throws JAXBException;
+    }
+
+    private static final class Pool<T> {
+
+        private final Queue<T> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final int maxIdle;
+        private final Factory<T> factory;
+
+        private Pool(
+                final int maxIdle,
+                final Factory<T> factory) {
+
+            this.maxIdle = maxIdle;
+            this.factory = factory;
+        }
+
+        private T borrow() {
+            final T pooled = idle.poll();
+
+            if (pooled != null) {
+                size.decrementAndGet();
+                return pooled;
+            }
+
+            try {
+                return factory.create();
+            } catch (JAXBException e) {
+                throw new ProcessingException(e);
+            }
+        }
+
+        private void release(
+                final T t) {
+
+            if (size.incrementAndGet() <= maxIdle)
+                idle.offer(t);
+            else
+                size.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package me.bendoerr.mal.java.client.xml;
+
+import lombok.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decodes the raw text of MAL XML documents, as located by {@link XmlRangeScanner}, and the HTML entities MAL escapes
+ * its free text with on top of the XML.
+ * <p>
+ * MAL double-escapes much of its text, so a synopsis quoting a title reads {@code &amp;quot;} in the XML, which an
+ * XML parser turns into {@code &quot;} and only HTML unescaping turns into a quote. It also leaves HTML entities such
+ * as {@code &Aring;} undeclared in the XML itself. Both decodings keep references they don't know as they are rather
+ * than failing.
+ */
+public final class XmlText {
+
+    /**
+     * The named character references of HTML 4 plus {@code &apos;}.
+     */
+    private static final Map<String, Character> ENTITIES = new HashMap<>(512);
+
+    private static final String[] LATIN_1 = {
+            "nbsp", "iexcl", "cent", "pound", "curren", "yen", "brvbar", "sect", "uml", "copy", "ordf", "laquo", "not",
+            "shy", "reg", "macr", "deg", "plusmn", "sup2", "sup3", "acute", "micro", "para", "middot", "cedil", "sup1",
+            "ordm", "raquo", "frac14", "frac12", "frac34", "iquest", "Agrave", "Aacute", "Acirc", "Atilde", "Auml",
+            "Aring", "AElig", "Ccedil", "Egrave", "Eacute", "Ecirc", "Euml", "Igrave", "Iacute", "Icirc", "Iuml", "ETH",
+            "Ntilde", "Ograve", "Oacute", "Ocirc", "Otilde", "Ouml", "times", "Oslash", "Ugrave", "Uacute", "Ucirc",
+            "Uuml", "Yacute", "THORN", "szlig", "agrave", "aacute", "acirc", "atilde", "auml", "aring", "aelig",
+            "ccedil", "egrave", "eacute", "ecirc", "euml", "igrave", "iacute", "icirc", "iuml", "eth", "ntilde",
+            "ograve", "oacute", "ocirc", "otilde", "ouml", "divide", "oslash", "ugrave", "uacute", "ucirc", "uuml",
+            "yacute", "thorn", "yuml"};
+
+    private static final String[] GREEK = {
+            "Alpha", "Beta", "Gamma", "Delta", "Epsilon", "Zeta", "Eta", "Theta", "Iota", "Kappa", "Lambda", "Mu", "Nu",
+            "Xi", "Omicron", "Pi", "Rho", null, "Sigma", "Tau", "Upsilon", "Phi", "Chi", "Psi", "Omega", null, null,
+            null, null, null, null, null, "alpha", "beta", "gamma", "delta", "epsilon", "zeta", "eta", "theta", "iota",
+            "kappa", "lambda", "mu", "nu", "xi", "omicron", "pi", "rho", "sigmaf", "sigma", "tau", "upsilon", "phi",
+            "chi", "psi", "omega"};
+
+    private static final Object[] OTHERS = {
+            "quot", '"', "amp", '&', "apos", '\'', "lt", '<', "gt", '>', "OElig", '\u0152', "oelig", '\u0153',
+            "Scaron", '\u0160', "scaron", '\u0161', "Yuml", '\u0178', "fnof", '\u0192', "circ", '\u02c6',
+            "tilde", '\u02dc', "thetasym", '\u03d1', "upsih", '\u03d2', "piv", '\u03d6', "ensp", '\u2002',
+            "emsp", '\u2003', "thinsp", '\u2009', "zwnj", '\u200c', "zwj", '\u200d', "lrm", '\u200e', "rlm", '\u200f',
+            "ndash", '\u2013', "mdash", '\u2014', "lsquo", '\u2018', "rsquo", '\u2019', "sbquo", '\u201a',
+            "ldquo", '\u201c', "rdquo", '\u201d', "bdquo", '\u201e', "dagger", '\u2020', "Dagger", '\u2021',
+            "bull", '\u2022', "hellip", '\u2026', "permil", '\u2030', "prime", '\u2032', "Prime", '\u2033',
+            "lsaquo", '\u2039', "rsaquo", '\u203a', "oline", '\u203e', "frasl", '\u2044', "euro", '\u20ac',
+            "image", '\u2111', "weierp", '\u2118', "real", '\u211c', "trade", '\u2122', "alefsym", '\u2135',
+            "larr", '\u2190', "uarr", '\u2191', "rarr", '\u2192', "darr", '\u2193', "harr", '\u2194',
+            "crarr", '\u21b5', "lArr", '\u21d0', "uArr", '\u21d1', "rArr", '\u21d2', "dArr", '\u21d3',
+            "hArr", '\u21d4', "forall", '\u2200', "part", '\u2202', "exist", '\u2203', "empty", '\u2205',
+            "nabla", '\u2207', "isin", '\u2208', "notin", '\u2209', "ni", '\u220b', "prod", '\u220f', "sum", '\u2211',
+            "minus", '\u2212', "lowast", '\u2217', "radic", '\u221a', "prop", '\u221d', "infin", '\u221e',
+            "ang", '\u2220', "and", '\u2227', "or", '\u2228', "cap", '\u2229', "cup", '\u222a', "int", '\u222b',
+            "there4", '\u2234', "sim", '\u223c', "cong", '\u2245', "asymp", '\u2248', "ne", '\u2260', "equiv", '\u2261',
+            "le", '\u2264', "ge", '\u2265', "sub", '\u2282', "sup", '\u2283', "nsub", '\u2284', "sube", '\u2286',
+            "supe", '\u2287', "oplus", '\u2295', "otimes", '\u2297', "perp", '\u22a5', "sdot", '\u22c5',
+            "lceil", '\u2308', "rceil", '\u2309', "lfloor", '\u230a', "rfloor", '\u230b', "lang", '\u2329',
+            "rang", '\u232a', "loz", '\u25ca', "spades", '\u2660', "clubs", '\u2663', "hearts", '\u2665',
+            "diams", '\u2666'};
+
+    /**
+     * Longest reference looked for, {@code &#x10FFFF;} and {@code &thetasym;} included.
+     */
+    private static final int MAX_REFERENCE = 10;
+
+    static {
+        for (int i = 0; i < LATIN_1.length; i++)
+            ENTITIES.put(LATIN_1[i], (char) (0xa0 + i));
+
+        for (int i = 0; i < GREEK.length; i++) {
+            if (GREEK[i] != null)
+                ENTITIES.put(GREEK[i], (char) (0x391 + i));
+        }
+
+        for (int i = 0; i < OTHERS.length; i += 2)
+            ENTITIES.put((String) OTHERS[i], (Character) OTHERS[i + 1]);
+    }
+
+    private XmlText() {
+    }
+
+    /**
+     * Decode the raw UTF-8 content of an element as an XML parser would: character references and the five
+     * predefined entities are replaced, CDATA sections unwrapped, comments dropped and line endings normalized.
+     *
+     * @param document {@code [required]} holding the content
+     * @param start    of the content, inclusive
+     * @param end      of the content, exclusive
+     * @return the text
+     * @throws NullPointerException      if document is null
+     * @throws IndexOutOfBoundsException if the range isn't within the document
+     */
+    public static String decode(
+            @NonNull final byte[] document,
+            final int start,
+            final int end) {
+
+        final String raw = new String(document, start, end - start, StandardCharsets.UTF_8);
+
+        if (raw.indexOf('&') < 0 && raw.indexOf('<') < 0 && raw.indexOf('\r') < 0)
+            return raw;
+
+        final StringBuilder text = new StringBuilder(raw.length());
+
+        for (int i = 0; i < raw.length(); i++) {
+            final char c = raw.charAt(i);
+
+            if (c == '&') {
+                i = reference(raw, i, text, false);
+            } else if (c == '<' && raw.startsWith("<![CDATA[", i)) {
+                final int close = raw.indexOf("]]>", i);
+                final int stop = close < 0 ? raw.length() : close;
+
+                text.append(raw, i + "<![CDATA[".length(), stop);
+                i = stop + "]]>".length() - 1;
+            } else if (c == '<' && raw.startsWith("<!--", i)) {
+                final int close = raw.indexOf("-->", i);
+                i = (close < 0 ? raw.length() : close) + "-->".length() - 1;
+            } else if (c == '\r') {
+                text.append('\n');
+
+                if (i + 1 < raw.length() && raw.charAt(i + 1) == '\n')
+                    i++;
+            } else {
+                text.append(c);
+            }
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Replace HTML character references, named, decimal and hexadecimal, with the characters they stand for.
+     *
+     * @param text to unescape, may be null
+     * @return the unescaped text, text itself if it has no references, or null if text is null
+     */
+    public static String unescapeHtml(
+            final String text) {
+
+        if (text == null || text.indexOf('&') < 0)
+            return text;
+
+        final StringBuilder unescaped = new StringBuilder(text.length());
+
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+
+            if (c == '&')
+                i = reference(text, i, unescaped, true);
+            else
+                unescaped.append(c);
+        }
+
+        return unescaped.toString();
+    }
+
+    /**
+     * Append what the reference at {@code ampersand} stands for, or the ampersand alone if it isn't one known.
+     *
+     * @param html whether to recognize the HTML entities, or only XML's predefined ones
+     * @return the index of the last character consumed
+     */
+    private static int reference(
+            final String text,
+            final int ampersand,
+            final StringBuilder out,
+            final boolean html) {
+
+        final int semicolon = text.indexOf(';', ampersand + 1);
+
+        if (semicolon < 0 || semicolon - ampersand > MAX_REFERENCE + 1) {
+            out.append('&');
+            return ampersand;
+        }
+
+        if (text.charAt(ampersand + 1) == '#') {
+            final int codePoint = codePoint(text, ampersand + 2, semicolon);
+
+            if (codePoint < 0) {
+                out.append('&');
+                return ampersand;
+            }
+
+            out.appendCodePoint(codePoint);
+            return semicolon;
+        }
+
+        final String name = text.substring(ampersand + 1, semicolon);
+        final Character character = html ? ENTITIES.get(name) : predefined(name);
+
+        if (character == null) {
+            out.append('&');
+            return ampersand;
+        }
+
+        out.append(character.charValue());
+        return semicolon;
+    }
+
+    private static Character predefined(
+            final String name) {
+
+        switch (name) {
+            case "amp":
+                return '&';
+            case "lt":
+                return '<';
+            case "gt":
+                return '>';
+            case "quot":
+                return '"';
+            case "apos":
+                return '\'';
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return the code point of a numeric reference's digits, {@code -1} if they aren't a valid one
+     */
+    private static int codePoint(
+            final String text,
+            final int start,
+            final int end) {
+
+        final boolean hex = start < end && (text.charAt(start) == 'x' || text.charAt(start) == 'X');
+        final int digits = hex ? start + 1 : start;
+
+        if (digits == end)
+            return -1;
+
+        int codePoint = 0;
+
+        for (int i = digits; i < end; i++) {
+            final int digit = Character.digit(text.charAt(i), hex ? 16 : 10);
+
+            if (digit < 0)
+                return -1;
+
+            codePoint = codePoint * (hex ? 16 : 10) + digit;
+
+            if (codePoint > Character.MAX_CODE_POINT)
+                return -1;
+        }
+
+        return codePoint == 0 || Character.isSurrogate((char) codePoint) && codePoint <= Character.MAX_VALUE
+                ? -1
+                : codePoint;
+    }
+}
@@ -2,18 +2,41 @@ package me.bendoerr.mal.java.client;
 
 import com.github.tomakehurst.wiremock.http.Fault;
 import com.github.tomakehurst.wiremock.junit.WireMockClassRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import me.bendoerr.mal.java.client.cache.InMemorySearchCacheStore;
+import me.bendoerr.mal.java.client.cache.SearchCache;
+import me.bendoerr.mal.java.client.metrics.HistogramMetricsListener;
+import me.bendoerr.mal.java.client.metrics.Operation;
+import me.bendoerr.mal.java.client.metrics.Phase;
 import me.bendoerr.mal.java.client.model.AnimeEntry;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+import me.bendoerr.mal.java.client.model.AnimeListEntryValues;
+import me.bendoerr.mal.java.client.model.LazyAnimeEntry;
+import org.apache.http.pool.PoolStats;
 import org.junit.ClassRule;
 import org.junit.Rule;
 import org.junit.Test;
 
+import javax.ws.rs.InternalServerErrorException;
 import javax.ws.rs.NotAuthorizedException;
 import javax.ws.rs.ProcessingException;
 import javax.ws.rs.ServiceUnavailableException;
 import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class MALClientTests {
 
@@ -211,4 +234,875 @@ public class MALClientTests {
         AnimeEntry r2 = result.get(1);
         assertEquals("2890", r2.getId());
     }
+
+    public static final String MALAPPINFO_TWO_ENTRIES = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<myanimelist>\n" +
+            "  <myinfo>\n" +
+            "    <user_id>1</user_id>\n" +
+            "    <user_name>unitTest</user_name>\n" +
+            "    <user_watching>1</user_watching>\n" +
+            "    <user_completed>1</user_completed>\n" +
+            "  </myinfo>\n" +
+            "  <anime>\n" +
+            "    <series_animedb_id>269</series_animedb_id>\n" +
+            "    <series_title>Bleach</series_title>\n" +
+            "    <series_synonyms>; Bleach</series_synonyms>\n" +
+            "    <series_type>1</series_type>\n" +
+            "    <series_episodes>366</series_episodes>\n" +
+            "    <series_status>2</series_status>\n" +
+            "    <series_start>2004-10-05</series_start>\n" +
+            "    <series_end>2012-03-27</series_end>\n" +
+            "    <series_image>http://cdn.myanimelist.net/images/anime/3/40451.jpg</series_image>\n" +
+            "    <my_id>0</my_id>\n" +
+            "    <my_watched_episodes>12</my_watched_episodes>\n" +
+            "    <my_start_date>0000-00-00</my_start_date>\n" +
+            "    <my_finish_date>0000-00-00</my_finish_date>\n" +
+            "    <my_score>7</my_score>\n" +
+            "    <my_status>1</my_status>\n" +
+            "    <my_rewatching>0</my_rewatching>\n" +
+            "    <my_rewatching_ep>0</my_rewatching_ep>\n" +
+            "    <my_last_updated>1462478400</my_last_updated>\n" +
+            "    <my_tags>test tag, 2nd tag</my_tags>\n" +
+            "  </anime>\n" +
+            "  <anime>\n" +
+            "    <series_animedb_id>2889</series_animedb_id>\n" +
+            "    <series_title>Bleach - The DiamondDust Rebellion &amp; Friends</series_title>\n" +
+            "    <series_synonyms></series_synonyms>\n" +
+            "    <series_type>3</series_type>\n" +
+            "    <series_episodes>1</series_episodes>\n" +
+            "    <series_status>2</series_status>\n" +
+            "    <series_start>2007-12-22</series_start>\n" +
+            "    <series_end>2007-12-22</series_end>\n" +
+            "    <series_image>http://cdn.myanimelist.net/images/anime/6/4052.jpg</series_image>\n" +
+            "    <my_id>0</my_id>\n" +
+            "    <my_watched_episodes>1</my_watched_episodes>\n" +
+            "    <my_start_date>0000-00-00</my_start_date>\n" +
+            "    <my_finish_date>0000-00-00</my_finish_date>\n" +
+            "    <my_score>9</my_score>\n" +
+            "    <my_status>2</my_status>\n" +
+            "    <my_rewatching>0</my_rewatching>\n" +
+            "    <my_rewatching_ep>0</my_rewatching_ep>\n" +
+            "    <my_last_updated>1462478500</my_last_updated>\n" +
+            "    <my_tags/>\n" +
+            "  </anime>\n" +
+            "</myanimelist>";
+
+    @Test
+    public void test_x_animeListStream_matches_x_animeList() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/xml; charset=UTF-8")
+                        .withBody(MALAPPINFO_TWO_ENTRIES)));
+
+        List<AnimeListEntry> expected = client.x_animeList("unitTest");
+
+        List<AnimeListEntry> streamed;
+        try (Stream<AnimeListEntry> stream = client.x_animeListStream("unitTest")) {
+            streamed = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(2, streamed.size());
+        assertEquals(expected, streamed);
+        assertEquals("Bleach - The DiamondDust Rebellion & Friends", streamed.get(1).getSeriesTitle());
+        assertEquals("", streamed.get(1).getListTags());
+    }
+
+    @Test
+    public void test_x_animeListStream_no_entries() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/xml; charset=UTF-8")
+                        .withBody("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                                "<myanimelist><error>Invalid username</error></myanimelist>")));
+
+        try (Stream<AnimeListEntry> stream = client.x_animeListStream("nobody")) {
+            assertEquals(0, stream.count());
+        }
+        assertNull(client.x_animeList("nobody"));
+    }
+
+    @Test(expected = ServiceUnavailableException.class)
+    public void test_x_animeListStream_gateway_timeout() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO))
+                .willReturn(aResponse()
+                        .withStatus(503)
+                        .withBody("Gateway Ugh")
+                ));
+
+        client.x_animeListStream("unitTest");
+    }
+
+    @Test
+    public void test_animeSearchAsync_no_results() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .willReturn(aResponse()
+                        .withStatus(204)
+                ));
+
+        assertEquals(0, client.animeSearchAsync("something").get().size());
+    }
+
+    @Test
+    public void test_animeSearchAsync_gateway_timeout() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .willReturn(aResponse()
+                        .withStatus(503)
+                        .withBody("Gateway Ugh")
+                ));
+
+        try {
+            client.animeSearchAsync("anything").get();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ServiceUnavailableException);
+            return;
+        }
+
+        throw new AssertionError("Expected a ServiceUnavailableException");
+    }
+
+    @Test
+    public void test_animeSearchAsync_fault_empty() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .willReturn(aResponse()
+                        .withFault(Fault.EMPTY_RESPONSE)
+                ));
+
+        try {
+            client.animeSearchAsync("anything").get();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ProcessingException);
+            return;
+        }
+
+        throw new AssertionError("Expected a ProcessingException");
+    }
+
+    @Test
+    public void test_animeSearchLazy() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("bleach"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/xml; charset=UTF-8")
+                        .withBody("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+                                "<anime>\n" +
+                                "  <entry>\n" +
+                                "    <id>2889</id>\n" +
+                                "    <title>Bleach - The DiamondDust Rebellion</title>\n" +
+                                "    <synopsis>A valuable artifact known as &amp;quot;King's Seal&amp;quot;</synopsis>\n" +
+                                "  </entry>\n" +
+                                "  <entry>\n" +
+                                "    <id>269</id>\n" +
+                                "    <title>Bleach</title>\n" +
+                                "  </entry>\n" +
+                                "</anime>")));
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("nothing"))
+                .willReturn(aResponse()
+                        .withStatus(204)));
+
+        try (MALClient urlClient = MALClient.builder()
+                .credentials("unitTest", "unitPass")
+                .transport(new UrlConnectionTransport("http://localhost:" + TEST_PORT))
+                .build()) {
+
+            for (MALClient searching : new MALClient[]{client, urlClient}) {
+                final List<List<LazyAnimeEntry>> searches = new ArrayList<>();
+                searches.add(searching.animeSearchLazy("bleach"));
+                searches.add(searching.animeSearchLazyAsync("bleach").get());
+
+                for (List<LazyAnimeEntry> results : searches) {
+                    assertEquals(2, results.size());
+                    assertEquals("2889", results.get(0).getId());
+                    assertEquals("A valuable artifact known as \"King's Seal\"", results.get(0).getSynopsis());
+                    assertEquals("Bleach", results.get(1).getTitle());
+                    assertNull(results.get(1).getSynopsis());
+                }
+
+                assertTrue(searching.animeSearchLazy("nothing").isEmpty());
+                assertTrue(searching.animeSearchLazyAsync("nothing").get().isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void test_x_animeListAsync_matches_x_animeList() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/xml; charset=UTF-8")
+                        .withBody(MALAPPINFO_TWO_ENTRIES)));
+
+        assertEquals(client.x_animeList("unitTest"), client.x_animeListAsync("unitTest").get());
+    }
+
+    @Test
+    public void test_pooled_connection_reuse_load() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("churn"))
+                .willReturn(aResponse()
+                        .withStatus(204)
+                        .withHeader("Connection", "close")
+                ));
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("reuse"))
+                .willReturn(aResponse()
+                        .withStatus(204)
+                ));
+
+        final int threads = 8;
+        final int requests = 400;
+
+        try (MALClient pooled = MALClient.builder()
+                .credentials("unitTest", "unitPass")
+                .malUrl("http://localhost:" + TEST_PORT)
+                .maxConnections(threads)
+                .connectTimeout(5, TimeUnit.SECONDS)
+                .readTimeout(5, TimeUnit.SECONDS)
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                .build()) {
+
+            // Connections MAL closes are not kept
+            load(pooled, "churn", threads, requests);
+            assertEquals(0, pooled.getPoolStats().getAvailable());
+
+            load(pooled, "reuse", threads, requests);
+
+            // Kept-alive connections go back to the pool to be reused
+            final PoolStats stats = pooled.getPoolStats();
+            assertEquals(0, stats.getLeased());
+            assertEquals(0, stats.getPending());
+            assertEquals(threads, stats.getMax());
+            assertTrue(stats.getAvailable() > 0);
+            assertTrue(stats.getAvailable() <= threads);
+        }
+
+        malService.verify(requests, getRequestedFor(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("churn")));
+        malService.verify(requests, getRequestedFor(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("reuse")));
+    }
+
+    private static void load(
+            final MALClient client,
+            final String query,
+            final int threads,
+            final int requests) throws Exception {
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<List<AnimeEntry>>> results = new ArrayList<>();
+
+            for (int i = 0; i < requests; i++)
+                results.add(executor.submit(() -> client.animeSearch(query)));
+
+            for (Future<List<AnimeEntry>> result : results)
+                assertEquals(0, result.get().size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_throttled_search_is_retried() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("throttled"))
+                .inScenario("throttled")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willSetStateTo("recovered")
+                .willReturn(aResponse()
+                        .withStatus(503)
+                        .withHeader("Retry-After", "0")
+                        .withBody("Slow down")
+                ));
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("throttled"))
+                .inScenario("throttled")
+                .whenScenarioStateIs("recovered")
+                .willReturn(aResponse()
+                        .withStatus(204)
+                ));
+
+        try (MALClient retrying = MALClient.builder()
+                .credentials("unitTest", "unitPass")
+                .malUrl("http://localhost:" + TEST_PORT)
+                .rateLimit(100, 10)
+                .adaptiveRateLimit(1)
+                .retryThrottled(3, 10, 100, TimeUnit.MILLISECONDS)
+                .build()) {
+
+            assertEquals(0, retrying.animeSearch("throttled").size());
+            assertTrue(retrying.getRateLimit() < 100);
+        }
+
+        malService.verify(2, getRequestedFor(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("throttled")));
+    }
+
+    @Test(expected = ServiceUnavailableException.class)
+    public void test_throttled_search_retries_exhausted() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .willReturn(aResponse()
+                        .withStatus(503)
+                        .withBody("Gateway Ugh")
+                ));
+
+        try (MALClient retrying = MALClient.builder()
+                .credentials("unitTest", "unitPass")
+                .malUrl("http://localhost:" + TEST_PORT)
+                .retryThrottled(2, 1, 10, TimeUnit.MILLISECONDS)
+                .build()) {
+
+            retrying.animeSearch("anything");
+        }
+    }
+
+    @Test
+    public void test_throttled_async_search_is_retried() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("throttledAsync"))
+                .inScenario("throttledAsync")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willSetStateTo("recovered")
+                .willReturn(aResponse()
+                        .withStatus(429)
+                        .withBody("Slow down")
+                ));
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("throttledAsync"))
+                .inScenario("throttledAsync")
+                .whenScenarioStateIs("recovered")
+                .willReturn(aResponse()
+                        .withStatus(204)
+                ));
+
+        try (MALClient retrying = MALClient.builder()
+                .credentials("unitTest", "unitPass")
+                .malUrl("http://localhost:" + TEST_PORT)
+                .retryThrottled(3, 10, 100, TimeUnit.MILLISECONDS)
+                .build()) {
+
+            assertEquals(0, retrying.animeSearchAsync("throttledAsync").get().size());
+        }
+    }
+
+    @Test
+    public void test_animeSearch_cached() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("cached"))
+                .willReturn(aResponse()
+                        .withStatus(204)
+                ));
+
+        final SearchCache cache = new SearchCache(new InMemorySearchCacheStore(10),
+                1, TimeUnit.MINUTES, 1, TimeUnit.MINUTES);
+
+        try (MALClient caching = MALClient.builder()
+                .credentials("unitTest", "unitPass")
+                .malUrl("http://localhost:" + TEST_PORT)
+                .searchCache(cache)
+                .build()) {
+
+            assertEquals(0, caching.animeSearch("cached").size());
+            assertEquals(0, caching.animeSearch("cached").size());
+            assertEquals(0, caching.animeSearchAsync("cached").get().size());
+        }
+
+        malService.verify(1, getRequestedFor(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("cached")));
+        assertEquals(2, cache.getStats().getHits());
+        assertEquals(1, cache.getStats().getMisses());
+    }
+
+    @Test
+    public void test_concurrent_identical_reads_are_coalesced() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("coalesced"))
+                .willReturn(aResponse()
+                        .withFixedDelay(500)
+                        .withStatus(204)
+                ));
+        malService.stubFor(get(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO))
+                .withQueryParam("u", equalTo("coalesced"))
+                .willReturn(aResponse()
+                        .withFixedDelay(500)
+                        .withHeader("Content-Type", "application/xml; charset=UTF-8")
+                        .withBody(MALAPPINFO_TWO_ENTRIES)));
+
+        final int callers = 16;
+
+        try (MALClient coalescing = MALClient.builder()
+                .credentials("unitTest", "unitPass")
+                .malUrl("http://localhost:" + TEST_PORT)
+                .coalesceReads(true)
+                .build()) {
+
+            final ExecutorService executor = Executors.newFixedThreadPool(callers * 2);
+            final CountDownLatch start = new CountDownLatch(1);
+
+            try {
+                final List<Future<List<AnimeEntry>>> searches = new ArrayList<>();
+                final List<Future<List<AnimeListEntry>>> lists = new ArrayList<>();
+
+                for (int i = 0; i < callers; i++) {
+                    searches.add(executor.submit(() -> {
+                        start.await();
+                        return coalescing.animeSearch("coalesced");
+                    }));
+                    lists.add(executor.submit(() -> {
+                        start.await();
+                        return coalescing.x_animeList("coalesced");
+                    }));
+                }
+
+                start.countDown();
+
+                for (Future<List<AnimeEntry>> search : searches)
+                    assertEquals(0, search.get().size());
+                for (Future<List<AnimeListEntry>> list : lists)
+                    assertEquals(2, list.get().size());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        malService.verify(1, getRequestedFor(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("coalesced")));
+        malService.verify(1, getRequestedFor(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO))
+                .withQueryParam("u", equalTo("coalesced")));
+    }
+
+    @Test
+    public void test_coalesced_reads_share_exceptions() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("coalescedFailure"))
+                .willReturn(aResponse()
+                        .withFixedDelay(500)
+                        .withStatus(503)
+                ));
+
+        final int callers = 8;
+
+        try (MALClient coalescing = MALClient.builder()
+                .credentials("unitTest", "unitPass")
+                .malUrl("http://localhost:" + TEST_PORT)
+                .coalesceReads(true)
+                .build()) {
+
+            final List<CompletableFuture<List<AnimeEntry>>> searches = new ArrayList<>();
+
+            for (int i = 0; i < callers; i++)
+                searches.add(coalescing.animeSearchAsync("coalescedFailure"));
+
+            for (CompletableFuture<List<AnimeEntry>> search : searches) {
+                try {
+                    search.get();
+                    throw new AssertionError("Expected a ServiceUnavailableException");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof ServiceUnavailableException);
+                }
+            }
+        }
+
+        malService.verify(1, getRequestedFor(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("coalescedFailure")));
+    }
+
+    @Test
+    public void test_coalesced_read_is_cancelled_once_abandoned() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("abandoned"))
+                .willReturn(aResponse()
+                        .withFixedDelay(500)
+                        .withStatus(204)));
+
+        try (MALClient coalescing = MALClient.builder()
+                .credentials("unitTest", "unitPass")
+                .malUrl("http://localhost:" + TEST_PORT)
+                .coalesceReads(true)
+                .build()) {
+
+            final CompletableFuture<List<AnimeEntry>> first = coalescing.animeSearchAsync("abandoned");
+            final CompletableFuture<List<AnimeEntry>> second = coalescing.animeSearchAsync("abandoned");
+
+            // Another caller still waits, so the request carries on
+            first.cancel(true);
+            assertTrue(second.get().isEmpty());
+
+            final CompletableFuture<List<AnimeEntry>> only = coalescing.animeSearchAsync("abandoned");
+
+            for (int i = 0; i < 100 && malService.findAll(getRequestedFor(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                    .withQueryParam("q", equalTo("abandoned"))).size() < 2; i++)
+                Thread.sleep(10);
+
+            only.cancel(true);
+
+            // Nobody waits for the cancelled request any more, so this one is sent afresh
+            assertTrue(coalescing.animeSearchAsync("abandoned").get().isEmpty());
+        }
+
+        malService.verify(3, getRequestedFor(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("abandoned")));
+    }
+
+    @Test
+    public void test_metrics() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO))
+                .withQueryParam("u", equalTo("metered"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/xml; charset=UTF-8")
+                        .withBody(MALAPPINFO_TWO_ENTRIES)));
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("meteredThrottled"))
+                .inScenario("meteredThrottled")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willSetStateTo("recovered")
+                .willReturn(aResponse()
+                        .withStatus(429)
+                ));
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("meteredThrottled"))
+                .inScenario("meteredThrottled")
+                .whenScenarioStateIs("recovered")
+                .willReturn(aResponse()
+                        .withStatus(204)
+                ));
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("meteredFailure"))
+                .willReturn(aResponse()
+                        .withStatus(500)
+                ));
+
+        final HistogramMetricsListener metrics = new HistogramMetricsListener();
+
+        try (MALClient metered = MALClient.builder()
+                .credentials("unitTest", "unitPass")
+                .malUrl("http://localhost:" + TEST_PORT)
+                .retryThrottled(3, 1, 10, TimeUnit.MILLISECONDS)
+                .metrics(metrics)
+                .build()) {
+
+            assertEquals(2, metered.x_animeList("metered").size());
+            assertEquals(2, metered.x_animeListAsync("metered").get().size());
+            assertEquals(0, metered.animeSearch("meteredThrottled").size());
+
+            try {
+                metered.animeSearch("meteredFailure");
+                throw new AssertionError("Expected an InternalServerErrorException");
+            } catch (InternalServerErrorException e) {
+                // Expected
+            }
+        }
+
+        assertEquals(2, metrics.getLatency(Operation.X_ANIME_LIST).getCount());
+        assertEquals(0, metrics.getErrors(Operation.X_ANIME_LIST));
+        assertEquals(Long.valueOf(2), metrics.getStatuses(Operation.X_ANIME_LIST).get(200));
+        assertEquals(2, metrics.getPhase(Operation.X_ANIME_LIST, Phase.CONNECTION_ACQUIRE).getCount());
+        assertEquals(2, metrics.getPhase(Operation.X_ANIME_LIST, Phase.TIME_TO_FIRST_BYTE).getCount());
+        assertEquals(2, metrics.getPhase(Operation.X_ANIME_LIST, Phase.UNMARSHAL).getCount());
+        assertEquals(MALAPPINFO_TWO_ENTRIES.getBytes("UTF-8").length,
+                metrics.getPayload(Operation.X_ANIME_LIST).getMax());
+
+        assertEquals(2, metrics.getLatency(Operation.ANIME_SEARCH).getCount());
+        assertEquals(1, metrics.getRetries(Operation.ANIME_SEARCH));
+        assertEquals(1, metrics.getErrors(Operation.ANIME_SEARCH));
+        assertEquals(Long.valueOf(1), metrics.getStatuses(Operation.ANIME_SEARCH).get(429));
+        assertEquals(Long.valueOf(1), metrics.getStatuses(Operation.ANIME_SEARCH).get(204));
+        assertEquals(Long.valueOf(1), metrics.getStatuses(Operation.ANIME_SEARCH).get(500));
+        assertTrue(metrics.getThroughput(Operation.ANIME_SEARCH) > 0);
+    }
+
+    @Test
+    public void test_animeListUpdate_streamed_values() throws Exception {
+        malService.stubFor(post(urlPathEqualTo("/api/animelist/update/2889.xml"))
+                .willReturn(aResponse()
+                        .withBody("Updated")));
+
+        final AnimeListEntryValues values = new AnimeListEntryValues();
+        values.setEpisode("1");
+        values.setComments("Fish & chips");
+
+        try (MALClient streaming = MALClient.builder()
+                .credentials("unitTest", "unitPass")
+                .malUrl("http://localhost:" + TEST_PORT)
+                .streamValues(true)
+                .build()) {
+
+            streaming.animeListUpdate("2889", values);
+            streaming.animeListUpdateAsync("2889", values).get();
+        }
+
+        client.animeListUpdate("2889", values);
+
+        malService.verify(3, postRequestedFor(urlPathEqualTo("/api/animelist/update/2889.xml"))
+                .withRequestBody(containing("data=%3C%3Fxml"))
+                .withRequestBody(containing("%3Cepisode%3E1%3C%2Fepisode%3E"))
+                .withRequestBody(containing("%3Ccomments%3EFish+%26amp%3B+chips%3C%2Fcomments%3E")));
+    }
+
+    @Test
+    public void test_forUser() throws Exception {
+        malService.stubFor(post(urlPathEqualTo("/api/animelist/update/2889.xml"))
+                .willReturn(aResponse()
+                        .withBody("Updated")));
+
+        final AnimeListEntryValues values = new AnimeListEntryValues();
+        values.setEpisode("1");
+
+        try (MALClient shared = MALClient.builder()
+                .malUrl("http://localhost:" + TEST_PORT)
+                .build()) {
+
+            final MALClient alice = shared.forUser("alice", "secret");
+            final MALClient bob = shared.forUser("bob", "hunter2");
+
+            alice.animeListUpdate("2889", values);
+            bob.animeListUpdateAsync("2889", values).get();
+            alice.close();
+            alice.animeListUpdate("2889", values);
+
+            assertEquals(shared.getPoolStats().getMax(), alice.getPoolStats().getMax());
+        }
+
+        client.forUser("alice", "secret").animeListUpdate("2889", values);
+        client.animeListUpdate("2889", values);
+
+        malService.verify(3, postRequestedFor(urlPathEqualTo("/api/animelist/update/2889.xml"))
+                .withHeader("Authorization", equalTo("Basic YWxpY2U6c2VjcmV0")));
+        malService.verify(1, postRequestedFor(urlPathEqualTo("/api/animelist/update/2889.xml"))
+                .withHeader("Authorization", equalTo("Basic Ym9iOmh1bnRlcjI=")));
+        malService.verify(1, postRequestedFor(urlPathEqualTo("/api/animelist/update/2889.xml"))
+                .withHeader("Authorization", equalTo("Basic dW5pdFRlc3Q6dW5pdFBhc3M=")));
+    }
+
+    @Test
+    public void test_forUser_coalesces_per_user() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("tenants"))
+                .willReturn(aResponse()
+                        .withStatus(204)));
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("tenants"))
+                .withHeader("Authorization", equalTo("Basic YWxpY2U6c2VjcmV0"))
+                .willReturn(aResponse()
+                        .withFixedDelay(500)
+                        .withStatus(401)));
+
+        try (MALClient shared = MALClient.builder()
+                .malUrl("http://localhost:" + TEST_PORT)
+                .coalesceReads(true)
+                .build()) {
+
+            final CompletableFuture<List<AnimeEntry>> alice = shared.forUser("alice", "secret")
+                    .animeSearchAsync("tenants");
+            final CompletableFuture<List<AnimeEntry>> bob = shared.forUser("bob", "hunter2")
+                    .animeSearchAsync("tenants");
+
+            assertTrue(bob.get().isEmpty());
+
+            try {
+                alice.get();
+                throw new AssertionError("Expected NotAuthorizedException");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof NotAuthorizedException);
+            }
+        }
+
+        malService.verify(2, getRequestedFor(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("tenants")));
+    }
+
+    @Test
+    public void test_urlConnectionTransport() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/xml; charset=UTF-8")
+                        .withBody(MALAPPINFO_TWO_ENTRIES)));
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("nothing"))
+                .willReturn(aResponse()
+                        .withStatus(204)));
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("secret"))
+                .willReturn(aResponse()
+                        .withStatus(401)
+                        .withBody("Invalid credentials")));
+        malService.stubFor(post(urlPathEqualTo("/api/animelist/update/2889.xml"))
+                .willReturn(aResponse()
+                        .withBody("Updated")));
+
+        final AnimeListEntryValues values = new AnimeListEntryValues();
+        values.setEpisode("1");
+        values.setComments("Tom & Jerry");
+
+        final List<AnimeListEntry> expected = client.x_animeList("unitTest");
+
+        try (MALClient urlClient = MALClient.builder()
+                .credentials("unitTest", "unitPass")
+                .transport(new UrlConnectionTransport("http://localhost:" + TEST_PORT))
+                .build()) {
+
+            assertNull(urlClient.getPoolStats());
+            assertEquals(expected, urlClient.x_animeList("unitTest"));
+            assertEquals(expected, urlClient.x_animeListAsync("unitTest").get());
+
+            try (Stream<AnimeListEntry> stream = urlClient.x_animeListStream("unitTest")) {
+                assertEquals(expected, stream.collect(Collectors.toList()));
+            }
+
+            assertTrue(urlClient.animeSearch("nothing").isEmpty());
+
+            try {
+                urlClient.animeSearch("secret");
+                throw new AssertionError("Expected NotAuthorizedException");
+            } catch (NotAuthorizedException e) {
+                assertEquals("Invalid credentials", e.getResponse().getEntity());
+            }
+
+            urlClient.animeListUpdate("2889", values);
+            urlClient.animeListUpdateAsync("2889", values).get();
+        }
+
+        malService.verify(2, postRequestedFor(urlPathEqualTo("/api/animelist/update/2889.xml"))
+                .withHeader("Authorization", equalTo("Basic dW5pdFRlc3Q6dW5pdFBhc3M="))
+                .withHeader("Content-Type", containing("application/x-www-form-urlencoded"))
+                .withRequestBody(containing("data=%3C%3Fxml"))
+                .withRequestBody(containing("%3Cepisode%3E1%3C%2Fepisode%3E"))
+                .withRequestBody(containing("%3Ccomments%3ETom+%26amp%3B+Jerry%3C%2Fcomments%3E")));
+    }
+
+    @Test
+    public void test_circuitBreaker_opens_on_faults() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .willReturn(aResponse()
+                        .withStatus(204)));
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("broken"))
+                .willReturn(aResponse()
+                        .withFault(Fault.EMPTY_RESPONSE)));
+
+        final CircuitBreaker breaker = new CircuitBreaker(4, 0.5, 5000, 300, TimeUnit.MILLISECONDS);
+
+        try (MALClient guarded = MALClient.builder()
+                .credentials("unitTest", "unitPass")
+                .malUrl("http://localhost:" + TEST_PORT)
+                .searchCache(new SearchCache(new InMemorySearchCacheStore(10), 1, TimeUnit.HOURS, 1, TimeUnit.HOURS))
+                .circuitBreaker(breaker)
+                .build()) {
+
+            guarded.animeSearch("cached");
+            guarded.animeSearch("good");
+
+            for (int i = 0; i < 2; i++) {
+                try {
+                    guarded.animeSearch("broken");
+                    throw new AssertionError("Expected ProcessingException");
+                } catch (CircuitOpenException e) {
+                    throw new AssertionError("Circuit opened too early");
+                } catch (ProcessingException expected) {
+                    // Sent and failed
+                }
+            }
+
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+            try {
+                guarded.animeSearch("broken");
+                throw new AssertionError("Expected CircuitOpenException");
+            } catch (CircuitOpenException expected) {
+                // Not sent
+            }
+
+            try {
+                guarded.x_animeListAsync("unitTest").get();
+                throw new AssertionError("Expected CircuitOpenException");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof CircuitOpenException);
+            }
+
+            // Cached searches are still answered
+            assertTrue(guarded.animeSearch("cached").isEmpty());
+
+            malService.verify(2, getRequestedFor(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                    .withQueryParam("q", equalTo("broken")));
+            malService.verify(0, getRequestedFor(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO)));
+            assertEquals(2, breaker.getRejected());
+
+            // MAL recovers and the probe closes the circuit
+            malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                    .withQueryParam("q", equalTo("broken"))
+                    .willReturn(aResponse()
+                            .withStatus(204)));
+
+            Thread.sleep(400);
+
+            assertTrue(guarded.animeSearch("broken").isEmpty());
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            assertEquals(1, breaker.getOpened());
+        }
+    }
+
+    @Test
+    public void test_circuitBreaker_opens_on_slow_calls() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .willReturn(aResponse()
+                        .withFixedDelay(300)
+                        .withStatus(204)));
+
+        final CircuitBreaker breaker = new CircuitBreaker(2, 1, 200, 60000, TimeUnit.MILLISECONDS);
+
+        try (MALClient guarded = MALClient.builder()
+                .credentials("unitTest", "unitPass")
+                .malUrl("http://localhost:" + TEST_PORT)
+                .circuitBreaker(breaker)
+                .build()) {
+
+            assertTrue(guarded.animeSearch("slow").isEmpty());
+            assertTrue(guarded.animeSearchAsync("slower").get().isEmpty());
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        }
+    }
+
+    @Test
+    public void test_hedged_search() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("warm"))
+                .willReturn(aResponse()
+                        .withStatus(204)));
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("tail"))
+                .inScenario("hedged")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willSetStateTo("hedged")
+                .willReturn(aResponse()
+                        .withFixedDelay(5000)
+                        .withStatus(204)));
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("tail"))
+                .inScenario("hedged")
+                .whenScenarioStateIs("hedged")
+                .willReturn(aResponse()
+                        .withStatus(204)));
+
+        final HistogramMetricsListener metrics = new HistogramMetricsListener();
+
+        try (MALClient hedged = MALClient.builder()
+                .credentials("unitTest", "unitPass")
+                .malUrl("http://localhost:" + TEST_PORT)
+                .hedgeReads(90, 200, TimeUnit.MILLISECONDS)
+                .metrics(metrics)
+                .build()) {
+
+            for (int i = 0; i < Hedger.MIN_SAMPLES; i++)
+                hedged.animeSearch("warm");
+
+            assertEquals(0, metrics.getHedges(Operation.ANIME_SEARCH));
+
+            final long start = System.nanoTime();
+            assertTrue(hedged.animeSearch("tail").isEmpty());
+
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+            assertEquals(1, metrics.getHedges(Operation.ANIME_SEARCH));
+            malService.verify(2, getRequestedFor(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                    .withQueryParam("q", equalTo("tail")));
+        }
+    }
 }
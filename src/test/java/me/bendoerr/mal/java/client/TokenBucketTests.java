@@ -0,0 +1,55 @@
+package me.bendoerr.mal.java.client;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketTests {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_rate_must_be_positive() {
+        new TokenBucket(0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_burst_must_be_positive() {
+        new TokenBucket(1, 0);
+    }
+
+    @Test
+    public void test_burst_is_immediate() {
+        final TokenBucket bucket = new TokenBucket(1, 3);
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void test_reservations_queue_in_order() {
+        final TokenBucket bucket = new TokenBucket(10, 1);
+
+        assertEquals(0, bucket.reserve());
+
+        final long first = bucket.reserve();
+        final long second = bucket.reserve();
+
+        assertTrue(first > 0 && first <= TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(second > first);
+    }
+
+    @Test
+    public void test_rate_can_change() {
+        final TokenBucket bucket = new TokenBucket(10, 1);
+        bucket.setRate(2.5);
+
+        assertEquals(2.5, bucket.getRate(), 0);
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.reserve() > TimeUnit.MILLISECONDS.toNanos(100));
+    }
+}
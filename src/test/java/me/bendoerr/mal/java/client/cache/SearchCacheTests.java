@@ -0,0 +1,127 @@
+package me.bendoerr.mal.java.client.cache;
+
+import me.bendoerr.mal.java.client.model.AnimeEntry;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SearchCacheTests {
+
+    private final AtomicLong now = new AtomicLong(1000);
+
+    private static List<AnimeEntry> entry(final String id) {
+        final AnimeEntry entry = new AnimeEntry();
+        entry.setId(id);
+        return Collections.singletonList(entry);
+    }
+
+    @Test
+    public void test_normalize() {
+        assertEquals("bleach the movie", SearchCache.normalize("  Bleach \t The\nMovie "));
+        assertEquals("bleach", SearchCache.normalize("\uFF22\uFF2C\uFF25\uFF21\uFF23\uFF28"));
+    }
+
+    @Test
+    public void test_hit_and_miss() {
+        final SearchCache cache = new SearchCache(new InMemorySearchCacheStore(10), 100, 10, now::get);
+
+        assertNull(cache.get("Bleach"));
+        cache.put("Bleach", entry("269"));
+
+        final List<AnimeEntry> hit = cache.get(" bleach");
+        assertNotNull(hit);
+        assertEquals("269", hit.get(0).getId());
+
+        final SearchCacheStats stats = cache.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getSize());
+        assertEquals(0.5, stats.getHitRate(), 0);
+    }
+
+    @Test
+    public void test_ttl_expiry() {
+        final SearchCache cache = new SearchCache(new InMemorySearchCacheStore(10), 100, 10, now::get);
+        cache.put("Bleach", entry("269"));
+
+        now.addAndGet(99);
+        assertNotNull(cache.get("Bleach"));
+
+        now.addAndGet(1);
+        assertNull(cache.get("Bleach"));
+        assertEquals(1, cache.getStats().getExpirations());
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    @Test
+    public void test_expiry_keeps_a_search_cached_in_the_meantime() {
+        final InMemorySearchCacheStore store = new InMemorySearchCacheStore(10) {
+            @Override
+            public synchronized CachedSearch get(final String key) {
+                // Another caller caches a fresh search right after this one read the expired search
+                final CachedSearch expired = super.get(key);
+                put(key, new CachedSearch(entry("2889"), now.get() + 100));
+                return expired;
+            }
+        };
+        final SearchCache cache = new SearchCache(store, 100, 10, now::get);
+        cache.put("Bleach", entry("269"));
+
+        now.addAndGet(100);
+        assertNull(cache.get("Bleach"));
+        assertEquals(1, cache.getStats().getExpirations());
+        assertEquals("2889", cache.get("Bleach").get(0).getId());
+    }
+
+    @Test
+    public void test_no_content_has_its_own_ttl() {
+        final SearchCache cache = new SearchCache(new InMemorySearchCacheStore(10), 100, 10, now::get);
+        cache.put("nothing", Collections.<AnimeEntry>emptyList());
+
+        final List<AnimeEntry> hit = cache.get("nothing");
+        assertNotNull(hit);
+        assertTrue(hit.isEmpty());
+
+        now.addAndGet(10);
+        assertNull(cache.get("nothing"));
+    }
+
+    @Test
+    public void test_no_content_caching_can_be_disabled() {
+        final SearchCache cache = new SearchCache(new InMemorySearchCacheStore(10), 100, 0, now::get);
+        cache.put("nothing", Collections.<AnimeEntry>emptyList());
+
+        assertNull(cache.get("nothing"));
+    }
+
+    @Test
+    public void test_lru_eviction() {
+        final SearchCache cache = new SearchCache(new InMemorySearchCacheStore(2), 100, 10, now::get);
+        cache.put("a", entry("1"));
+        cache.put("b", entry("2"));
+
+        // Touch "a" so "b" is the least recently used
+        assertNotNull(cache.get("a"));
+        cache.put("c", entry("3"));
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(1, cache.getStats().getEvictions());
+        assertEquals(2, cache.getStats().getSize());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void test_cached_results_are_unmodifiable() {
+        final SearchCache cache = new SearchCache(new InMemorySearchCacheStore(2), 100, 10, now::get);
+
+        cache.put("a", entry("1")).clear();
+    }
+}
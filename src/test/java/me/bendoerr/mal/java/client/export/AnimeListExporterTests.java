@@ -0,0 +1,167 @@
+package me.bendoerr.mal.java.client.export;
+
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AnimeListExporterTests {
+
+    private static AnimeListEntry entry(final String id, final String title) {
+        final AnimeListEntry entry = new AnimeListEntry();
+        entry.setSeriesId(id);
+        entry.setSeriesTitle(title);
+        entry.setSeriesType("1");
+        entry.setSeriesEpisodes("366");
+        entry.setListWatchedEpisodes("12");
+        entry.setListScore("7");
+        entry.setListStatus("6");
+        entry.setListTags("a, b");
+        return entry;
+    }
+
+    private static final Function<String, Stream<AnimeListEntry>> LISTS = username -> Stream.of(
+            entry("269", "Bleach"),
+            entry("2889", "Bleach - The \"DiamondDust\" Rebellion, & Friends \u2764\uD83D\uDE00"));
+
+    private static String export(
+            final AnimeListExporter exporter,
+            final List<String> usernames) throws IOException {
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ExportStats stats = exporter.export(usernames, LISTS, out);
+
+        assertEquals(usernames.size(), stats.getUsers());
+        assertEquals(2L * usernames.size(), stats.getEntries());
+        assertEquals(out.size(), stats.getBytes());
+
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void test_csv() throws Exception {
+        final String[] lines = export(new AnimeListExporter(ExportFormat.CSV), Collections.singletonList("unitTest"))
+                .split("\n");
+
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("username,series_animedb_id,series_title,series_synonyms,"));
+        assertTrue(lines[0].endsWith(",my_last_updated,my_tags"));
+        assertEquals("unitTest,269,Bleach,,1,366,,,,,,12,,,7,6,,,,\"a, b\"", lines[1]);
+        assertTrue(lines[2].startsWith(
+                "unitTest,2889,\"Bleach - The \"\"DiamondDust\"\" Rebellion, & Friends \u2764\uD83D\uDE00\",,1,"));
+    }
+
+    @Test
+    public void test_ndjson() throws Exception {
+        final String[] lines = export(new AnimeListExporter(ExportFormat.NDJSON), Arrays.asList("a", "b\"c"))
+                .split("\n");
+
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].startsWith("{\"username\":\"a\",\"series_animedb_id\":\"269\",\"series_title\":\"Bleach\","
+                + "\"series_synonyms\":null,\"series_type\":\"1\","));
+        assertTrue(lines[1].contains(
+                "\"series_title\":\"Bleach - The \\\"DiamondDust\\\" Rebellion, & Friends \u2764\uD83D\uDE00\""));
+        assertTrue(lines[3].startsWith("{\"username\":\"b\\\"c\","));
+        assertTrue(lines[3].endsWith("\"my_tags\":\"a, b\"}"));
+    }
+
+    @Test
+    public void test_mal_xml() throws Exception {
+        final Map<String, ByteArrayOutputStream> outputs = new LinkedHashMap<>();
+        final ExportStats stats = new AnimeListExporter(ExportFormat.MAL_XML).parallelism(2).exportEach(
+                Arrays.asList("a", "b"), LISTS, username -> {
+                    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    outputs.put(username, out);
+                    return Channels.newChannel(out);
+                });
+
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(outputs.keySet()));
+        assertEquals(2, stats.getUsers());
+        assertEquals(4, stats.getEntries());
+        assertEquals(outputs.get("a").size() + outputs.get("b").size(), stats.getBytes());
+
+        final String a = new String(outputs.get("a").toByteArray(), StandardCharsets.UTF_8);
+        final String b = new String(outputs.get("b").toByteArray(), StandardCharsets.UTF_8);
+
+        assertEquals(export(new AnimeListExporter(ExportFormat.MAL_XML), Collections.singletonList("a")), a);
+        assertTrue(a.startsWith("<?xml "));
+        assertTrue(b.startsWith("<?xml "));
+        assertTrue(b.contains("    <user_name>b</user_name>\n"));
+        assertTrue(a.contains("    <series_type>TV</series_type>\n"));
+        assertTrue(a.contains("    <my_status>Plan to Watch</my_status>\n"));
+        assertTrue(a.contains(
+                "    <series_title>Bleach - The \"DiamondDust\" Rebellion, &amp; Friends \u2764\uD83D\uDE00"
+                        + "</series_title>\n"));
+        assertTrue(a.contains("    <update_on_import>1</update_on_import>\n  </anime>\n"));
+        assertTrue(a.endsWith("</myanimelist>\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_mal_xml_rejects_several_users_in_one_output() throws Exception {
+        new AnimeListExporter(ExportFormat.MAL_XML).export(Arrays.asList("a", "b"), LISTS, new ByteArrayOutputStream());
+    }
+
+    @Test
+    public void test_parallel_gzip_matches_sequential() throws Exception {
+        final List<String> usernames = new ArrayList<>();
+
+        for (int i = 0; i < 50; i++)
+            usernames.add("user" + i);
+
+        for (ExportFormat format : Arrays.asList(ExportFormat.CSV, ExportFormat.NDJSON)) {
+            final String sequential = export(new AnimeListExporter(format), usernames);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            new AnimeListExporter(format).gzip(true).parallelism(4).export(usernames, LISTS, out);
+
+            final ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+                final byte[] buffer = new byte[8192];
+                int n;
+
+                while ((n = in.read(buffer)) > 0)
+                    decompressed.write(buffer, 0, n);
+            }
+
+            assertEquals(format.name(), sequential, new String(decompressed.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void test_failure_stops_the_export() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try {
+            new AnimeListExporter(ExportFormat.NDJSON).parallelism(2).export(Arrays.asList("a", "broken", "c"),
+                    username -> {
+                        if (username.equals("broken"))
+                            throw new IllegalStateException("broken");
+                        return LISTS.apply(username);
+                    }, out);
+            fail("Expected the export to fail");
+        } catch (IllegalStateException e) {
+            assertEquals("broken", e.getMessage());
+        }
+
+        assertEquals(2, new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n").length);
+    }
+}
@@ -0,0 +1,103 @@
+package me.bendoerr.mal.java.client.list;
+
+import com.github.tomakehurst.wiremock.junit.WireMockClassRule;
+import me.bendoerr.mal.java.client.MALClient;
+import me.bendoerr.mal.java.client.MALClientTests;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import javax.ws.rs.NotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnimeListBulkFetcherTests {
+
+    public static int TEST_PORT = 8091;
+
+    @ClassRule
+    public static WireMockClassRule MAL_SERVICE = new WireMockClassRule(TEST_PORT);
+
+    @Rule
+    public WireMockClassRule malService = MAL_SERVICE;
+
+    @Test
+    public void test_fetch_isolates_failures() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO))
+                .willReturn(aResponse()
+                        .withFixedDelay(100)
+                        .withHeader("Content-Type", "application/xml; charset=UTF-8")
+                        .withBody(MALClientTests.MALAPPINFO_TWO_ENTRIES)));
+        malService.stubFor(get(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO))
+                .withQueryParam("u", equalTo("missing"))
+                .willReturn(aResponse()
+                        .withStatus(404)));
+
+        final List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            usernames.add("user" + i);
+        usernames.add("missing");
+
+        final List<BulkFetchProgress> progress = new CopyOnWriteArrayList<>();
+
+        try (MALClient client = new MALClient("unitTest", "unitPass", "http://localhost:" + TEST_PORT)) {
+            final AnimeListBulkFetcher fetcher = new AnimeListBulkFetcher(client, 8).progress(progress::add);
+
+            final long start = System.nanoTime();
+            final Map<String, BulkFetchResult> results;
+            try (Stream<BulkFetchResult> stream = fetcher.fetch(usernames)) {
+                results = stream.collect(Collectors.toMap(BulkFetchResult::getUsername, Function.identity()));
+            }
+            final long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(21, results.size());
+            assertTrue(results.get("user7").isSuccess());
+            assertEquals(2, results.get("user7").getEntries().size());
+            assertFalse(results.get("missing").isSuccess());
+            assertTrue(results.get("missing").getError() instanceof NotFoundException);
+
+            // 20 delayed fetches, 8 at a time, take three rounds rather than twenty
+            assertTrue("took " + elapsedMillis + "ms", elapsedMillis < 1500);
+        }
+
+        assertEquals(21, progress.size());
+        final BulkFetchProgress last = progress.get(20);
+        assertTrue(last.isDone());
+        assertEquals(1, last.getFailed());
+        assertTrue(last.getThroughput() > 0);
+    }
+
+    @Test
+    public void test_fetch_on_platform_threads() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/xml; charset=UTF-8")
+                        .withBody(MALClientTests.MALAPPINFO_TWO_ENTRIES)));
+
+        try (MALClient client = new MALClient("unitTest", "unitPass", "http://localhost:" + TEST_PORT);
+             Stream<BulkFetchResult> stream = new AnimeListBulkFetcher(client, 2)
+                     .virtualThreads(false)
+                     .fetch(Arrays.asList("a", "b", "c"))) {
+
+            assertEquals(3, stream.filter(BulkFetchResult::isSuccess).count());
+        }
+    }
+
+    @Test
+    public void test_fetch_nobody() throws Exception {
+        try (MALClient client = new MALClient("unitTest", "unitPass", "http://localhost:" + TEST_PORT)) {
+            assertEquals(0, new AnimeListBulkFetcher(client, 2).fetch(new ArrayList<>()).count());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package me.bendoerr.mal.java.client.list;
+
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AnimeListRefresherTests {
+
+    private static AnimeListEntry entry(final String id, final String episodes, final String lastUpdated) {
+        final AnimeListEntry entry = new AnimeListEntry();
+        entry.setSeriesId(id);
+        entry.setSeriesStatus("1");
+        entry.setListWatchedEpisodes(episodes);
+        entry.setListLastUpdated(lastUpdated);
+        return entry;
+    }
+
+    @Test
+    public void test_first_refresh_adds_everything() {
+        final AnimeListDelta delta = AnimeListRefresher.diff(null, "unitTest",
+                Arrays.asList(entry("1", "1", "100"), entry("2", "1", "200")));
+
+        assertEquals(2, delta.getAdded().size());
+        assertTrue(delta.getChanged().isEmpty());
+        assertTrue(delta.getRemoved().isEmpty());
+        assertNull(delta.getPrevious());
+        assertEquals(200, delta.getSnapshot().getWatermark());
+    }
+
+    @Test
+    public void test_incremental_refresh() {
+        final AnimeListEntry unchanged = entry("1", "1", "100");
+        final AnimeListSnapshot previous = AnimeListSnapshot.of("unitTest", Arrays.asList(
+                unchanged, entry("2", "1", "200"), entry("3", "5", "50")));
+
+        final AnimeListEntry seriesChanged = entry("3", "5", "50");
+        seriesChanged.setSeriesStatus("2");
+
+        final AnimeListDelta delta = AnimeListRefresher.diff(previous, "unitTest", Arrays.asList(
+                entry("1", "1", "100"), seriesChanged, entry("4", "0", "300")));
+
+        assertEquals(Collections.singletonList(entry("4", "0", "300")), delta.getAdded());
+        assertEquals(Collections.singletonList(seriesChanged), delta.getChanged());
+        assertEquals(Collections.singletonList(entry("2", "1", "200")), delta.getRemoved());
+        assertEquals(300, delta.getSnapshot().getWatermark());
+        assertEquals(3, delta.getSnapshot().getEntries().size());
+        assertSame(unchanged, delta.getSnapshot().getEntries().get("1"));
+    }
+
+    @Test
+    public void test_entries_past_the_watermark_are_changed() {
+        final AnimeListSnapshot previous = AnimeListSnapshot.of("unitTest",
+                Collections.singletonList(entry("1", "1", "100")));
+
+        final AnimeListDelta delta = AnimeListRefresher.diff(previous, "unitTest",
+                Collections.singletonList(entry("1", "2", "150")));
+
+        assertEquals(1, delta.getChanged().size());
+        assertEquals("2", delta.getSnapshot().getEntries().get("1").getListWatchedEpisodes());
+    }
+
+    @Test
+    public void test_nothing_changed() {
+        final AnimeListSnapshot previous = AnimeListSnapshot.of("unitTest",
+                Collections.singletonList(entry("1", "1", "100")));
+
+        assertTrue(AnimeListRefresher.diff(previous, "unitTest",
+                Collections.singletonList(entry("1", "1", "100"))).isEmpty());
+    }
+}
@@ -0,0 +1,117 @@
+package me.bendoerr.mal.java.client.list;
+
+import com.github.tomakehurst.wiremock.junit.WireMockClassRule;
+import me.bendoerr.mal.java.client.MALClient;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+import me.bendoerr.mal.java.client.model.AnimeListEntryValues;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static me.bendoerr.mal.java.client.list.ListFixtures.stubList;
+import static me.bendoerr.mal.java.client.list.ListFixtures.values;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnimeListSyncTests {
+
+    public static int TEST_PORT = 8090;
+
+    @ClassRule
+    public static WireMockClassRule MAL_SERVICE = new WireMockClassRule(TEST_PORT);
+
+    @Rule
+    public WireMockClassRule malService = MAL_SERVICE;
+
+    private MALClient client =
+            new MALClient("unitTest", "unitPass", "http://localhost:" + TEST_PORT);
+
+    private static AnimeListEntry entry(final String id, final String episodes, final String status) {
+        final AnimeListEntry entry = new AnimeListEntry();
+        entry.setSeriesId(id);
+        entry.setListWatchedEpisodes(episodes);
+        entry.setListStatus(status);
+        entry.setListScore("0");
+        entry.setListStart("0000-00-00");
+        entry.setListTags("b, a");
+        return entry;
+    }
+
+    @Test
+    public void test_matcher_normalizes() {
+        final AnimeListEntryValues values = values("12", "watching");
+        values.setDateStart("00000000");
+        values.setTags("a,b");
+
+        assertTrue(AnimeListEntryMatcher.matches(values, entry("1", "12", "1")));
+        assertEquals(1, AnimeListEntryMatcher.differences(values, entry("1", "13", "1")).size());
+        assertEquals("status", AnimeListEntryMatcher.differences(values, entry("1", "12", "2")).get(0));
+    }
+
+    @Test
+    public void test_diff() {
+        final Map<String, AnimeListEntry> current = new LinkedHashMap<>();
+        current.put("1", entry("1", "12", "1"));
+        current.put("2", entry("2", "3", "1"));
+        current.put("3", entry("3", "1", "2"));
+
+        final Map<String, AnimeListEntryValues> desired = new LinkedHashMap<>();
+        desired.put("1", values("12", "watching"));
+        desired.put("2", values("4", "watching"));
+        desired.put("4", values("1", "plan to watch"));
+
+        final SyncPlan plan = new AnimeListSync(client, 2).deleteMissing(true).diff("unitTest", desired, current);
+
+        assertEquals(3, plan.getActions().size());
+        assertEquals(new SyncAction(SyncAction.Type.UPDATE, "2", desired.get("2")), plan.getActions().get(0));
+        assertEquals(new SyncAction(SyncAction.Type.ADD, "4", desired.get("4")), plan.getActions().get(1));
+        assertEquals(new SyncAction(SyncAction.Type.DELETE, "3", null), plan.getActions().get(2));
+        assertEquals("1", plan.getUnchanged().get(0));
+    }
+
+    @Test
+    public void test_unobservable_values_force_an_update() {
+        final Map<String, AnimeListEntry> current = new LinkedHashMap<>();
+        current.put("1", entry("1", "12", "1"));
+
+        final AnimeListEntryValues values = values("12", "1");
+        values.setComments("Great");
+
+        final Map<String, AnimeListEntryValues> desired = new LinkedHashMap<>();
+        desired.put("1", values);
+
+        assertEquals(1, new AnimeListSync(client, 1).diff("unitTest", desired, current).getActions().size());
+        assertTrue(new AnimeListSync(client, 1).updateUnobservable(false)
+                .diff("unitTest", desired, current).isEmpty());
+    }
+
+    @Test
+    public void test_sync() throws Exception {
+        stubList(malService);
+        malService.stubFor(post(urlPathEqualTo("/api/animelist/update/2889.xml"))
+                .willReturn(aResponse().withBody("Updated")));
+        malService.stubFor(post(urlPathEqualTo("/api/animelist/add/1.xml"))
+                .willReturn(aResponse().withStatus(500).withBody("Ugh")));
+
+        final Map<String, AnimeListEntryValues> desired = new LinkedHashMap<>();
+        desired.put("269", values("12", "watching"));
+        desired.put("2889", values("1", "watching"));
+        desired.put("1", values("0", "plantowatch"));
+
+        final SyncReport report = new AnimeListSync(client, 4).sync("unitTest", desired);
+
+        assertEquals(2, report.getResults().size());
+        assertFalse(report.isSuccess());
+        assertEquals("1", report.getFailures().get(0).getAction().getId());
+        assertEquals("269", report.getPlan().getUnchanged().get(0));
+
+        malService.verify(1, getRequestedFor(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO)));
+        malService.verify(1, postRequestedFor(urlPathEqualTo("/api/animelist/update/2889.xml")));
+        malService.verify(1, postRequestedFor(urlPathEqualTo("/api/animelist/add/1.xml")));
+    }
+}
@@ -0,0 +1,141 @@
+package me.bendoerr.mal.java.client.list;
+
+import com.github.tomakehurst.wiremock.junit.WireMockClassRule;
+import me.bendoerr.mal.java.client.MALClient;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import javax.ws.rs.ClientErrorException;
+import java.util.Collections;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static me.bendoerr.mal.java.client.list.ListFixtures.stubList;
+import static me.bendoerr.mal.java.client.list.ListFixtures.stubMutations;
+import static me.bendoerr.mal.java.client.list.ListFixtures.values;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AnimeListVerifierTests {
+
+    public static int TEST_PORT = 8098;
+
+    @ClassRule
+    public static WireMockClassRule MAL_SERVICE = new WireMockClassRule(TEST_PORT);
+
+    @Rule
+    public WireMockClassRule malService = MAL_SERVICE;
+
+    private MALClient client =
+            new MALClient("unitTest", "unitPass", "http://localhost:" + TEST_PORT);
+
+    @Test
+    public void test_one_fetch_confirms_a_batch() throws Exception {
+        stubList(malService);
+        stubMutations(malService);
+
+        try (AnimeListVerifier verifier = new AnimeListVerifier(client, "unitTest", 500, TimeUnit.MILLISECONDS, 2)) {
+            final CompletableFuture<VerificationResult> watching = verifier.update("269", values("12", "watching"));
+            final CompletableFuture<VerificationResult> completed = verifier.add("2889", values("1", "completed"));
+            final CompletableFuture<VerificationResult> deleted = verifier.delete("1");
+
+            assertTrue(watching.get(5, TimeUnit.SECONDS).isConfirmed());
+            assertTrue(completed.get(5, TimeUnit.SECONDS).isConfirmed());
+            assertTrue(deleted.get(5, TimeUnit.SECONDS).isConfirmed());
+            assertEquals(0, watching.get().getResubmits());
+            assertEquals(1, verifier.getFetchCount());
+            assertEquals(0, verifier.getResubmitCount());
+            assertEquals(0, verifier.getPendingCount());
+        }
+
+        malService.verify(1, getRequestedFor(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO)));
+    }
+
+    @Test
+    public void test_unconfirmed_mutations_are_resubmitted_up_to_the_cap() throws Exception {
+        stubList(malService);
+        stubMutations(malService);
+
+        try (AnimeListVerifier verifier = new AnimeListVerifier(client, "unitTest", 200, TimeUnit.MILLISECONDS, 1)) {
+            final VerificationResult mismatched = verifier.update("269", values("13", "watching"))
+                    .get(5, TimeUnit.SECONDS);
+            final VerificationResult missing = verifier.add("1", values("0", "plantowatch"))
+                    .get(5, TimeUnit.SECONDS);
+            final VerificationResult added = verifier.add("2889", values("5", null))
+                    .get(5, TimeUnit.SECONDS);
+
+            assertEquals(VerificationResult.Outcome.MISMATCHED, mismatched.getOutcome());
+            assertEquals(Collections.singletonList("episode"), mismatched.getDifferences());
+            assertEquals(1, mismatched.getResubmits());
+            assertEquals(VerificationResult.Outcome.MISSING, missing.getOutcome());
+            assertEquals(1, missing.getResubmits());
+            assertEquals(VerificationResult.Outcome.MISMATCHED, added.getOutcome());
+            assertEquals(3, verifier.getResubmitCount());
+        }
+
+        malService.verify(2, postRequestedFor(urlPathEqualTo("/api/animelist/update/269.xml")));
+        malService.verify(2, postRequestedFor(urlPathEqualTo("/api/animelist/add/1.xml")));
+        // Adding an anime already on the list again would do nothing, so it is updated instead
+        malService.verify(1, postRequestedFor(urlPathEqualTo("/api/animelist/add/2889.xml")));
+        malService.verify(1, postRequestedFor(urlPathEqualTo("/api/animelist/update/2889.xml")));
+    }
+
+    @Test
+    public void test_newer_mutation_supersedes() throws Exception {
+        stubList(malService);
+
+        try (AnimeListVerifier verifier = new AnimeListVerifier(client, "unitTest", 200, TimeUnit.MILLISECONDS, 0)) {
+            final CompletableFuture<VerificationResult> older =
+                    verifier.verify(new SyncAction(SyncAction.Type.UPDATE, "269", values("11", null)));
+            final CompletableFuture<VerificationResult> newer =
+                    verifier.verify(new SyncAction(SyncAction.Type.UPDATE, "269", values("12", null)));
+
+            assertEquals(1, verifier.getPendingCount());
+            assertTrue(newer.get(5, TimeUnit.SECONDS).isConfirmed());
+            assertEquals(newer.get(), older.get(5, TimeUnit.SECONDS));
+            assertEquals(1, verifier.getFetchCount());
+        }
+    }
+
+    @Test
+    public void test_rejected_mutation_fails() throws Exception {
+        stubList(malService);
+        malService.stubFor(post(urlPathEqualTo("/api/animelist/update/5.xml"))
+                .willReturn(aResponse().withStatus(400).withBody("Invalid")));
+
+        try (AnimeListVerifier verifier = new AnimeListVerifier(client, "unitTest", 200, TimeUnit.MILLISECONDS, 2)) {
+            verifier.update("5", values("1", "1")).get(5, TimeUnit.SECONDS);
+            fail("Expected the update to be rejected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ClientErrorException);
+        }
+
+        malService.verify(0, getRequestedFor(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO)));
+    }
+
+    @Test
+    public void test_close_while_sending_cancels() throws Exception {
+        stubList(malService);
+        stubMutations(malService, aResponse().withFixedDelay(500).withBody("Updated"));
+
+        final CompletableFuture<VerificationResult> result;
+
+        try (AnimeListVerifier verifier = new AnimeListVerifier(client, "unitTest", 200, TimeUnit.MILLISECONDS, 2)) {
+            result = verifier.update("269", values("12", "watching"));
+        }
+
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            fail("Expected the update to be cancelled");
+        } catch (CancellationException e) {
+            assertTrue(result.isCancelled());
+        }
+
+        malService.verify(0, getRequestedFor(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO)));
+    }
+}
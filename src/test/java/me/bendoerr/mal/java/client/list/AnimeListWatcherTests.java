@@ -0,0 +1,121 @@
+package me.bendoerr.mal.java.client.list;
+
+import com.github.tomakehurst.wiremock.junit.WireMockClassRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import me.bendoerr.mal.java.client.MALClient;
+import me.bendoerr.mal.java.client.MALClientTests;
+import me.bendoerr.mal.java.client.TokenBucket;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AnimeListWatcherTests {
+
+    public static int TEST_PORT = 8099;
+
+    @ClassRule
+    public static WireMockClassRule MAL_SERVICE = new WireMockClassRule(TEST_PORT);
+
+    @Rule
+    public WireMockClassRule malService = MAL_SERVICE;
+
+    private MALClient client =
+            new MALClient("unitTest", "unitPass", "http://localhost:" + TEST_PORT);
+
+    /**
+     * Bleach watched further and scored higher, the movie removed.
+     */
+    private static final String MALAPPINFO_CHANGED = MALClientTests.MALAPPINFO_TWO_ENTRIES
+            .substring(0, MALClientTests.MALAPPINFO_TWO_ENTRIES.lastIndexOf("  <anime>"))
+            .replace("<my_watched_episodes>12<", "<my_watched_episodes>13<")
+            .replace("<my_score>7<", "<my_score>8<")
+            .replace("<my_last_updated>1462478400<", "<my_last_updated>1462479000<")
+            + "</myanimelist>";
+
+    @Test
+    public void test_changes_are_emitted_and_idle_users_backed_off() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO))
+                .inScenario("watched")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willSetStateTo("changed")
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/xml; charset=UTF-8")
+                        .withBody(MALClientTests.MALAPPINFO_TWO_ENTRIES)));
+        malService.stubFor(get(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO))
+                .inScenario("watched")
+                .whenScenarioStateIs("changed")
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/xml; charset=UTF-8")
+                        .withBody(MALAPPINFO_CHANGED)));
+
+        final BlockingQueue<AnimeListChange> changes = new LinkedBlockingQueue<>();
+
+        try (AnimeListWatcher watcher = new AnimeListWatcher(
+                client, new TokenBucket(100, 1), 100, 400, TimeUnit.MILLISECONDS, 2)) {
+
+            watcher.listener(changes::add).watch("unitTest");
+            watcher.watch("unitTest");
+            assertEquals(1, watcher.getWatchedCount());
+
+            final AnimeListChange episodes = changes.poll(5, TimeUnit.SECONDS);
+            final AnimeListChange score = changes.poll(5, TimeUnit.SECONDS);
+            final AnimeListChange removed = changes.poll(5, TimeUnit.SECONDS);
+
+            assertEquals(AnimeListChange.Type.EPISODES, episodes.getType());
+            assertEquals("269", episodes.getId());
+            assertEquals("12", episodes.getPrevious().getListWatchedEpisodes());
+            assertEquals("13", episodes.getCurrent().getListWatchedEpisodes());
+            assertEquals(AnimeListChange.Type.SCORE, score.getType());
+            assertEquals(AnimeListChange.Type.REMOVED, removed.getType());
+            assertEquals("2889", removed.getId());
+            assertNull(removed.getCurrent());
+
+            // Nothing changes any more, so the interval backs off to the maximum
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+            while (watcher.getPollInterval("unitTest", TimeUnit.MILLISECONDS) < 400 && System.nanoTime() < deadline)
+                Thread.sleep(50);
+
+            assertEquals(400, watcher.getPollInterval("unitTest", TimeUnit.MILLISECONDS));
+            assertNull(changes.poll(500, TimeUnit.MILLISECONDS));
+            assertEquals(3, watcher.getChangeCount());
+            assertEquals(0, watcher.getFailureCount());
+
+            watcher.unwatch("unitTest");
+            assertEquals(-1, watcher.getPollInterval("unitTest", TimeUnit.MILLISECONDS));
+            assertNull(watcher.getSnapshot("unitTest"));
+        }
+    }
+
+    @Test
+    public void test_budget_caps_the_poll_rate() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/xml; charset=UTF-8")
+                        .withBody(MALClientTests.MALAPPINFO_TWO_ENTRIES)));
+
+        final long polls;
+
+        try (AnimeListWatcher watcher = new AnimeListWatcher(
+                client, new TokenBucket(5, 1), 20, 20, TimeUnit.MILLISECONDS, 4)) {
+
+            for (int i = 0; i < 10; i++)
+                watcher.watch("user" + i);
+
+            Thread.sleep(1000);
+            polls = watcher.getPollCount();
+        }
+
+        // Unbounded, ten users every 20ms would be around 500 polls
+        assertTrue("polls: " + polls, polls >= 3 && polls <= 8);
+    }
+}
@@ -0,0 +1,208 @@
+package me.bendoerr.mal.java.client.list;
+
+import com.github.tomakehurst.wiremock.junit.WireMockClassRule;
+import me.bendoerr.mal.java.client.MALClient;
+import me.bendoerr.mal.java.client.model.AnimeListEntryValues;
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static me.bendoerr.mal.java.client.list.ListFixtures.stubMutations;
+import static me.bendoerr.mal.java.client.list.ListFixtures.values;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AnimeListWriteQueueTests {
+
+    public static int TEST_PORT = 8092;
+
+    @ClassRule
+    public static WireMockClassRule MAL_SERVICE = new WireMockClassRule(TEST_PORT);
+
+    @Rule
+    public WireMockClassRule malService = MAL_SERVICE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final MALClient client =
+            new MALClient("unitTest", "unitPass", "http://localhost:" + TEST_PORT);
+
+    @AfterClass
+    public static void closeClient() throws Exception {
+        client.close();
+    }
+
+    @Test
+    public void test_journal_line_round_trip() {
+        final AnimeListEntryValues values = values("12", "1");
+        values.setTags("a, b & c");
+        values.setComments("Caf\u00e9 = good");
+
+        final SyncAction update = new SyncAction(SyncAction.Type.UPDATE, "2 89", values);
+        final SyncAction delete = new SyncAction(SyncAction.Type.DELETE, "269", null);
+
+        assertEquals(update, AnimeListWriteQueue.decode(AnimeListWriteQueue.encode(update)));
+        assertEquals(delete, AnimeListWriteQueue.decode(AnimeListWriteQueue.encode(delete)));
+        assertNull(AnimeListWriteQueue.decode("UPDATE 269"));
+        assertNull(AnimeListWriteQueue.decode("UPSERT 269 episode=1"));
+        assertNull(AnimeListWriteQueue.decode("UPDATE 269 nonsense=1"));
+    }
+
+    @Test
+    public void test_updates_coalesce() throws Exception {
+        stubMutations(malService);
+
+        try (AnimeListWriteQueue queue = new AnimeListWriteQueue(client, null, 100, 1, TimeUnit.HOURS, 2)) {
+            queue.update("269", values("1", "1"));
+            queue.update("269", values("2", null));
+            queue.update("269", values("3", null));
+            queue.update("2889", values("1", "2"));
+
+            assertEquals(2, queue.getPendingCount());
+            assertEquals(4, queue.getSubmittedCount());
+
+            final List<SyncResult> results = queue.flush();
+
+            assertEquals(2, results.size());
+            assertTrue(results.get(0).isSuccess());
+            assertEquals("3", results.get(0).getAction().getValues().getEpisode());
+            assertEquals("1", results.get(0).getAction().getValues().getStatus());
+            assertEquals(0, queue.getPendingCount());
+            assertEquals(2, queue.getSentCount());
+        }
+
+        malService.verify(1, postRequestedFor(urlPathEqualTo("/api/animelist/update/269.xml"))
+                .withRequestBody(containing("%3Cepisode%3E3%3C%2Fepisode%3E")));
+        malService.verify(1, postRequestedFor(urlPathEqualTo("/api/animelist/update/2889.xml")));
+    }
+
+    @Test
+    public void test_delete_supersedes_and_add_follows_it() throws Exception {
+        stubMutations(malService);
+
+        try (AnimeListWriteQueue queue = new AnimeListWriteQueue(client, null, 100, 1, TimeUnit.HOURS, 1)) {
+            queue.update("269", values("1", "1"));
+            queue.delete("269");
+            queue.add("269", values("0", "6"));
+            queue.update("269", values("1", null));
+
+            final List<SyncResult> results = queue.flush();
+
+            assertEquals(2, results.size());
+            assertEquals(SyncAction.Type.DELETE, results.get(0).getAction().getType());
+            assertEquals(SyncAction.Type.ADD, results.get(1).getAction().getType());
+            assertEquals("1", results.get(1).getAction().getValues().getEpisode());
+            assertEquals("6", results.get(1).getAction().getValues().getStatus());
+        }
+
+        malService.verify(0, postRequestedFor(urlPathEqualTo("/api/animelist/update/269.xml")));
+        malService.verify(1, deleteRequestedFor(urlPathEqualTo("/api/animelist/delete/269.xml")));
+        malService.verify(1, postRequestedFor(urlPathEqualTo("/api/animelist/add/269.xml")));
+    }
+
+    @Test
+    public void test_failures_are_requeued_unless_rejected() throws Exception {
+        malService.stubFor(post(urlPathEqualTo("/api/animelist/update/269.xml"))
+                .willReturn(aResponse().withStatus(500).withBody("Ugh")));
+        malService.stubFor(post(urlPathEqualTo("/api/animelist/update/2889.xml"))
+                .willReturn(aResponse().withStatus(400).withBody("Invalid")));
+
+        try (AnimeListWriteQueue queue = new AnimeListWriteQueue(client, null, 100, 1, TimeUnit.HOURS, 2)) {
+            queue.update("269", values("1", "1"));
+            queue.update("2889", values("1", "1"));
+
+            final List<SyncResult> results = queue.flush();
+
+            assertEquals(2, results.size());
+            assertFalse(results.get(0).isSuccess());
+            assertFalse(results.get(1).isSuccess());
+            assertEquals(1, queue.getPendingCount());
+
+            queue.update("269", values("2", null));
+            stubMutations(malService);
+
+            final List<SyncResult> retried = queue.flush();
+
+            assertEquals(1, retried.size());
+            assertTrue(retried.get(0).isSuccess());
+            assertEquals("2", retried.get(0).getAction().getValues().getEpisode());
+            assertEquals("1", retried.get(0).getAction().getValues().getStatus());
+        }
+    }
+
+    @Test
+    public void test_flush_when_full() throws Exception {
+        stubMutations(malService);
+
+        try (AnimeListWriteQueue queue = new AnimeListWriteQueue(client, null, 2, 1, TimeUnit.HOURS, 2)) {
+            queue.update("269", values("1", "1"));
+            queue.update("2889", values("1", "1"));
+
+            for (int i = 0; i < 100 && queue.getSentCount() < 2; i++)
+                Thread.sleep(50);
+
+            assertEquals(2, queue.getSentCount());
+            assertEquals(0, queue.getPendingCount());
+        }
+    }
+
+    @Test
+    public void test_flush_on_interval() throws Exception {
+        stubMutations(malService);
+
+        try (AnimeListWriteQueue queue = new AnimeListWriteQueue(client, null, 100, 50, TimeUnit.MILLISECONDS, 1)) {
+            queue.delete("269");
+
+            for (int i = 0; i < 100 && queue.getSentCount() < 1; i++)
+                Thread.sleep(50);
+
+            assertEquals(1, queue.getSentCount());
+        }
+    }
+
+    @Test
+    public void test_journal_survives_restart() throws Exception {
+        stubMutations(malService, aResponse().withStatus(503).withBody("Down"));
+
+        final Path journal = folder.getRoot().toPath().resolve("write-queue.journal");
+
+        try (AnimeListWriteQueue queue = new AnimeListWriteQueue(client, journal, 100, 1, TimeUnit.HOURS, 1)) {
+            queue.update("269", values("1", "1"));
+            queue.update("269", values("2", null));
+            queue.delete("2889");
+        }
+
+        assertEquals(2, Files.readAllLines(journal).size());
+
+        // A torn line from a crash mid-append is skipped
+        Files.write(journal, "UPDATE 1 epi".getBytes(), StandardOpenOption.APPEND);
+
+        stubMutations(malService);
+        // Only count what the restarted queue replays, not what the first one tried on close
+        malService.resetRequests();
+
+        try (AnimeListWriteQueue queue = new AnimeListWriteQueue(client, journal, 100, 1, TimeUnit.HOURS, 1)) {
+            assertEquals(2, queue.getPendingCount());
+
+            final List<SyncResult> results = queue.flush();
+
+            assertEquals(2, results.size());
+            assertEquals("2", results.get(0).getAction().getValues().getEpisode());
+        }
+
+        assertTrue(Files.readAllLines(journal).isEmpty());
+        malService.verify(1, deleteRequestedFor(urlPathEqualTo("/api/animelist/delete/2889.xml")));
+    }
+}
@@ -0,0 +1,50 @@
+package me.bendoerr.mal.java.client.list;
+
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.junit.WireMockClassRule;
+import me.bendoerr.mal.java.client.MALClient;
+import me.bendoerr.mal.java.client.MALClientTests;
+import me.bendoerr.mal.java.client.model.AnimeListEntryValues;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+
+/**
+ * Values and MAL stubs shared by the list tests.
+ */
+final class ListFixtures {
+
+    private ListFixtures() {
+    }
+
+    static AnimeListEntryValues values(final String episode, final String status) {
+        final AnimeListEntryValues values = new AnimeListEntryValues();
+        values.setEpisode(episode);
+        values.setStatus(status);
+        return values;
+    }
+
+    /**
+     * Answer the list fetch with {@link MALClientTests#MALAPPINFO_TWO_ENTRIES}.
+     */
+    static void stubList(final WireMockClassRule malService) {
+        malService.stubFor(get(urlPathEqualTo(MALClient.X_PATH_MALAPPINFO))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/xml; charset=UTF-8")
+                        .withBody(MALClientTests.MALAPPINFO_TWO_ENTRIES)));
+    }
+
+    /**
+     * Accept every add, update and delete.
+     */
+    static void stubMutations(final WireMockClassRule malService) {
+        stubMutations(malService, aResponse().withBody("Updated"));
+    }
+
+    /**
+     * Answer every add, update and delete with the response, adds and updates being POSTs and deletes DELETEs.
+     */
+    static void stubMutations(final WireMockClassRule malService, final ResponseDefinitionBuilder response) {
+        malService.stubFor(post(urlPathMatching("/api/animelist/(add|update)/.*")).willReturn(response));
+        malService.stubFor(delete(urlPathMatching("/api/animelist/delete/.*")).willReturn(response));
+    }
+}
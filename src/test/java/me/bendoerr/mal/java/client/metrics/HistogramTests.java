@@ -0,0 +1,50 @@
+package me.bendoerr.mal.java.client.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTests {
+
+    @Test
+    public void test_buckets() {
+        for (long value : new long[]{0, 1, 63, 64, 65, 127, 128, 1000, 123456789L, 1L << 40}) {
+            final int index = Histogram.index(value);
+            final long highest = Histogram.highestEquivalent(index);
+
+            assertTrue(value + " <= " + highest, value <= highest);
+            assertTrue(value + " within 3.2%", highest - value <= Math.max(0, value / 31));
+            assertEquals(index, Histogram.index(highest));
+        }
+    }
+
+    @Test
+    public void test_percentiles() {
+        final Histogram histogram = new Histogram();
+
+        for (long i = 1; i <= 1000; i++)
+            histogram.record(i * 1000);
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_500, histogram.getMean(), 0.001);
+        assertEquals(500_000, histogram.getValueAtPercentile(50), 500_000 * 0.032);
+        assertEquals(990_000, histogram.getValueAtPercentile(99), 990_000 * 0.032);
+        assertEquals(1_000_000, histogram.getValueAtPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void test_out_of_range() {
+        final Histogram histogram = new Histogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.getMax());
+    }
+}
@@ -0,0 +1,108 @@
+package me.bendoerr.mal.java.client.model;
+
+import org.junit.Test;
+
+import javax.ws.rs.ProcessingException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LazyAnimeEntryTests {
+
+    private static final String SEARCH = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+            "<!-- search results -->\n" +
+            "<anime>\n" +
+            "  <entry>\n" +
+            "    <id>2889</id>\n" +
+            "    <title>Bleach - The DiamondDust Rebellion</title>\n" +
+            "    <english>Bleach: Diamond Dust Rebellion</english>\n" +
+            "    <synonyms>Bleach: The Diamond Dust Rebellion - M&Aring;\r\n" +
+            "    Bleach - The DiamondDust Rebellion - Mou Hitotsu no Hyourinmaru</synonyms>\n" +
+            "    <episodes>1</episodes>\n" +
+            "    <type>Movie</type>\n" +
+            "    <status>Finished Airing</status>\n" +
+            "    <start_date>2007-12-22</start_date>\n" +
+            "    <end_date>2007-12-22</end_date>\n" +
+            "    <synopsis>A valuable artifact known as &amp;quot;King's Seal&amp;quot; is stolen &#8212; " +
+            "&amp;#039;Hitsugaya&amp;#x27; &amp;bogus; &amp; <![CDATA[<b>1 < 2</b>]]></synopsis>\n" +
+            "    <image>http://cdn.myanimelist.net/images/anime/6/4052.jpg</image>\n" +
+            "  </entry>\n" +
+            "  <entry>\n" +
+            "    <id>269</id>\n" +
+            "    <title>Bleach \u2764 &lt;TV&gt;</title>\n" +
+            "    <english/>\n" +
+            "    <unknown><nested>skipped</nested></unknown>\n" +
+            "  </entry>\n" +
+            "</anime>";
+
+    private static List<LazyAnimeEntry> parse(
+            final String document) {
+
+        return LazyAnimeEntry.parse(document.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void test_fields() {
+        final List<LazyAnimeEntry> entries = parse(SEARCH);
+
+        assertEquals(2, entries.size());
+
+        final LazyAnimeEntry first = entries.get(0);
+        assertEquals("2889", first.getId());
+        assertEquals("Bleach - The DiamondDust Rebellion", first.getTitle());
+        assertEquals("Bleach: Diamond Dust Rebellion", first.getEnglish());
+        assertEquals("Bleach: The Diamond Dust Rebellion - M\u00c5\n" +
+                "    Bleach - The DiamondDust Rebellion - Mou Hitotsu no Hyourinmaru", first.getSynonyms());
+        assertEquals("1", first.getEpisodes());
+        assertEquals("Movie", first.getType());
+        assertEquals("Finished Airing", first.getStatus());
+        assertEquals("2007-12-22", first.getStartDate());
+        assertEquals("2007-12-22", first.getEndDate());
+        assertEquals("A valuable artifact known as \"King's Seal\" is stolen \u2014 'Hitsugaya' &bogus; & <b>1 < 2</b>",
+                first.getSynopsis());
+        assertEquals("http://cdn.myanimelist.net/images/anime/6/4052.jpg", first.getImage());
+
+        final LazyAnimeEntry second = entries.get(1);
+        assertEquals("269", second.getId());
+        assertEquals("Bleach \u2764 <TV>", second.getTitle());
+        assertEquals("", second.getEnglish());
+        assertNull(second.getSynopsis());
+        assertNull(second.getImage());
+    }
+
+    @Test
+    public void test_values_are_cached() {
+        final LazyAnimeEntry entry = parse(SEARCH).get(0);
+
+        assertTrue(entry.getSynopsis() == entry.getSynopsis());
+    }
+
+    @Test
+    public void test_toAnimeEntry() {
+        final AnimeEntry entry = parse(SEARCH).get(1).toAnimeEntry();
+
+        assertEquals("269", entry.getId());
+        assertEquals("Bleach \u2764 <TV>", entry.getTitle());
+        assertEquals("", entry.getEnglish());
+        assertNull(entry.getSynopsis());
+    }
+
+    @Test
+    public void test_no_results() {
+        assertEquals(0, LazyAnimeEntry.parse(new byte[0]).size());
+        assertEquals(0, parse("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<anime/>").size());
+    }
+
+    @Test(expected = ProcessingException.class)
+    public void test_truncated() {
+        parse(SEARCH.substring(0, SEARCH.indexOf("</synopsis>")));
+    }
+
+    @Test(expected = ProcessingException.class)
+    public void test_mismatched_end_tag() {
+        parse("<anime><entry><id>1</title></entry></anime>");
+    }
+}
@@ -0,0 +1,160 @@
+package me.bendoerr.mal.java.client.model;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TypedModelTests {
+
+    private static AnimeListEntry listEntry() {
+        final AnimeListEntry entry = new AnimeListEntry();
+        entry.setSeriesId("269");
+        entry.setSeriesTitle("Bleach");
+        entry.setSeriesSynonyms("; Bleach");
+        entry.setSeriesType("1");
+        entry.setSeriesEpisodes("366");
+        entry.setSeriesStatus("2");
+        entry.setSeriesStart("2004-10-05");
+        entry.setSeriesEnd("2012-03-27");
+        entry.setSeriesImage("http://cdn.myanimelist.net/images/anime/3/40451.jpg");
+        entry.setListId("0");
+        entry.setListWatchedEpisodes("12");
+        entry.setListStart("2015-06-00");
+        entry.setListFinished("0000-00-00");
+        entry.setListScore("8");
+        entry.setListStatus("1");
+        entry.setListRewatching("0");
+        entry.setListRewatchingEp("0");
+        entry.setListLastUpdated("1459535066");
+        entry.setListTags("shounen, long");
+        return entry;
+    }
+
+    @Test
+    public void test_list_status() {
+        assertEquals(ListStatus.PLAN_TO_WATCH, ListStatus.parse("6"));
+        assertEquals(ListStatus.PLAN_TO_WATCH, ListStatus.parse("Plan to Watch"));
+        assertEquals(ListStatus.ON_HOLD, ListStatus.parse("on-hold"));
+        assertEquals(ListStatus.COMPLETED, ListStatus.fromCode(2));
+        assertNull(ListStatus.parse("5"));
+        assertNull(ListStatus.parse(" "));
+        assertEquals("3", ListStatus.format(ListStatus.ON_HOLD));
+    }
+
+    @Test
+    public void test_list_entry_round_trip() {
+        final TypedAnimeListEntry typed = TypedAnimeListEntry.of(listEntry());
+
+        assertEquals(269, typed.getSeriesId());
+        assertEquals(366, typed.getSeriesEpisodes());
+        assertEquals(MalDate.of(LocalDate.of(2004, 10, 5)), typed.getSeriesStart());
+        assertEquals(MalDate.of(2015, 6, 0), typed.getListStart());
+        assertNull(typed.getListFinished());
+        assertEquals(8, typed.getListScore());
+        assertEquals(ListStatus.WATCHING, typed.getListStatus());
+        assertFalse(typed.isListRewatching());
+        assertEquals(1459535066L, typed.getListLastUpdated());
+        assertEquals(new LinkedHashSet<>(Arrays.asList("shounen", "long")), typed.getListTags());
+
+        final AnimeListEntry back = typed.toAnimeListEntry();
+        assertEquals("269", back.getSeriesId());
+        assertEquals("2004-10-05", back.getSeriesStart());
+        assertEquals("2015-06-00", back.getListStart());
+        assertEquals("0000-00-00", back.getListFinished());
+        assertEquals("1", back.getListStatus());
+        assertEquals("shounen, long", back.getListTags());
+        assertEquals(typed, TypedAnimeListEntry.of(back));
+    }
+
+    @Test
+    public void test_interning() {
+        final AnimeListEntry a = listEntry();
+        final AnimeListEntry b = listEntry();
+        b.setSeriesType(new String("1"));
+
+        assertSame(TypedAnimeListEntry.of(a).getSeriesType(), TypedAnimeListEntry.of(b).getSeriesType());
+    }
+
+    @Test
+    public void test_anime_entry_round_trip() {
+        final AnimeEntry entry = new AnimeEntry();
+        entry.setId("2889");
+        entry.setTitle("Bleach - The DiamondDust Rebellion");
+        entry.setEpisodes("1");
+        entry.setType("Movie");
+        entry.setStatus("Finished Airing");
+        entry.setStartDate("2007-12-22");
+        entry.setEndDate("0000-00-00");
+
+        final TypedAnimeEntry typed = TypedAnimeEntry.of(entry);
+        assertEquals(2889, typed.getId());
+        assertEquals(LocalDate.of(2007, 12, 22), typed.getStartDate().toLocalDate());
+        assertNull(typed.getEndDate());
+
+        final AnimeEntry back = typed.toAnimeEntry();
+        assertEquals(entry, back);
+    }
+
+    @Test
+    public void test_values_round_trip() {
+        final TypedAnimeListEntryValues typed = new TypedAnimeListEntryValues();
+        typed.setEpisode(12);
+        typed.setStatus(ListStatus.COMPLETED);
+        typed.setScore((byte) 9);
+        typed.setDateStart(MalDate.of(2016, 4, 0));
+        typed.setDateFinish(MalDate.of(LocalDate.of(2016, 4, 1)));
+        typed.setEnableRewatching(true);
+
+        final AnimeListEntryValues values = typed.toAnimeListEntryValues();
+        assertEquals("12", values.getEpisode());
+        assertEquals("2", values.getStatus());
+        assertEquals("9", values.getScore());
+        assertEquals("04012016", values.getDateFinish());
+        assertEquals("1", values.getEnableRewatching());
+        assertEquals("04002016", values.getDateStart());
+        assertNull(values.getTags());
+
+        final TypedAnimeListEntryValues back = TypedAnimeListEntryValues.of(values);
+        assertEquals(typed, back);
+        assertTrue(back.getEnableRewatching());
+    }
+
+    @Test
+    public void test_partial_dates() {
+        final AnimeEntry entry = new AnimeEntry();
+        entry.setId("31240");
+        entry.setStartDate("2016-04-00");
+        entry.setEndDate("2017-00-00");
+
+        final TypedAnimeEntry typed = TypedAnimeEntry.of(entry);
+        assertEquals(MalDate.of(2016, 4, 0), typed.getStartDate());
+        assertFalse(typed.getStartDate().isComplete());
+        assertNull(typed.getStartDate().toLocalDate());
+        assertEquals(2017, typed.getEndDate().getYear());
+        assertEquals(0, typed.getEndDate().getMonth());
+
+        final AnimeEntry back = typed.toAnimeEntry();
+        assertEquals("2016-04-00", back.getStartDate());
+        assertEquals("2017-00-00", back.getEndDate());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_bad_partial_date() {
+        MalDate.of(0, 2, 30);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_bad_date() {
+        final AnimeListEntry entry = listEntry();
+        entry.setSeriesStart("2004-13-05");
+        TypedAnimeListEntry.of(entry);
+    }
+}
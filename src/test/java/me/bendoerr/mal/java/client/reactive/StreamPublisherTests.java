@@ -0,0 +1,402 @@
+package me.bendoerr.mal.java.client.reactive;
+
+import org.junit.After;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Conformance of {@link StreamPublisher} to the Reactive Streams specification, one test per rule in the style of the
+ * Reactive Streams TCK, whose names refer to the rule numbers.
+ */
+public class StreamPublisherTests {
+
+    private static final long TIMEOUT_MILLIS = 2000;
+    private static final long NO_SIGNAL_MILLIS = 100;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private StreamPublisher<Integer> range(
+            final int count) {
+
+        return new StreamPublisher<>(() -> {
+            opened.incrementAndGet();
+            return IntStream.range(0, count).boxed().onClose(closed::incrementAndGet);
+        }, executor);
+    }
+
+    /**
+     * Records every signal, in order, failing on any signal that overlaps another.
+     */
+    private static class Recorder implements Subscriber<Integer> {
+
+        final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+        final AtomicBoolean signalling = new AtomicBoolean();
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        volatile Subscription subscription;
+
+        @Override
+        public void onSubscribe(final Subscription s) {
+            enter();
+            subscription = s;
+            signals.add("subscribe");
+            exit();
+        }
+
+        @Override
+        public void onNext(final Integer value) {
+            enter();
+            signals.add(value);
+            exit();
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+            enter();
+            signals.add(t);
+            exit();
+        }
+
+        @Override
+        public void onComplete() {
+            enter();
+            signals.add("complete");
+            exit();
+        }
+
+        private void enter() {
+            if (!signalling.compareAndSet(false, true))
+                overlapped.set(true);
+        }
+
+        private void exit() {
+            signalling.set(false);
+        }
+
+        Object next() throws InterruptedException {
+            final Object signal = signals.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+            if (signal == null)
+                throw new AssertionError("No signal within " + TIMEOUT_MILLIS + "ms");
+
+            return signal;
+        }
+
+        void expectNone() throws InterruptedException {
+            assertNull(signals.poll(NO_SIGNAL_MILLIS, TimeUnit.MILLISECONDS));
+        }
+
+        Recorder subscribed(final StreamPublisher<Integer> publisher) throws InterruptedException {
+            publisher.subscribe(this);
+            assertEquals("subscribe", next());
+            return this;
+        }
+    }
+
+    @Test
+    public void required_spec101_subscriptionRequestMustResultInTheCorrectNumberOfProducedElements() throws Exception {
+        final Recorder recorder = new Recorder().subscribed(range(10));
+
+        recorder.subscription.request(3);
+        assertEquals(0, recorder.next());
+        assertEquals(1, recorder.next());
+        assertEquals(2, recorder.next());
+        recorder.expectNone();
+
+        recorder.subscription.request(7);
+        for (int i = 3; i < 10; i++)
+            assertEquals(i, recorder.next());
+
+        assertEquals("complete", recorder.next());
+        assertFalse(recorder.overlapped.get());
+    }
+
+    @Test
+    public void required_spec102_maySignalLessThanRequestedAndTerminateSubscription() throws Exception {
+        final Recorder recorder = new Recorder().subscribed(range(2));
+
+        recorder.subscription.request(10);
+        assertEquals(0, recorder.next());
+        assertEquals(1, recorder.next());
+        assertEquals("complete", recorder.next());
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    public void required_spec103_mustSignalOnMethodsSequentially() throws Exception {
+        final Recorder recorder = new Recorder().subscribed(range(2000));
+        final ExecutorService requesters = Executors.newFixedThreadPool(4);
+
+        try {
+            for (int i = 0; i < 2000; i++)
+                requesters.execute(() -> recorder.subscription.request(1));
+
+            for (int i = 0; i < 2000; i++)
+                assertEquals(i, recorder.next());
+
+            assertEquals("complete", recorder.next());
+            assertFalse(recorder.overlapped.get());
+        } finally {
+            requesters.shutdownNow();
+        }
+    }
+
+    @Test
+    public void optional_spec104_mustSignalOnErrorWhenFails() throws Exception {
+        final IllegalStateException failure = new IllegalStateException("broken");
+        final Recorder recorder = new Recorder().subscribed(new StreamPublisher<Integer>(() -> {
+            throw failure;
+        }, executor));
+
+        recorder.subscription.request(1);
+        assertEquals(failure, recorder.next());
+        recorder.expectNone();
+    }
+
+    @Test
+    public void optional_spec104_mustSignalOnErrorWhenFailsWhileStreaming() throws Exception {
+        final Recorder recorder = new Recorder().subscribed(new StreamPublisher<>(
+                () -> Stream.of(1, 2, 3).map(i -> {
+                    if (i == 3)
+                        throw new IllegalStateException("broken");
+                    return i;
+                }).onClose(closed::incrementAndGet), executor));
+
+        recorder.subscription.request(5);
+        assertEquals(1, recorder.next());
+        assertEquals(2, recorder.next());
+        assertTrue(recorder.next() instanceof IllegalStateException);
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    public void required_spec105_mustSignalOnCompleteWhenFiniteStreamTerminates() throws Exception {
+        final Recorder recorder = new Recorder().subscribed(range(0));
+
+        recorder.subscription.request(1);
+        assertEquals("complete", recorder.next());
+        recorder.expectNone();
+    }
+
+    @Test
+    public void required_spec109_mustIssueOnSubscribeForNonNullSubscriber() throws Exception {
+        final Recorder recorder = new Recorder();
+        range(1).subscribe(recorder);
+
+        assertEquals("subscribe", recorder.next());
+        recorder.expectNone();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void required_spec109_subscribeThrowNPEOnNullSubscriber() {
+        range(1).subscribe(null);
+    }
+
+    @Test
+    public void required_spec111_eachSubscriptionOpensItsOwnStreamOnFirstRequest() throws Exception {
+        final StreamPublisher<Integer> publisher = range(1);
+        final Recorder first = new Recorder().subscribed(publisher);
+        final Recorder second = new Recorder().subscribed(publisher);
+
+        assertEquals(0, opened.get());
+
+        first.subscription.request(1);
+        second.subscription.request(1);
+
+        assertEquals(0, first.next());
+        assertEquals(0, second.next());
+        assertEquals(2, opened.get());
+    }
+
+    @Test
+    public void required_spec213_throwingOnNextCancelsTheSubscription() throws Exception {
+        final CountDownLatch thrown = new CountDownLatch(1);
+        final Recorder recorder = new Recorder() {
+            @Override
+            public void onNext(final Integer value) {
+                super.onNext(value);
+                thrown.countDown();
+                throw new IllegalStateException("broken subscriber");
+            }
+        }.subscribed(range(10));
+
+        recorder.subscription.request(10);
+        assertEquals(0, recorder.next());
+        assertTrue(thrown.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        recorder.expectNone();
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    public void required_spec303_mustNotAllowUnboundedRecursionWithinRequestAndOnNext() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicInteger received = new AtomicInteger();
+        final AtomicInteger depth = new AtomicInteger();
+        final AtomicInteger maxDepth = new AtomicInteger();
+
+        // Run on the calling thread so that any recursion would show up on the stack
+        new StreamPublisher<>(() -> IntStream.range(0, 100000).boxed(), Runnable::run).subscribe(
+                new Subscriber<Integer>() {
+                    private Subscription subscription;
+
+                    @Override
+                    public void onSubscribe(final Subscription s) {
+                        subscription = s;
+                        s.request(1);
+                    }
+
+                    @Override
+                    public void onNext(final Integer value) {
+                        maxDepth.accumulateAndGet(depth.incrementAndGet(), Math::max);
+                        received.incrementAndGet();
+                        subscription.request(1);
+                        depth.decrementAndGet();
+                    }
+
+                    @Override
+                    public void onError(final Throwable t) {
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        done.countDown();
+                    }
+                });
+
+        assertTrue(done.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals(100000, received.get());
+        assertEquals(1, maxDepth.get());
+    }
+
+    @Test
+    public void required_spec306_afterSubscriptionIsCancelledRequestMustBeNops() throws Exception {
+        final Recorder recorder = new Recorder().subscribed(range(10));
+
+        recorder.subscription.request(1);
+        assertEquals(0, recorder.next());
+
+        recorder.subscription.cancel();
+        recorder.subscription.request(5);
+        recorder.expectNone();
+    }
+
+    @Test
+    public void required_spec307_afterSubscriptionIsCancelledAdditionalCancelationsMustBeNops() throws Exception {
+        final Recorder recorder = new Recorder().subscribed(range(10));
+
+        recorder.subscription.request(1);
+        assertEquals(0, recorder.next());
+
+        recorder.subscription.cancel();
+        recorder.subscription.cancel();
+        recorder.expectNone();
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    public void required_spec309_requestZeroMustSignalIllegalArgumentException() throws Exception {
+        final Recorder recorder = new Recorder().subscribed(range(10));
+
+        recorder.subscription.request(0);
+        assertTrue(recorder.next() instanceof IllegalArgumentException);
+        recorder.expectNone();
+    }
+
+    @Test
+    public void required_spec309_requestNegativeNumberMustSignalIllegalArgumentException() throws Exception {
+        final Recorder recorder = new Recorder().subscribed(range(10));
+
+        recorder.subscription.request(1);
+        assertEquals(0, recorder.next());
+
+        recorder.subscription.request(-1);
+        assertTrue(recorder.next() instanceof IllegalArgumentException);
+        recorder.expectNone();
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    public void required_spec312_cancelMustMakeThePublisherToEventuallyStopSignaling() throws Exception {
+        final AtomicInteger pulled = new AtomicInteger();
+        final Recorder recorder = new Recorder().subscribed(new StreamPublisher<>(() -> IntStream.range(0, 1000)
+                .boxed()
+                .peek(i -> pulled.incrementAndGet())
+                .onClose(closed::incrementAndGet), executor));
+
+        recorder.subscription.request(2);
+        assertEquals(0, recorder.next());
+        assertEquals(1, recorder.next());
+
+        recorder.subscription.cancel();
+        recorder.expectNone();
+
+        // Nothing was parsed beyond the demand, but for looking one ahead for the end, and the source was released
+        assertTrue(pulled.get() <= 3);
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    public void required_spec313_cancelMustMakeThePublisherEventuallyDropAllReferencesToTheSubscriber()
+            throws Exception {
+
+        Recorder recorder = new Recorder().subscribed(range(10));
+        final Subscription subscription = recorder.subscription;
+        final WeakReference<Recorder> reference = new WeakReference<>(recorder);
+
+        subscription.cancel();
+        recorder.expectNone();
+        recorder = null;
+
+        for (int i = 0; i < 20 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+
+        assertNull(reference.get());
+        subscription.request(1);
+    }
+
+    @Test
+    public void required_spec317_mustSupportACumulativePendingElementCountUpToLongMaxValue() throws Exception {
+        final Recorder recorder = new Recorder().subscribed(range(5));
+
+        recorder.subscription.request(Long.MAX_VALUE);
+        recorder.subscription.request(Long.MAX_VALUE);
+
+        final List<Object> received = new ArrayList<>();
+        for (int i = 0; i < 6; i++)
+            received.add(recorder.next());
+
+        assertEquals("complete", received.get(5));
+        assertEquals(0, received.get(0));
+        assertEquals(4, received.get(4));
+        recorder.expectNone();
+    }
+}
@@ -0,0 +1,143 @@
+package me.bendoerr.mal.java.client.search;
+
+import com.github.tomakehurst.wiremock.junit.WireMockClassRule;
+import me.bendoerr.mal.java.client.MALClient;
+import me.bendoerr.mal.java.client.model.AnimeEntry;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TitleIndexTests {
+
+    public static int TEST_PORT = 8093;
+
+    @ClassRule
+    public static WireMockClassRule MAL_SERVICE = new WireMockClassRule(TEST_PORT);
+
+    @Rule
+    public WireMockClassRule malService = MAL_SERVICE;
+
+    private MALClient client =
+            new MALClient("unitTest", "unitPass", "http://localhost:" + TEST_PORT);
+
+    private static AnimeEntry entry(final String id, final String title, final String english, final String synonyms) {
+        final AnimeEntry entry = new AnimeEntry();
+        entry.setId(id);
+        entry.setTitle(title);
+        entry.setEnglish(english);
+        entry.setSynonyms(synonyms);
+        return entry;
+    }
+
+    private static TitleIndex index() {
+        return new TitleIndex().addAll(Arrays.asList(
+                entry("269", "Bleach", "Bleach", ""),
+                entry("2889", "Bleach - The DiamondDust Rebellion", "Bleach: Diamond Dust Rebellion",
+                        "Bleach: The Diamond Dust Rebellion; Mou Hitotsu no Hyourinmaru"),
+                entry("527", "Pok\u00e9mon", null, "Pocket Monsters"),
+                entry("1", "Cowboy Bebop", "Cowboy Bebop", null)));
+    }
+
+    @Test
+    public void test_normalize() {
+        assertEquals("pokemon the movie", TitleIndex.normalize(" Pok\u00e9mon:  The MOVIE! "));
+        assertEquals("", TitleIndex.normalize(" - "));
+    }
+
+    @Test
+    public void test_search() {
+        final TitleIndex index = index();
+
+        final List<TitleMatch> bleach = index.search("bleach", 0.5, 10);
+        assertEquals(2, bleach.size());
+        assertEquals("269", bleach.get(0).getEntry().getId());
+        assertEquals(1, bleach.get(0).getScore(), 0);
+        assertEquals("2889", bleach.get(1).getEntry().getId());
+
+        assertEquals("2889", index.search("hyourinmaru", 0.5, 10).get(0).getEntry().getId());
+        assertEquals("Pocket Monsters", index.search("pocket mon", 0.5, 10).get(0).getTitle());
+        assertEquals("527", index.search("POKEMON", 1, 10).get(0).getEntry().getId());
+        assertEquals(1, index.search("bleach", 0, 1).size());
+        assertTrue(index.search("naruto", 0.5, 10).isEmpty());
+    }
+
+    @Test
+    public void test_typos() {
+        final List<TitleMatch> matches = index().search("cowbyo bebop", 0.5, 10);
+
+        assertEquals(1, matches.size());
+        assertEquals("1", matches.get(0).getEntry().getId());
+        assertTrue(matches.get(0).getScore() < 1);
+    }
+
+    @Test
+    public void test_replace() {
+        final TitleIndex index = index();
+        index.addAll(Collections.singletonList(entry("1", "Cowboy Bebop: Tengoku no Tobira", null, null)));
+
+        final AnimeListEntry listed = new AnimeListEntry();
+        listed.setSeriesId("1");
+        listed.setSeriesTitle("Something Else");
+        index.addAnimeList(Collections.singletonList(listed));
+
+        assertEquals(4, index.size());
+        assertEquals("Cowboy Bebop: Tengoku no Tobira", index.search("cowboy bebop", 0.5, 10).get(0).getTitle());
+        assertTrue(index.search("something else", 0.5, 10).isEmpty());
+        assertNull(index.search("tengoku", 0.5, 10).get(0).getEntry().getEnglish());
+    }
+
+    @Test
+    public void test_anime_list() {
+        final AnimeListEntry listed = new AnimeListEntry();
+        listed.setSeriesId("20");
+        listed.setSeriesTitle("Naruto");
+        listed.setSeriesSynonyms("; NARUTO");
+        listed.setSeriesEpisodes("220");
+
+        final TitleIndex index = new TitleIndex().addAnimeList(Collections.singletonList(listed));
+        final TitleMatch match = index.search("naruto", 1, 10).get(0);
+
+        assertEquals("20", match.getEntry().getId());
+        assertEquals("220", match.getEntry().getEpisodes());
+        assertNull(match.getEntry().getType());
+    }
+
+    @Test
+    public void test_indexed_search() {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("naruto"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/xml; charset=UTF-8")
+                        .withBody("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+                                "<anime>\n" +
+                                "  <entry>\n" +
+                                "    <id>20</id>\n" +
+                                "    <title>Naruto</title>\n" +
+                                "    <english>Naruto</english>\n" +
+                                "    <synonyms>NARUTO</synonyms>\n" +
+                                "    <episodes>220</episodes>\n" +
+                                "    <type>TV</type>\n" +
+                                "  </entry>\n" +
+                                "</anime>")));
+
+        final IndexedSearch search = new IndexedSearch(client, index());
+
+        assertEquals("269", search.animeSearch("Bleach").get(0).getId());
+        assertEquals("20", search.animeSearch("naruto").get(0).getId());
+        assertEquals("TV", search.animeSearch("Naruto").get(0).getType());
+
+        assertEquals(2, search.getHits());
+        assertEquals(1, search.getMisses());
+        malService.verify(1, getRequestedFor(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH)));
+    }
+}
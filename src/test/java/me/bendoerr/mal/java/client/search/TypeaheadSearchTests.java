@@ -0,0 +1,122 @@
+package me.bendoerr.mal.java.client.search;
+
+import com.github.tomakehurst.wiremock.junit.WireMockClassRule;
+import me.bendoerr.mal.java.client.MALClient;
+import me.bendoerr.mal.java.client.model.AnimeEntry;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TypeaheadSearchTests {
+
+    public static int TEST_PORT = 8094;
+
+    @ClassRule
+    public static WireMockClassRule MAL_SERVICE = new WireMockClassRule(TEST_PORT);
+
+    @Rule
+    public WireMockClassRule malService = MAL_SERVICE;
+
+    private MALClient client =
+            new MALClient("unitTest", "unitPass", "http://localhost:" + TEST_PORT);
+
+    private static final String BLEACH = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+            "<anime>\n" +
+            "  <entry>\n" +
+            "    <id>269</id>\n" +
+            "    <title>Bleach</title>\n" +
+            "    <english>Bleach</english>\n" +
+            "    <synonyms></synonyms>\n" +
+            "  </entry>\n" +
+            "  <entry>\n" +
+            "    <id>2889</id>\n" +
+            "    <title>Bleach - The DiamondDust Rebellion</title>\n" +
+            "    <english>Bleach: Diamond Dust Rebellion</english>\n" +
+            "    <synonyms>Mou Hitotsu no Hyourinmaru</synonyms>\n" +
+            "  </entry>\n" +
+            "  <entry>\n" +
+            "    <id>30</id>\n" +
+            "    <title>Blue Exorcist</title>\n" +
+            "    <english>Blue Exorcist</english>\n" +
+            "    <synonyms>Ao no Exorcist</synonyms>\n" +
+            "  </entry>\n" +
+            "</anime>";
+
+    @Test
+    public void test_debounce_and_refine() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("ble"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/xml; charset=UTF-8")
+                        .withBody(BLEACH)));
+
+        try (TypeaheadSearch typeahead = new TypeaheadSearch(client, 100, TimeUnit.MILLISECONDS, 100, 3)) {
+            final TypeaheadSession session = typeahead.session();
+
+            final CompletableFuture<List<AnimeEntry>> b = session.query("b");
+            final CompletableFuture<List<AnimeEntry>> bl = session.query("bl");
+            final List<AnimeEntry> ble = session.query("ble").get(5, TimeUnit.SECONDS);
+
+            assertTrue(b.isCancelled());
+            assertTrue(bl.isCancelled());
+            assertEquals(3, ble.size());
+
+            final List<AnimeEntry> bleach = session.query("Bleach").get();
+            assertEquals(2, bleach.size());
+
+            final List<AnimeEntry> diamond = session.query("bleach dia").get();
+            assertEquals(1, diamond.size());
+            assertEquals("2889", diamond.get(0).getId());
+
+            assertEquals(3, typeahead.session().query("ble ").get().size());
+
+            final TypeaheadStats stats = typeahead.getStats();
+            assertEquals(6, stats.getQueries());
+            assertEquals(1, stats.getRemoteCalls());
+            assertEquals(2, stats.getDebounced());
+            assertEquals(2, stats.getRefined());
+            assertEquals(1, stats.getCacheHits());
+            assertEquals(5, stats.getSavedCalls());
+        }
+
+        malService.verify(1, getRequestedFor(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH)));
+    }
+
+    @Test
+    public void test_in_flight_query_is_cancelled() throws Exception {
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("naru"))
+                .willReturn(aResponse()
+                        .withFixedDelay(2000)
+                        .withStatus(204)));
+        malService.stubFor(get(urlPathEqualTo(MALClient.PATH_ANIME_SEARCH))
+                .withQueryParam("q", equalTo("naruto"))
+                .willReturn(aResponse()
+                        .withStatus(204)));
+
+        try (TypeaheadSearch typeahead = new TypeaheadSearch(client, 0, TimeUnit.MILLISECONDS, 100, 3)) {
+            final TypeaheadSession session = typeahead.session();
+
+            final CompletableFuture<List<AnimeEntry>> naru = session.query("naru");
+
+            for (int i = 0; i < 100 && typeahead.getStats().getRemoteCalls() == 0; i++)
+                Thread.sleep(10);
+
+            assertTrue(session.query("naruto").get(5, TimeUnit.SECONDS).isEmpty());
+            assertTrue(naru.isCancelled());
+
+            final TypeaheadStats stats = typeahead.getStats();
+            assertEquals(2, stats.getRemoteCalls());
+            assertEquals(1, stats.getCancelled());
+            assertEquals(0, stats.getSavedCalls());
+        }
+    }
+}
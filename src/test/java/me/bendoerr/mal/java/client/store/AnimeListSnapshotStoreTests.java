@@ -0,0 +1,95 @@
+package me.bendoerr.mal.java.client.store;
+
+import me.bendoerr.mal.java.client.list.AnimeListSnapshot;
+import me.bendoerr.mal.java.client.model.AnimeListEntry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class AnimeListSnapshotStoreTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static AnimeListEntry entry(final String id, final String title, final String lastUpdated) {
+        final AnimeListEntry entry = new AnimeListEntry();
+        entry.setSeriesId(id);
+        entry.setSeriesTitle(title);
+        entry.setSeriesSynonyms("");
+        entry.setSeriesType("1");
+        entry.setSeriesEpisodes("007");
+        entry.setSeriesStart("2004-10-05");
+        entry.setListStart("0000-00-00");
+        entry.setListScore("0");
+        entry.setListStatus("1");
+        entry.setListLastUpdated(lastUpdated);
+        entry.setListTags("test tag, 2nd tag");
+        return entry;
+    }
+
+    private Map<String, List<AnimeListEntry>> lists() {
+        final Map<String, List<AnimeListEntry>> lists = new LinkedHashMap<>();
+        lists.put("zeta", Arrays.asList(entry("269", "Bleach", "1462478400"), entry("2889", "Bleach \u2665", "99")));
+        lists.put("alpha", Collections.singletonList(entry("1", "Cowboy Bebop", "9999999999")));
+        lists.put("\u00e9mile", Collections.<AnimeListEntry>emptyList());
+        return lists;
+    }
+
+    @Test
+    public void test_round_trip() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("lists.mals");
+        final Map<String, List<AnimeListEntry>> lists = lists();
+
+        AnimeListSnapshotStore.write(path, lists);
+
+        try (AnimeListSnapshotStore store = AnimeListSnapshotStore.open(path)) {
+            assertEquals(3, store.getEntryCount());
+            assertEquals(Arrays.asList("alpha", "zeta", "\u00e9mile"), store.getUsernames());
+
+            for (Map.Entry<String, List<AnimeListEntry>> list : lists.entrySet())
+                assertEquals(list.getValue(), store.get(list.getKey()));
+
+            assertNull(store.get("nobody"));
+            assertEquals("007", store.get("zeta").get(0).getSeriesEpisodes());
+            assertNull(store.get("zeta").get(0).getSeriesEnd());
+            assertEquals(1462478400, store.getSnapshot("zeta").getWatermark());
+        }
+    }
+
+    @Test
+    public void test_views_can_be_rewritten() throws Exception {
+        final Path first = folder.getRoot().toPath().resolve("first.mals");
+        final Path second = folder.getRoot().toPath().resolve("second.mals");
+
+        AnimeListSnapshotStore.write(first, lists());
+
+        try (AnimeListSnapshotStore store = AnimeListSnapshotStore.open(first)) {
+            final AnimeListSnapshot snapshot = store.getSnapshot("zeta");
+            AnimeListSnapshotStore.write(second, Collections.singletonList(snapshot));
+        }
+
+        try (AnimeListSnapshotStore store = AnimeListSnapshotStore.open(second)) {
+            assertEquals(lists().get("zeta"), store.get("zeta"));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void test_views_are_read_only() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("lists.mals");
+        AnimeListSnapshotStore.write(path, lists());
+
+        try (AnimeListSnapshotStore store = AnimeListSnapshotStore.open(path)) {
+            store.get("alpha").get(0).setListScore("10");
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package me.bendoerr.mal.java.client.xml;
+
+import me.bendoerr.mal.java.client.model.AnimeListEntryValues;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AnimeListEntryValuesWriterTests {
+
+    private static AnimeListEntryValues values() {
+        final AnimeListEntryValues values = new AnimeListEntryValues();
+        values.setEpisode("11");
+        values.setStatus("1");
+        values.setDateStart("10052004");
+        values.setComments("Fish & <chips> \"caf\u00e9\" \uD83C\uDF63 100%");
+        values.setTags("");
+        return values;
+    }
+
+    @Test
+    public void test_write_matches_jaxb() {
+        final StringWriter stax = new StringWriter();
+        AnimeListEntryValuesWriter.write(values(), stax);
+
+        assertFalse(stax.toString().contains("<score>"));
+        assertTrue(stax.toString().contains("<episode>11</episode>"));
+
+        final XmlSerializer serializer = XmlSerializer.shared();
+        final AnimeListEntryValues parsed = serializer.unmarshal(
+                new ByteArrayInputStream(stax.toString().getBytes(StandardCharsets.UTF_8)), AnimeListEntryValues.class);
+        final AnimeListEntryValues jaxb = serializer.unmarshal(
+                new ByteArrayInputStream(serializer.toXml(values()).getBytes(StandardCharsets.UTF_8)),
+                AnimeListEntryValues.class);
+
+        assertEquals(values(), parsed);
+        assertEquals(jaxb, parsed);
+    }
+
+    @Test
+    public void test_write_form_matches_url_encoder() throws Exception {
+        final StringWriter xml = new StringWriter();
+        AnimeListEntryValuesWriter.write(values(), xml);
+
+        final ByteArrayOutputStream form = new ByteArrayOutputStream();
+        AnimeListEntryValuesWriter.writeForm("data", values(), form);
+
+        final String body = new String(form.toByteArray(), StandardCharsets.US_ASCII);
+        assertEquals("data=" + URLEncoder.encode(xml.toString(), "UTF-8"), body);
+        assertEquals(xml.toString(), URLDecoder.decode(body.substring(5), "UTF-8"));
+    }
+
+    @Test
+    public void test_serializer_caches_contexts() {
+        final XmlSerializer serializer = new XmlSerializer(1);
+        assertSame(serializer.context(AnimeListEntryValues.class), serializer.context(AnimeListEntryValues.class));
+        assertEquals(serializer.toXml(values()), serializer.toXml(values()));
+    }
+}